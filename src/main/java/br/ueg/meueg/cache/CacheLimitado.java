@@ -0,0 +1,112 @@
+package br.ueg.meueg.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache em memória com tamanho máximo (remove o menos usado recentemente) e tempo de vida por entrada.
+ * Thread-safe; pensado para poucos milhares de entradas por instância.
+ */
+public class CacheLimitado<K, V> {
+
+    private record Entrada<V>(V valor, long expiraEmNanos) {
+    }
+
+    private final int capacidade;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entrada<V>> mapa;
+
+    private final AtomicLong acertos = new AtomicLong();
+    private final AtomicLong faltas = new AtomicLong();
+    private final AtomicLong remocoes = new AtomicLong();
+
+    public CacheLimitado(int capacidade, Duration ttl) {
+        this.capacidade = capacidade;
+        this.ttlNanos = ttl.toNanos();
+        // accessOrder = true: a ordem de iteração é a do último acesso (LRU)
+        this.mapa = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> maisAntiga) {
+                boolean remover = size() > CacheLimitado.this.capacidade;
+                if (remover) {
+                    remocoes.incrementAndGet();
+                }
+                return remover;
+            }
+        };
+    }
+
+    public synchronized V get(K chave) {
+        Entrada<V> entrada = buscarValida(chave);
+        if (entrada == null) {
+            faltas.incrementAndGet();
+            return null;
+        }
+        acertos.incrementAndGet();
+        return entrada.valor();
+    }
+
+    public synchronized void put(K chave, V valor) {
+        mapa.put(chave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+    }
+
+    // Insere só se não houver valor válido. Retorna o valor existente, ou null se inseriu.
+    public synchronized V putIfAbsent(K chave, V valor) {
+        Entrada<V> existente = buscarValida(chave);
+        if (existente != null) {
+            acertos.incrementAndGet();
+            return existente.valor();
+        }
+        faltas.incrementAndGet();
+        mapa.put(chave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+        return null;
+    }
+
+    public synchronized boolean remove(K chave, V valor) {
+        Entrada<V> entrada = mapa.get(chave);
+        if (entrada != null && entrada.valor() == valor) {
+            mapa.remove(chave);
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void remove(K chave) {
+        mapa.remove(chave);
+    }
+
+    public synchronized void limpar() {
+        mapa.clear();
+    }
+
+    public synchronized int tamanho() {
+        return mapa.size();
+    }
+
+    public long getAcertos() {
+        return acertos.get();
+    }
+
+    public long getFaltas() {
+        return faltas.get();
+    }
+
+    public long getRemocoes() {
+        return remocoes.get();
+    }
+
+    private Entrada<V> buscarValida(K chave) {
+        Entrada<V> entrada = mapa.get(chave);
+        if (entrada == null) {
+            return null;
+        }
+        if (System.nanoTime() - entrada.expiraEmNanos() > 0) {
+            mapa.remove(chave);
+            remocoes.incrementAndGet();
+            return null;
+        }
+        return entrada;
+    }
+}
@@ -0,0 +1,126 @@
+package br.ueg.meueg.cache;
+
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.dto.VendaItemDTO;
+import br.ueg.meueg.voz.Textos;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.stream.Collectors;
+
+/**
+ * Cache em dois níveis do fluxo de venda por voz:
+ *  - nível 1 (audio): hash do áudio -> transcrição (pula a chamada de STT);
+ *  - nível 2 (interpretacao): usuário + versão do catálogo + texto normalizado -> VendaDTO interpretado (pula o LLM).
+ * As frases dos caixas se repetem muito ("duas pipocas no pix"), então os dois níveis acertam bastante.
+ */
+@Component
+public class CacheVoz {
+
+    private final CacheLimitado<String, String> transcricoes;
+    private final CacheLimitado<String, VendaDTO> interpretacoes;
+    private final CatalogoVersoes catalogoVersoes;
+
+    public CacheVoz(CatalogoVersoes catalogoVersoes, MeterRegistry meterRegistry,
+                    @Value("${voz.cache.audio.capacidade:2000}") int capacidadeAudio,
+                    @Value("${voz.cache.interpretacao.capacidade:5000}") int capacidadeInterpretacao,
+                    @Value("${voz.cache.ttl-minutos:60}") long ttlMinutos) {
+        this.catalogoVersoes = catalogoVersoes;
+        this.transcricoes = new CacheLimitado<>(capacidadeAudio, Duration.ofMinutes(ttlMinutos));
+        this.interpretacoes = new CacheLimitado<>(capacidadeInterpretacao, Duration.ofMinutes(ttlMinutos));
+        registrarMetricas(meterRegistry, "audio", transcricoes);
+        registrarMetricas(meterRegistry, "interpretacao", interpretacoes);
+    }
+
+    // --- Nível 1 ---
+
+    public String chaveAudio(byte[] audio) {
+        int inicio = inicioAmostras(audio);
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(audio, inicio, audio.length - inicio);
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String buscarTranscricao(String chaveAudio) {
+        return transcricoes.get(chaveAudio);
+    }
+
+    public void guardarTranscricao(String chaveAudio, String transcricao) {
+        transcricoes.put(chaveAudio, transcricao);
+    }
+
+    // --- Nível 2 ---
+
+    // Devolve uma cópia: quem chama completa o DTO (preços, IDs) e não pode alterar o que está no cache
+    public VendaDTO buscarInterpretacao(Long idUsuario, String transcricao) {
+        VendaDTO venda = interpretacoes.get(chaveInterpretacao(idUsuario, transcricao));
+        return venda == null ? null : copiar(venda);
+    }
+
+    public void guardarInterpretacao(Long idUsuario, String transcricao, VendaDTO venda) {
+        interpretacoes.put(chaveInterpretacao(idUsuario, transcricao), copiar(venda));
+    }
+
+    // "Duas pipocas, no Pix." e "duas pipocas no pix" viram a mesma chave
+    private String chaveInterpretacao(Long idUsuario, String transcricao) {
+        return idUsuario + ":" + catalogoVersoes.versao(idUsuario) + ":" + Textos.normalizar(transcricao);
+    }
+
+    // O hash considera só as amostras: o mesmo áudio com cabeçalho WAV diferente (metadados) acerta igual
+    private int inicioAmostras(byte[] audio) {
+        if (audio.length < 12 || !"RIFF".equals(new String(audio, 0, 4, StandardCharsets.US_ASCII))) {
+            return 0;
+        }
+        int posicao = 12;
+        while (posicao + 8 <= audio.length) {
+            String id = new String(audio, posicao, 4, StandardCharsets.US_ASCII);
+            int tamanho = (audio[posicao + 4] & 0xff) | (audio[posicao + 5] & 0xff) << 8
+                    | (audio[posicao + 6] & 0xff) << 16 | (audio[posicao + 7] & 0xff) << 24;
+            if ("data".equals(id)) {
+                return posicao + 8;
+            }
+            if (tamanho < 0) {
+                break;
+            }
+            posicao += 8 + tamanho + (tamanho & 1);
+        }
+        return 0;
+    }
+
+    // Cópia profunda (itens inclusive) de uma interpretação
+    public VendaDTO copiar(VendaDTO origem) {
+        VendaDTO copia = new VendaDTO(origem.getId(), origem.getData(), origem.getValor_total(), origem.getForma_pagamento(),
+                origem.getIdUsuario(), origem.getUsernameUsuario(), null,
+                origem.getItensNaoReconhecidos() == null ? null : new ArrayList<>(origem.getItensNaoReconhecidos()));
+        if (origem.getItens() != null) {
+            copia.setItens(origem.getItens().stream()
+                    .map(item -> new VendaItemDTO(item.getId(), item.getIdProduto(), item.getNomeProduto(), item.getQuantidade(), item.getPrecoUnitario()))
+                    .collect(Collectors.toList()));
+        }
+        return copia;
+    }
+
+    private void registrarMetricas(MeterRegistry registry, String nivel, CacheLimitado<?, ?> cache) {
+        FunctionCounter.builder("voz.cache.consultas", cache, CacheLimitado::getAcertos)
+                .tag("nivel", nivel).tag("resultado", "acerto").register(registry);
+        FunctionCounter.builder("voz.cache.consultas", cache, CacheLimitado::getFaltas)
+                .tag("nivel", nivel).tag("resultado", "falta").register(registry);
+        FunctionCounter.builder("voz.cache.remocoes", cache, CacheLimitado::getRemocoes)
+                .tag("nivel", nivel).register(registry);
+        Gauge.builder("voz.cache.tamanho", cache, CacheLimitado::tamanho)
+                .tag("nivel", nivel).register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package br.ueg.meueg.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versão do catálogo de produtos de cada usuário. Entra na chave dos caches que dependem dos nomes
+ * de produto: ao alterar um produto a versão sobe e as entradas antigas deixam de ser encontradas
+ * (saem sozinhas pelo LRU/TTL).
+ */
+@Component
+public class CatalogoVersoes {
+
+    private final Map<Long, Long> versoes = new ConcurrentHashMap<>();
+
+    public long versao(Long idUsuario) {
+        return versoes.getOrDefault(idUsuario, 0L);
+    }
+
+    // Dentro de transação sobe de novo depois do commit: um índice montado com os dados
+    // antigos no meio tempo (ainda sem o commit) não fica valendo com a versão nova
+    public void invalidar(Long idUsuario) {
+        if (idUsuario == null) {
+            return;
+        }
+        versoes.merge(idUsuario, 1L, Long::sum);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versoes.merge(idUsuario, 1L, Long::sum);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package br.ueg.meueg.config;
+
+import jakarta.annotation.PostConstruct;
+import br.ueg.meueg.service.MovimentacaoEstoqueService;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Ajustes de dados que o ddl-auto=update não faz sozinho, executados na subida da aplicação.
+ *
+ * Roda na criação do bean, depois do EntityManagerFactory (schema já atualizado pelo Hibernate) e antes de
+ * o Tomcat começar a atender: nenhuma escrita chega antes de os ajustes terminarem. Cada passo é idempotente.
+ * Os preenchimentos que varrem tabelas inteiras só valem uma vez: ficam registrados em migracao_banco e não
+ * rodam de novo nas próximas subidas.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MigracaoBanco {
+
+    // Mesmo allocationSize dos @SequenceGenerator das entidades
+    private static final int ALOCACAO_SEQUENCIA = 50;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final MovimentacaoEstoqueService movimentacaoEstoqueService;
+
+    @PostConstruct
+    void executar() {
+        alinharSequencia("venda_seq", "venda", "id_venda");
+        alinharSequencia("venda_item_seq", "venda_item", "id");
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS migracao_banco (
+                    nome VARCHAR(100) PRIMARY KEY,
+                    executada_em TIMESTAMP NOT NULL
+                )""");
+        umaVez("atualizado_em_produto_servico", () -> preencherAtualizadoEm("produto_servico"));
+        umaVez("atualizado_em_estoque", () -> preencherAtualizadoEm("estoque"));
+        umaVez("atualizado_em_venda", () -> preencherAtualizadoEm("venda"));
+        umaVez("consolidado_em_estoque", this::preencherConsolidadoEm);
+        umaVez("snapshot_inicial_estoque", this::gerarSnapshotsIniciais);
+    }
+
+    // Registra o passo depois de executado. Duas instâncias subindo juntas podem rodar o mesmo passo (todos
+    // são idempotentes); a segunda só não consegue registrar de novo.
+    private void umaVez(String nome, Runnable passo) {
+        Integer executadas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM migracao_banco WHERE nome = ?", Integer.class, nome);
+        if (executadas != null && executadas > 0) {
+            return;
+        }
+        passo.run();
+        try {
+            jdbcTemplate.update("INSERT INTO migracao_banco (nome, executada_em) VALUES (?, ?)",
+                    nome, Timestamp.valueOf(LocalDateTime.now()));
+        } catch (DuplicateKeyException e) {
+            log.debug("Migração {} já registrada por outra instância", nome);
+        }
+    }
+
+    // Linhas gravadas antes do controle de sincronização têm atualizado_em nulo e nunca passariam no
+    // filtro "atualizado_em > cursor" do GET /sync. Marcadas com o horário da subida, vão uma vez para
+    // quem já sincronizou (repetição inofensiva: o app faz upsert por ID).
+    private void preencherAtualizadoEm(String tabela) {
+        int linhas = jdbcTemplate.update("UPDATE " + tabela + " SET atualizado_em = CURRENT_TIMESTAMP WHERE atualizado_em IS NULL");
+        if (linhas > 0) {
+            log.info("{}: atualizado_em preenchido em {} linhas antigas", tabela, linhas);
+        }
+    }
+
+    // Antes do livro ser a fonte do saldo, estoque.quantidade já era o saldo atual, com todas as movimentações
+    // somadas: a consolidação dessas linhas é "agora" (relógio da aplicação, o mesmo das datas do livro)
+    private void preencherConsolidadoEm() {
+        int linhas = jdbcTemplate.update("UPDATE estoque SET consolidado_em = ? WHERE consolidado_em IS NULL",
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (linhas > 0) {
+            log.info("estoque: consolidado_em preenchido em {} linhas antigas", linhas);
+        }
+    }
+
+    // Tabelas que vieram do IDENTITY já têm linhas, e a sequence criada pelo Hibernate começa em 1:
+    // a primeira venda gravada colidiria com uma chave existente. Avança a sequence para depois do maior ID.
+    private void alinharSequencia(String sequencia, String tabela, String colunaId) {
+        Long maiorId = jdbcTemplate.queryForObject("SELECT MAX(" + colunaId + ") FROM " + tabela, Long.class);
+        if (maiorId == null) {
+            return;
+        }
+        // Consumir um valor é inofensivo (só abre um buraco na numeração) e funciona em qualquer banco
+        Long atual = jdbcTemplate.queryForObject(dialeto().getSequenceSupport().getSequenceNextValString(sequencia), Long.class);
+        // Otimizador "pooled": cada valor N da sequence libera os IDs (N - 49) a N, então a próxima
+        // chamada (atual + 50) só é segura se atual >= maiorId
+        if (atual != null && atual >= maiorId) {
+            return;
+        }
+        long reinicio = maiorId + ALOCACAO_SEQUENCIA;
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequencia + " RESTART WITH " + reinicio);
+        log.info("Sequence {} alinhada com {}.{}: reinicia em {} (maior ID existente {})", sequencia, tabela, colunaId, reinicio, maiorId);
+    }
+
+    // Estoques anteriores ao livro de movimentações: saldo de partida para as consultas de saldo em uma data
+    private void gerarSnapshotsIniciais() {
+        int estoques = movimentacaoEstoqueService.gerarSnapshotsIniciais();
+        if (estoques > 0) {
+            log.info("Snapshot inicial do livro de estoque gerado para {} estoques", estoques);
+        }
+    }
+
+    private Dialect dialeto() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+}
@@ -1,7 +1,9 @@
 package br.ueg.meueg.config;
 
 import br.ueg.meueg.security.JwtFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -9,6 +11,7 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
@@ -17,12 +20,16 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 public class SecurityConfig {
 
     private final JwtFilter jwtFilter;
+    private final Environment environment;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .securityMatcher("/**")
                 .authorizeHttpRequests(auth -> auth
+                        // Respostas assíncronas (streaming, CompletableFuture) já foram autorizadas na requisição original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                         // URLs para autenticação e registro
                         .requestMatchers("/auth/**").permitAll()
 
@@ -32,7 +39,14 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-resources/**").permitAll()
                         .requestMatchers("/webjars/**").permitAll()
 
+                        // Actuator só responde na porta de gerenciamento (management.server.port), que não é
+                        // publicada: o coletor de métricas e o balanceador acessam pela rede interna
+                        .requestMatchers(portaGerenciamento()).permitAll()
+
                         .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**").permitAll() // Permite preflight requests
+
+                        // Reconstrução dos resumos varre o histórico inteiro e segura as vendas do usuário: só administradores
+                        .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/v1/relatorios/vendas/reconstruir").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
@@ -41,6 +55,14 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // A porta real só é conhecida depois que o servidor de gerenciamento sobe (pode ser 0 = aleatória nos testes)
+    private RequestMatcher portaGerenciamento() {
+        return request -> {
+            Integer porta = environment.getProperty("local.management.port", Integer.class);
+            return porta != null && request.getLocalPort() == porta;
+        };
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -1,26 +1,35 @@
 package br.ueg.meueg.controller;
 
+import br.ueg.meueg.dto.TrabalhoVozDTO;
 import br.ueg.meueg.dto.VendaDTO;
-import br.ueg.meueg.entity.User;
 import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.exception.SobrecargaException;
 import br.ueg.meueg.repository.UserRepository;
-import br.ueg.meueg.service.AIService;
-import br.ueg.meueg.service.SpeechToTextService;
-import br.ueg.meueg.service.VendaService; // Importante
+import br.ueg.meueg.service.VozService;
+import br.ueg.meueg.voz.CanalAudio;
+import br.ueg.meueg.voz.MetricasVoz;
+import br.ueg.meueg.voz.Prazo;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.security.Principal;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/v1/voz")
@@ -28,68 +37,131 @@ import java.util.Optional;
 @SecurityRequirement(name = "BearerAuth")
 public class AudioController {
 
-    private final SpeechToTextService speechToTextService;
-    private final VendaService vendaService; // <--- Certifique-se que o Service com a correção está injetado aqui
-    private final AIService aiService;
+    private static final int MAX_ESPERA_SEGUNDOS = 30;
+    private static final int TAMANHO_BLOCO_UPLOAD = 8192;
+    private static final int BLOCOS_EM_TRANSITO = 16; // Quanto do upload espera o reconhecedor (~128 KB)
+
+    private final VozService vozService;
     private final UserRepository userRepository;
+    private final MetricasVoz metricasVoz;
+
+    // Limite do comando em streaming (upload + reconhecimento); o relógio começa quando a requisição chega
+    @Value("${voz.prazo.stream-ms:60000}")
+    private long prazoStreamMs;
 
+    // O áudio é lido aqui e o resto (STT -> IA -> catálogo) roda no executor de voz: a thread do Tomcat
+    // é liberada na hora (resposta assíncrona) e o CRUD não disputa threads com comandos de voz.
     @PostMapping(value = "/processar-venda", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Transcreve áudio, processa a IA e retorna a PROPOSTA de venda (Não Salva).")
-    public ResponseEntity<VendaDTO> processarVenda(@RequestParam("audioFile") MultipartFile audioFile, Principal principal) {
+    public CompletableFuture<ResponseEntity<VendaDTO>> processarVenda(@RequestParam("audioFile") MultipartFile audioFile,
+                                                                      Principal principal) throws IOException {
         if (audioFile.isEmpty()) {
             throw new BusinessException("Nenhum arquivo de áudio enviado.");
         }
+        Long userId = idUsuario(principal);
 
-        String username = principal.getName();
-        User userEntity = userRepository.findByUsername(username)
-                .orElseThrow(() -> new BusinessException("Usuário logado não encontrado."));
-        Long userId = userEntity.getId();
-
-        File tempAudioFile = null;
-        try {
-            tempAudioFile = File.createTempFile("audio", ".wav");
-            try (FileOutputStream fos = new FileOutputStream(tempAudioFile)) {
-                fos.write(audioFile.getBytes());
-            }
+        return responder(vozService.processar(lerAudio(audioFile), userId));
+    }
 
-            // 1. Transcrição (Áudio -> Texto)
-            String transcricao = speechToTextService.transcrever(tempAudioFile);
-            if (transcricao == null || transcricao.isEmpty()) {
-                throw new BusinessException("Não foi possível transcrever o áudio.");
-            }
+    // Modo trabalho: responde 202 com o id na hora; o app consulta GET /trabalhos/{id} até ficar CONCLUIDO ou ERRO
+    @PostMapping(value = "/trabalhos", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Enfileira o processamento do áudio e retorna o id do trabalho.")
+    public ResponseEntity<TrabalhoVozDTO> criarTrabalho(@RequestParam("audioFile") MultipartFile audioFile,
+                                                        Principal principal) throws IOException {
+        if (audioFile.isEmpty()) {
+            throw new BusinessException("Nenhum arquivo de áudio enviado.");
+        }
+        TrabalhoVozDTO trabalho = vozService.iniciarTrabalho(lerAudio(audioFile), idUsuario(principal));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/voz/trabalhos/" + trabalho.getId()))
+                .body(trabalho);
+    }
 
-            // 2. Inteligência Artificial (Texto -> Itens brutos)
-            // A IA identifica "pipoca" e "2", mas não sabe preço nem ID.
-            Optional<VendaDTO> vendaDTOOptional = aiService.processVoiceCommand(transcricao, userId);
+    // aguardarSegundos > 0: segura a resposta (sem prender thread) até o trabalho terminar ou o tempo acabar
+    @GetMapping("/trabalhos/{id}")
+    @Operation(summary = "Consulta o estado de um trabalho de voz (com espera opcional).")
+    public CompletableFuture<TrabalhoVozDTO> consultarTrabalho(@PathVariable String id,
+                                                               @RequestParam(defaultValue = "0") int aguardarSegundos,
+                                                               Principal principal) {
+        Long userId = idUsuario(principal);
+        if (aguardarSegundos <= 0) {
+            return CompletableFuture.completedFuture(vozService.consultarTrabalho(id, userId));
+        }
+        Duration espera = Duration.ofSeconds(Math.min(aguardarSegundos, MAX_ESPERA_SEGUNDOS));
+        return vozService.aguardarTrabalho(id, userId, espera);
+    }
 
-            if (vendaDTOOptional.isEmpty()) {
-                throw new BusinessException("A IA não conseguiu entender o comando.");
-            }
+    // Variante em streaming: o app envia o áudio (WAV ou PCM cru 16 bits mono) em chunks (Transfer-Encoding: chunked)
+    // enquanto grava, e cada bloco segue para o reconhecedor assim que chega. A transcrição termina
+    // logo depois que o usuário para de falar, em vez de esperar o upload inteiro.
+    // Só o upload passa pela thread do Tomcat: o reconhecimento, a IA e o catálogo rodam no executor de voz
+    // e a thread é liberada quando o último bloco chega (resposta assíncrona, como em processar-venda).
+    @PostMapping(value = "/processar-venda/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Transcreve áudio enviado em streaming, processa a IA e retorna a PROPOSTA de venda (Não Salva).")
+    public CompletableFuture<ResponseEntity<VendaDTO>> processarVendaStream(@RequestParam(defaultValue = "16000") int taxaAmostragem,
+                                                                            HttpServletRequest request, Principal principal) throws IOException {
+        Prazo prazo = Prazo.em(Duration.ofMillis(prazoStreamMs));
+        Long userId = idUsuario(principal);
 
-            VendaDTO vendaDTO = vendaDTOOptional.get();
+        CanalAudio canal = new CanalAudio(BLOCOS_EM_TRANSITO, prazo);
+        CompletableFuture<VendaDTO> proposta = vozService.processarStream(canal, taxaAmostragem, userId, prazo);
+        proposta.whenComplete((resultado, erro) -> canal.close());
+        repassarUpload(request.getInputStream(), canal);
+        return responder(proposta);
+    }
 
-            // Define o ID do usuário para a busca no banco funcionar
-            vendaDTO.setIdUsuario(userId);
+    private void repassarUpload(InputStream upload, CanalAudio canal) {
+        byte[] buffer = new byte[TAMANHO_BLOCO_UPLOAD];
+        try {
+            int lidos;
+            while ((lidos = upload.read(buffer)) != -1) {
+                if (!canal.enviar(buffer, lidos)) {
+                    return; // Reconhecedor já terminou (formato inválido, falha, prazo): o resultado diz o motivo
+                }
+            }
+            canal.terminar();
+        } catch (IOException e) {
+            canal.abortar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            canal.abortar();
+        }
+    }
 
-            // --- A MÁGICA ACONTECE AQUI (A CORREÇÃO) ---
-            // Chamamos o VendaService para pegar os preços, IDs e corrigir maiúsculas/minúsculas
-            VendaDTO propostaCalculada = vendaService.processarPropostaVoz(vendaDTO);
+    // Mesma tradução de erros para as duas variantes (multipart e streaming)
+    private CompletableFuture<ResponseEntity<VendaDTO>> responder(CompletableFuture<VendaDTO> resultado) {
+        return resultado.handle((proposta, erro) -> {
+            if (erro == null) {
+                return ResponseEntity.ok(proposta);
+            }
+            Throwable causa = erro instanceof CompletionException ? erro.getCause() : erro;
+            if (causa instanceof BusinessException) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            }
+            if (causa instanceof PrazoEsgotadoException) {
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(null);
+            }
+            if (causa instanceof SobrecargaException sobrecarga) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(sobrecarga.getRetryAfterSegundos()))
+                        .body(null);
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        });
+    }
 
-            // 3. Retorna a proposta JÁ CALCULADA para o Flutter
-            return ResponseEntity.ok(propostaCalculada);
+    // O multipart já chegou inteiro (Tomcat); esta é a única cópia para a memória: o mesmo buffer segue até o STT
+    private byte[] lerAudio(MultipartFile audioFile) throws IOException {
+        Timer.Sample amostra = metricasVoz.iniciar();
+        byte[] audio = audioFile.getBytes();
+        metricasVoz.etapa(amostra, "leitura_audio", MetricasVoz.SEM_BACKEND, null);
+        metricasVoz.tamanhoAudio(audio.length);
+        return audio;
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        } catch (BusinessException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        } finally {
-            if (tempAudioFile != null) {
-                tempAudioFile.delete();
-            }
-        }
+    private Long idUsuario(Principal principal) {
+        return userRepository.findByUsername(principal.getName())
+                .orElseThrow(() -> new BusinessException("Usuário logado não encontrado."))
+                .getId();
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,21 @@
 package br.ueg.meueg.controller;
 
 import br.ueg.meueg.dto.EstoqueDTO;
+import br.ueg.meueg.dto.MovimentacaoEstoqueDTO;
+import br.ueg.meueg.dto.SaldoEstoqueDTO;
 import br.ueg.meueg.entity.Estoque;
+import br.ueg.meueg.entity.MovimentacaoEstoque;
 import br.ueg.meueg.entity.ProdutoServico;
 import br.ueg.meueg.entity.User;
 import br.ueg.meueg.exception.BusinessException;
 import br.ueg.meueg.exception.NotFoundException;
 import br.ueg.meueg.service.EstoqueService;
+import br.ueg.meueg.service.MovimentacaoEstoqueService;
 import br.ueg.meueg.service.ProdutoServicoService;
 import br.ueg.meueg.service.UserService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,6 +23,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -30,6 +36,7 @@ public class EstoqueController {
     private final EstoqueService estoqueService;
     private final UserService userService;
     private final ProdutoServicoService produtoServicoService;
+    private final MovimentacaoEstoqueService movimentacaoEstoqueService;
 
     // **NOVO ENDPOINT: Buscar estoque por usuário logado**
     @GetMapping("/meu-estoque") // Ou simplesmente @GetMapping se você remover o getAllEstoque() genérico
@@ -63,6 +70,41 @@ public class EstoqueController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Histórico (livro de movimentações) do estoque, mais recentes primeiro
+    @GetMapping("/{id}/movimentacoes")
+    public ResponseEntity<List<MovimentacaoEstoqueDTO>> getMovimentacoes(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        User usuario = userService.findByUsername(userDetails.getUsername());
+        if (usuario == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Usuário não encontrado.");
+        }
+        if (estoqueService.findByIdAndUsuario(id, usuario).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<MovimentacaoEstoqueDTO> dtos = movimentacaoEstoqueService.listarRecentes(id).stream()
+                .map(this::toMovimentacaoDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(dtos);
+    }
+
+    // Saldo em um instante (ex: ?em=2025-01-31T23:59:59); sem parâmetro, saldo atual pelo livro
+    @GetMapping("/{id}/saldo")
+    public ResponseEntity<SaldoEstoqueDTO> getSaldoEm(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime em,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        User usuario = userService.findByUsername(userDetails.getUsername());
+        if (usuario == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Usuário não encontrado.");
+        }
+        if (estoqueService.findByIdAndUsuario(id, usuario).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        LocalDateTime dataHora = em != null ? em : LocalDateTime.now();
+        return ResponseEntity.ok(new SaldoEstoqueDTO(id, dataHora, movimentacaoEstoqueService.saldoEm(id, dataHora)));
+    }
+
     // Ajustar o createEstoque para garantir o usuário e usar idProduto para nome
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -151,6 +193,10 @@ public class EstoqueController {
         return dto;
     }
 
+    private MovimentacaoEstoqueDTO toMovimentacaoDTO(MovimentacaoEstoque entity) {
+        return new MovimentacaoEstoqueDTO(entity.getId(), entity.getTipo().name(), entity.getQuantidade(), entity.getDataHora(), entity.getIdVenda());
+    }
+
     private Estoque toEntity(EstoqueDTO dto) {
         // Cuidado: Ao converter para entidade, o ProdutoServico precisa ser setado corretamente
         // aqui estamos apenas criando um ProdutoServico "fake" com o ID.
@@ -0,0 +1,51 @@
+package br.ueg.meueg.controller;
+
+import br.ueg.meueg.dto.ResumoVendaDTO;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.enums.AgrupamentoRelatorio;
+import br.ueg.meueg.enums.Granularidade;
+import br.ueg.meueg.service.UserService;
+import br.ueg.meueg.service.VendaResumoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/relatorios")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "BearerAuth")
+public class RelatorioController {
+
+    private final VendaResumoService vendaResumoService;
+    private final UserService userService;
+
+    @GetMapping("/vendas")
+    @Operation(summary = "Receita, unidades e lucro por período (diário, semanal ou mensal), a partir dos resumos")
+    public ResponseEntity<List<ResumoVendaDTO>> getResumoVendas(
+            @RequestParam(defaultValue = "DIARIO") Granularidade granularidade,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(defaultValue = "TOTAL") AgrupamentoRelatorio agrupamento,
+            Principal principal) {
+        User usuario = userService.findByUsername(principal.getName());
+        return ResponseEntity.ok(vendaResumoService.relatorio(usuario.getId(), granularidade, inicio, fim, agrupamento));
+    }
+
+    @PostMapping("/vendas/reconstruir")
+    @Operation(summary = "Recalcula os resumos de venda de um usuário a partir do histórico completo (somente administradores)")
+    public ResponseEntity<Map<String, Integer>> reconstruirResumoVendas(
+            @RequestParam(required = false) String username,
+            Principal principal) {
+        User usuario = userService.findByUsername(username != null ? username : principal.getName());
+        int meses = vendaResumoService.reconstruir(usuario.getId());
+        return ResponseEntity.ok(Map.of("mesesProcessados", meses));
+    }
+}
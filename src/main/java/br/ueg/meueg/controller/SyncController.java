@@ -0,0 +1,34 @@
+package br.ueg.meueg.controller;
+
+import br.ueg.meueg.dto.SyncDTO;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.service.SyncService;
+import br.ueg.meueg.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/sync")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "BearerAuth")
+public class SyncController {
+
+    private final SyncService syncService;
+    private final UserService userService;
+
+    @GetMapping
+    @Operation(summary = "Retorna produtos, estoques e vendas alterados (e exclusões) desde o cursor informado")
+    public ResponseEntity<SyncDTO> sincronizar(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            Principal principal) {
+        User usuario = userService.findByUsername(principal.getName());
+        return ResponseEntity.ok(syncService.sincronizar(usuario, desde));
+    }
+}
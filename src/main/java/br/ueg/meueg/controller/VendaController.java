@@ -1,20 +1,41 @@
 package br.ueg.meueg.controller;
 
+import br.ueg.meueg.dto.LoteFalhaDTO;
+import br.ueg.meueg.dto.LoteResultadoDTO;
 import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.dto.VendaFiltroDTO;
 import br.ueg.meueg.dto.VendaItemDTO;
+import br.ueg.meueg.dto.VendaPaginaDTO;
 import br.ueg.meueg.entity.ProdutoServico;
 import br.ueg.meueg.entity.User;
 import br.ueg.meueg.entity.Venda;
 import br.ueg.meueg.entity.VendaItem;
 import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.enums.FormatoExportacao;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.service.IdempotenciaService;
+import br.ueg.meueg.service.UserService;
 import br.ueg.meueg.service.VendaService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,16 +46,41 @@ import java.util.stream.Collectors;
 public class VendaController {
 
     private final VendaService vendaService;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final IdempotenciaService idempotenciaService;
+
+    private static final String HEADER_IDEMPOTENCIA = "Idempotency-Key";
+
+    // Quantidade de vendas por transação na importação em lote
+    private static final int TAMANHO_BLOCO_LOTE = 500;
 
     // --- ENDPOINTS PADRÃO ---
 
     @GetMapping
-    @Operation(summary = "Lista todas as vendas")
-    public ResponseEntity<List<VendaDTO>> getAllVendas() {
-        List<VendaDTO> dtos = vendaService.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+    @Operation(summary = "Lista as vendas do usuário logado com filtros e paginação por cursor")
+    public ResponseEntity<VendaPaginaDTO> getAllVendas(@ModelAttribute VendaFiltroDTO filtro, Principal principal) {
+        User usuario = userService.findByUsername(principal.getName());
+        return ResponseEntity.ok(vendaService.buscar(filtro, usuario));
+    }
+
+    @GetMapping("/exportar")
+    @Operation(summary = "Exporta o histórico de vendas do usuário em CSV ou NDJSON (streaming, mesmos filtros da listagem)")
+    public ResponseEntity<StreamingResponseBody> exportarVendas(
+            @ModelAttribute VendaFiltroDTO filtro,
+            @RequestParam(defaultValue = "CSV") FormatoExportacao formato,
+            Principal principal) {
+        User usuario = userService.findByUsername(principal.getName());
+        StreamingResponseBody corpo = saida -> vendaService.exportar(filtro, usuario, formato, saida);
+
+        String extensao = formato == FormatoExportacao.CSV ? "csv" : "ndjson";
+        MediaType tipo = formato == FormatoExportacao.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"vendas." + extensao + "\"")
+                .body(corpo);
     }
 
     @GetMapping("/{id}")
@@ -49,10 +95,110 @@ public class VendaController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Cria uma nova venda (Manual ou Confirmada)")
-    public ResponseEntity<VendaDTO> createVenda(@RequestBody VendaDTO dto) {
-        Venda venda = toEntity(dto);
-        Venda savedVenda = vendaService.save(venda);
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(savedVenda));
+    public ResponseEntity<VendaDTO> createVenda(
+            @RequestBody VendaDTO dto,
+            @RequestHeader(value = HEADER_IDEMPOTENCIA, required = false) String idempotencyKey,
+            Principal principal) {
+        // O app repete o POST em rede instável: com a chave, a repetição devolve a mesma venda sem baixar estoque de novo
+        VendaDTO salva = idempotenciaService.executar(chaveIdempotencia("vendas", idempotencyKey, principal), dto,
+                () -> toDTO(vendaService.save(toEntity(dto))));
+        return ResponseEntity.status(HttpStatus.CREATED).body(salva);
+    }
+
+    /**
+     * Importação em lote (fim do dia de caixas offline, migração do PDV antigo).
+     * O corpo é um array JSON lido de forma incremental: as vendas são convertidas e gravadas
+     * em blocos, sem montar a lista inteira em memória. Erros são devolvidos por registro; um registro
+     * com JSON malformado encerra a leitura ("interrompido"), mantendo os blocos anteriores já gravados.
+     */
+    @PostMapping(value = "/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Importa um array de vendas em lote e retorna as falhas por registro")
+    public ResponseEntity<LoteResultadoDTO> importarLote(HttpServletRequest request, Principal principal) throws IOException {
+        User usuario = userService.findByUsername(principal.getName());
+        LoteResultadoDTO resultado = new LoteResultadoDTO();
+
+        try (JsonParser parser = objectMapper.createParser(request.getInputStream())) {
+            if (primeiroToken(parser) != JsonToken.START_ARRAY) {
+                throw new BusinessException("O corpo da requisição deve ser um array JSON de vendas.");
+            }
+
+            List<Venda> bloco = new ArrayList<>(TAMANHO_BLOCO_LOTE);
+            int indice = 0;
+            int inicioBloco = 0;
+            while (true) {
+                // Lê como árvore primeiro: um registro que não converte para VendaDTO não impede a leitura dos próximos
+                JsonNode node;
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == null || token == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    node = parser.readValueAsTree();
+                } catch (JsonProcessingException e) {
+                    // JSON quebrado (sintaxe, corpo truncado): não dá para achar o próximo registro com segurança.
+                    // Para aqui, grava o que já foi lido e devolve o relatório parcial.
+                    resultado.getFalhas().add(new LoteFalhaDTO(indice, "JSON malformado; leitura interrompida: " + e.getOriginalMessage()));
+                    resultado.setInterrompido(true);
+                    indice++;
+                    break;
+                }
+                try {
+                    bloco.add(toEntity(objectMapper.treeToValue(node, VendaDTO.class)));
+                } catch (Exception e) {
+                    resultado.getFalhas().add(new LoteFalhaDTO(indice, "Registro inválido: " + e.getMessage()));
+                    bloco.add(null);
+                }
+                indice++;
+
+                if (bloco.size() == TAMANHO_BLOCO_LOTE) {
+                    salvarBloco(bloco, inicioBloco, usuario, resultado);
+                    inicioBloco = indice;
+                    bloco.clear();
+                }
+            }
+            if (!bloco.isEmpty()) {
+                salvarBloco(bloco, inicioBloco, usuario, resultado);
+            }
+            resultado.setRecebidas(indice);
+        }
+
+        resultado.getFalhas().sort((a, b) -> Integer.compare(a.getIndice(), b.getIndice()));
+        resultado.setSalvas(resultado.getRecebidas() - resultado.getFalhas().size());
+        return ResponseEntity.ok(resultado);
+    }
+
+    private JsonToken primeiroToken(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("O corpo da requisição deve ser um array JSON de vendas.");
+        }
+    }
+
+    // Registros que falharam na conversão ficam como null no bloco para manter os índices alinhados
+    private void salvarBloco(List<Venda> bloco, int inicioBloco, User usuario, LoteResultadoDTO resultado) {
+        List<Venda> validas = new ArrayList<>(bloco.size());
+        List<Integer> indices = new ArrayList<>(bloco.size());
+        for (int i = 0; i < bloco.size(); i++) {
+            if (bloco.get(i) != null) {
+                validas.add(bloco.get(i));
+                indices.add(inicioBloco + i);
+            }
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (LoteFalhaDTO falha : vendaService.salvarLote(validas, usuario)) {
+                resultado.getFalhas().add(new LoteFalhaDTO(indices.get(falha.getIndice()), falha.getMensagem()));
+            }
+        } catch (Exception e) {
+            // Falha na gravação do bloco (ex.: erro de banco): o bloco inteiro sofreu rollback
+            for (Integer i : indices) {
+                resultado.getFalhas().add(new LoteFalhaDTO(i, "Bloco não gravado: " + e.getMessage()));
+            }
+        }
     }
 
     @PutMapping("/{id}")
@@ -98,19 +244,32 @@ public class VendaController {
     @PostMapping("/confirmar-venda-voz")
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Finaliza e salva uma venda previamente processada por voz.")
-    public ResponseEntity<VendaDTO> confirmarVendaVoz(@RequestBody VendaDTO dto) {
-        // 1. Converte o DTO (que agora tem preços e IDs certos) para Entidade
-        Venda venda = toEntity(dto);
+    public ResponseEntity<VendaDTO> confirmarVendaVoz(
+            @RequestBody VendaDTO dto,
+            @RequestHeader(value = HEADER_IDEMPOTENCIA, required = false) String idempotencyKey,
+            Principal principal) {
+        VendaDTO salva = idempotenciaService.executar(chaveIdempotencia("confirmar-venda-voz", idempotencyKey, principal), dto, () -> {
+            // 1. Converte o DTO (que agora tem preços e IDs certos) para Entidade
+            Venda venda = toEntity(dto);
 
-        // 2. Chama o SAVE real (que baixa estoque e salva no banco)
-        // OBS: Não use 'processarPropostaVoz' aqui, use 'save'!
-        Venda savedVenda = vendaService.save(venda);
+            // 2. Chama o SAVE real (que baixa estoque e salva no banco)
+            // OBS: Não use 'processarPropostaVoz' aqui, use 'save'!
+            return toDTO(vendaService.save(venda));
+        });
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(savedVenda));
+        return ResponseEntity.status(HttpStatus.CREATED).body(salva);
     }
 
     // --- MÉTODOS AUXILIARES (CONVERSÃO) ---
 
+    // A chave do cliente vale só para o usuário e o endpoint em que foi usada
+    private String chaveIdempotencia(String endpoint, String idempotencyKey, Principal principal) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        return principal.getName() + ":" + endpoint + ":" + idempotencyKey;
+    }
+
     private VendaDTO toDTO(Venda entity) {
         VendaDTO dto = new VendaDTO();
         dto.setId(entity.getId_venda());
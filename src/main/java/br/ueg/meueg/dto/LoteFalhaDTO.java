@@ -0,0 +1,13 @@
+package br.ueg.meueg.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoteFalhaDTO {
+    private int indice; // Posição da venda no array enviado (começa em 0)
+    private String mensagem;
+}
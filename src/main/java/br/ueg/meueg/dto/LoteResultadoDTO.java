@@ -0,0 +1,18 @@
+package br.ueg.meueg.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoteResultadoDTO {
+    private int recebidas;
+    private int salvas;
+    private List<LoteFalhaDTO> falhas = new ArrayList<>();
+    private boolean interrompido; // JSON malformado: os registros depois da última falha não foram lidos
+}
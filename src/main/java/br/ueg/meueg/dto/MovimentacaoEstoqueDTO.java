@@ -0,0 +1,18 @@
+package br.ueg.meueg.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovimentacaoEstoqueDTO {
+    private Long id;
+    private String tipo;
+    private Integer quantidade;
+    private LocalDateTime dataHora;
+    private Long idVenda;
+}
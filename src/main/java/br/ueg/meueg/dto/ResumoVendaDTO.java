@@ -0,0 +1,22 @@
+package br.ueg.meueg.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoVendaDTO {
+    private LocalDate inicioPeriodo;
+    private Long idProduto; // Preenchido no agrupamento PRODUTO
+    private String nomeProduto;
+    private String formaPagamento; // Preenchido no agrupamento FORMA_PAGAMENTO
+    private Long quantidade;
+    private BigDecimal receita;
+    private BigDecimal custo;
+    private BigDecimal lucro; // receita - custo
+}
@@ -0,0 +1,16 @@
+package br.ueg.meueg.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoEstoqueDTO {
+    private Long idEstoque;
+    private LocalDateTime dataHora;
+    private Integer quantidade;
+}
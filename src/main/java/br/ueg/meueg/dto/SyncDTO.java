@@ -0,0 +1,19 @@
+package br.ueg.meueg.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncDTO {
+    private LocalDateTime cursor; // Enviar como "desde" na próxima sincronização
+    private List<ProdutoServicoDTO> produtos;
+    private List<EstoqueDTO> estoques;
+    private List<VendaDTO> vendas;
+    private List<ExclusaoDTO> exclusoes;
+}
@@ -0,0 +1,19 @@
+package br.ueg.meueg.dto;
+
+import br.ueg.meueg.enums.StatusTrabalhoVoz;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrabalhoVozDTO {
+    private String id;
+    private StatusTrabalhoVoz status;
+    private LocalDateTime criadoEm;
+    private VendaDTO proposta; // Preenchida quando CONCLUIDO
+    private String erro;       // Preenchido quando ERRO
+}
@@ -19,4 +19,5 @@ public class VendaDTO {
     private Long idUsuario;
     private String usernameUsuario;
     private List<VendaItemDTO> itens;
+    private List<String> itensNaoReconhecidos; // Proposta por voz: nomes falados que não casaram com o cadastro
 }
\ No newline at end of file
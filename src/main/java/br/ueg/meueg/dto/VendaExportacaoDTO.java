@@ -0,0 +1,24 @@
+package br.ueg.meueg.dto;
+
+import br.ueg.meueg.enums.FormaPagamento;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Uma linha da exportação: um item de venda com os dados da venda (projeção, não é entidade gerenciada)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VendaExportacaoDTO {
+    private Long idVenda;
+    private LocalDateTime data;
+    private FormaPagamento formaPagamento;
+    private BigDecimal valorTotal;
+    private Long idProduto;
+    private String nomeProduto;
+    private Integer quantidade;
+    private BigDecimal precoUnitario;
+}
@@ -0,0 +1,28 @@
+package br.ueg.meueg.dto;
+
+import br.ueg.meueg.enums.FormaPagamento;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Filtros da consulta de vendas (recebidos como query params)
+@Data
+@NoArgsConstructor
+public class VendaFiltroDTO {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dataInicio; // Inclusivo
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dataFim; // Exclusivo
+
+    private FormaPagamento formaPagamento;
+    private Long idProduto; // Vendas que contenham este produto
+    private BigDecimal valorMinimo;
+    private BigDecimal valorMaximo;
+
+    private String cursor; // Valor de "proximoCursor" da página anterior
+    private Integer tamanho; // Itens por página (padrão 50, máximo 200)
+}
@@ -0,0 +1,15 @@
+package br.ueg.meueg.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VendaPaginaDTO {
+    private List<VendaDTO> vendas;
+    private String proximoCursor; // null quando não há mais páginas
+}
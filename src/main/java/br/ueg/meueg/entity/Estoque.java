@@ -6,8 +6,12 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "estoque")
+@Table(name = "estoque", indexes = {
+        @Index(name = "idx_estoque_usuario_atualizado", columnList = "id_usuario, atualizado_em")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,10 +26,28 @@ public class Estoque {
     @JoinColumn(name = "id_produto_servico", referencedColumnName = "id_produto", nullable = false)
     private ProdutoServico produtoServico;
 
+    // Saldo consolidado em consolidadoEm (último snapshot do livro). Não é o saldo atual: as vendas e entradas
+    // só acrescentam movimentações, e o saldo atual é este mais as movimentações a partir de consolidadoEm.
     @Column(nullable = false)
     private Integer quantidade;
 
+    @Column(name = "consolidado_em")
+    private LocalDateTime consolidadoEm;
+
     @ManyToOne(fetch = FetchType.LAZY) // Relacionamento com User
     @JoinColumn(name = "id_usuario", nullable = false) // Coluna da chave estrangeira para o usuário
     private User usuario;
+
+    // Controle de sincronização (GET /sync): atualizado em toda inclusão/alteração
+    @Column(name = "atualizado_em")
+    private LocalDateTime atualizadoEm;
+
+    @PrePersist
+    @PreUpdate
+    private void marcarAtualizacao() {
+        atualizadoEm = LocalDateTime.now();
+        if (consolidadoEm == null) { // Estoque novo: as movimentações dele vêm todas depois
+            consolidadoEm = atualizadoEm;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package br.ueg.meueg.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+// Última sequência do journal do motor de estoque em memória já aplicada na tabela estoque.
+// Atualizada na mesma transação do flush, então a reaplicação do journal nunca soma duas vezes.
+@Entity
+@Table(name = "estoque_journal_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueJournalCheckpoint {
+
+    @Id
+    private Long id; // Linha única (id = 1)
+
+    @Column(name = "ultima_sequencia", nullable = false)
+    private Long ultimaSequencia;
+}
@@ -0,0 +1,35 @@
+package br.ueg.meueg.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+// Saldo consolidado de um estoque: soma de todas as movimentações com data_hora anterior a "dataHora".
+// Saldo em T = último snapshot até T + movimentações entre o snapshot e T.
+@Entity
+@Table(name = "estoque_snapshot", indexes = {
+        @Index(name = "idx_estoque_snapshot_data", columnList = "id_estoque, data_hora")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EstoqueSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_estoque", nullable = false)
+    private Long idEstoque;
+
+    @Column(nullable = false)
+    private Integer quantidade;
+
+    @Column(name = "data_hora", nullable = false)
+    private LocalDateTime dataHora;
+}
@@ -0,0 +1,62 @@
+package br.ueg.meueg.entity;
+
+import br.ueg.meueg.enums.TipoMovimentacao;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+// Livro (ledger) de movimentações de estoque: somente inclusão, nunca alterado.
+// As referências são IDs simples (sem FK) para o histórico sobreviver à exclusão do estoque/venda.
+@Entity
+@Table(name = "movimentacao_estoque", indexes = {
+        @Index(name = "idx_movimentacao_estoque_data", columnList = "id_estoque, data_hora")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MovimentacaoEstoque {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimentacao_estoque_seq")
+    @SequenceGenerator(name = "movimentacao_estoque_seq", sequenceName = "movimentacao_estoque_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "id_estoque", nullable = false)
+    private Long idEstoque;
+
+    @Column(name = "id_produto", nullable = false)
+    private Long idProduto;
+
+    @Column(name = "id_usuario", nullable = false)
+    private Long idUsuario;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private TipoMovimentacao tipo;
+
+    @Column(nullable = false)
+    private Integer quantidade; // Positiva para entrada, negativa para saída
+
+    @Column(name = "data_hora", nullable = false)
+    private LocalDateTime dataHora;
+
+    @Column(name = "id_venda")
+    private Long idVenda;
+
+    public static MovimentacaoEstoque de(Estoque estoque, TipoMovimentacao tipo, int quantidade, Long idVenda) {
+        return MovimentacaoEstoque.builder()
+                .idEstoque(estoque.getId())
+                .idProduto(estoque.getProdutoServico().getId())
+                .idUsuario(estoque.getUsuario().getId())
+                .tipo(tipo)
+                .quantidade(quantidade)
+                .dataHora(LocalDateTime.now())
+                .idVenda(idVenda)
+                .build();
+    }
+}
@@ -7,9 +7,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "produto_servico")
+@Table(name = "produto_servico", indexes = {
+        @Index(name = "idx_produto_servico_usuario_atualizado", columnList = "id_usuario, atualizado_em")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,4 +42,14 @@ public class ProdutoServico {
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "id_usuario", referencedColumnName = "id")
     private User usuario;
+
+    // Controle de sincronização (GET /sync): atualizado em toda inclusão/alteração
+    @Column(name = "atualizado_em")
+    private LocalDateTime atualizadoEm;
+
+    @PrePersist
+    @PreUpdate
+    private void marcarAtualizacao() {
+        atualizadoEm = LocalDateTime.now();
+    }
 }
\ No newline at end of file
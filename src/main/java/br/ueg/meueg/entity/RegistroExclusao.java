@@ -0,0 +1,39 @@
+package br.ueg.meueg.entity;
+
+import br.ueg.meueg.enums.TipoEntidadeSync;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+// Marca de exclusão (tombstone): avisa os apps na sincronização que um registro foi apagado
+@Entity
+@Table(name = "registro_exclusao", indexes = {
+        @Index(name = "idx_registro_exclusao_usuario_data", columnList = "id_usuario, excluido_em")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RegistroExclusao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private TipoEntidadeSync tipo;
+
+    @Column(name = "id_entidade", nullable = false)
+    private Long idEntidade;
+
+    @Column(name = "id_usuario", nullable = false)
+    private Long idUsuario;
+
+    @Column(name = "excluido_em", nullable = false)
+    private LocalDateTime excluidoEm;
+}
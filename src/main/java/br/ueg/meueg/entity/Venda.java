@@ -12,7 +12,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "venda")
+@Table(name = "venda", indexes = {
+        // Consulta de vendas do usuário por período, paginada por (data, id)
+        @Index(name = "idx_venda_usuario_data", columnList = "id_usuario, data, id_venda"),
+        @Index(name = "idx_venda_usuario_atualizado", columnList = "id_usuario, atualizado_em")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,7 +24,10 @@ import java.util.List;
 public class Venda {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // SEQUENCE com allocationSize permite ao Hibernate agrupar os INSERTs em lote (IDENTITY desliga o batch).
+    // Bancos que vieram do IDENTITY: a sequence é avançada para depois do maior ID na subida (MigracaoBanco).
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venda_seq")
+    @SequenceGenerator(name = "venda_seq", sequenceName = "venda_seq", allocationSize = 50)
     private Long id_venda;
 
     @Column(nullable = false)
@@ -39,4 +46,14 @@ public class Venda {
 
     @OneToMany(mappedBy = "venda", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<VendaItem> itens;
+
+    // Controle de sincronização (GET /sync): atualizado em toda inclusão/alteração
+    @Column(name = "atualizado_em")
+    private LocalDateTime atualizadoEm;
+
+    @PrePersist
+    @PreUpdate
+    private void marcarAtualizacao() {
+        atualizadoEm = LocalDateTime.now();
+    }
 }
\ No newline at end of file
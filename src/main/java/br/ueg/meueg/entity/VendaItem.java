@@ -9,7 +9,10 @@ import lombok.Builder;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "venda_item")
+@Table(name = "venda_item", indexes = {
+        @Index(name = "idx_venda_item_venda", columnList = "id_venda"),
+        @Index(name = "idx_venda_item_produto", columnList = "id_produto, id_venda")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,7 +20,10 @@ import java.math.BigDecimal;
 public class VendaItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // SEQUENCE com allocationSize permite ao Hibernate agrupar os INSERTs em lote (IDENTITY desliga o batch).
+    // Bancos que vieram do IDENTITY: a sequence é avançada para depois do maior ID na subida (MigracaoBanco).
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venda_item_seq")
+    @SequenceGenerator(name = "venda_item_seq", sequenceName = "venda_item_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -33,4 +39,7 @@ public class VendaItem {
 
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal precoUnitario; // Preço do produto no momento da venda
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal custoUnitario; // Custo do produto no momento da venda (nulo em vendas antigas)
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package br.ueg.meueg.entity;
+
+import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.enums.Granularidade;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Resumo (rollup) de vendas por período, mantido de forma incremental pelo VendaService.
+// Uma linha por usuário + granularidade + início do período + produto + forma de pagamento.
+@Entity
+@Table(name = "venda_resumo", uniqueConstraints = @UniqueConstraint(
+        name = "uk_venda_resumo",
+        columnNames = {"id_usuario", "granularidade", "inicio_periodo", "id_produto", "forma_pagamento"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VendaResumo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_usuario", nullable = false)
+    private Long idUsuario;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Granularidade granularidade;
+
+    @Column(name = "inicio_periodo", nullable = false)
+    private LocalDate inicioPeriodo;
+
+    @Column(name = "id_produto", nullable = false)
+    private Long idProduto;
+
+    @Column(name = "forma_pagamento", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private FormaPagamento formaPagamento;
+
+    @Column(nullable = false)
+    private Long quantidade;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal receita;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal custo;
+}
@@ -0,0 +1,55 @@
+package br.ueg.meueg.entity;
+
+import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.enums.Granularidade;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Área de montagem da reconstrução dos resumos (VendaResumoService.reconstruir): os blocos mensais são
+// calculados aqui em paralelo e copiados para venda_resumo numa única transação no fim.
+// Mesmas colunas de venda_resumo, mais o identificador da execução.
+@Entity
+@Table(name = "venda_resumo_reconstrucao", uniqueConstraints = @UniqueConstraint(
+        name = "uk_venda_resumo_reconstrucao",
+        columnNames = {"id_reconstrucao", "id_usuario", "granularidade", "inicio_periodo", "id_produto", "forma_pagamento"}))
+@Data
+@NoArgsConstructor
+public class VendaResumoReconstrucao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_reconstrucao", nullable = false, length = 36)
+    private String idReconstrucao;
+
+    @Column(name = "id_usuario", nullable = false)
+    private Long idUsuario;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Granularidade granularidade;
+
+    @Column(name = "inicio_periodo", nullable = false)
+    private LocalDate inicioPeriodo;
+
+    @Column(name = "id_produto", nullable = false)
+    private Long idProduto;
+
+    @Column(name = "forma_pagamento", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private FormaPagamento formaPagamento;
+
+    @Column(nullable = false)
+    private Long quantidade;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal receita;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal custo;
+}
@@ -0,0 +1,7 @@
+package br.ueg.meueg.enums;
+
+public enum AgrupamentoRelatorio {
+    TOTAL,
+    PRODUTO,
+    FORMA_PAGAMENTO,
+}
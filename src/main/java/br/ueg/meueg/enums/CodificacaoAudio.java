@@ -0,0 +1,8 @@
+package br.ueg.meueg.enums;
+
+public enum CodificacaoAudio {
+    PCM_16,       // PCM 16 bits little-endian mono, sem cabeçalho
+    FLAC,         // Arquivo FLAC inteiro (com cabeçalho)
+    OGG_OPUS,     // Ogg com Opus (formato de gravação comum no Android)
+    DESCONHECIDA, // Formato não reconhecido: vai para o STT do jeito que chegou
+}
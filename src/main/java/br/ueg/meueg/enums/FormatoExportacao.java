@@ -0,0 +1,6 @@
+package br.ueg.meueg.enums;
+
+public enum FormatoExportacao {
+    CSV,
+    NDJSON,
+}
@@ -0,0 +1,30 @@
+package br.ueg.meueg.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum Granularidade {
+    DIARIO("day"),
+    SEMANAL("week"),
+    MENSAL("month");
+
+    private final String unidadeDateTrunc; // Unidade equivalente do date_trunc do PostgreSQL
+
+    Granularidade(String unidadeDateTrunc) {
+        this.unidadeDateTrunc = unidadeDateTrunc;
+    }
+
+    public String getUnidadeDateTrunc() {
+        return unidadeDateTrunc;
+    }
+
+    // Primeiro dia do período que contém a data (semana começa na segunda, igual ao date_trunc)
+    public LocalDate inicioPeriodo(LocalDate data) {
+        return switch (this) {
+            case DIARIO -> data;
+            case SEMANAL -> data.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MENSAL -> data.withDayOfMonth(1);
+        };
+    }
+}
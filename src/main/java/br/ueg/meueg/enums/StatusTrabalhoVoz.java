@@ -0,0 +1,8 @@
+package br.ueg.meueg.enums;
+
+public enum StatusTrabalhoVoz {
+    PENDENTE,
+    PROCESSANDO,
+    CONCLUIDO,
+    ERRO,
+}
@@ -0,0 +1,7 @@
+package br.ueg.meueg.enums;
+
+public enum TipoEntidadeSync {
+    PRODUTO,
+    ESTOQUE,
+    VENDA,
+}
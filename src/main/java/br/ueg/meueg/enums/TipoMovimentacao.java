@@ -0,0 +1,9 @@
+package br.ueg.meueg.enums;
+
+public enum TipoMovimentacao {
+    VENDA,
+    ESTORNO_VENDA,
+    ENTRADA,
+    SAIDA,
+    AJUSTE,
+}
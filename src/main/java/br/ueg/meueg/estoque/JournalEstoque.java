@@ -0,0 +1,198 @@
+package br.ueg.meueg.estoque;
+
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import br.ueg.meueg.enums.TipoMovimentacao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Journal local (arquivo binário, só acréscimo) das movimentações confirmadas no motor em memória.
+ * Cada registro é uma movimentação completa: o write-behind a acrescenta ao livro (movimentacao_estoque).
+ * Uma única thread grava: os pedidos que chegam juntos vão no mesmo write + fsync (group commit)
+ * e cada pedido só é confirmado depois do fsync.
+ */
+class JournalEstoque implements AutoCloseable {
+
+    // versão (1) + sequência (8) + estoque (8) + produto (8) + usuário (8) + tipo (1) + quantidade (4) + venda (8, 0 = nenhuma)
+    static final int TAMANHO_REGISTRO = 46;
+    // Primeiro byte de cada registro. No formato anterior (sequência + estoque + delta) ele era o byte alto
+    // da sequência, sempre 0: um journal antigo não é lido como movimentações.
+    private static final byte VERSAO = 2;
+
+    // A movimentação lida do arquivo vem sem data: ela é carimbada ao entrar no livro
+    record Lancamento(long sequencia, MovimentacaoEstoque movimentacao) {
+    }
+
+    private record Pedido(List<MovimentacaoEstoque> movimentacoes, CompletableFuture<List<Lancamento>> gravado) {
+    }
+
+    private final FileChannel canal;
+    private final BlockingQueue<Pedido> fila = new LinkedBlockingQueue<>();
+    private final Consumer<List<Lancamento>> aposGravar;
+    private final Thread escritor;
+
+    private volatile boolean ativo = true;
+    private volatile long sequenciaAplicada; // Até onde o banco já recebeu (permite truncar o arquivo)
+    private long ultimaSequencia;
+
+    JournalEstoque(Path arquivo, long ultimaSequencia, Consumer<List<Lancamento>> aposGravar) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.ultimaSequencia = ultimaSequencia;
+        this.sequenciaAplicada = ultimaSequencia;
+        this.aposGravar = aposGravar;
+        this.escritor = new Thread(this::executar, "journal-estoque");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    // Lê os registros completos do arquivo (um registro cortado no fim, por queda no meio do write, é ignorado)
+    static List<Lancamento> ler(Path arquivo) throws IOException {
+        List<Lancamento> lancamentos = new ArrayList<>();
+        if (!Files.exists(arquivo)) {
+            return lancamentos;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(arquivo));
+        while (buffer.remaining() >= TAMANHO_REGISTRO) {
+            if (buffer.get() != VERSAO) {
+                throw new IOException("Journal de estoque em formato antigo: aplique-o com a versão anterior da aplicação.");
+            }
+            long sequencia = buffer.getLong();
+            MovimentacaoEstoque movimentacao = MovimentacaoEstoque.builder()
+                    .idEstoque(buffer.getLong())
+                    .idProduto(buffer.getLong())
+                    .idUsuario(buffer.getLong())
+                    .tipo(TipoMovimentacao.values()[buffer.get()])
+                    .quantidade(buffer.getInt())
+                    .build();
+            long idVenda = buffer.getLong();
+            movimentacao.setIdVenda(idVenda == 0 ? null : idVenda);
+            lancamentos.add(new Lancamento(sequencia, movimentacao));
+        }
+        return lancamentos;
+    }
+
+    // O futuro completa depois de o lote estar em disco
+    CompletableFuture<List<Lancamento>> gravar(List<MovimentacaoEstoque> movimentacoes) {
+        CompletableFuture<List<Lancamento>> gravado = new CompletableFuture<>();
+        if (!ativo) {
+            gravado.completeExceptionally(new IOException("Journal de estoque encerrado."));
+            return gravado;
+        }
+        fila.add(new Pedido(movimentacoes, gravado));
+        return gravado;
+    }
+
+    // Tira da fila um pedido que a thread escritora ainda não pegou. false = já está sendo gravado (ou foi).
+    boolean cancelar(CompletableFuture<List<Lancamento>> gravado) {
+        boolean removido = fila.removeIf(pedido -> pedido.gravado() == gravado);
+        if (removido) {
+            gravado.cancel(false);
+        }
+        return removido;
+    }
+
+    void marcarAplicado(long sequencia) {
+        this.sequenciaAplicada = sequencia;
+    }
+
+    private void executar() {
+        List<Pedido> pedidos = new ArrayList<>();
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pedido primeiro = fila.poll(1, TimeUnit.SECONDS);
+                if (primeiro == null) {
+                    truncarSeAplicado();
+                    continue;
+                }
+                pedidos.add(primeiro);
+                fila.drainTo(pedidos);
+                gravarPedidos(pedidos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ativo = false;
+            } finally {
+                pedidos.clear();
+            }
+        }
+    }
+
+    private void gravarPedidos(List<Pedido> pedidos) {
+        int total = 0;
+        for (Pedido pedido : pedidos) {
+            total += pedido.movimentacoes().size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total * TAMANHO_REGISTRO);
+        List<List<Lancamento>> porPedido = new ArrayList<>(pedidos.size());
+        long sequencia = ultimaSequencia;
+        for (Pedido pedido : pedidos) {
+            List<Lancamento> lancamentos = new ArrayList<>(pedido.movimentacoes().size());
+            for (MovimentacaoEstoque movimentacao : pedido.movimentacoes()) {
+                Lancamento lancamento = new Lancamento(++sequencia, movimentacao);
+                buffer.put(VERSAO).putLong(lancamento.sequencia())
+                        .putLong(movimentacao.getIdEstoque())
+                        .putLong(movimentacao.getIdProduto())
+                        .putLong(movimentacao.getIdUsuario())
+                        .put((byte) movimentacao.getTipo().ordinal())
+                        .putInt(movimentacao.getQuantidade())
+                        .putLong(movimentacao.getIdVenda() == null ? 0 : movimentacao.getIdVenda());
+                lancamentos.add(lancamento);
+            }
+            porPedido.add(lancamentos);
+        }
+        buffer.flip();
+
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(false);
+        } catch (IOException e) {
+            for (Pedido pedido : pedidos) {
+                pedido.gravado().completeExceptionally(e);
+            }
+            return;
+        }
+
+        ultimaSequencia = sequencia;
+        List<Lancamento> todos = new ArrayList<>(total);
+        porPedido.forEach(todos::addAll);
+        aposGravar.accept(todos);
+        for (int i = 0; i < pedidos.size(); i++) {
+            pedidos.get(i).gravado().complete(porPedido.get(i));
+        }
+    }
+
+    // Com tudo já aplicado no banco o arquivo pode recomeçar do zero (só a thread escritora mexe no tamanho)
+    private void truncarSeAplicado() {
+        try {
+            if (sequenciaAplicada == ultimaSequencia && canal.size() > 0) {
+                canal.truncate(0);
+            }
+        } catch (IOException e) {
+            // Tenta de novo na próxima folga; o arquivo só cresce um pouco mais
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ativo = false;
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+    }
+}
@@ -0,0 +1,363 @@
+package br.ueg.meueg.estoque;
+
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import br.ueg.meueg.exception.NotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Motor de estoque em memória (modo opcional para eventos de venda relâmpago).
+ *
+ * O saldo de cada estoque em uso fica num contador atômico: a reserva é um compare-and-set,
+ * sem ida ao banco e sem travar linha; entradas só somam no contador depois do commit. As
+ * movimentações confirmadas vão para o journal local (fsync antes do commit da transação) e o
+ * flush periódico as acrescenta em lotes ao livro (movimentacao_estoque), de onde sai o saldo
+ * quando o modo está desligado. Na subida, o que está no journal e ainda não chegou ao banco é reaplicado.
+ *
+ * Pressupõe uma única instância da aplicação escrevendo no estoque enquanto o modo estiver ligado.
+ */
+@Component
+@ConditionalOnProperty(name = "estoque.motor-memoria.habilitado", havingValue = "true")
+@DependsOn("entityManagerFactory") // A tabela de checkpoint é criada pelo Hibernate (ddl-auto)
+public class MotorEstoqueMemoria {
+
+    // Mesmo saldo de EstoqueRepository.findSaldosAtuais: consolidado + livro a partir da consolidação
+    private static final String SQL_SALDO = """
+            SELECT e.quantidade + COALESCE((SELECT SUM(m.quantidade) FROM movimentacao_estoque m
+                                            WHERE m.id_estoque = e.id AND m.data_hora >= e.consolidado_em), 0)
+            FROM estoque e WHERE e.id = ?
+            """;
+    // %s = lista de IDs (?, ?, ...)
+    private static final String SQL_TRAVAR = "SELECT id FROM estoque WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    private static final String SQL_LANCAR = """
+            INSERT INTO movimentacao_estoque (id, id_estoque, id_produto, id_usuario, tipo, quantidade, data_hora, id_venda)
+            VALUES (nextval('movimentacao_estoque_seq'), ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String SQL_CHECKPOINT = """
+            INSERT INTO estoque_journal_checkpoint (id, ultima_sequencia) VALUES (1, ?)
+            ON CONFLICT (id) DO UPDATE SET ultima_sequencia = EXCLUDED.ultima_sequencia
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, AtomicInteger> saldos = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<JournalEstoque.Lancamento> pendentes = new ConcurrentLinkedQueue<>();
+    private final List<JournalEstoque.Lancamento> loteEmAplicacao = new ArrayList<>(); // Só a thread do flush mexe
+
+    private JournalEstoque journal;
+
+    @Value("${estoque.motor-memoria.journal:./data/estoque.journal}")
+    private String caminhoJournal;
+
+    @Value("${estoque.motor-memoria.tamanho-lote:5000}")
+    private int tamanhoLote;
+
+    @Value("${estoque.motor-memoria.espera-journal-ms:2000}")
+    private long esperaJournalMs;
+
+    public MotorEstoqueMemoria(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Reaplica no banco o que ficou só no journal (queda antes do flush) e abre o journal para escrita
+    @PostConstruct
+    void iniciar() throws IOException {
+        Path arquivo = Path.of(caminhoJournal);
+        if (arquivo.getParent() != null) {
+            Files.createDirectories(arquivo.getParent());
+        }
+
+        Long checkpoint = jdbcTemplate.query("SELECT ultima_sequencia FROM estoque_journal_checkpoint WHERE id = 1",
+                rs -> rs.next() ? rs.getLong(1) : 0L);
+        List<JournalEstoque.Lancamento> naoAplicados = new ArrayList<>();
+        long ultimaSequencia = checkpoint;
+        for (JournalEstoque.Lancamento lancamento : JournalEstoque.ler(arquivo)) {
+            if (lancamento.sequencia() > checkpoint) {
+                naoAplicados.add(lancamento);
+            }
+            ultimaSequencia = Math.max(ultimaSequencia, lancamento.sequencia());
+        }
+        if (!naoAplicados.isEmpty()) {
+            aplicar(naoAplicados);
+        }
+        Files.write(arquivo, new byte[0], StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        journal = new JournalEstoque(arquivo, ultimaSequencia, pendentes::addAll);
+    }
+
+    @PreDestroy
+    void encerrar() throws IOException {
+        journal.close();
+        aplicarPendentes();
+    }
+
+    // Saldo confirmado, mais as entradas que a transação corrente ainda vai confirmar
+    public int saldo(Long idEstoque) {
+        AlteracoesDaTransacao alteracoes = alteracoesDaTransacao();
+        int pendente = alteracoes == null ? 0 : alteracoes.entradas.getOrDefault(idEstoque, 0);
+        return contador(idEstoque).get() + pendente;
+    }
+
+    public boolean carregado(Long idEstoque) {
+        return saldos.containsKey(idEstoque);
+    }
+
+    /**
+     * Reserva (baixa) as quantidades, tudo ou nada. Retorna null em caso de sucesso ou o ID
+     * do primeiro estoque sem saldo. A baixa é desfeita se a transação não confirmar.
+     * Como adicionar e ajustar, só mexe no contador: a movimentação correspondente vem por lancar.
+     */
+    public Long reservar(Map<Long, Integer> quantidadePorEstoque) {
+        AlteracoesDaTransacao alteracoes = transacaoCorrente();
+        Map<Long, Integer> aplicadas = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantidadePorEstoque).entrySet()) {
+            AtomicInteger saldo = contador(entry.getKey());
+            int quantidade = entry.getValue();
+            int atual;
+            do {
+                atual = saldo.get();
+                if (atual < quantidade) {
+                    aplicadas.forEach((id, q) -> contador(id).addAndGet(q));
+                    return entry.getKey();
+                }
+            } while (!saldo.compareAndSet(atual, atual - quantidade));
+            aplicadas.put(entry.getKey(), quantidade);
+        }
+
+        Map<Long, Integer> deltas = new TreeMap<>();
+        aplicadas.forEach((id, q) -> deltas.put(id, -q));
+        registrar(alteracoes, deltas);
+        return null;
+    }
+
+    // Entrada de mercadoria ou estorno de venda: só chega ao contador depois do commit (ver registrar)
+    public void adicionar(Map<Long, Integer> quantidadePorEstoque) {
+        AlteracoesDaTransacao alteracoes = transacaoCorrente();
+        Map<Long, Integer> deltas = new TreeMap<>();
+        quantidadePorEstoque.forEach((id, q) -> {
+            contador(id); // Carrega o saldo agora: a linha pode sumir antes do commit
+            deltas.put(id, q);
+        });
+        registrar(alteracoes, deltas);
+    }
+
+    /**
+     * Inventário: define o saldo absoluto (o journal guarda a diferença) e devolve o saldo anterior.
+     * Ajuste para baixo sai do contador na hora, como uma reserva; para cima espera o commit, como uma entrada.
+     */
+    public int ajustar(Long idEstoque, int quantidade) {
+        AlteracoesDaTransacao alteracoes = transacaoCorrente();
+        AtomicInteger saldo = contador(idEstoque);
+        int pendente = alteracoes.entradas.getOrDefault(idEstoque, 0);
+        int atual;
+        int diferenca;
+        do {
+            atual = saldo.get();
+            diferenca = quantidade - (atual + pendente);
+        } while (diferenca < 0 && !saldo.compareAndSet(atual, atual + diferenca));
+        if (diferenca != 0) {
+            registrar(alteracoes, Map.of(idEstoque, diferenca));
+        }
+        return atual + pendente;
+    }
+
+    // Estoque excluído: para de acompanhar (as movimentações pendentes dele ainda entram no livro, como histórico)
+    public void descartar(Long idEstoque) {
+        saldos.remove(idEstoque);
+    }
+
+    private AtomicInteger contador(Long idEstoque) {
+        return saldos.computeIfAbsent(idEstoque, id -> {
+            try {
+                return new AtomicInteger(jdbcTemplate.queryForObject(SQL_SALDO, Integer.class, id));
+            } catch (EmptyResultDataAccessException e) {
+                throw new NotFoundException("Estoque com ID " + id + " não encontrado.");
+            }
+        });
+    }
+
+    // Movimentações que a transação corrente gerou com reservar/adicionar/ajustar: vão ao journal no commit
+    public void lancar(Collection<MovimentacaoEstoque> movimentacoes) {
+        if (!movimentacoes.isEmpty()) {
+            transacaoCorrente().movimentacoes.addAll(movimentacoes);
+        }
+    }
+
+    // Deltas negativos (baixas) já saíram do contador; positivos (entradas) só entram nele depois do commit.
+    // Uma entrada visível antes do commit poderia ser vendida por outra transação e, se esta desfizesse,
+    // o contador e o livro ficariam abaixo do saldo real.
+    private void registrar(AlteracoesDaTransacao alteracoes, Map<Long, Integer> deltas) {
+        deltas.forEach((id, delta) -> (delta < 0 ? alteracoes.baixas : alteracoes.entradas).merge(id, delta, Integer::sum));
+    }
+
+    private AlteracoesDaTransacao alteracoesDaTransacao() {
+        return (AlteracoesDaTransacao) TransactionSynchronizationManager.getResource(this);
+    }
+
+    // Checado antes de mexer no contador: fora de transação não haveria commit nem rollback para acertá-lo
+    private AlteracoesDaTransacao transacaoCorrente() {
+        AlteracoesDaTransacao alteracoes = alteracoesDaTransacao();
+        if (alteracoes == null) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                throw new IllegalStateException("O motor de estoque só altera saldo dentro de uma transação.");
+            }
+            alteracoes = new AlteracoesDaTransacao();
+            TransactionSynchronizationManager.bindResource(this, alteracoes);
+            TransactionSynchronizationManager.registerSynchronization(alteracoes);
+        }
+        return alteracoes;
+    }
+
+    // Tudo o que uma transação alterou no motor: um pedido só ao journal no commit.
+    // O journal é gravado no beforeCommit: se o fsync falhar ou demorar demais, a transação de negócio desfaz.
+    // Se a transação desfizer, as baixas voltam e o pedido ao journal é neutralizado (ver desfazer).
+    // (Numa queda exatamente entre o fsync e o commit a baixa fica registrada sem a venda: erra-se
+    // para o lado de nunca vender acima do saldo.)
+    private final class AlteracoesDaTransacao implements TransactionSynchronization {
+        private final Map<Long, Integer> baixas = new TreeMap<>();
+        private final Map<Long, Integer> entradas = new TreeMap<>();
+        private final List<MovimentacaoEstoque> movimentacoes = new ArrayList<>();
+        private CompletableFuture<List<JournalEstoque.Lancamento>> gravacao;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (movimentacoes.isEmpty()) {
+                return;
+            }
+            gravacao = journal.gravar(movimentacoes);
+            aguardarJournal(gravacao);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MotorEstoqueMemoria.this);
+            if (status == STATUS_COMMITTED) {
+                creditar(entradas);
+            } else {
+                desfazer(baixas, movimentacoes, gravacao);
+            }
+        }
+    }
+
+    private void creditar(Map<Long, Integer> entradas) {
+        entradas.forEach((id, delta) -> {
+            AtomicInteger saldo = saldos.get(id);
+            if (saldo != null) { // Descartado no meio do caminho: o livro recebe pelo journal
+                saldo.addAndGet(delta);
+            }
+        });
+    }
+
+    // Volta as baixas e anula o pedido ao journal. Estourado o prazo de espera, o pedido pode continuar
+    // na fila e ir para o disco depois: se ainda não foi pego pela thread escritora sai da fila; se já foi,
+    // o lançamento inverso entra logo depois dele (e só se ele de fato foi gravado), senão a reaplicação
+    // na subida baixaria um estoque que a transação desfez.
+    private void desfazer(Map<Long, Integer> baixas, List<MovimentacaoEstoque> gravadas,
+                          CompletableFuture<List<JournalEstoque.Lancamento>> gravacao) {
+        baixas.forEach((id, delta) -> contador(id).addAndGet(-delta));
+        if (gravacao == null || journal.cancelar(gravacao)) {
+            return;
+        }
+        List<MovimentacaoEstoque> inversas = new ArrayList<>(gravadas.size());
+        for (MovimentacaoEstoque movimentacao : gravadas) {
+            MovimentacaoEstoque inversa = new MovimentacaoEstoque();
+            inversa.setIdEstoque(movimentacao.getIdEstoque());
+            inversa.setIdProduto(movimentacao.getIdProduto());
+            inversa.setIdUsuario(movimentacao.getIdUsuario());
+            inversa.setTipo(movimentacao.getTipo());
+            inversa.setQuantidade(-movimentacao.getQuantidade());
+            inversa.setIdVenda(movimentacao.getIdVenda());
+            inversas.add(inversa);
+        }
+        gravacao.thenRun(() -> journal.gravar(inversas));
+    }
+
+    private void aguardarJournal(CompletableFuture<List<JournalEstoque.Lancamento>> gravacao) {
+        try {
+            gravacao.get(esperaJournalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Gravação do journal de estoque interrompida.", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new UncheckedIOException(new IOException("Falha ao gravar o journal de estoque.", e));
+        }
+    }
+
+    // --- WRITE-BEHIND: acrescenta as movimentações do journal ao livro em lotes ---
+    @Scheduled(fixedDelayString = "${estoque.motor-memoria.flush-ms:200}")
+    public synchronized void aplicarPendentes() {
+        // Um lote que falhou fica em loteEmAplicacao e é tentado de novo antes de pegar novos
+        JournalEstoque.Lancamento lancamento;
+        while (loteEmAplicacao.size() < tamanhoLote && (lancamento = pendentes.poll()) != null) {
+            loteEmAplicacao.add(lancamento);
+        }
+        if (loteEmAplicacao.isEmpty()) {
+            return;
+        }
+        aplicar(loteEmAplicacao);
+        journal.marcarAplicado(loteEmAplicacao.get(loteEmAplicacao.size() - 1).sequencia());
+        loteEmAplicacao.clear();
+    }
+
+    // Grava o lote + checkpoint numa transação. Os estoques são travados (na ordem do ID) antes de a data
+    // ser carimbada: assim nenhuma movimentação entra com data anterior a uma consolidação já feita
+    // (ver MovimentacaoEstoqueServiceImpl.gerarSnapshots).
+    private void aplicar(List<JournalEstoque.Lancamento> lancamentos) {
+        Set<Long> idsEstoque = new TreeSet<>();
+        long ultimaSequencia = 0;
+        for (JournalEstoque.Lancamento lancamento : lancamentos) {
+            idsEstoque.add(lancamento.movimentacao().getIdEstoque());
+            ultimaSequencia = Math.max(ultimaSequencia, lancamento.sequencia());
+        }
+
+        String lista = String.join(", ", Collections.nCopies(idsEstoque.size(), "?"));
+        long checkpoint = ultimaSequencia;
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList(SQL_TRAVAR.formatted(lista), Long.class, idsEstoque.toArray());
+            Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> parametros = new ArrayList<>(lancamentos.size());
+            for (JournalEstoque.Lancamento lancamento : lancamentos) {
+                MovimentacaoEstoque m = lancamento.movimentacao();
+                parametros.add(new Object[]{m.getIdEstoque(), m.getIdProduto(), m.getIdUsuario(), m.getTipo().name(),
+                        m.getQuantidade(), agora, m.getIdVenda()});
+            }
+            jdbcTemplate.batchUpdate(SQL_LANCAR, parametros);
+            jdbcTemplate.update(SQL_CHECKPOINT, checkpoint);
+        });
+    }
+}
@@ -43,6 +43,34 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    // Tratamento para SobrecargaException (429 TOO MANY REQUESTS): o cliente tenta de novo após Retry-After
+    @ExceptionHandler(SobrecargaException.class)
+    public ResponseEntity<ErrorResponse> handleSobrecargaException(SobrecargaException ex, WebRequest request, HttpServletRequest httpServletRequest) {
+        ErrorResponse error = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                ex.getMessage(),
+                httpServletRequest.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSegundos()))
+                .body(error);
+    }
+
+    // Tratamento para PrazoEsgotadoException (504 GATEWAY TIMEOUT): STT/IA não responderam no tempo do comando
+    @ExceptionHandler(PrazoEsgotadoException.class)
+    public ResponseEntity<ErrorResponse> handlePrazoEsgotadoException(PrazoEsgotadoException ex, WebRequest request, HttpServletRequest httpServletRequest) {
+        ErrorResponse error = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.GATEWAY_TIMEOUT.value(),
+                HttpStatus.GATEWAY_TIMEOUT.getReasonPhrase(),
+                ex.getMessage(),
+                httpServletRequest.getRequestURI()
+        );
+        return new ResponseEntity<>(error, HttpStatus.GATEWAY_TIMEOUT);
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
             MethodArgumentNotValidException ex,
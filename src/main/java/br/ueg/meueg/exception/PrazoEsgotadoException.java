@@ -0,0 +1,11 @@
+package br.ueg.meueg.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT) // Mapeia esta exceção para o status 504
+public class PrazoEsgotadoException extends RuntimeException {
+    public PrazoEsgotadoException(String message) {
+        super(message);
+    }
+}
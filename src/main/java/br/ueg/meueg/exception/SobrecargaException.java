@@ -0,0 +1,18 @@
+package br.ueg.meueg.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS) // Mapeia esta exceção para o status 429
+public class SobrecargaException extends RuntimeException {
+
+    // Sugestão de espera para o cliente (cabeçalho Retry-After)
+    private final long retryAfterSegundos;
+
+    public SobrecargaException(String message, long retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+}
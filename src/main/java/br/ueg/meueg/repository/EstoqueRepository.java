@@ -2,9 +2,15 @@ package br.ueg.meueg.repository;
 
 import br.ueg.meueg.entity.Estoque;
 import br.ueg.meueg.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +24,42 @@ public interface EstoqueRepository extends JpaRepository<Estoque, Long> {
     // Opcional: Se você quiser buscar um item de estoque específico de um usuário
     Optional<Estoque> findByIdAndUsuario(Long id, User usuario);
 
+    // Mesmo filtro, travando a linha (SELECT ... FOR UPDATE) até o fim da transação
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Estoque e WHERE e.id = :id AND e.usuario = :usuario")
+    Optional<Estoque> findByIdAndUsuarioParaAtualizar(@Param("id") Long id, @Param("usuario") User usuario);
+
     // Para buscar um item de estoque por idProduto E usuári
     Optional<Estoque> findByProdutoServico_IdAndUsuario(Long produtoServicoId, User usuario);
-}
\ No newline at end of file
+
+    // Mesmo filtro, travando a linha até o fim da transação (entrada/saída manual)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Estoque e WHERE e.produtoServico.id = :produtoServicoId AND e.usuario = :usuario")
+    Optional<Estoque> findByProdutoServico_IdAndUsuarioParaAtualizar(@Param("produtoServicoId") Long produtoServicoId, @Param("usuario") User usuario);
+
+    // Carrega o estoque de vários produtos de uma vez (evita uma consulta por item da venda)
+    @Query("SELECT e FROM Estoque e JOIN FETCH e.produtoServico WHERE e.produtoServico.id IN :idsProdutos")
+    List<Estoque> findAllByProdutoServicoIdIn(@Param("idsProdutos") Collection<Long> idsProdutos);
+
+    // Trava (SELECT ... FOR UPDATE) os estoques em ordem de ID: duas vendas com os mesmos produtos não se travam
+    // mutuamente. Os IDs vêm do corpo da requisição: o filtro por usuário impede travar o estoque de outra conta.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Estoque e WHERE e.produtoServico.id IN :idsProdutos AND e.usuario = :usuario ORDER BY e.id")
+    List<Estoque> findAllByProdutoServicoIdInParaAtualizar(@Param("idsProdutos") Collection<Long> idsProdutos, @Param("usuario") User usuario);
+
+    // Saldo atual de cada estoque, linhas {id do estoque, saldo}: o saldo consolidado mais as movimentações
+    // do livro a partir da consolidação (índice id_estoque, data_hora do livro)
+    @Query("""
+            SELECT e.id, e.quantidade + COALESCE((SELECT SUM(m.quantidade) FROM MovimentacaoEstoque m
+                                                  WHERE m.idEstoque = e.id AND m.dataHora >= e.consolidadoEm), 0)
+            FROM Estoque e WHERE e.id IN :ids
+            """)
+    List<Object[]> findSaldosAtuais(@Param("ids") Collection<Long> ids);
+
+    // Sincronização: estoques incluídos/alterados depois do cursor, ou com movimentação depois dele (o saldo mudou)
+    @Query("""
+            SELECT e FROM Estoque e JOIN FETCH e.produtoServico WHERE e.usuario.id = :idUsuario AND (e.atualizadoEm > :desde
+                OR EXISTS (SELECT 1 FROM MovimentacaoEstoque m WHERE m.idEstoque = e.id AND m.dataHora > :desde))
+            """)
+    List<Estoque> findAlteradosDesde(@Param("idUsuario") Long idUsuario, @Param("desde") LocalDateTime desde);
+}
@@ -0,0 +1,13 @@
+package br.ueg.meueg.repository;
+
+import br.ueg.meueg.entity.EstoqueSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface EstoqueSnapshotRepository extends JpaRepository<EstoqueSnapshot, Long> {
+    Optional<EstoqueSnapshot> findFirstByIdEstoqueAndDataHoraLessThanEqualOrderByDataHoraDesc(Long idEstoque, LocalDateTime dataHora);
+}
@@ -0,0 +1,23 @@
+package br.ueg.meueg.repository;
+
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MovimentacaoEstoqueRepository extends JpaRepository<MovimentacaoEstoque, Long> {
+
+    List<MovimentacaoEstoque> findTop500ByIdEstoqueOrderByDataHoraDesc(Long idEstoque);
+
+    // Soma das movimentações no intervalo [inicio, fim]
+    @Query("""
+            SELECT COALESCE(SUM(m.quantidade), 0) FROM MovimentacaoEstoque m
+            WHERE m.idEstoque = :idEstoque AND m.dataHora >= :inicio AND m.dataHora <= :fim
+            """)
+    Long somarEntre(@Param("idEstoque") Long idEstoque, @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+}
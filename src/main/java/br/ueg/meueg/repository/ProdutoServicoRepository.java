@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +26,9 @@ public interface ProdutoServicoRepository extends JpaRepository<ProdutoServico,
     // --- NOVO MÉTODO OBRIGATÓRIO ---
     // Encontra o produto mesmo se a IA mandar minúsculo e no banco estiver maiúsculo
     Optional<ProdutoServico> findByNomeIgnoreCaseAndUsuario(String nome, User usuario);
+
+    List<ProdutoServico> findByUsuario_Id(Long idUsuario);
+
+    // Sincronização: produtos incluídos/alterados depois do cursor
+    List<ProdutoServico> findByUsuario_IdAndAtualizadoEmAfter(Long idUsuario, LocalDateTime desde);
 }
\ No newline at end of file
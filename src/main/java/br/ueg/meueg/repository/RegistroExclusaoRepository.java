@@ -0,0 +1,13 @@
+package br.ueg.meueg.repository;
+
+import br.ueg.meueg.entity.RegistroExclusao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RegistroExclusaoRepository extends JpaRepository<RegistroExclusao, Long> {
+    List<RegistroExclusao> findByIdUsuarioAndExcluidoEmAfter(Long idUsuario, LocalDateTime desde);
+}
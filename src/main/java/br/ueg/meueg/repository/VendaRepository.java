@@ -1,9 +1,106 @@
 package br.ueg.meueg.repository;
 
+import br.ueg.meueg.dto.VendaExportacaoDTO;
 import br.ueg.meueg.entity.Venda;
+import br.ueg.meueg.enums.FormaPagamento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface VendaRepository extends JpaRepository<Venda, Long> {
+
+    // Filtros opcionais da listagem (parâmetro nulo = sem filtro), comuns à primeira página e às seguintes
+    String FILTROS_PAGINA = """
+            v.usuario.id = :idUsuario
+              AND (:dataInicio IS NULL OR v.data >= :dataInicio)
+              AND (:dataFim IS NULL OR v.data < :dataFim)
+              AND (:formaPagamento IS NULL OR v.forma_pagamento = :formaPagamento)
+              AND (:valorMinimo IS NULL OR v.valor_total >= :valorMinimo)
+              AND (:valorMaximo IS NULL OR v.valor_total <= :valorMaximo)
+              AND (:idProduto IS NULL OR EXISTS (
+                    SELECT 1 FROM VendaItem i WHERE i.venda = v AND i.produtoServico.id = :idProduto))
+            """;
+
+    // Paginação por cursor (keyset) sobre o índice (id_usuario, data, id_venda), lido de trás para frente:
+    // o banco para na primeira página cheia, sem OFFSET.
+    @Query("SELECT v.id_venda FROM Venda v WHERE " + FILTROS_PAGINA + " ORDER BY v.data DESC, v.id_venda DESC")
+    List<Long> buscarIdsPrimeiraPagina(@Param("idUsuario") Long idUsuario,
+                                       @Param("dataInicio") LocalDateTime dataInicio,
+                                       @Param("dataFim") LocalDateTime dataFim,
+                                       @Param("formaPagamento") FormaPagamento formaPagamento,
+                                       @Param("valorMinimo") BigDecimal valorMinimo,
+                                       @Param("valorMaximo") BigDecimal valorMaximo,
+                                       @Param("idProduto") Long idProduto,
+                                       Pageable pageable);
+
+    // Páginas seguintes: a comparação de linha (data, id) < (cursor) vira o limite do range scan no índice,
+    // então uma página funda custa o mesmo que a primeira (um OR com o cursor viraria filtro sobre as linhas mais novas)
+    @Query("SELECT v.id_venda FROM Venda v WHERE " + FILTROS_PAGINA
+            + " AND (v.data, v.id_venda) < (:cursorData, :cursorId) ORDER BY v.data DESC, v.id_venda DESC")
+    List<Long> buscarIdsAposCursor(@Param("idUsuario") Long idUsuario,
+                                   @Param("dataInicio") LocalDateTime dataInicio,
+                                   @Param("dataFim") LocalDateTime dataFim,
+                                   @Param("formaPagamento") FormaPagamento formaPagamento,
+                                   @Param("valorMinimo") BigDecimal valorMinimo,
+                                   @Param("valorMaximo") BigDecimal valorMaximo,
+                                   @Param("idProduto") Long idProduto,
+                                   @Param("cursorData") LocalDateTime cursorData,
+                                   @Param("cursorId") Long cursorId,
+                                   Pageable pageable);
+
+    // Sincronização: vendas incluídas/alteradas depois do cursor
+    @Query("SELECT v.id_venda FROM Venda v WHERE v.usuario.id = :idUsuario AND v.atualizadoEm > :desde")
+    List<Long> findIdsAlteradosDesde(@Param("idUsuario") Long idUsuario, @Param("desde") LocalDateTime desde);
+
+    // Carrega as vendas da página com itens, produtos e usuário em uma única consulta (sem N+1)
+    @Query("""
+            SELECT DISTINCT v FROM Venda v
+            JOIN FETCH v.usuario
+            LEFT JOIN FETCH v.itens i
+            LEFT JOIN FETCH i.produtoServico
+            WHERE v.id_venda IN :ids
+            """)
+    List<Venda> findAllComItensByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Exportação: lê linha a linha de um cursor do banco (fetch size) em vez de carregar tudo.
+    // Precisa ser consumido dentro de uma transação e fechado ao final.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new br.ueg.meueg.dto.VendaExportacaoDTO(
+                v.id_venda, v.data, v.forma_pagamento, v.valor_total, p.id, p.nome, i.quantidade, i.precoUnitario)
+            FROM VendaItem i
+            JOIN i.venda v
+            JOIN i.produtoServico p
+            WHERE v.usuario.id = :idUsuario
+              AND (:dataInicio IS NULL OR v.data >= :dataInicio)
+              AND (:dataFim IS NULL OR v.data < :dataFim)
+              AND (:formaPagamento IS NULL OR v.forma_pagamento = :formaPagamento)
+              AND (:valorMinimo IS NULL OR v.valor_total >= :valorMinimo)
+              AND (:valorMaximo IS NULL OR v.valor_total <= :valorMaximo)
+              AND (:idProduto IS NULL OR EXISTS (
+                    SELECT 1 FROM VendaItem f WHERE f.venda = v AND f.produtoServico.id = :idProduto))
+            ORDER BY v.data, v.id_venda, i.id
+            """)
+    Stream<VendaExportacaoDTO> streamExportacao(@Param("idUsuario") Long idUsuario,
+                                                @Param("dataInicio") LocalDateTime dataInicio,
+                                                @Param("dataFim") LocalDateTime dataFim,
+                                                @Param("formaPagamento") FormaPagamento formaPagamento,
+                                                @Param("valorMinimo") BigDecimal valorMinimo,
+                                                @Param("valorMaximo") BigDecimal valorMaximo,
+                                                @Param("idProduto") Long idProduto);
 }
\ No newline at end of file
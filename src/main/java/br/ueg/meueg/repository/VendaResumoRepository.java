@@ -0,0 +1,23 @@
+package br.ueg.meueg.repository;
+
+import br.ueg.meueg.entity.VendaResumo;
+import br.ueg.meueg.enums.Granularidade;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VendaResumoRepository extends JpaRepository<VendaResumo, Long> {
+
+    List<VendaResumo> findByIdUsuarioAndGranularidadeAndInicioPeriodoBetween(
+            Long idUsuario, Granularidade granularidade, LocalDate inicio, LocalDate fim);
+
+    @Modifying
+    @Query("DELETE FROM VendaResumo r WHERE r.idUsuario = :idUsuario")
+    int deleteByIdUsuario(@Param("idUsuario") Long idUsuario);
+}
@@ -6,6 +6,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.*;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Set;
 
 @Component
 @RequiredArgsConstructor
@@ -22,6 +24,10 @@ public class JwtFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
 
+    // Usernames com acesso às operações administrativas (ex.: reconstrução dos resumos de venda)
+    @Value("${seguranca.administradores:}")
+    private Set<String> administradores;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -40,7 +46,8 @@ public class JwtFilter extends OncePerRequestFilter {
                     UserDetails userDetails = org.springframework.security.core.userdetails.User
                             .withUsername(user.getUsername())
                             .password(user.getPassword())
-                            .authorities("USER")
+                            .authorities(administradores.contains(user.getUsername())
+                                    ? new String[]{"USER", "ROLE_ADMIN"} : new String[]{"USER"})
                             .build();
 
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
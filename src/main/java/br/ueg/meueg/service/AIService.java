@@ -1,9 +1,12 @@
 package br.ueg.meueg.service;
 
 import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.voz.Prazo;
 
 import java.util.Optional;
 
 public interface AIService {
-    Optional<VendaDTO> processVoiceCommand(String transcribedText, Long userId);
-}
\ No newline at end of file
+    // Se o LLM não responder no prazo (ou estiver com o disjuntor aberto), usa o interpretador local.
+    // Interrupção da thread (comando cancelado) sobe como InterruptedException, sem caminho alternativo.
+    Optional<VendaDTO> processVoiceCommand(String transcribedText, Long userId, Prazo prazo) throws InterruptedException;
+}
@@ -0,0 +1,10 @@
+package br.ueg.meueg.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotenciaService {
+    // Executa a operação uma única vez por chave. Repetições devolvem o resultado guardado;
+    // repetições simultâneas esperam a primeira execução terminar.
+    // "conteudo" identifica o corpo da requisição: a mesma chave com outro conteúdo é rejeitada.
+    <T> T executar(String chave, Object conteudo, Supplier<T> operacao);
+}
@@ -0,0 +1,21 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.Prazo;
+
+import java.io.InputStream;
+
+// Backend de reconhecimento de voz (Google, Vosk local...). O SpeechToTextService escolhe entre eles.
+public interface MotorTranscricao {
+    String nome();
+
+    // Formatos que o backend entende sem decodificar (o roteador pula quem não aceita o áudio recebido)
+    boolean aceita(CodificacaoAudio codificacao);
+
+    // Áudio já pré-processado (PCM mono cortado) ou como chegou. A chamada é cancelada quando o prazo acaba.
+    String transcrever(AudioPreparado audio, Prazo prazo) throws Exception;
+
+    // Áudio PCM 16 bits mono em blocos, na taxa informada. Envio e espera do resultado param no fim do prazo.
+    String transcreverStream(InputStream audio, int taxaAmostragem, Prazo prazo) throws Exception;
+}
@@ -0,0 +1,32 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Livro de movimentações: fonte do saldo. Toda alteração de estoque é um lançamento (INSERT, nunca UPDATE
+// na linha do estoque); o saldo atual é o consolidado em Estoque.quantidade mais os lançamentos a partir de
+// Estoque.consolidadoEm. Quem lança segura a linha do estoque (FOR UPDATE) até o commit: é o que impede
+// vender acima do saldo e o que deixa a consolidação fechar o saldo sem perder lançamento em andamento.
+public interface MovimentacaoEstoqueService {
+    // Grava as movimentações na transação corrente (INSERT em batch). Com o motor em memória ligado,
+    // vão para o journal dele e chegam ao livro pelo write-behind.
+    void registrar(Collection<MovimentacaoEstoque> movimentacoes);
+
+    // Saldo atual de cada estoque (ID do estoque -> saldo) numa consulta só; no motor em memória, os contadores
+    Map<Long, Integer> saldosAtuais(Collection<Long> idsEstoque);
+
+    List<MovimentacaoEstoque> listarRecentes(Long idEstoque);
+
+    // Saldo do estoque no instante informado (snapshot + movimentações posteriores)
+    int saldoEm(Long idEstoque, LocalDateTime dataHora);
+
+    // Snapshot na data base para estoques que ainda não têm nenhum (criados antes do livro existir)
+    int gerarSnapshotsIniciais();
+
+    // Consolida as movimentações no saldo do estoque e grava o snapshot; retorna quantos estoques foram consolidados
+    int gerarSnapshots();
+}
@@ -1,6 +1,15 @@
 package br.ueg.meueg.service;
 
-import java.io.File;
+import br.ueg.meueg.voz.Prazo;
+
+import java.io.InputStream;
+
 public interface SpeechToTextService {
-    String transcrever(File audioFile) throws Exception;
+    // Recebe o buffer já lido do upload (sem cópia) e o pré-processa no lugar: o chamador não o reutiliza.
+    // Lança PrazoEsgotadoException se nenhum backend responder dentro do prazo
+    String transcrever(byte[] audio, Prazo prazo) throws Exception;
+
+    // Reconhecimento em streaming: os blocos de áudio vão para o reconhecedor conforme chegam.
+    // Aceita WAV PCM 16 bits mono (a taxa vem do cabeçalho) ou PCM cru na taxa informada.
+    String transcreverStream(InputStream audio, int taxaAmostragem, Prazo prazo) throws Exception;
 }
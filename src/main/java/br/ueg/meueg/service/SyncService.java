@@ -0,0 +1,11 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.dto.SyncDTO;
+import br.ueg.meueg.entity.User;
+
+import java.time.LocalDateTime;
+
+public interface SyncService {
+    // desde = null: carga inicial (catálogo e estoque completos)
+    SyncDTO sincronizar(User usuario, LocalDateTime desde);
+}
@@ -0,0 +1,22 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.dto.ResumoVendaDTO;
+import br.ueg.meueg.entity.Venda;
+import br.ueg.meueg.enums.AgrupamentoRelatorio;
+import br.ueg.meueg.enums.Granularidade;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface VendaResumoService {
+    // Chamados dentro da transação da venda (mesmo commit/rollback)
+    void registrarVendas(Collection<Venda> vendas);
+    void estornarVenda(Venda venda);
+
+    List<ResumoVendaDTO> relatorio(Long idUsuario, Granularidade granularidade, LocalDate inicio, LocalDate fim, AgrupamentoRelatorio agrupamento);
+
+    // Recalcula os resumos do usuário a partir de venda/venda_item, em blocos mensais paralelos;
+    // troca os resumos de uma vez no fim, segurando as vendas do usuário enquanto roda
+    int reconstruir(Long idUsuario);
+}
@@ -1,7 +1,15 @@
 package br.ueg.meueg.service;
 
+import br.ueg.meueg.dto.LoteFalhaDTO;
 import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.dto.VendaFiltroDTO;
+import br.ueg.meueg.dto.VendaPaginaDTO;
+import br.ueg.meueg.entity.User;
 import br.ueg.meueg.entity.Venda;
+import br.ueg.meueg.enums.FormatoExportacao;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +21,15 @@ public interface VendaService {
     void delete(Long id);
 
     VendaDTO processarPropostaVoz(VendaDTO vendaDTO);
+
+    // Consulta paginada (por cursor) das vendas do usuário
+    VendaPaginaDTO buscar(VendaFiltroDTO filtro, User usuario);
+
+    VendaDTO toDTO(Venda venda);
+
+    // Exportação em streaming (mesmos filtros da consulta, sem paginação)
+    void exportar(VendaFiltroDTO filtro, User usuario, FormatoExportacao formato, OutputStream saida) throws IOException;
+
+    // Importação em lote: salva o que for válido e devolve as falhas por registro (índice na lista recebida)
+    List<LoteFalhaDTO> salvarLote(List<Venda> vendas, User usuario);
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.dto.TrabalhoVozDTO;
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.voz.Prazo;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+public interface VozService {
+    // Áudio -> texto -> IA -> proposta, num executor próprio (a thread HTTP não fica presa no STT/LLM)
+    CompletableFuture<VendaDTO> processar(byte[] audio, Long idUsuario);
+
+    // Streaming: o executor transcreve lendo "audio" enquanto quem chama ainda recebe o upload;
+    // prazoUpload limita o envio e o reconhecimento, a IA e o catálogo têm o prazo de um comando
+    CompletableFuture<VendaDTO> processarStream(InputStream audio, int taxaAmostragem, Long idUsuario, Prazo prazoUpload);
+
+    // Modo trabalho: devolve o id na hora; o resultado é consultado depois
+    TrabalhoVozDTO iniciarTrabalho(byte[] audio, Long idUsuario);
+
+    TrabalhoVozDTO consultarTrabalho(String id, Long idUsuario);
+
+    // Espera o trabalho terminar por até "espera" (long polling) e devolve o estado atual
+    CompletableFuture<TrabalhoVozDTO> aguardarTrabalho(String id, Long idUsuario, Duration espera);
+}
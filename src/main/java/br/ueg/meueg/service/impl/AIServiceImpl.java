@@ -1,42 +1,215 @@
 package br.ueg.meueg.service.impl;
 
+import br.ueg.meueg.cache.CacheVoz;
 import br.ueg.meueg.dto.VendaDTO;
 import br.ueg.meueg.dto.VendaItemDTO;
-import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.exception.SobrecargaException;
 import br.ueg.meueg.service.AIService;
+import br.ueg.meueg.voz.AdmissaoOllama;
+import br.ueg.meueg.voz.ClienteOllama;
+import br.ueg.meueg.voz.DisjuntorCircuito;
+import br.ueg.meueg.voz.IndiceProdutos;
+import br.ueg.meueg.voz.IndicesProdutos;
+import br.ueg.meueg.voz.InterpretadorComando;
+import br.ueg.meueg.voz.MetricasVoz;
+import br.ueg.meueg.voz.Prazo;
+import br.ueg.meueg.voz.ProdutoIndexado;
+import br.ueg.meueg.voz.Textos;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AIServiceImpl implements AIService {
 
-    private final RestTemplate restTemplate;
+    private final ClienteOllama clienteOllama;
     private final ObjectMapper objectMapper;
-    private final ProdutoServicoRepository produtoServicoRepository;
-    private final String OLLAMA_URL = "http://localhost:11434/api/generate";
+    private final IndicesProdutos indicesProdutos;
+    private final CacheVoz cacheVoz;
+    private final InterpretadorComando interpretadorComando;
+    private final MeterRegistry meterRegistry;
+    private final AdmissaoOllama admissaoOllama;
+    private final MetricasVoz metricasVoz;
+
+    // Gerações do LLM em andamento por usuário + frase normalizada (pedidos idênticos compartilham uma só)
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<VendaDTO>>> geracoesEmAndamento = new ConcurrentHashMap<>();
+
+    @Value("${voz.prompt.max-produtos:20}")
+    private int maxProdutosPrompt;
+
+    @Value("${ollama.disjuntor.falhas:3}")
+    private int falhasParaAbrir;
+
+    @Value("${ollama.disjuntor.aberto-segundos:30}")
+    private long abertoSegundos;
+
+    private DisjuntorCircuito disjuntorOllama;
+
+    @PostConstruct
+    void iniciar() {
+        disjuntorOllama = new DisjuntorCircuito(falhasParaAbrir, TimeUnit.SECONDS.toNanos(abertoSegundos));
+        Gauge.builder("ollama.disjuntor.aberto", disjuntorOllama, d -> d.getEstado() == DisjuntorCircuito.Estado.FECHADO ? 0 : 1)
+                .description("1 quando o LLM está sendo evitado (disjuntor aberto ou em teste)")
+                .register(meterRegistry);
+    }
+
+    // Formato exigido do modelo (JSON Schema no campo "format" do Ollama)
+    private static final JsonNode ESQUEMA_RESPOSTA;
+
+    static {
+        try {
+            ESQUEMA_RESPOSTA = new ObjectMapper().readTree("""
+                    {
+                      "type": "object",
+                      "properties": {
+                        "items": {
+                          "type": "array",
+                          "items": {
+                            "type": "object",
+                            "properties": {
+                              "product": {"type": "string"},
+                              "quantity": {"type": "integer"}
+                            },
+                            "required": ["product", "quantity"]
+                          }
+                        },
+                        "payment": {"type": ["string", "null"], "enum": ["PIX", "CARTAO_CREDITO", "CARTAO_DEBITO", "DINHEIRO", null]}
+                      },
+                      "required": ["items", "payment"]
+                    }
+                    """);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
     @Override
-    public Optional<VendaDTO> processVoiceCommand(String transcribedText, Long userId) {
-        // 1. Busca produtos do banco para dar contexto à IA
-        List<String> productNames = produtoServicoRepository.findAllNomesByUserId(userId);
-        String productList = productNames.stream().collect(Collectors.joining(", "));
+    public Optional<VendaDTO> processVoiceCommand(String transcribedText, Long userId, Prazo prazo) throws InterruptedException {
+        Timer.Sample amostra = metricasVoz.iniciar();
+
+        // 0. Mesma frase já interpretada para este catálogo: não chama a IA
+        VendaDTO emCache = cacheVoz.buscarInterpretacao(userId, transcribedText);
+        if (emCache != null) {
+            metricasVoz.etapa(amostra, "interpretacao", "cache", null);
+            return Optional.of(emCache);
+        }
+
+        // 1. Catálogo do usuário vindo do índice em memória (versionado; não vai ao banco a cada comando)
+        IndiceProdutos indice = indicesProdutos.doUsuario(userId);
+
+        // 2. Caminho rápido: comandos simples ("duas pipocas no pix") são entendidos sem chamar a IA
+        Optional<VendaDTO> deterministica = interpretadorComando.interpretar(transcribedText, indice.getNomes());
+        meterRegistry.counter("voz.interpretacao", "caminho", deterministica.isPresent() ? "deterministico" : "llm").increment();
+        if (deterministica.isPresent()) {
+            VendaDTO venda = deterministica.get();
+            venda.setIdUsuario(userId);
+            cacheVoz.guardarInterpretacao(userId, transcribedText, venda);
+            metricasVoz.etapa(amostra, "interpretacao", "deterministico", null);
+            return Optional.of(venda);
+        }
+
+        try {
+            Optional<VendaDTO> venda = interpretarComLlm(transcribedText, userId, indice, prazo);
+            metricasVoz.etapa(amostra, "interpretacao", "llm", null);
+            return venda;
+        } catch (RuntimeException e) {
+            metricasVoz.etapa(amostra, "interpretacao", "llm", e);
+            throw e;
+        }
+    }
+
+    private Optional<VendaDTO> interpretarComLlm(String transcribedText, Long userId, IndiceProdutos indice, Prazo prazo)
+            throws InterruptedException {
+        // 3. LLM com falhas seguidas (disjuntor aberto): nem tenta, vai direto para o interpretador tolerante
+        if (!disjuntorOllama.permite()) {
+            return interpretarSemIA(transcribedText, userId, indice, "disjuntor");
+        }
+
+        // 4. Mesma frase (mesmo usuário, mesmo texto normalizado) já sendo gerada: espera aquela geração
+        String chave = userId + ":" + Textos.normalizar(transcribedText);
+        CompletableFuture<Optional<VendaDTO>> geracao = new CompletableFuture<>();
+        CompletableFuture<Optional<VendaDTO>> emAndamento = geracoesEmAndamento.putIfAbsent(chave, geracao);
+        if (emAndamento != null) {
+            meterRegistry.counter("ollama.geracoes.coalescidas").increment();
+            return aguardarGeracao(emAndamento, prazo)
+                    .orElseGet(() -> interpretarSemIA(transcribedText, userId, indice, "prazo"));
+        }
+        try {
+            Optional<VendaDTO> venda = interpretarComIA(transcribedText, userId, indice, prazo);
+            geracao.complete(venda.map(cacheVoz::copiar)); // Quem esperou recebe cópia: o chamador altera o DTO
+            return venda;
+        } catch (RuntimeException | Error | InterruptedException e) {
+            geracao.completeExceptionally(e);
+            throw e;
+        } finally {
+            geracoesEmAndamento.remove(chave, geracao);
+        }
+    }
+
+    // Vazio por fora = o prazo acabou antes da geração compartilhada
+    private Optional<Optional<VendaDTO>> aguardarGeracao(CompletableFuture<Optional<VendaDTO>> emAndamento, Prazo prazo)
+            throws InterruptedException {
+        try {
+            return Optional.of(emAndamento.get(prazo.restanteMs(), TimeUnit.MILLISECONDS).map(cacheVoz::copiar));
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                return Optional.empty(); // Quem gerava foi cancelado; o cancelamento não vale para quem esperava
+            }
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa; // Ex.: SobrecargaException vale para todos que esperavam
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Caminho alternativo sem LLM; o resultado não vai para o cache (com o LLM de volta, a frase é reinterpretada)
+    private Optional<VendaDTO> interpretarSemIA(String transcribedText, Long userId, IndiceProdutos indice, String motivo) {
+        meterRegistry.counter("voz.interpretacao.alternativa", "motivo", motivo).increment();
+        Optional<VendaDTO> venda = interpretadorComando.interpretarTolerante(transcribedText, indice.getNomes());
+        venda.ifPresent(v -> v.setIdUsuario(userId));
+        return venda;
+    }
+
+    private Optional<VendaDTO> interpretarComIA(String transcribedText, Long userId, IndiceProdutos indice, Prazo prazo)
+            throws InterruptedException {
+        // Só os produtos mais parecidos com a frase vão para o prompt (o tempo do LLM cresce com o tamanho dele)
+        String productList = indice.candidatos(transcribedText, maxProdutosPrompt).stream()
+                .map(ProdutoIndexado::nome)
+                .collect(Collectors.joining(", "));
 
         String prompt = String.format("""
-            Atue como um interpretador de pedidos. Analise a frase e extraia: Produto, Quantidade e Forma de Pagamento.
+            Atue como um interpretador de pedidos. Analise a frase e extraia TODOS os itens (Produto e Quantidade) e a Forma de Pagamento.
             
             REGRAS DE PRODUTO:
             - O nome deve ser similar a um destes: [%s].
+            - A frase pode ter vários produtos ("duas pipocas e um refrigerante"): retorne um item para cada.
+            - Se a quantidade não for falada, use 1.
             
             REGRAS DE PAGAMENTO (Mapeie para o código exato):
             - Se falar "Pix" -> retorne "PIX"
@@ -46,58 +219,85 @@ public class AIServiceImpl implements AIService {
             
             FORMATO DE RESPOSTA (JSON):
             {
-                "product": "nome do produto",
-                "quantity": 1,
+                "items": [
+                    {"product": "nome do produto", "quantity": 1}
+                ],
                 "payment": "CODIGO_DO_PAGAMENTO"
             }
             
             Frase do usuário: "%s"
             """, productList, transcribedText);
-
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", "mistral"); // Ou o modelo que estiver usando
-        requestBody.put("prompt", prompt);
-        requestBody.put("format", "json");
-        requestBody.put("stream", false); // Dica: false facilita o parse, vem tudo de uma vez
+        metricasVoz.tokens("prompt", estimarTokens(prompt));
 
         try {
-            // Tenta pegar a resposta direta (se stream=false)
-            String iaRawResponse = restTemplate.postForObject(OLLAMA_URL, requestBody, String.class);
-
-            // Lógica para limpar a resposta do Ollama e pegar apenas o texto gerado
-            JsonNode rootResponse = objectMapper.readTree(iaRawResponse);
-            String actualResponseText = rootResponse.get("response").asText();
+            // Resposta em streaming, restrita ao esquema; o cliente para assim que o objeto fecha.
+            // A admissão limita gerações simultâneas e enfileira por usuário (ou recusa com 429).
+            Optional<JsonNode> resposta = admissaoOllama.executar(userId, prazo, () -> gerarComDisjuntor(prompt, prazo));
+            if (resposta.isEmpty()) {
+                return Optional.empty();
+            }
 
-            // 3. Parsear o JSON interno que a IA gerou
-            Optional<VendaDTO> venda = parseVendaFromAIResponse(actualResponseText);
-            venda.ifPresent(v -> v.setIdUsuario(userId));
+            // Parsear o JSON que a IA gerou
+            Optional<VendaDTO> venda = parseVendaFromAIResponse(resposta.get());
+            venda.ifPresent(v -> {
+                v.setIdUsuario(userId);
+                cacheVoz.guardarInterpretacao(userId, transcribedText, v); // Só respostas válidas (falha da IA não fica em cache)
+            });
             return venda;
 
+        } catch (SobrecargaException e) {
+            throw e;
+        } catch (PrazoEsgotadoException e) {
+            return interpretarSemIA(transcribedText, userId, indice, "prazo");
+        } catch (InterruptedException e) {
+            // Cancelamento (comando abandonado, desligamento): não cai no caminho alternativo, sobe para quem chamou
+            Thread.currentThread().interrupt();
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
-            return Optional.empty();
+            log.warn("Falha na geração do LLM (usuário {}); usando o interpretador local", userId, e);
+            return interpretarSemIA(transcribedText, userId, indice, "erro");
         }
     }
 
-    private Optional<VendaDTO> parseVendaFromAIResponse(String jsonResponse) {
+    // Só o que acontece depois da admissão conta para o disjuntor (fila cheia não é falha do Ollama)
+    private Optional<JsonNode> gerarComDisjuntor(String prompt, Prazo prazo) throws IOException, InterruptedException {
+        Timer.Sample amostra = metricasVoz.iniciar();
         try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
+            Optional<JsonNode> resposta = clienteOllama.gerarJson(prompt, ESQUEMA_RESPOSTA, prazo);
+            disjuntorOllama.registrarSucesso();
+            metricasVoz.etapa(amostra, "llm", "ollama", null);
+            return resposta;
+        } catch (IOException | PrazoEsgotadoException e) {
+            disjuntorOllama.registrarFalha();
+            metricasVoz.etapa(amostra, "llm", "ollama", e);
+            throw e;
+        }
+    }
 
-            // Leitura segura dos campos
-            JsonNode productNode = root.get("product");
-            JsonNode quantityNode = root.get("quantity");
-            JsonNode paymentNode = root.get("payment"); // Novo campo
+    // Estimativa sem tokenizador (o stream é fechado antes do Ollama informar prompt_eval_count):
+    // ~4 caracteres por token em português
+    private static int estimarTokens(String texto) {
+        return (texto.length() + 3) / 4;
+    }
 
-            if (productNode != null && quantityNode != null) {
-                String productName = productNode.asText();
-                int quantity = quantityNode.asInt(1); // Default 1 se falhar
+    private Optional<VendaDTO> parseVendaFromAIResponse(JsonNode root) {
+        try {
+            // Leitura segura dos campos: lista "items" (ou o formato antigo, um único "product")
+            JsonNode itemsNode = root.get("items");
+            if (itemsNode == null || !itemsNode.isArray()) {
+                itemsNode = objectMapper.createArrayNode().add(root);
+            }
+            JsonNode paymentNode = root.get("payment");
 
-                VendaItemDTO itemDTO = new VendaItemDTO();
-                itemDTO.setNomeProduto(productName);
-                itemDTO.setQuantidade(quantity);
+            // Item incompleto ou inválido é descartado sozinho, sem derrubar o comando inteiro
+            List<VendaItemDTO> itens = new ArrayList<>();
+            for (JsonNode itemNode : itemsNode) {
+                parseItem(itemNode).ifPresent(itens::add);
+            }
 
+            if (!itens.isEmpty()) {
                 VendaDTO vendaDTO = new VendaDTO();
-                vendaDTO.setItens(Collections.singletonList(itemDTO));
+                vendaDTO.setItens(itens);
 
                 // AQUI PREENCHEMOS O PAGAMENTO NO DTO
                 if (paymentNode != null && !paymentNode.isNull() && !paymentNode.asText().isEmpty()) {
@@ -112,9 +312,32 @@ public class AIServiceImpl implements AIService {
                 return Optional.of(vendaDTO);
             }
         } catch (Exception e) {
-            System.err.println("Erro ao converter JSON da IA: " + jsonResponse);
-            e.printStackTrace();
+            log.warn("Erro ao converter JSON da IA: {}", root, e);
         }
         return Optional.empty();
     }
+
+    private Optional<VendaItemDTO> parseItem(JsonNode itemNode) {
+        JsonNode productNode = itemNode.get("product");
+        if (productNode == null || !productNode.isTextual() || productNode.asText().isBlank()) {
+            return Optional.empty();
+        }
+
+        JsonNode quantityNode = itemNode.get("quantity");
+        int quantity = 1; // Quantidade não falada
+        if (quantityNode != null && !quantityNode.isNull()) {
+            if (!quantityNode.canConvertToInt() && !quantityNode.isTextual()) {
+                return Optional.empty();
+            }
+            quantity = quantityNode.asInt(0); // "2" em texto também vale; lixo vira 0 e é descartado
+            if (quantity <= 0) {
+                return Optional.empty();
+            }
+        }
+
+        VendaItemDTO itemDTO = new VendaItemDTO();
+        itemDTO.setNomeProduto(productNode.asText().trim());
+        itemDTO.setQuantidade(quantity);
+        return Optional.of(itemDTO);
+    }
 }
\ No newline at end of file
@@ -1,18 +1,27 @@
 package br.ueg.meueg.service.impl;
 
 import br.ueg.meueg.entity.Estoque;
+import br.ueg.meueg.entity.MovimentacaoEstoque;
 import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.RegistroExclusao;
 import br.ueg.meueg.entity.User;
+import br.ueg.meueg.enums.TipoEntidadeSync;
+import br.ueg.meueg.enums.TipoMovimentacao;
+import br.ueg.meueg.estoque.MotorEstoqueMemoria;
 import br.ueg.meueg.exception.BusinessException;
 import br.ueg.meueg.exception.NotFoundException;
 import br.ueg.meueg.repository.EstoqueRepository;
 import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.repository.RegistroExclusaoRepository;
 import br.ueg.meueg.service.EstoqueService;
+import br.ueg.meueg.service.MovimentacaoEstoqueService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,35 +30,38 @@ public class EstoqueServiceImpl implements EstoqueService {
 
     private final EstoqueRepository estoqueRepository;
     private final ProdutoServicoRepository produtoServicoRepository; // Necessário para buscar ProdutoServico
+    private final RegistroExclusaoRepository registroExclusaoRepository;
+    private final MovimentacaoEstoqueService movimentacaoEstoqueService;
+    private final Optional<MotorEstoqueMemoria> motorEstoque; // Presente só com estoque.motor-memoria.habilitado=true
 
     @Override
     public List<Estoque> findAll() {
         // Este método buscará TUDO. Geralmente, usado apenas para admins.
-        return estoqueRepository.findAll();
+        return comSaldosAtuais(estoqueRepository.findAll());
     }
 
     // NOVO: Buscar estoque por usuário
     @Override
     public List<Estoque> findByUsuario(User usuario) {
-        return estoqueRepository.findByUsuario(usuario);
+        return comSaldosAtuais(estoqueRepository.findByUsuario(usuario));
     }
 
     // NOVO: Buscar um estoque pelo ID e USUÁRIO
     @Override
     public Optional<Estoque> findByIdAndUsuario(Long id, User usuario) {
-        return estoqueRepository.findByIdAndUsuario(id, usuario);
+        return estoqueRepository.findByIdAndUsuario(id, usuario).map(this::comSaldoAtual);
     }
 
     @Override
     public Optional<Estoque> findByProdutoServico_IdAndUsuario(Long produtoServicoId, User usuario) {
-        return estoqueRepository.findByProdutoServico_IdAndUsuario(produtoServicoId, usuario);
+        return estoqueRepository.findByProdutoServico_IdAndUsuario(produtoServicoId, usuario).map(this::comSaldoAtual);
     }
 
     @Override
     public Optional<Estoque> findById(Long id) {
         // Este método pode ser removido se findByIdAndUsuario for o padrão
         // ou usado com cautela, pois não filtra por usuário.
-        return estoqueRepository.findById(id);
+        return estoqueRepository.findById(id).map(this::comSaldoAtual);
     }
 
     @Override
@@ -65,21 +77,33 @@ public class EstoqueServiceImpl implements EstoqueService {
 
         estoque.setProdutoServico(produtoServico);
         estoque.setUsuario(usuario); // Define o usuário
-        return estoqueRepository.save(estoque);
+        return criar(estoque, estoque.getQuantidade());
     }
 
     @Override
     @Transactional
     public Estoque update(Long id, Estoque estoqueAtualizado, User usuario) { // Recebe User
-        Estoque existingEstoque = estoqueRepository.findByIdAndUsuario(id, usuario) // Busca pelo ID e USUÁRIO
+        // Sem o motor, a diferença do ajuste sai do saldo do livro: a linha fica travada até o commit
+        // para uma venda concorrente não entrar entre a leitura e o lançamento (o livro ficaria com o delta errado)
+        Optional<Estoque> encontrado = motorEstoque.isPresent()
+                ? estoqueRepository.findByIdAndUsuario(id, usuario)
+                : estoqueRepository.findByIdAndUsuarioParaAtualizar(id, usuario);
+        Estoque existingEstoque = encontrado // Busca pelo ID e USUÁRIO
                 .orElseThrow(() -> new NotFoundException("Estoque com ID " + id + " não encontrado ou não pertence ao usuário."));
 
-        existingEstoque.setQuantidade(estoqueAtualizado.getQuantidade());
+        // Atualização direta do saldo: o livro registra a diferença como ajuste (inventário)
+        if (estoqueAtualizado.getQuantidade() != null) {
+            // Modo em memória: o saldo absoluto vai para o contador e o lançamento chega ao livro pelo write-behind
+            int anterior = motorEstoque.isPresent()
+                    ? motorEstoque.get().ajustar(existingEstoque.getId(), estoqueAtualizado.getQuantidade())
+                    : saldoAtual(existingEstoque);
+            registrarMovimentacao(existingEstoque, TipoMovimentacao.AJUSTE, estoqueAtualizado.getQuantidade() - anterior);
+        }
 
         // Não atualize produtoServico ou usuario aqui, a menos que seja um caso muito específico.
         // existingEstoque.setProdutoServico(estoqueAtualizado.getProdutoServico());
 
-        return estoqueRepository.save(existingEstoque);
+        return comSaldoAtual(existingEstoque);
     }
 
     @Override
@@ -87,39 +111,49 @@ public class EstoqueServiceImpl implements EstoqueService {
     public void delete(Long id, User usuario) { // Recebe User
         Estoque existingEstoque = estoqueRepository.findByIdAndUsuario(id, usuario) // Busca pelo ID e USUÁRIO
                 .orElseThrow(() -> new NotFoundException("Estoque com ID " + id + " não encontrado ou não pertence ao usuário."));
+        registroExclusaoRepository.save(RegistroExclusao.builder()
+                .tipo(TipoEntidadeSync.ESTOQUE)
+                .idEntidade(id)
+                .idUsuario(usuario.getId())
+                .excluidoEm(LocalDateTime.now())
+                .build());
         estoqueRepository.delete(existingEstoque);
+        motorEstoque.ifPresent(motor -> motor.descartar(id));
     }
 
     @Override
     @Transactional
     public Estoque addQuantidade(Long produtoServicoId, Integer quantidade, User usuario) { // Recebe User
-        Estoque estoque = estoqueRepository.findByProdutoServico_IdAndUsuario(produtoServicoId, usuario) // Busca pelo ID do Produto/Serviço e USUÁRIO
-                .orElseThrow(() -> new NotFoundException("Estoque para Produto/Serviço com ID " + produtoServicoId + " não encontrado para este usuário."));
+        Estoque estoque = buscarParaLancar(produtoServicoId, usuario);
 
         if (quantidade <= 0) {
             throw new BusinessException("A quantidade a ser adicionada deve ser positiva.");
         }
 
-        estoque.setQuantidade(estoque.getQuantidade() + quantidade);
-        return estoqueRepository.save(estoque);
+        motorEstoque.ifPresent(motor -> motor.adicionar(Map.of(estoque.getId(), quantidade)));
+        registrarMovimentacao(estoque, TipoMovimentacao.ENTRADA, quantidade);
+        return comSaldoAtual(estoque);
     }
 
     @Override
     @Transactional
     public Estoque removeQuantidade(Long produtoServicoId, Integer quantidade, User usuario) { // Recebe User
-        Estoque estoque = estoqueRepository.findByProdutoServico_IdAndUsuario(produtoServicoId, usuario) // Busca pelo ID do Produto/Serviço e USUÁRIO
-                .orElseThrow(() -> new NotFoundException("Estoque para Produto/Serviço com ID " + produtoServicoId + " não encontrado para este usuário."));
+        Estoque estoque = buscarParaLancar(produtoServicoId, usuario);
 
         if (quantidade <= 0) {
             throw new BusinessException("A quantidade a ser removida deve ser positiva.");
         }
 
-        if (estoque.getQuantidade() < quantidade) {
-            throw new BusinessException("Quantidade insuficiente em estoque. Disponível: " + estoque.getQuantidade() + ", Solicitado: " + quantidade);
+        // Sem o motor a linha já está travada: o saldo do livro não muda até o commit
+        boolean semSaldo = motorEstoque.isPresent()
+                ? motorEstoque.get().reservar(Map.of(estoque.getId(), quantidade)) != null
+                : saldoAtual(estoque) < quantidade;
+        if (semSaldo) {
+            throw new BusinessException("Quantidade insuficiente em estoque. Disponível: " + saldoAtual(estoque) + ", Solicitado: " + quantidade);
         }
 
-        estoque.setQuantidade(estoque.getQuantidade() - quantidade);
-        return estoqueRepository.save(estoque);
+        registrarMovimentacao(estoque, TipoMovimentacao.SAIDA, -quantidade);
+        return comSaldoAtual(estoque);
     }
 
     // NOVO: Método para criar ou atualizar um item de estoque de forma inteligente (para o POST)
@@ -131,20 +165,76 @@ public class EstoqueServiceImpl implements EstoqueService {
                 .orElseThrow(() -> new NotFoundException("Produto/Serviço com ID " + estoqueDtoParaSalvar.getProdutoServico().getId() + " não encontrado."));
 
         // Tenta encontrar um item de estoque existente para este produto E este usuário
-        Optional<Estoque> existingEstoque = estoqueRepository.findByProdutoServico_IdAndUsuario(produtoServico.getId(), usuario);
+        Optional<Estoque> existingEstoque = motorEstoque.isPresent()
+                ? estoqueRepository.findByProdutoServico_IdAndUsuario(produtoServico.getId(), usuario)
+                : estoqueRepository.findByProdutoServico_IdAndUsuarioParaAtualizar(produtoServico.getId(), usuario);
 
         if (existingEstoque.isPresent()) {
-            // Se já existe, atualiza a quantidade
+            // Se já existe, lança a entrada da quantidade
             Estoque item = existingEstoque.get();
-            item.setQuantidade(item.getQuantidade() + estoqueDtoParaSalvar.getQuantidade()); // Adiciona a quantidade
-            return estoqueRepository.save(item);
+            motorEstoque.ifPresent(motor -> motor.adicionar(Map.of(item.getId(), estoqueDtoParaSalvar.getQuantidade())));
+            registrarMovimentacao(item, TipoMovimentacao.ENTRADA, estoqueDtoParaSalvar.getQuantidade());
+            return comSaldoAtual(item);
         } else {
             // Se não existe, cria um novo item de estoque
             Estoque newEstoque = new Estoque();
             newEstoque.setProdutoServico(produtoServico);
             newEstoque.setUsuario(usuario); // Associa ao usuário
-            newEstoque.setQuantidade(estoqueDtoParaSalvar.getQuantidade()); // Define a quantidade inicial
-            return estoqueRepository.save(newEstoque);
+            return criar(newEstoque, estoqueDtoParaSalvar.getQuantidade());
+        }
+    }
+
+    // Estoque novo começa consolidado em zero; a quantidade inicial é a primeira entrada do livro
+    private Estoque criar(Estoque estoque, Integer quantidadeInicial) {
+        estoque.setQuantidade(0);
+        Estoque salvo = estoqueRepository.save(estoque); // IDENTITY: a linha já existe na transação
+        if (quantidadeInicial != null && quantidadeInicial > 0) {
+            motorEstoque.ifPresent(motor -> motor.adicionar(Map.of(salvo.getId(), quantidadeInicial)));
+        }
+        registrarMovimentacao(salvo, TipoMovimentacao.ENTRADA, quantidadeInicial);
+        return comSaldoAtual(salvo);
+    }
+
+    // Entrada/saída manual: sem o motor, trava a linha até o commit, como a venda (ver VendaServiceImpl)
+    private Estoque buscarParaLancar(Long produtoServicoId, User usuario) {
+        Optional<Estoque> encontrado = motorEstoque.isPresent()
+                ? estoqueRepository.findByProdutoServico_IdAndUsuario(produtoServicoId, usuario)
+                : estoqueRepository.findByProdutoServico_IdAndUsuarioParaAtualizar(produtoServicoId, usuario);
+        return encontrado // Busca pelo ID do Produto/Serviço e USUÁRIO
+                .orElseThrow(() -> new NotFoundException("Estoque para Produto/Serviço com ID " + produtoServicoId + " não encontrado para este usuário."));
+    }
+
+    private int saldoAtual(Estoque estoque) {
+        return movimentacaoEstoqueService.saldosAtuais(List.of(estoque.getId())).getOrDefault(estoque.getId(), 0);
+    }
+
+    private Estoque comSaldoAtual(Estoque estoque) {
+        return comSaldo(estoque, saldoAtual(estoque));
+    }
+
+    // Uma consulta de saldo para a lista toda
+    private List<Estoque> comSaldosAtuais(List<Estoque> estoques) {
+        Map<Long, Integer> saldos = movimentacaoEstoqueService.saldosAtuais(estoques.stream().map(Estoque::getId).toList());
+        return estoques.stream().map(estoque -> comSaldo(estoque, saldos.getOrDefault(estoque.getId(), 0))).toList();
+    }
+
+    // Estoque.quantidade na tabela é o saldo consolidado: devolve uma cópia com o saldo atual (livro ou motor).
+    // Cópia para o saldo atual nunca ir para a tabela pelo dirty checking do Hibernate.
+    private Estoque comSaldo(Estoque estoque, int saldo) {
+        return Estoque.builder()
+                .id(estoque.getId())
+                .produtoServico(estoque.getProdutoServico())
+                .usuario(estoque.getUsuario())
+                .quantidade(saldo)
+                .consolidadoEm(estoque.getConsolidadoEm())
+                .atualizadoEm(estoque.getAtualizadoEm())
+                .build();
+    }
+
+    // Toda alteração de saldo vira um lançamento no livro de movimentações (mesma transação)
+    private void registrarMovimentacao(Estoque estoque, TipoMovimentacao tipo, Integer quantidade) {
+        if (quantidade != null && quantidade != 0) {
+            movimentacaoEstoqueService.registrar(List.of(MovimentacaoEstoque.de(estoque, tipo, quantidade, null)));
         }
     }
-}
\ No newline at end of file
+}
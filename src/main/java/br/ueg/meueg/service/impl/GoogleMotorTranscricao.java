@@ -0,0 +1,331 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.service.MotorTranscricao;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.Prazo;
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.speech.v1.*;
+import com.google.longrunning.GetOperationRequest;
+import com.google.longrunning.Operation;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Service
+@Order(1)
+@ConditionalOnProperty(name = "stt.google.habilitado", havingValue = "true", matchIfMissing = true)
+public class GoogleMotorTranscricao implements MotorTranscricao {
+
+    // Falhas de canal/conexão: o cliente é recriado e a chamada tentada mais uma vez
+    private static final Set<StatusCode.Code> FALHAS_DE_CANAL = Set.of(StatusCode.Code.UNAVAILABLE, StatusCode.Code.UNKNOWN);
+
+    // Mesmo config para toda requisição: monta uma vez só
+    private static final RecognitionConfig CONFIG = RecognitionConfig.newBuilder()
+            .setEncoding(RecognitionConfig.AudioEncoding.LINEAR16) // Ajuste para o formato do seu áudio
+            .setLanguageCode("pt-BR")
+            .build();
+
+    // Taxas que o Google aceita para OGG_OPUS (a taxa "original" do OpusHead pode ser outra, ex.: 44100)
+    private static final Set<Integer> TAXAS_OPUS = Set.of(8000, 12000, 16000, 24000, 48000);
+
+    // Nome que nunca existe: a verificação do canal só quer saber se o servidor responde
+    private static final String OPERACAO_SONDA = "verificacao-canal";
+
+    // O streaming aceita no máximo 25 KB de áudio por mensagem
+    private static final int TAMANHO_BLOCO_STREAM = 16 * 1024;
+
+    @Value("${google.api.credential.path}")
+    private Resource googleCredentials; // Aceita "classpath:" e "file:" (funciona também dentro do jar)
+
+    // Vazio = Google. Com "host:porta" usa um servidor local sem TLS/credenciais (fake para testes)
+    @Value("${stt.google.endpoint:}")
+    private String endpoint;
+
+    @Value("${stt.google.verificacao-timeout-ms:2000}")
+    private long verificacaoTimeoutMs;
+
+    // Um único cliente (canal gRPC + TLS) reaproveitado entre as requisições; é thread-safe
+    private volatile SpeechClient speechClient;
+    private GoogleCredentials credenciais;
+
+    @Override
+    public String nome() {
+        return "google";
+    }
+
+    @Override
+    public boolean aceita(CodificacaoAudio codificacao) {
+        return true;
+    }
+
+    @Override
+    public String transcrever(AudioPreparado audioPreparado, Prazo prazo) throws IOException {
+        // unsafeWrap: o protobuf usa o trecho do próprio buffer (sem cópia); o buffer não muda mais depois de preparado
+        RecognitionAudio audio = RecognitionAudio.newBuilder()
+                .setContent(UnsafeByteOperations.unsafeWrap(audioPreparado.dados(), audioPreparado.inicio(), audioPreparado.tamanho()))
+                .build();
+        RecognizeRequest request = RecognizeRequest.newBuilder().setConfig(configuracaoPara(audioPreparado)).setAudio(audio).build();
+
+        SpeechClient cliente = cliente();
+        RecognizeResponse response;
+        try {
+            response = reconhecer(cliente, request, prazo);
+        } catch (ApiException e) {
+            if (!FALHAS_DE_CANAL.contains(e.getStatusCode().getCode())) {
+                throw e;
+            }
+            response = reconhecer(recriar(cliente), request, prazo);
+        }
+
+        if (response.getResultsCount() > 0) {
+            SpeechRecognitionResult result = response.getResults(0);
+            if (result.getAlternativesCount() > 0) {
+                return result.getAlternatives(0).getTranscript();
+            }
+        }
+        return null; // Retorne null se a transcrição falhar
+    }
+
+    @Override
+    public String transcreverStream(InputStream audioStream, int taxaAmostragem, Prazo prazo) throws IOException {
+        prazo.verificar("transcrição em streaming (google)");
+        CompletableFuture<String> resultado = new CompletableFuture<>();
+        CompletableFuture<StreamController> controle = new CompletableFuture<>();
+        StringBuilder transcricao = new StringBuilder();
+
+        ResponseObserver<StreamingRecognizeResponse> observer = new ResponseObserver<>() {
+            @Override
+            public void onStart(StreamController controller) {
+                controle.complete(controller);
+            }
+
+            @Override
+            public void onResponse(StreamingRecognizeResponse response) {
+                // Só os resultados finais entram no texto (os parciais são reescritos pelo reconhecedor)
+                for (StreamingRecognitionResult result : response.getResultsList()) {
+                    if (result.getIsFinal() && result.getAlternativesCount() > 0) {
+                        transcricao.append(result.getAlternatives(0).getTranscript()).append(' ');
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                resultado.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                resultado.complete(transcricao.toString().trim());
+            }
+        };
+
+        SpeechClient cliente = cliente();
+        ClientStream<StreamingRecognizeRequest> stream = cliente.streamingRecognizeCallable().splitCall(observer);
+        try {
+            stream.send(StreamingRecognizeRequest.newBuilder()
+                    .setStreamingConfig(StreamingRecognitionConfig.newBuilder()
+                            .setConfig(CONFIG.toBuilder().setSampleRateHertz(taxaAmostragem))
+                            .build())
+                    .build());
+
+            // Encaminha cada bloco assim que chega do upload (chunked): o reconhecimento anda junto com o envio.
+            // O áudio já chega sem cabeçalho (PreprocessadorAudio.abrirStream). Upload que passa do prazo
+            // (cliente lento ou que não para de enviar) é interrompido no próximo bloco.
+            byte[] buffer = new byte[TAMANHO_BLOCO_STREAM];
+            int lidos;
+            while ((lidos = audioStream.read(buffer, 0, buffer.length)) != -1) { // O que chegou, sem esperar encher o bloco
+                prazo.verificar("transcrição em streaming (google)");
+                stream.send(StreamingRecognizeRequest.newBuilder()
+                        .setAudioContent(ByteString.copyFrom(buffer, 0, lidos))
+                        .build());
+            }
+            stream.closeSend();
+        } catch (IOException | RuntimeException e) {
+            stream.closeSendWithError(e);
+            throw e;
+        }
+
+        // Só o que sobrou do prazo; esgotado, a chamada é cancelada no servidor em vez de ficar pendurada
+        try {
+            String texto = resultado.get(prazo.restanteMs(), TimeUnit.MILLISECONDS);
+            return texto.isEmpty() ? null : texto;
+        } catch (InterruptedException e) {
+            controle.thenAccept(StreamController::cancel);
+            Thread.currentThread().interrupt();
+            throw new IOException("Reconhecimento em streaming interrompido.", e);
+        } catch (TimeoutException e) {
+            controle.thenAccept(StreamController::cancel);
+            throw new PrazoEsgotadoException("Tempo esgotado: transcrição em streaming (google).");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ApiException apiException && FALHAS_DE_CANAL.contains(apiException.getStatusCode().getCode())) {
+                recriar(cliente); // O áudio já foi consumido; a próxima requisição já pega um canal novo
+            }
+            throw new IOException("Falha no reconhecimento em streaming.", e.getCause());
+        }
+    }
+
+    // Configuração conforme o formato detectado no upload (em vez de LINEAR16 fixo).
+    // Formato desconhecido segue como antes (o Google lê o cabeçalho WAV).
+    private RecognitionConfig configuracaoPara(AudioPreparado audio) {
+        return switch (audio.codificacao()) {
+            case PCM_16 -> CONFIG.toBuilder().setSampleRateHertz(audio.taxaAmostragem()).build();
+            case FLAC -> CONFIG.toBuilder()
+                    .setEncoding(RecognitionConfig.AudioEncoding.FLAC)
+                    .setSampleRateHertz(audio.taxaAmostragem())
+                    .setAudioChannelCount(audio.canais()) // Só o primeiro canal é reconhecido
+                    .build();
+            case OGG_OPUS -> CONFIG.toBuilder()
+                    .setEncoding(RecognitionConfig.AudioEncoding.OGG_OPUS)
+                    .setSampleRateHertz(TAXAS_OPUS.contains(audio.taxaAmostragem()) ? audio.taxaAmostragem() : 48000)
+                    .setAudioChannelCount(audio.canais())
+                    .build();
+            case DESCONHECIDA -> CONFIG;
+        };
+    }
+
+    // Chamada assíncrona esperada só até o prazo; cancelar o futuro cancela a chamada gRPC no servidor
+    private RecognizeResponse reconhecer(SpeechClient cliente, RecognizeRequest request, Prazo prazo) throws IOException {
+        prazo.verificar("transcrição (google)");
+        ApiFuture<RecognizeResponse> chamada = cliente.recognizeCallable().futureCall(request);
+        try {
+            return chamada.get(prazo.restanteMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            chamada.cancel(true);
+            throw new PrazoEsgotadoException("Tempo esgotado: transcrição (google).");
+        } catch (InterruptedException e) {
+            chamada.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Transcrição interrompida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ApiException apiException) {
+                throw apiException;
+            }
+            throw new IOException("Falha na transcrição.", e.getCause());
+        }
+    }
+
+    // Verificação periódica do canal: GetOperation com um nome inexistente é a RPC mais barata do serviço
+    // (não reconhece áudio nem é cobrada). Qualquer resposta do servidor, mesmo NOT_FOUND ou UNIMPLEMENTED,
+    // mostra que o canal funciona; UNAVAILABLE/UNKNOWN ou nenhuma resposta no tempo troca o cliente antes
+    // que um comando de voz descubra o problema. Sem cliente criado ainda, não há o que verificar.
+    @Scheduled(fixedDelayString = "${stt.google.verificacao-ms:30000}")
+    void verificarCanal() {
+        SpeechClient cliente = speechClient;
+        if (cliente == null || cliente.isShutdown() || canalResponde(cliente)) {
+            return;
+        }
+        log.warn("Canal do Google Speech não respondeu à verificação; recriando o cliente");
+        try {
+            recriar(cliente);
+        } catch (IOException e) {
+            log.warn("Falha ao recriar o cliente do Google Speech", e);
+        }
+    }
+
+    private boolean canalResponde(SpeechClient cliente) {
+        ApiFuture<Operation> sonda = cliente.getOperationsClient().getOperationCallable()
+                .futureCall(GetOperationRequest.newBuilder().setName(OPERACAO_SONDA).build());
+        try {
+            sonda.get(verificacaoTimeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            sonda.cancel(true);
+            return false;
+        } catch (InterruptedException e) {
+            sonda.cancel(true);
+            Thread.currentThread().interrupt();
+            return true; // Desligando: não troca o cliente
+        } catch (ExecutionException e) {
+            return !(e.getCause() instanceof ApiException apiException
+                    && FALHAS_DE_CANAL.contains(apiException.getStatusCode().getCode()));
+        }
+    }
+
+    // Cria na primeira chamada e sempre que o cliente anterior tiver sido encerrado
+    private SpeechClient cliente() throws IOException {
+        SpeechClient atual = speechClient;
+        if (atual != null && !atual.isShutdown()) {
+            return atual;
+        }
+        synchronized (this) {
+            if (speechClient == null || speechClient.isShutdown()) {
+                speechClient = SpeechClient.create(configuracao());
+            }
+            return speechClient;
+        }
+    }
+
+    private SpeechSettings configuracao() throws IOException {
+        if (!endpoint.isBlank()) {
+            return SpeechSettings.newBuilder()
+                    .setEndpoint(endpoint)
+                    .setCredentialsProvider(NoCredentialsProvider.create())
+                    .setTransportChannelProvider(InstantiatingGrpcChannelProvider.newBuilder()
+                            .setEndpoint(endpoint)
+                            .setChannelConfigurator(construtor -> construtor.usePlaintext())
+                            .build())
+                    .build();
+        }
+        if (credenciais == null) {
+            try (InputStream credentialsStream = googleCredentials.getInputStream()) {
+                credenciais = GoogleCredentials.fromStream(credentialsStream);
+            }
+        }
+        return SpeechSettings.newBuilder()
+                .setCredentialsProvider(FixedCredentialsProvider.create(credenciais))
+                .build();
+    }
+
+    // Troca o cliente que falhou por um novo. O antigo é encerrado com shutdown(): as chamadas em andamento
+    // nele terminam normalmente (shutdownNow derrubaria todas as requisições concorrentes junto). Se outra
+    // thread já trocou, só devolve o cliente atual, sem recriar de novo.
+    private SpeechClient recriar(SpeechClient falhou) throws IOException {
+        SpeechClient novo;
+        synchronized (this) {
+            if (speechClient != falhou && speechClient != null && !speechClient.isShutdown()) {
+                return speechClient;
+            }
+            novo = SpeechClient.create(configuracao());
+            speechClient = novo;
+        }
+        falhou.shutdown();
+        return novo;
+    }
+
+    @PreDestroy
+    synchronized void encerrar() throws InterruptedException {
+        if (speechClient != null) {
+            speechClient.shutdown();
+            speechClient.awaitTermination(5, TimeUnit.SECONDS);
+            speechClient = null;
+        }
+    }
+}
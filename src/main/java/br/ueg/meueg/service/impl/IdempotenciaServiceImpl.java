@@ -0,0 +1,104 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.cache.CacheLimitado;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.service.IdempotenciaService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotenciaServiceImpl implements IdempotenciaService {
+
+    // A execução fica registrada desde o início (future pendente), então uma repetição
+    // que chega no meio do processamento espera em vez de rodar a venda de novo.
+    private record Execucao(Object conteudo, CompletableFuture<Object> resultado) {
+    }
+
+    // Em andamento ficam fora do LRU: se fossem removidas por falta de espaço, uma repetição no meio
+    // do processamento executaria a venda de novo. Vão para o cache só depois de concluídas.
+    private final Map<String, Execucao> emAndamento = new HashMap<>();
+    private final CacheLimitado<String, Execucao> concluidas;
+    private final int capacidade;
+    private final long esperaSegundos;
+
+    public IdempotenciaServiceImpl(@Value("${idempotencia.capacidade:10000}") int capacidade,
+                                   @Value("${idempotencia.ttl-minutos:60}") long ttlMinutos,
+                                   @Value("${idempotencia.espera-segundos:30}") long esperaSegundos) {
+        this.concluidas = new CacheLimitado<>(capacidade, Duration.ofMinutes(ttlMinutos));
+        this.capacidade = capacidade;
+        this.esperaSegundos = esperaSegundos;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String chave, Object conteudo, Supplier<T> operacao) {
+        if (chave == null || chave.isBlank()) {
+            return operacao.get();
+        }
+
+        Execucao nova = new Execucao(conteudo, new CompletableFuture<>());
+        Execucao existente;
+        synchronized (emAndamento) {
+            existente = emAndamento.get(chave);
+            if (existente == null) {
+                existente = concluidas.get(chave);
+            }
+            if (existente == null) {
+                if (emAndamento.size() >= capacidade) {
+                    throw new BusinessException("Muitas requisições com Idempotency-Key em processamento. Tente novamente.");
+                }
+                emAndamento.put(chave, nova);
+            }
+        }
+
+        if (existente != null) {
+            if (!Objects.equals(existente.conteudo(), conteudo)) {
+                throw new BusinessException("Idempotency-Key já utilizada com outro conteúdo.");
+            }
+            return (T) aguardar(existente.resultado());
+        }
+
+        try {
+            T resultado = operacao.get();
+            synchronized (emAndamento) {
+                concluidas.put(chave, nova);
+                emAndamento.remove(chave);
+            }
+            nova.resultado().complete(resultado);
+            return resultado;
+        } catch (RuntimeException e) {
+            // Falhou: libera a chave para o cliente poder tentar de novo e avisa quem estava esperando
+            synchronized (emAndamento) {
+                emAndamento.remove(chave);
+            }
+            nova.resultado().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Object aguardar(CompletableFuture<Object> resultado) {
+        try {
+            return resultado.get(esperaSegundos, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new BusinessException("Requisição com esta Idempotency-Key ainda está em processamento. Tente novamente.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Requisição interrompida.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
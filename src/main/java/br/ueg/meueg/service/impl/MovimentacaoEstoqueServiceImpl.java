@@ -0,0 +1,177 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.entity.EstoqueSnapshot;
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import br.ueg.meueg.estoque.MotorEstoqueMemoria;
+import br.ueg.meueg.repository.EstoqueRepository;
+import br.ueg.meueg.repository.EstoqueSnapshotRepository;
+import br.ueg.meueg.repository.MovimentacaoEstoqueRepository;
+import br.ueg.meueg.service.MovimentacaoEstoqueService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class MovimentacaoEstoqueServiceImpl implements MovimentacaoEstoqueService {
+
+    private final MovimentacaoEstoqueRepository movimentacaoEstoqueRepository;
+    private final EstoqueSnapshotRepository estoqueSnapshotRepository;
+    private final EstoqueRepository estoqueRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<MotorEstoqueMemoria> motorEstoque; // Presente só com estoque.motor-memoria.habilitado=true
+
+    // Data base dos snapshots iniciais (saldo anterior à existência do livro de movimentações)
+    private static final LocalDateTime INICIO = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // Estoques consolidados por transação (cada lote trava as linhas só enquanto fecha o saldo delas)
+    @Value("${estoque.snapshot.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    // Diferença de relógio tolerada entre instâncias da aplicação (as datas do livro vêm do relógio de quem lança).
+    // Não é espera por commit: transação aberta não escapa da consolidação por causa da trava (ver gerarSnapshots).
+    @Value("${estoque.snapshot.margem-relogio-segundos:5}")
+    private long margemRelogioSegundos;
+
+    // Estoques sem snapshot (criados antes do livro existir): o saldo inicial é o saldo consolidado menos
+    // o que foi lançado antes da consolidação. Um único comando enxerga uma foto consistente das duas tabelas.
+    private static final String SQL_SNAPSHOT_INICIAL = """
+            INSERT INTO estoque_snapshot (id_estoque, quantidade, data_hora)
+            SELECT e.id,
+                   e.quantidade - COALESCE((SELECT SUM(m.quantidade) FROM movimentacao_estoque m
+                                            WHERE m.id_estoque = e.id AND m.data_hora < e.consolidado_em), 0),
+                   ?
+            FROM estoque e
+            WHERE NOT EXISTS (SELECT 1 FROM estoque_snapshot s WHERE s.id_estoque = e.id)
+            """;
+
+    // Próximo lote de estoques com lançamentos depois da consolidação, travados (na ordem do ID, como as vendas).
+    // Só lê o livro a partir da última consolidação de cada estoque (índice id_estoque, data_hora).
+    private static final String SQL_TRAVAR_PENDENTES = """
+            SELECT e.id FROM estoque e
+            WHERE e.id > ? AND EXISTS (SELECT 1 FROM movimentacao_estoque m
+                                       WHERE m.id_estoque = e.id AND m.data_hora >= e.consolidado_em AND m.data_hora < ?)
+            ORDER BY e.id
+            LIMIT ?
+            FOR UPDATE
+            """;
+
+    // %s = lista de IDs (?, ?, ...) dos estoques travados
+    private static final String SQL_CONSOLIDAR = """
+            UPDATE estoque e
+            SET quantidade = e.quantidade + COALESCE((SELECT SUM(m.quantidade) FROM movimentacao_estoque m
+                                                      WHERE m.id_estoque = e.id AND m.data_hora >= e.consolidado_em
+                                                        AND m.data_hora < ?), 0),
+                consolidado_em = ?
+            WHERE e.id IN (%s)
+            """;
+
+    private static final String SQL_SNAPSHOT = """
+            INSERT INTO estoque_snapshot (id_estoque, quantidade, data_hora)
+            SELECT id, quantidade, consolidado_em FROM estoque WHERE id IN (%s)
+            """;
+
+    @Override
+    public void registrar(Collection<MovimentacaoEstoque> movimentacoes) {
+        if (movimentacoes.isEmpty()) {
+            return;
+        }
+        if (motorEstoque.isPresent()) {
+            motorEstoque.get().lancar(movimentacoes);
+            return;
+        }
+        movimentacaoEstoqueRepository.saveAll(movimentacoes);
+    }
+
+    @Override
+    public Map<Long, Integer> saldosAtuais(Collection<Long> idsEstoque) {
+        Map<Long, Integer> saldos = new HashMap<>();
+        if (idsEstoque.isEmpty()) {
+            return saldos;
+        }
+        if (motorEstoque.isPresent()) {
+            idsEstoque.forEach(id -> saldos.put(id, motorEstoque.get().saldo(id)));
+            return saldos;
+        }
+        for (Object[] linha : estoqueRepository.findSaldosAtuais(idsEstoque)) {
+            saldos.put((Long) linha[0], ((Number) linha[1]).intValue());
+        }
+        return saldos;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MovimentacaoEstoque> listarRecentes(Long idEstoque) {
+        return movimentacaoEstoqueRepository.findTop500ByIdEstoqueOrderByDataHoraDesc(idEstoque);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int saldoEm(Long idEstoque, LocalDateTime dataHora) {
+        Optional<EstoqueSnapshot> snapshot = estoqueSnapshotRepository
+                .findFirstByIdEstoqueAndDataHoraLessThanEqualOrderByDataHoraDesc(idEstoque, dataHora);
+        int base = snapshot.map(EstoqueSnapshot::getQuantidade).orElse(0);
+        LocalDateTime inicio = snapshot.map(EstoqueSnapshot::getDataHora).orElse(INICIO);
+        return base + movimentacaoEstoqueRepository.somarEntre(idEstoque, inicio, dataHora).intValue();
+    }
+
+    // Chamado na subida (MigracaoBanco): sem isso, o saldoEm de um estoque antigo partiria de zero e só
+    // somaria as movimentações lançadas depois do livro
+    @Override
+    @Transactional
+    public int gerarSnapshotsIniciais() {
+        return jdbcTemplate.update(SQL_SNAPSHOT_INICIAL, Timestamp.valueOf(INICIO));
+    }
+
+    // Cada lote trava os estoques antes de escolher o corte. Quem lança também trava a linha antes de carimbar
+    // a data (vendas, estoque manual, write-behind do motor), então com a trava na mão todo lançamento desses
+    // estoques já tem commit, e os próximos só entram depois deste commit, com data posterior ao corte:
+    // nenhum fica para trás da consolidação, por mais que a transação dele tenha demorado.
+    @Override
+    @Scheduled(cron = "${estoque.snapshot.cron:0 0 3 * * *}")
+    public int gerarSnapshots() {
+        int consolidados = 0;
+        long ultimoId = 0;
+        while (true) {
+            long depoisDe = ultimoId;
+            List<Long> lote = transactionTemplate.execute(status -> consolidarLote(depoisDe));
+            if (lote == null || lote.isEmpty()) {
+                return consolidados;
+            }
+            consolidados += lote.size();
+            ultimoId = lote.get(lote.size() - 1);
+        }
+    }
+
+    private List<Long> consolidarLote(long depoisDe) {
+        Timestamp limite = Timestamp.valueOf(LocalDateTime.now().minusSeconds(margemRelogioSegundos));
+        List<Long> ids = jdbcTemplate.queryForList(SQL_TRAVAR_PENDENTES, Long.class, depoisDe, limite, tamanhoLote);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        Timestamp corte = Timestamp.valueOf(LocalDateTime.now().minusSeconds(margemRelogioSegundos));
+        String lista = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Object> parametros = new ArrayList<>(ids.size() + 2);
+        parametros.add(corte);
+        parametros.add(corte);
+        parametros.addAll(ids);
+        jdbcTemplate.update(SQL_CONSOLIDAR.formatted(lista), parametros.toArray());
+        jdbcTemplate.update(SQL_SNAPSHOT.formatted(lista), ids.toArray());
+        return ids;
+    }
+}
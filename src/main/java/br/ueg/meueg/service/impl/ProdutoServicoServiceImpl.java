@@ -1,13 +1,19 @@
 package br.ueg.meueg.service.impl;
 
+import br.ueg.meueg.cache.CatalogoVersoes;
 import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.RegistroExclusao;
 import br.ueg.meueg.entity.User;
+import br.ueg.meueg.enums.TipoEntidadeSync;
 import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.repository.RegistroExclusaoRepository;
 import br.ueg.meueg.service.ProdutoServicoService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +22,8 @@ import java.util.Optional;
 public class ProdutoServicoServiceImpl implements ProdutoServicoService {
 
     private final ProdutoServicoRepository produtoServicoRepository;
+    private final RegistroExclusaoRepository registroExclusaoRepository;
+    private final CatalogoVersoes catalogoVersoes; // Invalida os caches de voz que dependem dos nomes de produto
 
     @Override
     public List<ProdutoServico> findAll() {
@@ -29,7 +37,11 @@ public class ProdutoServicoServiceImpl implements ProdutoServicoService {
 
     @Override
     public ProdutoServico save(ProdutoServico produtoServico) {
-        return produtoServicoRepository.save(produtoServico);
+        ProdutoServico salvo = produtoServicoRepository.save(produtoServico);
+        if (salvo.getUsuario() != null) {
+            catalogoVersoes.invalidar(salvo.getUsuario().getId());
+        }
+        return salvo;
     }
 
     @Override
@@ -43,15 +55,25 @@ public class ProdutoServicoServiceImpl implements ProdutoServicoService {
         existingProdutoServico.setCusto(produtoServico.getCusto());
         existingProdutoServico.setCategoria(produtoServico.getCategoria());
 
-        return produtoServicoRepository.save(existingProdutoServico);
+        ProdutoServico salvo = produtoServicoRepository.save(existingProdutoServico);
+        catalogoVersoes.invalidar(salvo.getUsuario().getId());
+        return salvo;
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
-        if (!produtoServicoRepository.existsById(id)) {
-            throw new EntityNotFoundException("Produto/Serviço não encontrado com ID: " + id);
-        }
-        produtoServicoRepository.deleteById(id);
+        ProdutoServico existente = produtoServicoRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Produto/Serviço não encontrado com ID: " + id));
+
+        registroExclusaoRepository.save(RegistroExclusao.builder()
+                .tipo(TipoEntidadeSync.PRODUTO)
+                .idEntidade(id)
+                .idUsuario(existente.getUsuario().getId())
+                .excluidoEm(LocalDateTime.now())
+                .build());
+        produtoServicoRepository.delete(existente);
+        catalogoVersoes.invalidar(existente.getUsuario().getId());
     }
 
     @Override
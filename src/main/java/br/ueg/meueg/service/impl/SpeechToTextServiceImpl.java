@@ -1,51 +1,285 @@
 package br.ueg.meueg.service.impl;
 
+import br.ueg.meueg.cache.CacheVoz;
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.service.MotorTranscricao;
 import br.ueg.meueg.service.SpeechToTextService;
-import com.google.cloud.speech.v1.*;
-import com.google.api.gax.core.FixedCredentialsProvider;
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.protobuf.ByteString;
+import br.ueg.meueg.voz.AudioEmStream;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.MetricasVoz;
+import br.ueg.meueg.voz.Prazo;
+import br.ueg.meueg.voz.PreprocessadorAudio;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.io.File;
-import java.io.FileInputStream;
+
 import java.io.IOException;
-import java.nio.file.Files;
-import com.google.cloud.speech.v1.RecognitionConfig.AudioEncoding;
-import com.google.cloud.speech.v1.SpeechClient;
-import com.google.cloud.speech.v1.SpeechSettings;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Roteador entre os backends de transcrição (MotorTranscricao).
+ *
+ * Ordena os backends pela latência média observada (média móvel exponencial) penalizada pela taxa
+ * de erro; backend com falhas seguidas fica de fora por um tempo. Se o primeiro não responde dentro
+ * de stt.hedge-ms, o mesmo áudio vai também para o próximo (hedge) e vale a primeira resposta.
+ * Se um falha, o próximo é tentado na hora (failover). Acabou o prazo da etapa, as chamadas em
+ * andamento são canceladas e o atraso conta como falha do backend (suspensão após falhas seguidas).
+ */
 @Service
 public class SpeechToTextServiceImpl implements SpeechToTextService {
 
-    @Value("${google.api.credential.path}")
-    private String googleCredentialsPath;
+    private static final double PESO_AMOSTRA = 0.2; // Peso da última chamada na média móvel
+    private static final int FALHAS_PARA_SUSPENDER = 3;
+
+    private final List<MotorTranscricao> motores;
+    private final CacheVoz cacheVoz;
+    private final MetricasVoz metricasVoz;
+    private final PreprocessadorAudio preprocessadorAudio;
+    private final Map<String, Desempenho> desempenhos = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${stt.hedge-ms:1500}")
+    private long hedgeMs;
+
+    @Value("${stt.suspensao-segundos:30}")
+    private long suspensaoSegundos;
+
+    public SpeechToTextServiceImpl(List<MotorTranscricao> motores, CacheVoz cacheVoz, MetricasVoz metricasVoz,
+                                   PreprocessadorAudio preprocessadorAudio) {
+        if (motores.isEmpty()) {
+            throw new IllegalStateException("Nenhum backend de transcrição habilitado (stt.google.habilitado / stt.vosk.habilitado).");
+        }
+        this.motores = motores;
+        this.cacheVoz = cacheVoz;
+        this.metricasVoz = metricasVoz;
+        this.preprocessadorAudio = preprocessadorAudio;
+        motores.forEach(motor -> desempenhos.put(motor.nome(), new Desempenho()));
+    }
+
+    @Override
+    public String transcrever(byte[] audio, Prazo prazo) throws Exception {
+        // O mesmo buffer vai a mais de um backend (hedge/failover)
+        Timer.Sample amostra = metricasVoz.iniciar();
+
+        // Áudio idêntico já transcrito: não chama backend nenhum
+        String chave = cacheVoz.chaveAudio(audio);
+        String emCache = cacheVoz.buscarTranscricao(chave);
+        if (emCache != null) {
+            metricasVoz.etapa(amostra, "stt", "cache", null);
+            return emCache;
+        }
+
+        // Mono, 16 kHz e sem o silêncio das pontas, no próprio buffer (a chave do cache já foi calculada)
+        Timer.Sample preparo = metricasVoz.iniciar();
+        AudioPreparado preparado = preprocessadorAudio.preparar(audio);
+        metricasVoz.etapa(preparo, "preprocessamento", preparado.codificacao().name().toLowerCase(), null);
+
+        List<MotorTranscricao> ordem = ordenar().stream().filter(motor -> motor.aceita(preparado.codificacao())).toList();
+        if (ordem.isEmpty()) {
+            throw new BusinessException("Formato de áudio não suportado pelos reconhecedores habilitados.");
+        }
+        Tentativas tentativas = new Tentativas(ordem, preparado, prazo);
+        try {
+            String transcricao = transcreverComBackends(tentativas, prazo);
+            if (transcricao != null) {
+                cacheVoz.guardarTranscricao(chave, transcricao);
+            }
+            metricasVoz.etapa(amostra, "stt", tentativas.vencedor, null);
+            return transcricao;
+        } catch (Exception e) {
+            metricasVoz.etapa(amostra, "stt", tentativas.vencedor, e);
+            throw e;
+        }
+    }
+
+    private String transcreverComBackends(Tentativas tentativas, Prazo prazo) throws Exception {
+        prazo.verificar("transcrição");
+        tentativas.iniciarProxima();
+        try {
+            return tentativas.resultado.get(Math.min(hedgeMs, prazo.restanteMs()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (!prazo.esgotado()) {
+                tentativas.iniciarProxima(); // Hedge: o primeiro está lento, dispara o próximo em paralelo
+            }
+        } catch (ExecutionException e) {
+            throw causa(e);
+        }
+
+        try {
+            String texto = tentativas.resultado.get(prazo.restanteMs(), TimeUnit.MILLISECONDS);
+            tentativas.cancelar(); // Quem perdeu a corrida do hedge não segura thread nem cota do backend
+            return texto;
+        } catch (ExecutionException e) {
+            throw causa(e);
+        } catch (TimeoutException e) {
+            tentativas.cancelar();
+            throw new PrazoEsgotadoException("Tempo esgotado: nenhum backend de transcrição respondeu.");
+        } catch (InterruptedException e) {
+            tentativas.cancelar();
+            throw e;
+        }
+    }
 
+    // Streaming: o áudio é consumido enquanto chega, então não dá para repetir em outro backend.
+    // Vai direto para o melhor disponível.
     @Override
-    public String transcrever(File audioFile) throws IOException {
-        // Obtenha os bytes do arquivo de áudio.
-        byte[] audioBytes = Files.readAllBytes(audioFile.toPath());
-
-        try (FileInputStream credentialsStream = new FileInputStream(googleCredentialsPath.replace("classpath:", "src/main/resources/"));
-             SpeechClient speechClient = SpeechClient.create(
-                     SpeechSettings.newBuilder().setCredentialsProvider(
-                             FixedCredentialsProvider.create(GoogleCredentials.fromStream(credentialsStream))).build())) {
-
-            RecognitionAudio audio = RecognitionAudio.newBuilder().setContent(ByteString.copyFrom(audioBytes)).build();
-            RecognitionConfig config = RecognitionConfig.newBuilder()
-                    .setEncoding(RecognitionConfig.AudioEncoding.LINEAR16) // Ajuste para o formato do seu áudio
-                    .setLanguageCode("pt-BR")
-                    .build();
-
-            RecognizeResponse response = speechClient.recognize(config, audio);
-
-            if (response.getResultsCount() > 0) {
-                SpeechRecognitionResult result = response.getResults(0);
-                if (result.getAlternativesCount() > 0) {
-                    return result.getAlternatives(0).getTranscript();
+    public String transcreverStream(InputStream audio, int taxaAmostragem, Prazo prazo) throws Exception {
+        AudioEmStream pcm = preprocessadorAudio.abrirStream(audio, taxaAmostragem);
+        // O stream só pode ser lido uma vez: vai para o melhor backend que aceita PCM, sem hedge nem failover
+        MotorTranscricao motor = ordenar().stream()
+                .filter(candidato -> candidato.aceita(CodificacaoAudio.PCM_16))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException("Formato de áudio não suportado pelos reconhecedores habilitados."));
+        long inicio = System.nanoTime();
+        try {
+            String texto = motor.transcreverStream(pcm.pcm(), pcm.taxaAmostragem(), prazo);
+            desempenhos.get(motor.nome()).registrar(System.nanoTime() - inicio, true, suspensaoSegundos);
+            metricasVoz.etapa("stt_stream", motor.nome(), null, System.nanoTime() - inicio);
+            return texto;
+        } catch (Exception e) {
+            desempenhos.get(motor.nome()).registrar(System.nanoTime() - inicio, false, suspensaoSegundos);
+            metricasVoz.etapa("stt_stream", motor.nome(), e, System.nanoTime() - inicio);
+            throw e;
+        }
+    }
+
+    // Disponíveis primeiro (menor pontuação), suspensos no fim como última opção.
+    // Empate (ainda sem histórico) mantém a ordem de configuração (@Order).
+    private List<MotorTranscricao> ordenar() {
+        long agora = System.nanoTime();
+        List<MotorTranscricao> ordem = new ArrayList<>(motores);
+        ordem.sort(Comparator
+                .comparing((MotorTranscricao motor) -> desempenhos.get(motor.nome()).suspenso(agora))
+                .thenComparingDouble(motor -> desempenhos.get(motor.nome()).pontuacao()));
+        return ordem;
+    }
+
+    private Exception causa(ExecutionException e) {
+        Throwable causa = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+        return causa instanceof Exception exception ? exception : new IOException(causa);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    // Uma transcrição em andamento: controla quais backends já foram acionados e quem respondeu primeiro
+    private final class Tentativas {
+        private final CompletableFuture<String> resultado = new CompletableFuture<>();
+        private final List<MotorTranscricao> ordem;
+        private final AudioPreparado audio;
+        private final Prazo prazo;
+        private final List<Future<?>> chamadas = new ArrayList<>();
+        private volatile String vencedor = MetricasVoz.SEM_BACKEND; // Backend que deu a resposta usada
+        private int proxima;
+        private int emAndamento;
+        private Throwable ultimaFalha;
+
+        private Tentativas(List<MotorTranscricao> ordem, AudioPreparado audio, Prazo prazo) {
+            this.ordem = ordem;
+            this.audio = audio;
+            this.prazo = prazo;
+        }
+
+        synchronized void iniciarProxima() {
+            if (resultado.isDone() || proxima >= ordem.size()) {
+                return;
+            }
+            MotorTranscricao motor = ordem.get(proxima++);
+            emAndamento++;
+            long inicio = System.nanoTime();
+            // submit (e não supplyAsync): o Future interrompe a thread no cancelamento, e o backend cancela a chamada
+            chamadas.add(executor.submit(() -> {
+                String texto = null;
+                Throwable erro = null;
+                try {
+                    texto = motor.transcrever(audio, prazo);
+                } catch (Throwable t) {
+                    erro = t;
                 }
+                concluir(motor, System.nanoTime() - inicio, texto, erro);
+            }));
+        }
+
+        synchronized void cancelar() {
+            chamadas.forEach(chamada -> chamada.cancel(true));
+        }
+
+        private synchronized void concluir(MotorTranscricao motor, long duracaoNanos, String texto, Throwable erro) {
+            emAndamento--;
+            // Falha depois de já haver resposta é o cancelamento de quem perdeu o hedge: não pesa contra o backend
+            if (erro == null || !resultado.isDone()) {
+                desempenhos.get(motor.nome()).registrar(duracaoNanos, erro == null, suspensaoSegundos);
+            }
+            Throwable falha = erro instanceof CompletionException ? erro.getCause() : erro;
+            if (falha != null) {
+                ultimaFalha = falha;
             }
+            // Cada tentativa (inclusive as de hedge que perderam a corrida) aparece por backend
+            metricasVoz.etapa("stt_backend", motor.nome(), falha, duracaoNanos);
+
+            if (erro == null && texto != null && !texto.isBlank()) {
+                if (!resultado.isDone()) {
+                    vencedor = motor.nome();
+                }
+                resultado.complete(texto);
+                return;
+            }
+            // Falhou ou não entendeu nada: tenta o próximo (failover)
+            if (proxima < ordem.size()) {
+                iniciarProxima();
+            } else if (emAndamento == 0) {
+                if (ultimaFalha != null) {
+                    resultado.completeExceptionally(ultimaFalha);
+                } else {
+                    resultado.complete(null);
+                }
+            }
+        }
+    }
+
+    // Estatística de um backend: latência e taxa de erro em média móvel exponencial
+    private static final class Desempenho {
+        private double latenciaMs;
+        private double taxaErro;
+        private int falhasSeguidas;
+        private long suspensoAte;
+
+        synchronized void registrar(long duracaoNanos, boolean sucesso, long suspensaoSegundos) {
+            double ms = duracaoNanos / 1_000_000.0;
+            latenciaMs = latenciaMs == 0 ? ms : latenciaMs + PESO_AMOSTRA * (ms - latenciaMs);
+            taxaErro = taxaErro + PESO_AMOSTRA * ((sucesso ? 0 : 1) - taxaErro);
+            if (sucesso) {
+                falhasSeguidas = 0;
+            } else if (++falhasSeguidas >= FALHAS_PARA_SUSPENDER) {
+                suspensoAte = System.nanoTime() + TimeUnit.SECONDS.toNanos(suspensaoSegundos);
+            }
+        }
+
+        synchronized boolean suspenso(long agora) {
+            return suspensoAte - agora > 0;
+        }
+
+        // Quanto menor, melhor: latência inflada pela taxa de erro
+        synchronized double pontuacao() {
+            return latenciaMs * (1 + 10 * taxaErro);
         }
-        return null; // Retorne null se a transcrição falhar
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.dto.EstoqueDTO;
+import br.ueg.meueg.dto.ExclusaoDTO;
+import br.ueg.meueg.dto.ProdutoServicoDTO;
+import br.ueg.meueg.dto.SyncDTO;
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.entity.Estoque;
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.repository.EstoqueRepository;
+import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.repository.RegistroExclusaoRepository;
+import br.ueg.meueg.repository.VendaRepository;
+import br.ueg.meueg.service.MovimentacaoEstoqueService;
+import br.ueg.meueg.service.SyncService;
+import br.ueg.meueg.service.VendaService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncServiceImpl implements SyncService {
+
+    private final ProdutoServicoRepository produtoServicoRepository;
+    private final EstoqueRepository estoqueRepository;
+    private final VendaRepository vendaRepository;
+    private final RegistroExclusaoRepository registroExclusaoRepository;
+    private final VendaService vendaService;
+    private final MovimentacaoEstoqueService movimentacaoEstoqueService;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Uma transação pode gravar atualizadoEm antes do cursor e só fazer commit bem depois. O cursor vem
+    // do relógio do banco: o início da transação aberta mais antiga entre as que escrevem nas tabelas
+    // sincronizadas (ou agora, se não houver nenhuma). Toda alteração ainda sem commit foi gravada depois
+    // desse instante e aparece na próxima sincronização, por mais que o commit demore. O app recebe algumas
+    // repetidas, o que é inofensivo (upsert por ID).
+    // "Escrevem" = seguram RowExclusiveLock (INSERT/UPDATE/DELETE) ou RowShareLock (SELECT ... FOR UPDATE,
+    // que o caminho do estoque pega antes de carimbar as movimentações) numa dessas tabelas. Leituras
+    // longas (exportação em streaming, reconstrução dos resumos) e sessões em outras tabelas não seguram
+    // o cursor.
+    private static final String SQL_CURSOR = """
+            SELECT CAST(now() AS timestamp) AS agora, CAST(MIN(a.xact_start) AS timestamp) AS inicio
+            FROM pg_stat_activity a
+            WHERE a.datname = current_database() AND a.pid <> pg_backend_pid() AND a.xact_start IS NOT NULL
+              AND EXISTS (SELECT 1 FROM pg_locks l
+                          WHERE l.pid = a.pid AND l.locktype = 'relation'
+                            AND l.mode IN ('RowShareLock', 'RowExclusiveLock')
+                            AND l.relation IN (to_regclass('produto_servico'), to_regclass('estoque'),
+                                               to_regclass('movimentacao_estoque'), to_regclass('venda'),
+                                               to_regclass('registro_exclusao')))
+            """;
+
+    // atualizadoEm é gravado com o relógio da aplicação: a margem cobre a diferença para o relógio do banco
+    // e o instante entre o carimbo (@PrePersist/@PreUpdate) e o INSERT/UPDATE que pega a trava
+    @Value("${sync.margem-segundos:5}")
+    private long margemSegundos;
+
+    // Teto do atraso do cursor: uma sessão presa "idle in transaction" depois de escrever seguraria o cursor
+    // de todos os usuários. Passado o teto, ela é tratada como travada (alerta no log) e o cursor anda.
+    @Value("${sync.atraso-maximo-segundos:300}")
+    private long atrasoMaximoSegundos;
+
+    @Override
+    @Transactional(readOnly = true)
+    public SyncDTO sincronizar(User usuario, LocalDateTime desde) {
+        // Antes das consultas de alterações: o que fizer commit depois delas entra no próximo cursor
+        LocalDateTime cursor = cursor().minusSeconds(margemSegundos);
+
+        List<ProdutoServico> produtos;
+        List<Estoque> estoques;
+        List<VendaDTO> vendas;
+        List<ExclusaoDTO> exclusoes;
+
+        if (desde == null) {
+            // Carga inicial: catálogo e estoque. O histórico de vendas vem da listagem paginada (GET /vendas).
+            produtos = produtoServicoRepository.findByUsuario(usuario);
+            estoques = estoqueRepository.findByUsuario(usuario);
+            vendas = List.of();
+            exclusoes = List.of();
+        } else {
+            produtos = produtoServicoRepository.findByUsuario_IdAndAtualizadoEmAfter(usuario.getId(), desde);
+            estoques = estoqueRepository.findAlteradosDesde(usuario.getId(), desde);
+
+            List<Long> idsVendas = vendaRepository.findIdsAlteradosDesde(usuario.getId(), desde);
+            vendas = idsVendas.isEmpty() ? List.of() : vendaRepository.findAllComItensByIdIn(idsVendas).stream()
+                    .map(vendaService::toDTO)
+                    .collect(Collectors.toList());
+
+            exclusoes = registroExclusaoRepository.findByIdUsuarioAndExcluidoEmAfter(usuario.getId(), desde).stream()
+                    .map(r -> new ExclusaoDTO(r.getTipo().name(), r.getIdEntidade(), r.getExcluidoEm()))
+                    .collect(Collectors.toList());
+        }
+
+        // Saldo atual do livro (estoque.quantidade é só o consolidado), numa consulta para todos
+        Map<Long, Integer> saldos = movimentacaoEstoqueService.saldosAtuais(estoques.stream().map(Estoque::getId).toList());
+        return new SyncDTO(
+                cursor,
+                produtos.stream().map(this::toDTO).collect(Collectors.toList()),
+                estoques.stream().map(e -> toDTO(e, saldos.getOrDefault(e.getId(), 0))).collect(Collectors.toList()),
+                vendas,
+                exclusoes
+        );
+    }
+
+    private LocalDateTime cursor() {
+        return jdbcTemplate.queryForObject(SQL_CURSOR, (rs, linha) -> {
+            LocalDateTime agora = rs.getTimestamp("agora").toLocalDateTime();
+            Timestamp inicio = rs.getTimestamp("inicio");
+            if (inicio == null || !inicio.toLocalDateTime().isBefore(agora)) {
+                return agora;
+            }
+            LocalDateTime limite = agora.minusSeconds(atrasoMaximoSegundos);
+            if (inicio.toLocalDateTime().isBefore(limite)) {
+                log.warn("Transação escrevendo nas tabelas sincronizadas desde {}: cursor do sync limitado a {}",
+                        inicio.toLocalDateTime(), limite);
+                return limite;
+            }
+            return inicio.toLocalDateTime();
+        });
+    }
+
+    private ProdutoServicoDTO toDTO(ProdutoServico entity) {
+        return new ProdutoServicoDTO(entity.getId(), entity.getNome(), entity.getTipo(),
+                entity.getPreco(), entity.getCusto(), entity.getCategoria());
+    }
+
+    private EstoqueDTO toDTO(Estoque entity, int saldo) {
+        return new EstoqueDTO(entity.getId(), entity.getProdutoServico().getId(),
+                entity.getProdutoServico().getNome(), saldo);
+    }
+}
@@ -0,0 +1,258 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.dto.ResumoVendaDTO;
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.Venda;
+import br.ueg.meueg.entity.VendaItem;
+import br.ueg.meueg.entity.VendaResumo;
+import br.ueg.meueg.enums.AgrupamentoRelatorio;
+import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.enums.Granularidade;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.repository.VendaResumoRepository;
+import br.ueg.meueg.service.VendaResumoService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class VendaResumoServiceImpl implements VendaResumoService {
+
+    private final VendaResumoRepository vendaResumoRepository;
+    private final ProdutoServicoRepository produtoServicoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${relatorio.reconstrucao.paralelismo:4}")
+    private int paralelismo;
+
+    // Upsert somando o delta na linha existente (o ON CONFLICT resolve a concorrência entre vendas)
+    private static final String SQL_ACUMULAR = """
+            INSERT INTO venda_resumo (id_usuario, granularidade, inicio_periodo, id_produto, forma_pagamento, quantidade, receita, custo)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id_usuario, granularidade, inicio_periodo, id_produto, forma_pagamento) DO UPDATE SET
+                quantidade = venda_resumo.quantidade + EXCLUDED.quantidade,
+                receita = venda_resumo.receita + EXCLUDED.receita,
+                custo = venda_resumo.custo + EXCLUDED.custo
+            """;
+
+    // Recalcula um intervalo direto no banco, na área de montagem da execução.
+    // %1$s = unidade do date_trunc, %2$s = granularidade (vêm do enum)
+    private static final String SQL_RECONSTRUIR = """
+            INSERT INTO venda_resumo_reconstrucao (id_reconstrucao, id_usuario, granularidade, inicio_periodo, id_produto, forma_pagamento, quantidade, receita, custo)
+            SELECT ?, v.id_usuario, '%2$s', CAST(date_trunc('%1$s', v.data) AS date), i.id_produto, v.forma_pagamento,
+                   SUM(i.quantidade), SUM(i.preco_unitario * i.quantidade), SUM(COALESCE(i.custo_unitario, p.custo) * i.quantidade)
+            FROM venda v
+            JOIN venda_item i ON i.id_venda = v.id_venda
+            JOIN produto_servico p ON p.id_produto = i.id_produto
+            WHERE v.id_usuario = ? AND v.data >= ? AND v.data < ?
+            GROUP BY v.id_usuario, CAST(date_trunc('%1$s', v.data) AS date), i.id_produto, v.forma_pagamento
+            ON CONFLICT (id_reconstrucao, id_usuario, granularidade, inicio_periodo, id_produto, forma_pagamento) DO UPDATE SET
+                quantidade = venda_resumo_reconstrucao.quantidade + EXCLUDED.quantidade,
+                receita = venda_resumo_reconstrucao.receita + EXCLUDED.receita,
+                custo = venda_resumo_reconstrucao.custo + EXCLUDED.custo
+            """;
+
+    private static final String SQL_PUBLICAR = """
+            INSERT INTO venda_resumo (id_usuario, granularidade, inicio_periodo, id_produto, forma_pagamento, quantidade, receita, custo)
+            SELECT id_usuario, granularidade, inicio_periodo, id_produto, forma_pagamento, quantidade, receita, custo
+            FROM venda_resumo_reconstrucao WHERE id_reconstrucao = ?
+            """;
+
+    // Trava consultiva por usuário, liberada no fim da transação: as vendas pegam a compartilhada antes do
+    // upsert (não se bloqueiam entre si), a reconstrução pega a exclusiva. Colisão do hash só causa espera extra.
+    private static final int CLASSE_TRAVA_RESUMO = 5005;
+    private static final String SQL_TRAVA_COMPARTILHADA = "SELECT pg_advisory_xact_lock_shared(?, ?)";
+    private static final String SQL_TRAVA_EXCLUSIVA = "SELECT pg_advisory_xact_lock(?, ?)";
+
+    // Ordem fixa das chaves no batch: lotes concorrentes (motor em memória, sem trava de estoque no banco
+    // antes do resumo) pegam os locks de linha na mesma ordem e não entram em deadlock
+    private static final Comparator<Chave> ORDEM_CHAVES = Comparator.comparing(Chave::idUsuario)
+            .thenComparing(Chave::granularidade)
+            .thenComparing(Chave::inicio)
+            .thenComparing(Chave::idProduto)
+            .thenComparing(Chave::formaPagamento);
+
+    private record Chave(Long idUsuario, Granularidade granularidade, LocalDate inicio, Long idProduto, FormaPagamento formaPagamento) {
+    }
+
+    private static final class Acumulado {
+        long quantidade;
+        BigDecimal receita = BigDecimal.ZERO;
+        BigDecimal custo = BigDecimal.ZERO;
+    }
+
+    @Override
+    public void registrarVendas(Collection<Venda> vendas) {
+        acumular(vendas, 1);
+    }
+
+    @Override
+    public void estornarVenda(Venda venda) {
+        acumular(List.of(venda), -1);
+    }
+
+    // Agrupa os deltas em memória e grava tudo em um único batch JDBC (na transação corrente)
+    private void acumular(Collection<Venda> vendas, int sinal) {
+        Map<Chave, Acumulado> deltas = new TreeMap<>(ORDEM_CHAVES);
+        for (Venda venda : vendas) {
+            LocalDate dia = venda.getData().toLocalDate();
+            for (VendaItem item : venda.getItens()) {
+                BigDecimal quantidade = BigDecimal.valueOf((long) sinal * item.getQuantidade());
+                BigDecimal custoUnitario = item.getCustoUnitario() != null ? item.getCustoUnitario() : item.getProdutoServico().getCusto();
+
+                for (Granularidade granularidade : Granularidade.values()) {
+                    Chave chave = new Chave(venda.getUsuario().getId(), granularidade, granularidade.inicioPeriodo(dia),
+                            item.getProdutoServico().getId(), venda.getForma_pagamento());
+                    Acumulado acumulado = deltas.computeIfAbsent(chave, k -> new Acumulado());
+                    acumulado.quantidade += (long) sinal * item.getQuantidade();
+                    acumulado.receita = acumulado.receita.add(item.getPrecoUnitario().multiply(quantidade));
+                    acumulado.custo = acumulado.custo.add(custoUnitario.multiply(quantidade));
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.keySet().stream().map(Chave::idUsuario).distinct()
+                .forEach(idUsuario -> travar(SQL_TRAVA_COMPARTILHADA, idUsuario));
+
+        List<Object[]> parametros = new ArrayList<>(deltas.size());
+        for (Map.Entry<Chave, Acumulado> entry : deltas.entrySet()) {
+            Chave chave = entry.getKey();
+            Acumulado acumulado = entry.getValue();
+            parametros.add(new Object[]{
+                    chave.idUsuario(), chave.granularidade().name(), Date.valueOf(chave.inicio()), chave.idProduto(),
+                    chave.formaPagamento().name(), acumulado.quantidade, acumulado.receita, acumulado.custo
+            });
+        }
+        jdbcTemplate.batchUpdate(SQL_ACUMULAR, parametros);
+    }
+
+    // Lê só as linhas de resumo do intervalo: o custo depende do nº de períodos, não do histórico de vendas
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResumoVendaDTO> relatorio(Long idUsuario, Granularidade granularidade, LocalDate inicio, LocalDate fim, AgrupamentoRelatorio agrupamento) {
+        if (inicio.isAfter(fim)) {
+            throw new BusinessException("A data inicial deve ser anterior ou igual à data final.");
+        }
+
+        List<VendaResumo> linhas = vendaResumoRepository.findByIdUsuarioAndGranularidadeAndInicioPeriodoBetween(
+                idUsuario, granularidade, granularidade.inicioPeriodo(inicio), granularidade.inicioPeriodo(fim));
+
+        Map<String, ResumoVendaDTO> agrupado = new HashMap<>();
+        for (VendaResumo linha : linhas) {
+            Long idProduto = agrupamento == AgrupamentoRelatorio.PRODUTO ? linha.getIdProduto() : null;
+            String formaPagamento = agrupamento == AgrupamentoRelatorio.FORMA_PAGAMENTO ? linha.getFormaPagamento().name() : null;
+            String chave = linha.getInicioPeriodo() + "|" + idProduto + "|" + formaPagamento;
+
+            ResumoVendaDTO dto = agrupado.computeIfAbsent(chave, k -> new ResumoVendaDTO(
+                    linha.getInicioPeriodo(), idProduto, null, formaPagamento, 0L, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
+            dto.setQuantidade(dto.getQuantidade() + linha.getQuantidade());
+            dto.setReceita(dto.getReceita().add(linha.getReceita()));
+            dto.setCusto(dto.getCusto().add(linha.getCusto()));
+            dto.setLucro(dto.getReceita().subtract(dto.getCusto()));
+        }
+
+        List<ResumoVendaDTO> resultado = new ArrayList<>(agrupado.values());
+        if (agrupamento == AgrupamentoRelatorio.PRODUTO && !resultado.isEmpty()) {
+            Map<Long, String> nomes = produtoServicoRepository.findAllById(
+                            resultado.stream().map(ResumoVendaDTO::getIdProduto).collect(Collectors.toSet())).stream()
+                    .collect(Collectors.toMap(ProdutoServico::getId, ProdutoServico::getNome));
+            resultado.forEach(dto -> dto.setNomeProduto(nomes.get(dto.getIdProduto())));
+        }
+
+        resultado.sort(Comparator.comparing(ResumoVendaDTO::getInicioPeriodo)
+                .thenComparing(dto -> dto.getIdProduto() == null ? 0L : dto.getIdProduto())
+                .thenComparing(dto -> dto.getFormaPagamento() == null ? "" : dto.getFormaPagamento()));
+        return resultado;
+    }
+
+    // Reconstrução a partir dos dados brutos. A transação principal pega a trava exclusiva do usuário (espera as
+    // vendas em andamento e segura as novas até o commit), os blocos mensais são calculados em paralelo na área de
+    // montagem (cada um na sua transação) e a troca é feita no fim, na mesma transação principal: os relatórios
+    // continuam lendo os resumos antigos até o commit, e as vendas que esperaram somam por cima dos novos.
+    @Override
+    public int reconstruir(Long idUsuario) {
+        String idReconstrucao = UUID.randomUUID().toString();
+        Integer meses = transactionTemplate.execute(status -> {
+            travar(SQL_TRAVA_EXCLUSIVA, idUsuario);
+            int processados = montar(idReconstrucao, idUsuario);
+
+            vendaResumoRepository.deleteByIdUsuario(idUsuario);
+            jdbcTemplate.update(SQL_PUBLICAR, idReconstrucao);
+            // Leva junto restos de execuções interrompidas do mesmo usuário
+            jdbcTemplate.update("DELETE FROM venda_resumo_reconstrucao WHERE id_usuario = ?", idUsuario);
+            return processados;
+        });
+        return meses != null ? meses : 0;
+    }
+
+    private int montar(String idReconstrucao, Long idUsuario) {
+        LocalDateTime primeiraVenda = jdbcTemplate.queryForObject(
+                "SELECT MIN(data) FROM venda WHERE id_usuario = ?", LocalDateTime.class, idUsuario);
+        LocalDateTime ultimaVenda = jdbcTemplate.queryForObject(
+                "SELECT MAX(data) FROM venda WHERE id_usuario = ?", LocalDateTime.class, idUsuario);
+        if (primeiraVenda == null) {
+            return 0;
+        }
+
+        List<LocalDate> meses = new ArrayList<>();
+        for (LocalDate mes = primeiraVenda.toLocalDate().withDayOfMonth(1); !mes.isAfter(ultimaVenda.toLocalDate()); mes = mes.plusMonths(1)) {
+            meses.add(mes);
+        }
+
+        // Semanas que cruzam a virada do mês recebem contribuição de dois blocos: o upsert soma as duas partes.
+        // Os blocos não usam a conexão da transação principal (só threads do executor), então não esperam por ela.
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, paralelismo))) {
+            List<Future<?>> blocos = meses.stream()
+                    .map(mes -> executor.submit(() -> transactionTemplate.executeWithoutResult(
+                            status -> reconstruirBloco(idReconstrucao, idUsuario, mes.atStartOfDay(), mes.plusMonths(1).atStartOfDay()))))
+                    .collect(Collectors.toList());
+            for (Future<?> bloco : blocos) {
+                bloco.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstrução dos resumos interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao reconstruir os resumos de venda.", e.getCause());
+        }
+        return meses.size();
+    }
+
+    private void reconstruirBloco(String idReconstrucao, Long idUsuario, LocalDateTime inicio, LocalDateTime fim) {
+        for (Granularidade granularidade : Granularidade.values()) {
+            String sql = String.format(SQL_RECONSTRUIR, granularidade.getUnidadeDateTrunc(), granularidade.name());
+            jdbcTemplate.update(sql, idReconstrucao, idUsuario, Timestamp.valueOf(inicio), Timestamp.valueOf(fim));
+        }
+    }
+
+    private void travar(String sql, Long idUsuario) {
+        jdbcTemplate.queryForList(sql, CLASSE_TRAVA_RESUMO, Long.hashCode(idUsuario));
+    }
+}
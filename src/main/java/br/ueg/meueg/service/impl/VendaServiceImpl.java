@@ -1,29 +1,66 @@
 package br.ueg.meueg.service.impl;
 
+import br.ueg.meueg.dto.LoteFalhaDTO;
+import br.ueg.meueg.dto.VendaExportacaoDTO;
 import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.dto.VendaFiltroDTO;
+import br.ueg.meueg.dto.VendaPaginaDTO;
 import br.ueg.meueg.dto.VendaItemDTO;
 import br.ueg.meueg.entity.Estoque;
+import br.ueg.meueg.entity.MovimentacaoEstoque;
 import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.RegistroExclusao;
 import br.ueg.meueg.entity.User;
 import br.ueg.meueg.entity.Venda;
 import br.ueg.meueg.entity.VendaItem;
 import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.enums.FormatoExportacao;
+import br.ueg.meueg.enums.TipoEntidadeSync;
+import br.ueg.meueg.enums.TipoMovimentacao;
+import br.ueg.meueg.estoque.MotorEstoqueMemoria;
 import br.ueg.meueg.exception.BusinessException;
 import br.ueg.meueg.exception.NotFoundException;
 import br.ueg.meueg.repository.EstoqueRepository;
 import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.repository.RegistroExclusaoRepository;
 import br.ueg.meueg.repository.UserRepository;
 import br.ueg.meueg.repository.VendaRepository;
+import br.ueg.meueg.service.MovimentacaoEstoqueService;
+import br.ueg.meueg.service.VendaResumoService;
 import br.ueg.meueg.service.VendaService;
+import br.ueg.meueg.voz.IndiceProdutos;
+import br.ueg.meueg.voz.IndicesProdutos;
+import br.ueg.meueg.voz.MetricasVoz;
+import br.ueg.meueg.voz.ProdutoIndexado;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -33,6 +70,16 @@ public class VendaServiceImpl implements VendaService {
     private final UserRepository userRepository;
     private final ProdutoServicoRepository produtoServicoRepository;
     private final EstoqueRepository estoqueRepository;
+    private final VendaResumoService vendaResumoService;
+    private final RegistroExclusaoRepository registroExclusaoRepository;
+    private final MovimentacaoEstoqueService movimentacaoEstoqueService;
+    private final Optional<MotorEstoqueMemoria> motorEstoque; // Presente só com estoque.motor-memoria.habilitado=true
+    private final IndicesProdutos indicesProdutos;
+    private final MetricasVoz metricasVoz;
+    private final ObjectMapper objectMapper;
+
+    private static final int TAMANHO_PAGINA_PADRAO = 50;
+    private static final int TAMANHO_PAGINA_MAXIMO = 200;
 
     @Override
     public List<Venda> findAll() {
@@ -57,25 +104,47 @@ public class VendaServiceImpl implements VendaService {
             throw new BusinessException("A venda deve conter pelo menos um item.");
         }
 
-        for (VendaItem item : venda.getItens()) {
-            ProdutoServico produtoServico = produtoServicoRepository.findById(item.getProdutoServico().getId())
-                    .orElseThrow(() -> new NotFoundException("Produto/Serviço com ID " + item.getProdutoServico().getId() + " não encontrado."));
+        // 1. Carrega todos os produtos e estoques da venda em lote (consultas fixas, independente do nº de itens).
+        // Sem o motor, os estoques ficam travados até o commit, sempre na ordem do ID: a ordem fixa evita
+        // deadlock entre duas vendas concorrentes com os mesmos produtos.
+        Map<Long, ProdutoServico> produtos = carregarProdutos(venda.getItens());
+        Map<Long, Estoque> estoques = carregarEstoques(produtos.keySet(), usuario);
 
-            Estoque estoque = estoqueRepository.findByProdutoServico_Id(produtoServico.getId())
-                    .orElseThrow(() -> new NotFoundException("Estoque para o Produto/Serviço " + produtoServico.getNome() + " não encontrado."));
+        // 2. Soma o carrinho inteiro em memória (o mesmo produto pode aparecer em mais de uma linha)
+        Map<Long, Integer> quantidadePorProduto = new HashMap<>();
+        for (VendaItem item : venda.getItens()) {
+            quantidadePorProduto.merge(item.getProdutoServico().getId(), item.getQuantidade(), Integer::sum);
+        }
 
-            if (estoque.getQuantidade() < item.getQuantidade()) {
-                throw new BusinessException("Quantidade insuficiente em estoque para o produto " + produtoServico.getNome() + ". Disponível: " + estoque.getQuantidade());
+        Map<Long, Integer> baixaPorEstoque = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantidadePorProduto.entrySet()) {
+            Estoque estoque = estoques.get(entry.getKey());
+            if (estoque == null) {
+                throw new NotFoundException("Estoque para o Produto/Serviço " + produtos.get(entry.getKey()).getNome() + " não encontrado.");
             }
+            baixaPorEstoque.put(estoque.getId(), entry.getValue());
+        }
+
+        // 3. Baixa. Sem o motor, ninguém mexe no saldo dos estoques travados até o commit: basta conferir
+        // o saldo do livro (uma consulta) e lançar a venda nele, sem UPDATE na linha do estoque.
+        // Com o motor, a reserva nos contadores é desfeita sozinha se a transação não confirmar.
+        Long semSaldo = motorEstoque.isPresent()
+                ? motorEstoque.get().reservar(baixaPorEstoque)
+                : primeiroSemSaldo(baixaPorEstoque, movimentacaoEstoqueService.saldosAtuais(baixaPorEstoque.keySet()));
+        if (semSaldo != null) {
+            Estoque estoque = estoques.values().stream().filter(e -> e.getId().equals(semSaldo)).findFirst().orElseThrow();
+            throw new BusinessException("Quantidade insuficiente em estoque para o produto " + estoque.getProdutoServico().getNome()
+                    + ". Disponível: " + movimentacaoEstoqueService.saldosAtuais(List.of(semSaldo)).get(semSaldo));
+        }
 
-            // Baixa no estoque
-            estoque.setQuantidade(estoque.getQuantidade() - item.getQuantidade());
-            estoqueRepository.save(estoque);
+        for (VendaItem item : venda.getItens()) {
+            ProdutoServico produtoServico = produtos.get(item.getProdutoServico().getId());
 
             // Vincula dados
             item.setVenda(venda);
             item.setProdutoServico(produtoServico);
             item.setPrecoUnitario(produtoServico.getPreco());
+            item.setCustoUnitario(produtoServico.getCusto());
 
             // Soma ao total
             valorTotal = valorTotal.add(produtoServico.getPreco().multiply(BigDecimal.valueOf(item.getQuantidade())));
@@ -83,8 +152,253 @@ public class VendaServiceImpl implements VendaService {
 
         venda.setData(LocalDateTime.now());
         venda.setValor_total(valorTotal);
+        if (venda.getForma_pagamento() == null) {
+            venda.setForma_pagamento(FormaPagamento.DINHEIRO); // Mesmo padrão da venda por voz
+        }
+
+        Venda salva = vendaRepository.save(venda);
+        vendaResumoService.registrarVendas(List.of(salva));
+        movimentacaoEstoqueService.registrar(movimentacoesDaVenda(salva, estoques, TipoMovimentacao.VENDA, -1));
+        return salva;
+    }
+
+    // --- IMPORTAÇÃO EM LOTE (sincronização de caixas offline / migração) ---
+    // Cada chamada é um bloco do lote em uma única transação: os estoques do bloco são travados
+    // uma vez (em ordem de ID), o saldo deles é lido uma vez, cada venda é validada em memória e
+    // as válidas são gravadas com INSERT em batch. Uma venda inválida vira falha individual sem derrubar o bloco.
+    @Override
+    @Transactional
+    public List<LoteFalhaDTO> salvarLote(List<Venda> vendas, User usuario) {
+        List<LoteFalhaDTO> falhas = new ArrayList<>();
+
+        Set<Long> idsProdutos = new HashSet<>();
+        for (Venda venda : vendas) {
+            if (venda.getItens() != null) {
+                for (VendaItem item : venda.getItens()) {
+                    if (item.getProdutoServico() != null && item.getProdutoServico().getId() != null) {
+                        idsProdutos.add(item.getProdutoServico().getId());
+                    }
+                }
+            }
+        }
+
+        Map<Long, ProdutoServico> produtos = produtoServicoRepository.findAllById(idsProdutos).stream()
+                .collect(Collectors.toMap(ProdutoServico::getId, Function.identity()));
+        Map<Long, Estoque> estoques = carregarEstoques(idsProdutos, usuario);
+        // Saldo de cada estoque travado, baixado em memória conforme as vendas do bloco são aceitas
+        Map<Long, Integer> saldos = motorEstoque.isPresent() ? Map.of()
+                : new HashMap<>(movimentacaoEstoqueService.saldosAtuais(estoques.values().stream().map(Estoque::getId).toList()));
+
+        List<Venda> aceitas = new ArrayList<>(vendas.size());
+        for (int i = 0; i < vendas.size(); i++) {
+            Venda venda = vendas.get(i);
+            String erro = prepararVendaDoLote(venda, usuario, produtos, estoques, saldos);
+            if (erro != null) {
+                falhas.add(new LoteFalhaDTO(i, erro));
+            } else {
+                aceitas.add(venda);
+            }
+        }
+
+        vendaRepository.saveAll(aceitas);
+        vendaResumoService.registrarVendas(aceitas);
 
-        return vendaRepository.save(venda);
+        List<MovimentacaoEstoque> movimentacoes = new ArrayList<>();
+        for (Venda venda : aceitas) {
+            movimentacoes.addAll(movimentacoesDaVenda(venda, estoques, TipoMovimentacao.VENDA, -1));
+        }
+        movimentacaoEstoqueService.registrar(movimentacoes);
+        return falhas;
+    }
+
+    // Valida uma venda do lote e baixa o saldo dos estoques (já travados). Retorna a mensagem de erro ou null.
+    private String prepararVendaDoLote(Venda venda, User usuario, Map<Long, ProdutoServico> produtos, Map<Long, Estoque> estoques,
+                                       Map<Long, Integer> saldos) {
+        if (venda.getItens() == null || venda.getItens().isEmpty()) {
+            return "A venda deve conter pelo menos um item.";
+        }
+
+        Map<Long, Integer> quantidadePorProduto = new HashMap<>();
+        for (VendaItem item : venda.getItens()) {
+            if (item.getProdutoServico() == null || item.getProdutoServico().getId() == null) {
+                return "Todos os itens da venda devem informar o Produto/Serviço.";
+            }
+            if (item.getQuantidade() == null || item.getQuantidade() <= 0) {
+                return "A quantidade de cada item deve ser positiva.";
+            }
+            Long idProduto = item.getProdutoServico().getId();
+            ProdutoServico produtoServico = produtos.get(idProduto);
+            if (produtoServico == null || !produtoServico.getUsuario().getId().equals(usuario.getId())) {
+                return "Produto/Serviço com ID " + idProduto + " não encontrado.";
+            }
+            if (!estoques.containsKey(idProduto)) {
+                return "Estoque para o Produto/Serviço " + produtoServico.getNome() + " não encontrado.";
+            }
+            quantidadePorProduto.merge(idProduto, item.getQuantidade(), Integer::sum);
+        }
+
+        if (motorEstoque.isPresent()) {
+            Map<Long, Integer> baixaPorEstoque = new TreeMap<>();
+            quantidadePorProduto.forEach((idProduto, quantidade) -> baixaPorEstoque.put(estoques.get(idProduto).getId(), quantidade));
+            Long semSaldo = motorEstoque.get().reservar(baixaPorEstoque);
+            if (semSaldo != null) {
+                Estoque estoque = estoques.values().stream().filter(e -> e.getId().equals(semSaldo)).findFirst().orElseThrow();
+                return "Quantidade insuficiente em estoque para o produto " + estoque.getProdutoServico().getNome() + ". Disponível: " + motorEstoque.get().saldo(semSaldo);
+            }
+        } else {
+            for (Map.Entry<Long, Integer> entry : quantidadePorProduto.entrySet()) {
+                int disponivel = saldos.get(estoques.get(entry.getKey()).getId());
+                if (disponivel < entry.getValue()) {
+                    return "Quantidade insuficiente em estoque para o produto " + produtos.get(entry.getKey()).getNome() + ". Disponível: " + disponivel;
+                }
+            }
+
+            // Os estoques estão travados até o fim da transação, então a baixa em memória é segura
+            for (Map.Entry<Long, Integer> entry : quantidadePorProduto.entrySet()) {
+                saldos.merge(estoques.get(entry.getKey()).getId(), -entry.getValue(), Integer::sum);
+            }
+        }
+
+        BigDecimal valorTotal = BigDecimal.ZERO;
+        for (VendaItem item : venda.getItens()) {
+            ProdutoServico produtoServico = produtos.get(item.getProdutoServico().getId());
+            item.setId(null);
+            item.setVenda(venda);
+            item.setProdutoServico(produtoServico);
+            // Caixa offline: mantém o preço praticado na hora, se veio no registro
+            if (item.getPrecoUnitario() == null) {
+                item.setPrecoUnitario(produtoServico.getPreco());
+            }
+            item.setCustoUnitario(produtoServico.getCusto());
+            valorTotal = valorTotal.add(item.getPrecoUnitario().multiply(BigDecimal.valueOf(item.getQuantidade())));
+        }
+
+        venda.setId_venda(null);
+        venda.setUsuario(usuario);
+        if (venda.getData() == null) {
+            venda.setData(LocalDateTime.now());
+        }
+        if (venda.getForma_pagamento() == null) {
+            venda.setForma_pagamento(FormaPagamento.DINHEIRO);
+        }
+        venda.setValor_total(valorTotal);
+        return null;
+    }
+
+    // --- CONSULTA PAGINADA (substitui o findAll sem limite) ---
+    @Override
+    @Transactional(readOnly = true)
+    public VendaPaginaDTO buscar(VendaFiltroDTO filtro, User usuario) {
+        int tamanho = filtro.getTamanho() == null ? TAMANHO_PAGINA_PADRAO : Math.min(Math.max(filtro.getTamanho(), 1), TAMANHO_PAGINA_MAXIMO);
+
+        LocalDateTime cursorData = null;
+        Long cursorId = null;
+        if (filtro.getCursor() != null && !filtro.getCursor().isBlank()) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(filtro.getCursor()), StandardCharsets.UTF_8).split("\\|");
+                cursorData = LocalDateTime.parse(partes[0]);
+                cursorId = Long.valueOf(partes[1]);
+            } catch (RuntimeException e) {
+                throw new BusinessException("Cursor de paginação inválido.");
+            }
+        }
+
+        // Busca um registro a mais só para saber se existe próxima página
+        PageRequest limite = PageRequest.of(0, tamanho + 1);
+        List<Long> ids = cursorData == null
+                ? vendaRepository.buscarIdsPrimeiraPagina(usuario.getId(),
+                        filtro.getDataInicio(), filtro.getDataFim(), filtro.getFormaPagamento(),
+                        filtro.getValorMinimo(), filtro.getValorMaximo(), filtro.getIdProduto(), limite)
+                : vendaRepository.buscarIdsAposCursor(usuario.getId(),
+                        filtro.getDataInicio(), filtro.getDataFim(), filtro.getFormaPagamento(),
+                        filtro.getValorMinimo(), filtro.getValorMaximo(), filtro.getIdProduto(),
+                        cursorData, cursorId, limite);
+
+        boolean temProxima = ids.size() > tamanho;
+        if (temProxima) {
+            ids = ids.subList(0, tamanho);
+        }
+        if (ids.isEmpty()) {
+            return new VendaPaginaDTO(List.of(), null);
+        }
+
+        // Reordena conforme a página (o IN não garante ordem)
+        Map<Long, Venda> porId = vendaRepository.findAllComItensByIdIn(ids).stream()
+                .collect(Collectors.toMap(Venda::getId_venda, Function.identity()));
+        List<VendaDTO> vendas = ids.stream()
+                .map(porId::get)
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+
+        String proximoCursor = null;
+        if (temProxima) {
+            VendaDTO ultima = vendas.get(vendas.size() - 1);
+            String valor = ultima.getData() + "|" + ultima.getId();
+            proximoCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+        }
+        return new VendaPaginaDTO(vendas, proximoCursor);
+    }
+
+    // --- EXPORTAÇÃO EM STREAMING ---
+    // As linhas saem do cursor do banco direto para a resposta HTTP: a memória fica constante
+    // e, se o cliente ler devagar, a escrita bloqueia e a leitura do cursor espera junto.
+    @Override
+    @Transactional(readOnly = true)
+    public void exportar(VendaFiltroDTO filtro, User usuario, FormatoExportacao formato, OutputStream saida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024);
+
+        try (Stream<VendaExportacaoDTO> linhas = vendaRepository.streamExportacao(usuario.getId(),
+                filtro.getDataInicio(), filtro.getDataFim(), filtro.getFormaPagamento(),
+                filtro.getValorMinimo(), filtro.getValorMaximo(), filtro.getIdProduto())) {
+
+            if (formato == FormatoExportacao.CSV) {
+                writer.write("id_venda;data;forma_pagamento;valor_total;id_produto;nome_produto;quantidade;preco_unitario\n");
+                Iterator<VendaExportacaoDTO> iterator = linhas.iterator();
+                while (iterator.hasNext()) {
+                    escreverLinhaCsv(writer, iterator.next());
+                }
+            } else {
+                JsonGenerator generator = objectMapper.createGenerator(writer);
+                generator.setRootValueSeparator(null); // Uma linha por objeto (NDJSON), sem separador extra
+                Iterator<VendaExportacaoDTO> iterator = linhas.iterator();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private void escreverLinhaCsv(Writer writer, VendaExportacaoDTO linha) throws IOException {
+        writer.write(String.valueOf(linha.getIdVenda()));
+        writer.write(';');
+        writer.write(String.valueOf(linha.getData()));
+        writer.write(';');
+        writer.write(String.valueOf(linha.getFormaPagamento()));
+        writer.write(';');
+        writer.write(linha.getValorTotal().toPlainString());
+        writer.write(';');
+        writer.write(String.valueOf(linha.getIdProduto()));
+        writer.write(';');
+        writer.write(campoCsv(linha.getNomeProduto()));
+        writer.write(';');
+        writer.write(String.valueOf(linha.getQuantidade()));
+        writer.write(';');
+        writer.write(linha.getPrecoUnitario().toPlainString());
+        writer.write('\n');
+    }
+
+    // Nome do produto é texto livre: aspas quando tiver separador, aspas ou quebra de linha
+    private String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(';') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
     }
 
     // --- SIMULAÇÃO/PRÉVIA (Chamado assim que a voz é processada) ---
@@ -92,10 +406,20 @@ public class VendaServiceImpl implements VendaService {
     @Override
     public VendaDTO processarPropostaVoz(VendaDTO vendaDTO) {
         // 1. Validar usuário
+        Timer.Sample amostra = metricasVoz.iniciar();
         User usuarioLogado = userRepository.findById(vendaDTO.getIdUsuario())
                 .orElseThrow(() -> new NotFoundException("Usuário não encontrado."));
+        metricasVoz.etapa(amostra, "catalogo_usuario", "banco", null);
 
         BigDecimal totalEstimado = BigDecimal.ZERO;
+        amostra = metricasVoz.iniciar();
+        IndiceProdutos indice = indicesProdutos.doUsuario(usuarioLogado.getId()); // Vai ao banco só se o índice não estiver em memória
+        metricasVoz.etapa(amostra, "catalogo_indice", MetricasVoz.SEM_BACKEND, null);
+
+        amostra = metricasVoz.iniciar();
+
+        List<VendaItemDTO> reconhecidos = new ArrayList<>();
+        List<String> naoReconhecidos = new ArrayList<>();
 
         if (vendaDTO.getItens() != null) {
             for (VendaItemDTO itemDTO : vendaDTO.getItens()) {
@@ -105,25 +429,43 @@ public class VendaServiceImpl implements VendaService {
                     itemDTO.setQuantidade(1);
                 }
 
-                // B. Busca Inteligente (IgnoreCase)
-                // Remove espaços e garante que ache "Pipoca" mesmo se vier "pipoca"
-                String nomeBusca = itemDTO.getNomeProduto().trim();
+                // B. Busca aproximada no índice em memória do usuário (acento, plural, grafia parecida,
+                // erro de transcrição: "pipoca" acha "Pipoca", "cachoro quente" acha "Cachorro-Quente")
+                String nomeBusca = itemDTO.getNomeProduto() == null ? "" : itemDTO.getNomeProduto().trim();
 
-                ProdutoServico produtoServico = produtoServicoRepository.findByNomeIgnoreCaseAndUsuario(nomeBusca, usuarioLogado)
-                        .orElseThrow(() -> new BusinessException("Produto '" + nomeBusca + "' não encontrado. Fale o nome exato cadastrado."));
+                Optional<IndiceProdutos.Resultado> encontrado = indice.buscar(nomeBusca);
+                if (encontrado.isEmpty()) {
+                    // Pedido com vários itens: o que não casou volta separado para o app, o resto segue
+                    naoReconhecidos.add(nomeBusca);
+                    continue;
+                }
+                ProdutoIndexado produto = encontrado.get().produto();
 
-                // C. Preencher dados para retorno ao App
-                itemDTO.setIdProduto(produtoServico.getId());
-                itemDTO.setNomeProduto(produtoServico.getNome()); // Pega o nome correto (Ex: Pipoca Salgada)
-                itemDTO.setPrecoUnitario(produtoServico.getPreco()); // Pega o preço do banco
+                // C. Preencher dados para retorno ao App (ID, nome e preço vêm do próprio índice)
+                itemDTO.setIdProduto(produto.id());
+                itemDTO.setNomeProduto(produto.nome()); // Pega o nome correto (Ex: Pipoca Salgada)
+                itemDTO.setPrecoUnitario(produto.preco());
 
                 // D. Calcular subtotal apenas para exibição (NÃO SALVA AINDA)
-                BigDecimal subtotal = produtoServico.getPreco().multiply(BigDecimal.valueOf(itemDTO.getQuantidade()));
+                BigDecimal subtotal = produto.preco().multiply(BigDecimal.valueOf(itemDTO.getQuantidade()));
                 totalEstimado = totalEstimado.add(subtotal);
+                reconhecidos.add(itemDTO);
             }
         }
 
+        if (reconhecidos.isEmpty()) {
+            BusinessException erro = new BusinessException(naoReconhecidos.isEmpty()
+                    ? "Nenhum produto foi identificado no comando."
+                    : "Produto(s) " + String.join(", ", naoReconhecidos) + " não encontrado(s) no seu cadastro.");
+            metricasVoz.etapa(amostra, "catalogo_casamento", MetricasVoz.SEM_BACKEND, erro);
+            throw erro;
+        }
+
+        metricasVoz.etapa(amostra, "catalogo_casamento", MetricasVoz.SEM_BACKEND, null);
+
         // 2. Prepara o DTO de volta
+        vendaDTO.setItens(reconhecidos);
+        vendaDTO.setItensNaoReconhecidos(naoReconhecidos.isEmpty() ? null : naoReconhecidos);
         vendaDTO.setValor_total(totalEstimado);
 
         // Define forma de pagamento padrão se a IA não pegou
@@ -143,8 +485,12 @@ public class VendaServiceImpl implements VendaService {
 
         User usuario = userRepository.findById(venda.getUsuario().getId())
                 .orElseThrow(() -> new NotFoundException("Usuário com ID " + venda.getUsuario().getId() + " não encontrado."));
+
+        // Usuário e forma de pagamento fazem parte da chave dos resumos: move a venda de linha
+        vendaResumoService.estornarVenda(existingVenda);
         existingVenda.setUsuario(usuario);
         existingVenda.setForma_pagamento(venda.getForma_pagamento());
+        vendaResumoService.registrarVendas(List.of(existingVenda));
         return vendaRepository.save(existingVenda);
     }
 
@@ -154,16 +500,91 @@ public class VendaServiceImpl implements VendaService {
         Venda venda = vendaRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Venda com ID " + id + " não encontrada."));
 
+        // Trava os estoques como a venda (mesma ordem de ID); o estorno é só o lançamento no livro
+        Map<Long, Estoque> estoques = carregarEstoques(venda.getItens().stream()
+                .map(item -> item.getProdutoServico().getId())
+                .collect(Collectors.toSet()), venda.getUsuario());
+
+        Map<Long, Integer> estornoPorEstoque = new TreeMap<>();
         for (VendaItem item : venda.getItens()) {
-            Estoque estoque = estoqueRepository.findByProdutoServico_Id(item.getProdutoServico().getId())
-                    .orElseThrow(() -> new NotFoundException("Estoque para o produto " + item.getProdutoServico().getNome() + " não encontrado ao estornar venda."));
-            estoque.setQuantidade(estoque.getQuantidade() + item.getQuantidade());
-            estoqueRepository.save(estoque);
+            Estoque estoque = estoques.get(item.getProdutoServico().getId());
+            if (estoque == null) {
+                throw new NotFoundException("Estoque para o produto " + item.getProdutoServico().getNome() + " não encontrado ao estornar venda.");
+            }
+            estornoPorEstoque.merge(estoque.getId(), item.getQuantidade(), Integer::sum);
         }
-
+        motorEstoque.ifPresent(motor -> motor.adicionar(estornoPorEstoque));
+
+        vendaResumoService.estornarVenda(venda);
+        movimentacaoEstoqueService.registrar(movimentacoesDaVenda(venda, estoques, TipoMovimentacao.ESTORNO_VENDA, 1));
+        registroExclusaoRepository.save(RegistroExclusao.builder()
+                .tipo(TipoEntidadeSync.VENDA)
+                .idEntidade(id)
+                .idUsuario(venda.getUsuario().getId())
+                .excluidoEm(LocalDateTime.now())
+                .build());
         vendaRepository.deleteById(id);
     }
 
+    // --- Métodos Auxiliares (Carga em lote) ---
+
+    private Map<Long, ProdutoServico> carregarProdutos(List<VendaItem> itens) {
+        Set<Long> ids = new HashSet<>();
+        for (VendaItem item : itens) {
+            if (item.getProdutoServico() == null || item.getProdutoServico().getId() == null) {
+                throw new BusinessException("Todos os itens da venda devem informar o Produto/Serviço.");
+            }
+            if (item.getQuantidade() == null || item.getQuantidade() <= 0) {
+                throw new BusinessException("A quantidade de cada item deve ser positiva.");
+            }
+            ids.add(item.getProdutoServico().getId());
+        }
+
+        Map<Long, ProdutoServico> produtos = produtoServicoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ProdutoServico::getId, Function.identity()));
+
+        for (Long id : ids) {
+            if (!produtos.containsKey(id)) {
+                throw new NotFoundException("Produto/Serviço com ID " + id + " não encontrado.");
+            }
+        }
+        return produtos;
+    }
+
+    // Estoques do usuário por ID do produto. Sem o motor, travados (FOR UPDATE, ordem de ID) até o commit:
+    // quem lança no livro segura a linha, e a consolidação do saldo depende disso (MovimentacaoEstoqueService).
+    // No modo em memória quem garante o saldo são os contadores: não precisa travar as linhas.
+    private Map<Long, Estoque> carregarEstoques(Set<Long> idsProdutos, User usuario) {
+        List<Estoque> estoques = motorEstoque.isPresent()
+                ? estoqueRepository.findAllByProdutoServicoIdIn(idsProdutos)
+                : estoqueRepository.findAllByProdutoServicoIdInParaAtualizar(idsProdutos, usuario);
+        return estoques.stream()
+                .collect(Collectors.toMap(e -> e.getProdutoServico().getId(), Function.identity()));
+    }
+
+    // ID do primeiro estoque (ordem do mapa) cujo saldo não cobre a baixa, ou null
+    private static Long primeiroSemSaldo(Map<Long, Integer> baixaPorEstoque, Map<Long, Integer> saldos) {
+        for (Map.Entry<Long, Integer> entry : baixaPorEstoque.entrySet()) {
+            if (saldos.getOrDefault(entry.getKey(), 0) < entry.getValue()) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    // Um lançamento por estoque (itens repetidos do mesmo produto são somados); sinal -1 para saída
+    private List<MovimentacaoEstoque> movimentacoesDaVenda(Venda venda, Map<Long, Estoque> estoquesPorProduto, TipoMovimentacao tipo, int sinal) {
+        Map<Long, Integer> quantidadePorProduto = new HashMap<>();
+        for (VendaItem item : venda.getItens()) {
+            quantidadePorProduto.merge(item.getProdutoServico().getId(), item.getQuantidade(), Integer::sum);
+        }
+        List<MovimentacaoEstoque> movimentacoes = new ArrayList<>(quantidadePorProduto.size());
+        for (Map.Entry<Long, Integer> entry : quantidadePorProduto.entrySet()) {
+            movimentacoes.add(MovimentacaoEstoque.de(estoquesPorProduto.get(entry.getKey()), tipo, sinal * entry.getValue(), venda.getId_venda()));
+        }
+        return movimentacoes;
+    }
+
     // --- Métodos Auxiliares (ToEntity / ToDTO) ---
 
     // Este método converte o DTO para Entidade na hora de SALVAR DE FATO
@@ -211,6 +632,7 @@ public class VendaServiceImpl implements VendaService {
                 .build();
     }
 
+    @Override
     public VendaDTO toDTO(Venda entity) {
         VendaDTO dto = new VendaDTO();
         dto.setId(entity.getId_venda());
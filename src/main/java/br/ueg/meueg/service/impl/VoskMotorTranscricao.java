@@ -0,0 +1,152 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.service.MotorTranscricao;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.Prazo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Serviço Vosk local (whisper-api/app.py): funciona sem internet. Recebe um WAV mono 16 bits por multipart.
+@Service
+@Order(2)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stt.vosk.habilitado", havingValue = "true", matchIfMissing = true)
+public class VoskMotorTranscricao implements MotorTranscricao {
+
+    private final ObjectMapper objectMapper;
+
+    // Cliente único: mantém as conexões abertas com o serviço local entre as requisições
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    private static final int TAMANHO_BLOCO_STREAM = 8192;
+
+    @Value("${stt.vosk.url:http://localhost:5567/transcribe}")
+    private String url;
+
+    @Value("${stt.vosk.stream-max-bytes:5242880}")
+    private long maxBytesStream;
+
+    @Override
+    public String nome() {
+        return "vosk";
+    }
+
+    // O serviço Vosk só lê WAV PCM (FLAC/Opus exigiriam decodificar aqui, sem decodificador no projeto)
+    @Override
+    public boolean aceita(CodificacaoAudio codificacao) {
+        return codificacao == CodificacaoAudio.PCM_16 || codificacao == CodificacaoAudio.DESCONHECIDA;
+    }
+
+    @Override
+    public String transcrever(AudioPreparado audio, Prazo prazo) throws IOException, InterruptedException {
+        // PCM pré-processado ganha o cabeçalho WAV de volta; o corpo é o trecho do buffer, sem cópia
+        byte[] cabecalho = audio.codificacao() == CodificacaoAudio.PCM_16
+                ? cabecalhoWav(audio.tamanho(), audio.taxaAmostragem())
+                : new byte[0];
+        return enviar(cabecalho, audio.dados(), audio.inicio(), audio.tamanho(), prazo);
+    }
+
+    // O serviço Vosk não tem streaming: junta os blocos e monta o cabeçalho WAV que ele exige.
+    // O upload chunked não passa pelo limite do multipart: o acúmulo tem teto próprio e para no fim do prazo.
+    @Override
+    public String transcreverStream(InputStream audio, int taxaAmostragem, Prazo prazo) throws IOException, InterruptedException {
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        byte[] buffer = new byte[TAMANHO_BLOCO_STREAM];
+        int lidos;
+        while ((lidos = audio.read(buffer, 0, buffer.length)) != -1) { // O que chegou, sem esperar encher o bloco
+            prazo.verificar("transcrição em streaming (vosk)");
+            if (pcm.size() + lidos > maxBytesStream) {
+                throw new BusinessException("Áudio maior que o permitido para o reconhecimento local.");
+            }
+            pcm.write(buffer, 0, lidos);
+        }
+        byte[] dados = pcm.toByteArray();
+        return enviar(cabecalhoWav(dados.length, taxaAmostragem), dados, 0, dados.length, prazo);
+    }
+
+    private String enviar(byte[] cabecalho, byte[] dados, int inicio, int tamanho, Prazo prazo) throws IOException, InterruptedException {
+        prazo.verificar("transcrição (vosk)");
+        String boundary = "----meueg" + UUID.randomUUID();
+        byte[] abertura = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"audioFile\"; filename=\"audio.wav\"\r\n"
+                + "Content-Type: audio/wav\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] fim = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(prazo.restante())
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofByteArray(abertura),
+                        HttpRequest.BodyPublishers.ofByteArray(cabecalho),
+                        HttpRequest.BodyPublishers.ofByteArray(dados, inicio, tamanho),
+                        HttpRequest.BodyPublishers.ofByteArray(fim)))
+                .build();
+
+        // O timeout do request só cobre até o cabeçalho; o prazo vale até o fim do corpo e cancela a chamada
+        CompletableFuture<HttpResponse<byte[]>> chamada = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> response;
+        try {
+            response = chamada.get(prazo.restanteMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            chamada.cancel(true);
+            throw new PrazoEsgotadoException("Tempo esgotado: transcrição (vosk).");
+        } catch (InterruptedException e) {
+            chamada.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HttpTimeoutException) {
+                throw new PrazoEsgotadoException("Tempo esgotado: transcrição (vosk).");
+            }
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        JsonNode corpo = objectMapper.readTree(response.body());
+        if (response.statusCode() != 200) {
+            throw new IOException("Vosk respondeu " + response.statusCode() + ": " + corpo.path("error").asText());
+        }
+        String texto = corpo.path("transcription").asText("");
+        return texto.isBlank() ? null : texto;
+    }
+
+    private byte[] cabecalhoWav(int tamanhoPcm, int taxaAmostragem) {
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + tamanhoPcm);
+        header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        header.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1)          // PCM
+                .putShort((short) 1)          // mono
+                .putInt(taxaAmostragem)
+                .putInt(taxaAmostragem * 2)   // bytes por segundo
+                .putShort((short) 2)          // bytes por amostra
+                .putShort((short) 16);        // bits por amostra
+        header.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(tamanhoPcm);
+        return header.array();
+    }
+}
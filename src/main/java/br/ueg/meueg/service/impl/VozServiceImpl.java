@@ -0,0 +1,235 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.cache.CacheLimitado;
+import br.ueg.meueg.dto.TrabalhoVozDTO;
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.enums.StatusTrabalhoVoz;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.exception.NotFoundException;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.exception.SobrecargaException;
+import br.ueg.meueg.service.AIService;
+import br.ueg.meueg.service.SpeechToTextService;
+import br.ueg.meueg.service.VendaService;
+import br.ueg.meueg.service.VozService;
+import br.ueg.meueg.voz.MetricasVoz;
+import br.ueg.meueg.voz.Prazo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VozServiceImpl implements VozService {
+
+    private final SpeechToTextService speechToTextService;
+    private final AIService aiService;
+    private final VendaService vendaService;
+    private final MeterRegistry meterRegistry;
+    private final MetricasVoz metricasVoz;
+
+    // Virtual threads: cada comando de voz passa quase todo o tempo esperando STT e LLM (I/O)
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger emAndamento = new AtomicInteger();
+
+    @Value("${voz.trabalhos.capacidade:10000}")
+    private int capacidadeTrabalhos;
+
+    @Value("${voz.trabalhos.ttl-minutos:10}")
+    private long ttlTrabalhosMinutos;
+
+    // Orçamento de tempo de um comando de voz: total e por etapa (o catálogo fica com a sobra)
+    @Value("${voz.prazo.total-ms:6000}")
+    private long prazoTotalMs;
+
+    @Value("${voz.prazo.stt-ms:3000}")
+    private long prazoSttMs;
+
+    @Value("${voz.prazo.ia-ms:4000}")
+    private long prazoIaMs;
+
+    private CacheLimitado<String, Trabalho> trabalhos;
+
+    private static final class Trabalho {
+        private final String id = UUID.randomUUID().toString();
+        private final Long idUsuario;
+        private final LocalDateTime criadoEm = LocalDateTime.now();
+        private volatile boolean iniciado;
+        private CompletableFuture<VendaDTO> resultado;
+
+        private Trabalho(Long idUsuario) {
+            this.idUsuario = idUsuario;
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        trabalhos = new CacheLimitado<>(capacidadeTrabalhos, Duration.ofMinutes(ttlTrabalhosMinutos));
+        Gauge.builder("voz.trabalhos.em_andamento", emAndamento, AtomicInteger::get)
+                .description("Comandos de voz sendo processados no executor")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<VendaDTO> processar(byte[] audio, Long idUsuario) {
+        return CompletableFuture.supplyAsync(() -> executar(audio, idUsuario, null), executor);
+    }
+
+    @Override
+    public CompletableFuture<VendaDTO> processarStream(InputStream audio, int taxaAmostragem, Long idUsuario, Prazo prazoUpload) {
+        return CompletableFuture.supplyAsync(() -> executar(idUsuario, null, () -> {
+            String transcricao = speechToTextService.transcreverStream(audio, taxaAmostragem, prazoUpload);
+            if (transcricao == null || transcricao.isEmpty()) {
+                throw new BusinessException("Não foi possível transcrever o áudio.");
+            }
+            // A transcrição acompanhou a fala: o prazo do comando começa a contar depois dela
+            return montarProposta(transcricao, idUsuario, Prazo.em(Duration.ofMillis(prazoTotalMs)));
+        }), executor);
+    }
+
+    private VendaDTO montarProposta(String transcricao, Long idUsuario, Prazo prazo) throws InterruptedException {
+        // IA (Texto -> Itens brutos): identifica "pipoca" e "2", mas não sabe preço nem ID
+        Optional<VendaDTO> vendaDTOOptional = aiService.processVoiceCommand(transcricao, idUsuario,
+                prazo.etapa(Duration.ofMillis(prazoIaMs)));
+        if (vendaDTOOptional.isEmpty()) {
+            throw new BusinessException("A IA não conseguiu entender o comando.");
+        }
+
+        VendaDTO vendaDTO = vendaDTOOptional.get();
+        vendaDTO.setIdUsuario(idUsuario);
+        prazo.verificar("catálogo");
+
+        // O VendaService completa preços, IDs e corrige os nomes pelo catálogo
+        return vendaService.processarPropostaVoz(vendaDTO);
+    }
+
+    @Override
+    public TrabalhoVozDTO iniciarTrabalho(byte[] audio, Long idUsuario) {
+        Trabalho trabalho = new Trabalho(idUsuario);
+        trabalho.resultado = CompletableFuture.supplyAsync(() -> executar(audio, idUsuario, trabalho), executor);
+        trabalhos.put(trabalho.id, trabalho);
+        return toDTO(trabalho);
+    }
+
+    @Override
+    public TrabalhoVozDTO consultarTrabalho(String id, Long idUsuario) {
+        return toDTO(buscarTrabalho(id, idUsuario));
+    }
+
+    @Override
+    public CompletableFuture<TrabalhoVozDTO> aguardarTrabalho(String id, Long idUsuario, Duration espera) {
+        Trabalho trabalho = buscarTrabalho(id, idUsuario);
+        return trabalho.resultado
+                .handle((proposta, erro) -> trabalho)
+                .completeOnTimeout(trabalho, espera.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(this::toDTO);
+    }
+
+    private VendaDTO executar(byte[] audio, Long idUsuario, Trabalho trabalho) {
+        return executar(idUsuario, trabalho, () -> {
+            // O prazo conta a partir do início do processamento (tempo na fila de trabalhos não entra)
+            Prazo prazo = Prazo.em(Duration.ofMillis(prazoTotalMs));
+            String transcricao = speechToTextService.transcrever(audio, prazo.etapa(Duration.ofMillis(prazoSttMs)));
+            if (transcricao == null || transcricao.isEmpty()) {
+                throw new BusinessException("Não foi possível transcrever o áudio.");
+            }
+            return montarProposta(transcricao, idUsuario, prazo);
+        });
+    }
+
+    // Contabiliza o comando (gauge, métrica, log) e traduz as falhas para o CompletableFuture
+    private VendaDTO executar(Long idUsuario, Trabalho trabalho, Callable<VendaDTO> etapas) {
+        if (trabalho != null) {
+            trabalho.iniciado = true;
+        }
+        emAndamento.incrementAndGet();
+        Timer.Sample amostra = metricasVoz.iniciar();
+        Throwable falha = null;
+        try {
+            return etapas.call();
+        } catch (BusinessException | SobrecargaException | PrazoEsgotadoException e) {
+            falha = e;
+            throw e;
+        } catch (InterruptedException e) {
+            // Executor sendo encerrado (ou comando cancelado): não é falha a registrar no log
+            Thread.currentThread().interrupt();
+            falha = e;
+            throw new CompletionException(e);
+        } catch (Exception e) {
+            falha = e;
+            log.error("Falha no processamento de voz (usuário {})", idUsuario, e);
+            throw new CompletionException(e);
+        } finally {
+            metricasVoz.etapa(amostra, "processamento", MetricasVoz.SEM_BACKEND, falha);
+            emAndamento.decrementAndGet();
+        }
+    }
+
+    private Trabalho buscarTrabalho(String id, Long idUsuario) {
+        Trabalho trabalho = trabalhos.get(id);
+        // Trabalho de outro usuário é tratado como inexistente (não revela que o id existe)
+        if (trabalho == null || !trabalho.idUsuario.equals(idUsuario)) {
+            throw new NotFoundException("Trabalho de voz não encontrado: " + id);
+        }
+        return trabalho;
+    }
+
+    private TrabalhoVozDTO toDTO(Trabalho trabalho) {
+        TrabalhoVozDTO dto = new TrabalhoVozDTO();
+        dto.setId(trabalho.id);
+        dto.setCriadoEm(trabalho.criadoEm);
+
+        CompletableFuture<VendaDTO> resultado = trabalho.resultado;
+        if (!resultado.isDone()) {
+            dto.setStatus(trabalho.iniciado ? StatusTrabalhoVoz.PROCESSANDO : StatusTrabalhoVoz.PENDENTE);
+        } else if (!resultado.isCompletedExceptionally()) {
+            dto.setStatus(StatusTrabalhoVoz.CONCLUIDO);
+            dto.setProposta(resultado.join());
+        } else {
+            dto.setStatus(StatusTrabalhoVoz.ERRO);
+            dto.setErro(mensagemErro(resultado));
+        }
+        return dto;
+    }
+
+    private static String mensagemErro(CompletableFuture<?> resultado) {
+        try {
+            resultado.join();
+            return null;
+        } catch (CompletionException e) {
+            // Só erros de negócio têm mensagem própria para o usuário; o resto fica genérico
+            if (e.getCause() instanceof BusinessException || e.getCause() instanceof SobrecargaException
+                    || e.getCause() instanceof PrazoEsgotadoException) {
+                return e.getCause().getMessage();
+            }
+            return "Erro interno ao processar o áudio. Tente novamente.";
+        } catch (RuntimeException e) {
+            return "Processamento do áudio cancelado.";
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.exception.SobrecargaException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Controle de admissão na frente do Ollama: no máximo N gerações simultâneas (uma instância local não
+ * ganha nada com mais que isso, só fica mais lenta para todos). Quem chega com tudo ocupado espera numa
+ * fila justa por usuário (a vez passa de usuário em usuário) até o tempo máximo; fila cheia, espera
+ * esgotada ou espera estimada maior que o tempo disponível viram SobrecargaException (429 com Retry-After).
+ * Se o prazo da requisição acabar antes da vez chegar, sai PrazoEsgotadoException (quem chamou usa o
+ * caminho alternativo).
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissaoOllama {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ollama.admissao.max-concorrentes:2}")
+    private int maxConcorrentes;
+
+    @Value("${ollama.admissao.fila-max:50}")
+    private int filaMax;
+
+    @Value("${ollama.admissao.espera-max-ms:3000}")
+    private long esperaMaxMs;
+
+    private static final class Pedido {
+        private final CompletableFuture<Void> liberado = new CompletableFuture<>();
+    }
+
+    private final Object trava = new Object();
+    private final Map<Long, ArrayDeque<Pedido>> filas = new HashMap<>();
+    private final ArrayDeque<Long> vez = new ArrayDeque<>(); // Usuários com pedidos esperando, na ordem da vez
+    private int naFila;
+    private int emExecucao;
+
+    // Média móvel do tempo de uma geração (estimativa do Retry-After)
+    private volatile double mediaGeracaoMs = 2000;
+
+    private Timer espera;
+
+    @PostConstruct
+    void registrarMetricas() {
+        Gauge.builder("ollama.admissao.fila", this, admissao -> admissao.contar(false))
+                .description("Gerações esperando vaga no LLM")
+                .register(meterRegistry);
+        Gauge.builder("ollama.admissao.em_execucao", this, admissao -> admissao.contar(true))
+                .description("Gerações em andamento no LLM")
+                .register(meterRegistry);
+        espera = Timer.builder("ollama.admissao.espera")
+                .description("Tempo de espera na fila até a geração começar")
+                .register(meterRegistry);
+    }
+
+    public <T> T executar(Long idUsuario, Prazo prazo, Callable<T> geracao) throws Exception {
+        long inicio = System.nanoTime();
+        Pedido pedido = null;
+        synchronized (trava) {
+            if (emExecucao < maxConcorrentes && naFila == 0) {
+                emExecucao++;
+            } else if (naFila >= filaMax) {
+                throw rejeitar("fila_cheia");
+            } else if (esperaEstimadaMs() > Math.min(esperaMaxMs, prazo.restanteMs())) {
+                // Nem entra na fila: esperaria até o prazo ou a espera máxima e sairia sem gerar nada
+                throw rejeitar("espera_estimada");
+            } else {
+                pedido = new Pedido();
+                enfileirar(idUsuario, pedido);
+            }
+        }
+        if (pedido != null) {
+            aguardarVez(idUsuario, pedido, prazo);
+        }
+        espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        long inicioGeracao = System.nanoTime();
+        try {
+            return geracao.call();
+        } finally {
+            double duracaoMs = (System.nanoTime() - inicioGeracao) / 1_000_000.0;
+            mediaGeracaoMs = 0.8 * mediaGeracaoMs + 0.2 * duracaoMs;
+            liberar();
+        }
+    }
+
+    private void aguardarVez(Long idUsuario, Pedido pedido, Prazo prazo) throws InterruptedException {
+        boolean limitadoPeloPrazo = prazo.restanteMs() < esperaMaxMs;
+        try {
+            pedido.liberado.get(Math.min(esperaMaxMs, prazo.restanteMs()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            synchronized (trava) {
+                if (removerDaFila(idUsuario, pedido)) {
+                    if (limitadoPeloPrazo) {
+                        meterRegistry.counter("ollama.admissao.rejeicoes", "motivo", "prazo").increment();
+                        throw new PrazoEsgotadoException("Tempo esgotado: fila do LLM.");
+                    }
+                    throw rejeitar("espera_esgotada");
+                }
+            }
+            // A vaga chegou junto com o fim do prazo: segue com ela
+        } catch (InterruptedException e) {
+            boolean removido;
+            synchronized (trava) {
+                removido = removerDaFila(idUsuario, pedido);
+            }
+            if (!removido) {
+                liberar(); // A vaga já era nossa: passa adiante
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e); // liberado só é completado com sucesso
+        }
+    }
+
+    // Passa a vaga direto para o próximo da vez (round-robin entre usuários) ou devolve ao total
+    private void liberar() {
+        Pedido proximo;
+        synchronized (trava) {
+            proximo = proximoDaVez();
+            if (proximo == null) {
+                emExecucao--;
+            }
+        }
+        if (proximo != null) {
+            proximo.liberado.complete(null);
+        }
+    }
+
+    private void enfileirar(Long idUsuario, Pedido pedido) {
+        ArrayDeque<Pedido> fila = filas.computeIfAbsent(idUsuario, id -> new ArrayDeque<>());
+        if (fila.isEmpty()) {
+            vez.addLast(idUsuario);
+        }
+        fila.addLast(pedido);
+        naFila++;
+    }
+
+    private Pedido proximoDaVez() {
+        Long idUsuario = vez.pollFirst();
+        if (idUsuario == null) {
+            return null;
+        }
+        ArrayDeque<Pedido> fila = filas.get(idUsuario);
+        Pedido pedido = fila.pollFirst();
+        if (fila.isEmpty()) {
+            filas.remove(idUsuario);
+        } else {
+            vez.addLast(idUsuario); // Ainda tem pedidos: volta para o fim da vez
+        }
+        naFila--;
+        return pedido;
+    }
+
+    private boolean removerDaFila(Long idUsuario, Pedido pedido) {
+        ArrayDeque<Pedido> fila = filas.get(idUsuario);
+        if (fila == null || !fila.remove(pedido)) {
+            return false;
+        }
+        naFila--;
+        if (fila.isEmpty()) {
+            filas.remove(idUsuario);
+            vez.remove(idUsuario);
+        }
+        return true;
+    }
+
+    // Chamado com a trava: quanto quem entrar agora na fila deve esperar até a vez (rodadas de gerações à frente)
+    private double esperaEstimadaMs() {
+        return Math.ceil((naFila + 1) / (double) maxConcorrentes) * mediaGeracaoMs;
+    }
+
+    // Chamado com a trava: estima quando a fila atual deve ter andado
+    private SobrecargaException rejeitar(String motivo) {
+        meterRegistry.counter("ollama.admissao.rejeicoes", "motivo", motivo).increment();
+        long segundos = (long) Math.ceil((naFila + 1) * mediaGeracaoMs / maxConcorrentes / 1000.0);
+        return new SobrecargaException("Muitos comandos de voz ao mesmo tempo. Tente novamente em instantes.",
+                Math.max(1, segundos));
+    }
+
+    private double contar(boolean executando) {
+        synchronized (trava) {
+            return executando ? emExecucao : naFila;
+        }
+    }
+}
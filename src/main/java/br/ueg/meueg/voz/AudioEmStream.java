@@ -0,0 +1,10 @@
+package br.ueg.meueg.voz;
+
+import java.io.InputStream;
+
+/**
+ * Áudio do reconhecimento em streaming: PCM 16 bits mono (já sem o cabeçalho WAV, quando havia um),
+ * lido do upload conforme chega. A taxa vem do cabeçalho ou, para PCM cru, do parâmetro da requisição.
+ */
+public record AudioEmStream(InputStream pcm, int taxaAmostragem) {
+}
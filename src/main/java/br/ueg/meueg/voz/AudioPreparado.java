@@ -0,0 +1,28 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Áudio pronto para o STT: a região [inicio, inicio + tamanho) de "dados" (o próprio buffer do upload,
+ * tratado no lugar). Taxa e canais vêm do conteúdo (PCM_16) ou do cabeçalho (FLAC, OGG_OPUS);
+ * com DESCONHECIDA, taxa 0.
+ * O buffer é só leitura depois de preparado (pode ir para dois backends ao mesmo tempo).
+ */
+public record AudioPreparado(byte[] dados, int inicio, int tamanho, CodificacaoAudio codificacao, int taxaAmostragem,
+                             int canais) {
+
+    public static AudioPreparado original(byte[] dados) {
+        return new AudioPreparado(dados, 0, dados.length, CodificacaoAudio.DESCONHECIDA, 0, 1);
+    }
+
+    public InputStream abrir() {
+        return new ByteArrayInputStream(dados, inicio, tamanho);
+    }
+
+    public long duracaoMs() {
+        return codificacao == CodificacaoAudio.PCM_16 && taxaAmostragem > 0 ? tamanho / 2 * 1000L / taxaAmostragem : 0;
+    }
+}
@@ -0,0 +1,98 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ponte entre a thread que recebe o upload em streaming e o reconhecedor no executor de voz: os blocos
+ * passam por uma fila limitada (o upload espera se o reconhecedor atrasar). Os dois lados param no fim
+ * do prazo. Fila do java.util.concurrent em vez de PipedInputStream: os monitores do Piped prendem a
+ * thread portadora enquanto a virtual thread do reconhecedor espera.
+ */
+public class CanalAudio extends InputStream {
+
+    private static final byte[] FIM = new byte[0];
+
+    private final BlockingQueue<byte[]> blocos;
+    private final Prazo prazo;
+    private volatile boolean fechado;
+    private volatile boolean abortado;
+    private byte[] atual;
+    private int posicao;
+
+    public CanalAudio(int capacidadeBlocos, Prazo prazo) {
+        this.blocos = new ArrayBlockingQueue<>(capacidadeBlocos);
+        this.prazo = prazo;
+    }
+
+    // Lado do upload: false se o reconhecedor já parou de ler ou o prazo acabou (não adianta continuar)
+    public boolean enviar(byte[] dados, int tamanho) throws InterruptedException {
+        return !fechado && blocos.offer(Arrays.copyOf(dados, tamanho), prazo.restanteMs(), TimeUnit.MILLISECONDS) && !fechado;
+    }
+
+    // Fim do upload: o reconhecedor lê o que falta e recebe -1
+    public void terminar() throws InterruptedException {
+        blocos.offer(FIM, prazo.restanteMs(), TimeUnit.MILLISECONDS);
+    }
+
+    // Upload interrompido (cliente caiu): o reconhecedor recebe erro em vez de transcrever áudio pela metade
+    public void abortar() {
+        abortado = true;
+        blocos.clear();
+        blocos.offer(FIM);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] um = new byte[1];
+        return read(um, 0, 1) == -1 ? -1 : um[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] destino, int inicio, int tamanho) throws IOException {
+        if (tamanho == 0) {
+            return 0;
+        }
+        if (atual == null || (atual != FIM && posicao == atual.length)) {
+            atual = proximoBloco();
+            posicao = 0;
+        }
+        if (atual == FIM) {
+            if (abortado) {
+                throw new IOException("Upload do áudio interrompido.");
+            }
+            return -1;
+        }
+        int lidos = Math.min(tamanho, atual.length - posicao);
+        System.arraycopy(atual, posicao, destino, inicio, lidos);
+        posicao += lidos;
+        return lidos;
+    }
+
+    private byte[] proximoBloco() throws IOException {
+        try {
+            byte[] bloco = blocos.poll(prazo.restanteMs(), TimeUnit.MILLISECONDS);
+            if (bloco == null) {
+                throw new PrazoEsgotadoException("Tempo esgotado: envio do áudio.");
+            }
+            return bloco;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Leitura do áudio interrompida.");
+        }
+    }
+
+    // Lado do reconhecedor (ou de quem espera o resultado): o upload para de enviar no próximo bloco
+    @Override
+    public void close() {
+        fechado = true;
+        blocos.clear();
+    }
+}
@@ -0,0 +1,227 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cliente do Ollama (/api/generate) para respostas JSON.
+ *
+ * Um único HttpClient (conexões keep-alive reaproveitadas), keep_alive para o modelo continuar
+ * carregado entre comandos e formato restrito por JSON Schema. A resposta vem em streaming e os
+ * tokens são acompanhados pela profundidade de chaves: assim que um objeto completo e válido
+ * foi emitido, o stream é fechado sem esperar o modelo terminar de gerar. No fim do prazo a
+ * conexão é fechada (o Ollama interrompe a geração) e sai PrazoEsgotadoException.
+ */
+@Component
+public class ClienteOllama {
+
+    private final ObjectMapper objectMapper;
+    private final MetricasVoz metricasVoz;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService vigia = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ollama-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${ollama.url:http://localhost:11434}")
+    private String url;
+
+    @Value("${ollama.modelo:mistral}")
+    private String modelo;
+
+    @Value("${ollama.keep-alive:30m}")
+    private String keepAlive;
+
+    public ClienteOllama(ObjectMapper objectMapper, MetricasVoz metricasVoz,
+                         @Value("${ollama.timeout-conexao-ms:2000}") long timeoutConexaoMs) {
+        this.objectMapper = objectMapper;
+        this.metricasVoz = metricasVoz;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1) // O Ollama fala HTTP/1.1; o pool mantém a conexão aberta
+                .connectTimeout(Duration.ofMillis(timeoutConexaoMs))
+                .build();
+    }
+
+    // Devolve o primeiro objeto JSON completo gerado, ou vazio se o modelo não produziu um objeto válido
+    public Optional<JsonNode> gerarJson(String prompt, JsonNode esquema, Prazo prazo) throws IOException, InterruptedException {
+        prazo.verificar("geração (ollama)");
+        ObjectNode corpo = objectMapper.createObjectNode();
+        corpo.put("model", modelo);
+        corpo.put("prompt", prompt);
+        corpo.set("format", esquema);
+        corpo.put("stream", true);
+        corpo.put("keep_alive", keepAlive);
+        corpo.putObject("options").put("temperature", 0);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/api/generate"))
+                .timeout(prazo.restante()) // Até o início da resposta
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(corpo)))
+                .build();
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            throw new PrazoEsgotadoException("Tempo esgotado: geração (ollama).");
+        }
+        InputStream stream = response.body();
+        // O timeout do request não cobre a leitura: fechar o stream no prazo destrava o readLine
+        AtomicBoolean estourou = new AtomicBoolean();
+        ScheduledFuture<?> vigilancia = vigia.schedule(() -> {
+            estourou.set(true);
+            fecharSilenciosamente(stream);
+        }, prazo.restanteMs(), TimeUnit.MILLISECONDS);
+        try (BufferedReader leitor = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Ollama respondeu " + response.statusCode());
+            }
+            return lerPrimeiroObjeto(leitor);
+        } catch (IOException e) {
+            if (estourou.get()) {
+                throw new PrazoEsgotadoException("Tempo esgotado: geração (ollama).");
+            }
+            // O stream do HttpClient embrulha a interrupção da leitura num IOException: devolve como interrupção
+            if (e.getCause() instanceof InterruptedException interrompida) {
+                Thread.currentThread().interrupt();
+                throw interrompida;
+            }
+            throw e;
+        } finally {
+            vigilancia.cancel(false);
+        }
+    }
+
+    // Cada linha do stream é {"response": "<pedaço>", "done": false}; o Ollama manda um token por linha
+    private Optional<JsonNode> lerPrimeiroObjeto(BufferedReader leitor) throws IOException {
+        AcompanhadorJson acompanhador = new AcompanhadorJson();
+        int tokens = 0;
+        try {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                if (linha.isBlank()) {
+                    continue;
+                }
+                tokens++;
+                JsonNode pedaco = objectMapper.readTree(linha);
+                if (pedaco.hasNonNull("error")) {
+                    throw new IOException("Ollama: " + pedaco.get("error").asText());
+                }
+                String objeto = acompanhador.acrescentar(pedaco.path("response").asText(""));
+                if (objeto != null) {
+                    Optional<JsonNode> resposta;
+                    try {
+                        resposta = Optional.of(objectMapper.readTree(objeto));
+                    } catch (IOException e) {
+                        return Optional.empty();
+                    }
+                    lerFimSeJaChegou(leitor);
+                    return resposta; // Sai do try: o stream é fechado e a geração, se ainda continua, interrompida
+                }
+                if (pedaco.path("done").asBoolean(false)) {
+                    // Fim da geração: lê até o fim do corpo para a conexão voltar ao pool (fechada antes, é descartada)
+                    leitor.transferTo(Writer.nullWriter());
+                    break;
+                }
+            }
+            return Optional.empty();
+        } finally {
+            metricasVoz.tokens("resposta", tokens);
+        }
+    }
+
+    // O "done" costuma chegar junto com o último token do objeto: se já está no buffer, lê até o fim sem
+    // bloquear e a conexão volta ao pool. Com o modelo ainda gerando, nada é esperado (o stream é fechado).
+    private void lerFimSeJaChegou(BufferedReader leitor) throws IOException {
+        while (leitor.ready()) {
+            String linha = leitor.readLine();
+            if (linha == null) {
+                return;
+            }
+            if (!linha.isBlank() && objectMapper.readTree(linha).path("done").asBoolean(false)) {
+                leitor.transferTo(Writer.nullWriter());
+                return;
+            }
+        }
+    }
+
+    private void fecharSilenciosamente(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Já fechado
+        }
+    }
+
+    @PreDestroy
+    void encerrar() {
+        vigia.shutdownNow();
+    }
+
+    // Acompanha o texto gerado caractere a caractere (respeitando strings e escapes)
+    // e devolve o objeto quando a chave de abertura do nível zero é fechada
+    static final class AcompanhadorJson {
+        private final StringBuilder texto = new StringBuilder();
+        private int profundidade;
+        private boolean emString;
+        private boolean escape;
+        private boolean iniciado;
+
+        String acrescentar(String pedaco) {
+            for (int i = 0; i < pedaco.length(); i++) {
+                char c = pedaco.charAt(i);
+                if (!iniciado) {
+                    if (c != '{') {
+                        continue; // Ignora o que vier antes do objeto
+                    }
+                    iniciado = true;
+                }
+                texto.append(c);
+                if (emString) {
+                    if (escape) {
+                        escape = false;
+                    } else if (c == '\\') {
+                        escape = true;
+                    } else if (c == '"') {
+                        emString = false;
+                    }
+                } else if (c == '"') {
+                    emString = true;
+                } else if (c == '{' || c == '[') {
+                    profundidade++;
+                } else if (c == '}' || c == ']') {
+                    profundidade--;
+                    if (profundidade == 0) {
+                        return texto.toString();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package br.ueg.meueg.voz;
+
+/**
+ * Disjuntor (circuit breaker) de uma dependência lenta ou fora do ar.
+ *
+ * FECHADO: chamadas passam. Depois de N falhas seguidas (erro ou prazo estourado) ABRE e as chamadas
+ * vão direto para o caminho alternativo, sem esperar. Passado o tempo de abertura fica MEIO_ABERTO:
+ * uma única chamada de teste passa; sucesso fecha, falha abre de novo.
+ */
+public class DisjuntorCircuito {
+
+    public enum Estado {
+        FECHADO,
+        ABERTO,
+        MEIO_ABERTO,
+    }
+
+    private final int falhasParaAbrir;
+    private final long abertoNanos;
+
+    private Estado estado = Estado.FECHADO;
+    private int falhasSeguidas;
+    private long abertoAte;
+    private boolean testeEmAndamento;
+    private long testeDesde;
+
+    public DisjuntorCircuito(int falhasParaAbrir, long abertoNanos) {
+        this.falhasParaAbrir = falhasParaAbrir;
+        this.abertoNanos = abertoNanos;
+    }
+
+    public synchronized boolean permite() {
+        long agora = System.nanoTime();
+        if (estado == Estado.FECHADO) {
+            return true;
+        }
+        if (estado == Estado.ABERTO) {
+            if (agora - abertoAte < 0) {
+                return false;
+            }
+            estado = Estado.MEIO_ABERTO;
+            testeEmAndamento = false;
+        }
+        // Teste que nunca voltou (ex.: recusado antes de chegar na dependência) não trava o disjuntor
+        if (testeEmAndamento && agora - testeDesde < abertoNanos) {
+            return false;
+        }
+        testeEmAndamento = true;
+        testeDesde = agora;
+        return true;
+    }
+
+    public synchronized void registrarSucesso() {
+        estado = Estado.FECHADO;
+        falhasSeguidas = 0;
+        testeEmAndamento = false;
+    }
+
+    public synchronized void registrarFalha() {
+        falhasSeguidas++;
+        if (estado == Estado.MEIO_ABERTO || falhasSeguidas >= falhasParaAbrir) {
+            estado = Estado.ABERTO;
+            abertoAte = System.nanoTime() + abertoNanos;
+            testeEmAndamento = false;
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+}
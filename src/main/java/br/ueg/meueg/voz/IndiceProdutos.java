@@ -0,0 +1,214 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.entity.ProdutoServico;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Índice imutável dos produtos de um usuário para casar nomes falados com o cadastro.
+ *
+ * Busca em três camadas: nome normalizado igual (sem acento, singular), mesma chave fonética
+ * e, por fim, semelhança de trigramas (coeficiente de Dice) somada à semelhança fonética.
+ * Um acerto aproximado só vale com pontuação mínima e folga sobre o segundo colocado.
+ */
+public final class IndiceProdutos {
+
+    public record Resultado(ProdutoIndexado produto, double pontuacao) {
+    }
+
+    private static final double PONTUACAO_MINIMA = 0.45;
+    private static final double FOLGA_MINIMA = 0.05;
+
+    private final List<ProdutoIndexado> produtos;
+    private final List<String> nomes;
+    private final Map<String, List<ProdutoIndexado>> porNome = new HashMap<>();
+    private final Map<String, List<ProdutoIndexado>> porFonetica = new HashMap<>();
+    private final Map<String, int[]> porTrigrama; // trigrama -> posições em "produtos"
+    private final int[] totalTrigramas;
+    private final List<Set<String>> trigramasFoneticos; // Pré-calculados: a busca não refaz a chave de cada candidato
+
+    public IndiceProdutos(List<ProdutoServico> catalogo) {
+        this.produtos = new ArrayList<>(catalogo.size());
+        Map<String, List<Integer>> trigramas = new HashMap<>();
+        this.totalTrigramas = new int[catalogo.size()];
+        this.trigramasFoneticos = new ArrayList<>(catalogo.size());
+
+        for (ProdutoServico produtoServico : catalogo) {
+            String normalizado = chaveNome(produtoServico.getNome());
+            ProdutoIndexado produto = new ProdutoIndexado(produtoServico.getId(), produtoServico.getNome(),
+                    produtoServico.getPreco(), normalizado, Textos.fonetica(normalizado));
+            int posicao = produtos.size();
+            produtos.add(produto);
+            porNome.computeIfAbsent(normalizado, k -> new ArrayList<>(1)).add(produto);
+            porFonetica.computeIfAbsent(produto.fonetica(), k -> new ArrayList<>(1)).add(produto);
+            trigramasFoneticos.add(trigramas(produto.fonetica()));
+
+            Set<String> doProduto = trigramas(normalizado);
+            totalTrigramas[posicao] = doProduto.size();
+            for (String trigrama : doProduto) {
+                trigramas.computeIfAbsent(trigrama, k -> new ArrayList<>()).add(posicao);
+            }
+        }
+
+        this.porTrigrama = new HashMap<>(trigramas.size() * 2);
+        trigramas.forEach((trigrama, posicoes) -> porTrigrama.put(trigrama, posicoes.stream().mapToInt(Integer::intValue).toArray()));
+        this.nomes = produtos.stream().map(ProdutoIndexado::nome).toList();
+    }
+
+    public List<ProdutoIndexado> getProdutos() {
+        return produtos;
+    }
+
+    public List<String> getNomes() {
+        return nomes;
+    }
+
+    /**
+     * Os k produtos mais prováveis de terem sido citados numa frase inteira (contexto do prompt do LLM).
+     * Pontua pela fração dos trigramas do nome do produto que aparecem na frase (lexical e fonético).
+     */
+    public List<ProdutoIndexado> candidatos(String frase, int k) {
+        if (produtos.size() <= k) {
+            return produtos;
+        }
+        String normalizado = chaveNome(frase);
+        Map<Integer, Integer> comuns = new HashMap<>();
+        for (String trigrama : trigramas(normalizado)) {
+            int[] posicoes = porTrigrama.get(trigrama);
+            if (posicoes != null) {
+                for (int posicao : posicoes) {
+                    comuns.merge(posicao, 1, Integer::sum);
+                }
+            }
+        }
+
+        Set<String> trigramasFonetica = trigramas(Textos.fonetica(normalizado));
+        List<Map.Entry<Integer, Double>> pontuados = new ArrayList<>(comuns.size());
+        for (Map.Entry<Integer, Integer> entry : comuns.entrySet()) {
+            int posicao = entry.getKey();
+            double lexical = (double) entry.getValue() / totalTrigramas[posicao];
+            double fonetico = contidos(trigramasFoneticos.get(posicao), trigramasFonetica);
+            pontuados.add(Map.entry(posicao, 0.7 * lexical + 0.3 * fonetico));
+        }
+        pontuados.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+        return pontuados.stream().limit(k).map(entry -> produtos.get(entry.getKey())).toList();
+    }
+
+    public Optional<Resultado> buscar(String nomeFalado) {
+        if (nomeFalado == null || nomeFalado.isBlank()) {
+            return Optional.empty();
+        }
+        String normalizado = chaveNome(nomeFalado);
+
+        List<ProdutoIndexado> iguais = porNome.get(normalizado);
+        if (iguais != null && iguais.size() == 1) {
+            return Optional.of(new Resultado(iguais.get(0), 1.0));
+        }
+        String fonetica = Textos.fonetica(normalizado);
+        List<ProdutoIndexado> mesmoSom = porFonetica.get(fonetica);
+        if (mesmoSom != null && mesmoSom.size() == 1) {
+            return Optional.of(new Resultado(mesmoSom.get(0), 0.9));
+        }
+
+        // Conta trigramas em comum só dos produtos que compartilham pelo menos um (listas invertidas)
+        Set<String> daBusca = trigramas(normalizado);
+        int[] comuns = new int[produtos.size()];
+        int[] tocados = new int[produtos.size()];
+        int totalTocados = 0;
+        for (String trigrama : daBusca) {
+            int[] posicoes = porTrigrama.get(trigrama);
+            if (posicoes != null) {
+                for (int posicao : posicoes) {
+                    if (comuns[posicao]++ == 0) {
+                        tocados[totalTocados++] = posicao;
+                    }
+                }
+            }
+        }
+
+        double[] dices = new double[totalTocados];
+        double maiorDice = 0;
+        for (int i = 0; i < totalTocados; i++) {
+            dices[i] = 2.0 * comuns[tocados[i]] / (daBusca.size() + totalTrigramas[tocados[i]]);
+            maiorDice = Math.max(maiorDice, dices[i]);
+        }
+
+        // A parte fonética vale no máximo 0.3 e o melhor fica com pelo menos 0.7 * maiorDice: quem não passa
+        // de (melhor - folga) nem com a fonética inteira não muda o resultado (ex.: só o " de" em comum)
+        double diceMinimo = maiorDice - (0.3 + FOLGA_MINIMA) / 0.7;
+        ProdutoIndexado melhor = null;
+        double melhorPontuacao = 0;
+        double segundaPontuacao = 0;
+        Set<String> trigramasFonetica = trigramas(fonetica);
+        for (int i = 0; i < totalTocados; i++) {
+            if (dices[i] < diceMinimo) {
+                continue;
+            }
+            double pontuacao = 0.7 * dices[i] + 0.3 * dice(trigramasFonetica, trigramasFoneticos.get(tocados[i]));
+            if (pontuacao > melhorPontuacao) {
+                segundaPontuacao = melhorPontuacao;
+                melhorPontuacao = pontuacao;
+                melhor = produtos.get(tocados[i]);
+            } else if (pontuacao > segundaPontuacao) {
+                segundaPontuacao = pontuacao;
+            }
+        }
+
+        if (melhor == null || melhorPontuacao < PONTUACAO_MINIMA || melhorPontuacao - segundaPontuacao < FOLGA_MINIMA) {
+            return Optional.empty();
+        }
+        return Optional.of(new Resultado(melhor, melhorPontuacao));
+    }
+
+    // Sem acento, minúsculo, cada palavra no singular
+    static String chaveNome(String nome) {
+        return Arrays.stream(Textos.normalizar(nome).split(" "))
+                .map(Textos::singular)
+                .collect(Collectors.joining(" "));
+    }
+
+    // Trigramas com bordas ("  pi", " pip", ...) para palavras curtas também pontuarem
+    private static Set<String> trigramas(String texto) {
+        String comBordas = "  " + texto + " ";
+        Set<String> trigramas = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= comBordas.length(); i++) {
+            trigramas.add(comBordas.substring(i, i + 3));
+        }
+        return trigramas;
+    }
+
+    // Fração de "parte" que está contida em "todo"
+    private static double contidos(Set<String> parte, Set<String> todo) {
+        if (parte.isEmpty()) {
+            return 0;
+        }
+        int comuns = 0;
+        for (String trigrama : parte) {
+            if (todo.contains(trigrama)) {
+                comuns++;
+            }
+        }
+        return (double) comuns / parte.size();
+    }
+
+    private static double dice(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int comuns = 0;
+        for (String trigrama : a) {
+            if (b.contains(trigrama)) {
+                comuns++;
+            }
+        }
+        return 2.0 * comuns / (a.size() + b.size());
+    }
+}
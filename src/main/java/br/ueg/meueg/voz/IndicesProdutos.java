@@ -0,0 +1,47 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.cache.CacheLimitado;
+import br.ueg.meueg.cache.CatalogoVersoes;
+import br.ueg.meueg.repository.ProdutoServicoRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Índices de produto por usuário, montados sob demanda. Limitado em número de usuários (LRU + TTL):
+ * com milhares de lojas só as ativas ficam em memória. A versão do catálogo invalida o índice.
+ */
+@Component
+public class IndicesProdutos {
+
+    private record IndiceVersionado(long versao, IndiceProdutos indice) {
+    }
+
+    private final ProdutoServicoRepository produtoServicoRepository;
+    private final CatalogoVersoes catalogoVersoes;
+    private final CacheLimitado<Long, IndiceVersionado> indices;
+
+    public IndicesProdutos(ProdutoServicoRepository produtoServicoRepository, CatalogoVersoes catalogoVersoes, MeterRegistry meterRegistry,
+                           @Value("${voz.indice.capacidade:1000}") int capacidade,
+                           @Value("${voz.indice.ttl-minutos:30}") long ttlMinutos) {
+        this.produtoServicoRepository = produtoServicoRepository;
+        this.catalogoVersoes = catalogoVersoes;
+        this.indices = new CacheLimitado<>(capacidade, Duration.ofMinutes(ttlMinutos));
+        FunctionCounter.builder("voz.indice.consultas", indices, CacheLimitado::getAcertos).tag("resultado", "acerto").register(meterRegistry);
+        FunctionCounter.builder("voz.indice.consultas", indices, CacheLimitado::getFaltas).tag("resultado", "falta").register(meterRegistry);
+    }
+
+    public IndiceProdutos doUsuario(Long idUsuario) {
+        long versao = catalogoVersoes.versao(idUsuario); // Lida antes da consulta: uma alteração no meio tempo invalida este índice
+        IndiceVersionado atual = indices.get(idUsuario);
+        if (atual != null && atual.versao() == versao) {
+            return atual.indice();
+        }
+        IndiceProdutos indice = new IndiceProdutos(produtoServicoRepository.findByUsuario_Id(idUsuario));
+        indices.put(idUsuario, new IndiceVersionado(versao, indice));
+        return indice;
+    }
+}
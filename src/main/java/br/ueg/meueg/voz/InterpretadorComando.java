@@ -0,0 +1,198 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.dto.VendaItemDTO;
+import br.ueg.meueg.enums.FormaPagamento;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Interpretador determinístico dos comandos de venda por voz (caminho rápido antes do LLM).
+ *
+ * Gramática: [quantidade] produto { [e|mais] [quantidade] produto } [forma de pagamento].
+ * Quantidade por extenso ou em dígitos ("duas", "vinte e dois", "meia dúzia", "uma dúzia", "3"),
+ * produto casado com o catálogo do usuário (sem acento, singular). Só devolve resultado quando
+ * todas as palavras foram entendidas; qualquer sobra ou ambiguidade devolve vazio e o LLM decide.
+ * O modo tolerante (LLM fora do ar ou sem tempo) pula o que não entendeu e fica com o que reconheceu.
+ */
+@Component
+public class InterpretadorComando {
+
+    private static final Map<String, Integer> NUMEROS = new HashMap<>();
+    private static final Set<String> DEZENAS = Set.of("vinte", "trinta", "quarenta", "cinquenta", "sessenta", "setenta", "oitenta", "noventa");
+    private static final int DUZIA = 12;
+
+    static {
+        String[] unidades = {"zero", "um", "dois", "tres", "quatro", "cinco", "seis", "sete", "oito", "nove", "dez",
+                "onze", "doze", "treze", "catorze", "quinze", "dezesseis", "dezessete", "dezoito", "dezenove"};
+        for (int i = 1; i < unidades.length; i++) {
+            NUMEROS.put(unidades[i], i);
+        }
+        NUMEROS.put("uma", 1);
+        NUMEROS.put("duas", 2);
+        NUMEROS.put("quatorze", 14);
+        String[] dezenas = {"vinte", "trinta", "quarenta", "cinquenta", "sessenta", "setenta", "oitenta", "noventa"};
+        for (int i = 0; i < dezenas.length; i++) {
+            NUMEROS.put(dezenas[i], (i + 2) * 10);
+        }
+        NUMEROS.put("cem", 100);
+    }
+
+    // Palavras de ligação/pedido que não mudam o sentido do comando
+    private static final Set<String> IGNORADAS = Set.of("e", "mais", "quero", "queria", "me", "ve", "manda", "da", "de", "do",
+            "vende", "vendi", "vender", "venda", "o", "a", "os", "as", "por", "favor", "com", "pagamento", "pago", "pagou",
+            "pagar", "foi", "vai", "ser", "forma");
+
+    // Ordem importa: "cartao de credito" antes de "cartao" sozinho (que fica ambíguo e vai para o LLM)
+    private static final Map<Pattern, FormaPagamento> PAGAMENTOS = new LinkedHashMap<>();
+
+    static {
+        PAGAMENTOS.put(Pattern.compile("\\b(?:no |na |em |com |pelo )?(?:cartao (?:de )?)?credito\\b"), FormaPagamento.CARTAO_CREDITO);
+        PAGAMENTOS.put(Pattern.compile("\\b(?:no |na |em |com |pelo )?(?:cartao (?:de )?)?debito\\b"), FormaPagamento.CARTAO_DEBITO);
+        PAGAMENTOS.put(Pattern.compile("\\b(?:no |via |com |pelo |em )?pix\\b"), FormaPagamento.PIX);
+        PAGAMENTOS.put(Pattern.compile("\\b(?:no |em |com )?(?:dinheiro|especie)\\b|\\ba vista\\b"), FormaPagamento.DINHEIRO);
+    }
+
+    public Optional<VendaDTO> interpretar(String transcricao, List<String> nomesCatalogo) {
+        return interpretar(transcricao, nomesCatalogo, false);
+    }
+
+    // Caminho alternativo quando o LLM não pode ser usado: melhor um pedido parcial (o usuário confere) que nenhum
+    public Optional<VendaDTO> interpretarTolerante(String transcricao, List<String> nomesCatalogo) {
+        return interpretar(transcricao, nomesCatalogo, true);
+    }
+
+    private Optional<VendaDTO> interpretar(String transcricao, List<String> nomesCatalogo, boolean tolerante) {
+        if (transcricao == null || nomesCatalogo.isEmpty()) {
+            return Optional.empty();
+        }
+        String texto = Textos.normalizar(transcricao);
+
+        // 1. Forma de pagamento (retirada do texto; duas formas diferentes = ambíguo)
+        FormaPagamento formaPagamento = null;
+        for (Map.Entry<Pattern, FormaPagamento> entry : PAGAMENTOS.entrySet()) {
+            Matcher matcher = entry.getKey().matcher(texto);
+            if (matcher.find()) {
+                if (formaPagamento == null) {
+                    formaPagamento = entry.getValue();
+                } else if (formaPagamento != entry.getValue() && !tolerante) {
+                    return Optional.empty();
+                }
+                texto = matcher.replaceAll(" ");
+            }
+        }
+
+        // 2. Catálogo indexado pelo nome normalizado no singular
+        Map<String, List<String>> catalogo = new HashMap<>();
+        int maiorNome = 1;
+        for (String nome : nomesCatalogo) {
+            String[] palavras = Textos.normalizar(nome).split(" ");
+            maiorNome = Math.max(maiorNome, palavras.length);
+            catalogo.computeIfAbsent(chave(palavras, 0, palavras.length), k -> new ArrayList<>()).add(nome);
+        }
+
+        // 3. Itens: [quantidade] produto, repetidos
+        String[] tokens = texto.isBlank() ? new String[0] : texto.trim().split(" ");
+        List<VendaItemDTO> itens = new ArrayList<>();
+        int i = 0;
+        while (i < tokens.length) {
+            if (IGNORADAS.contains(tokens[i]) && !NUMEROS.containsKey(tokens[i])) {
+                i++;
+                continue;
+            }
+
+            Integer quantidade = null;
+            int[] lida = lerQuantidade(tokens, i);
+            if (lida != null) {
+                quantidade = lida[0];
+                i = lida[1];
+                while (i < tokens.length && (tokens[i].equals("de") || tokens[i].equals("do") || tokens[i].equals("da"))) {
+                    i++; // "uma dúzia de pão"
+                }
+            }
+
+            // Casamento mais longo primeiro ("pipoca doce" antes de "pipoca")
+            String produto = null;
+            int fim = -1;
+            for (int tamanho = Math.min(maiorNome, tokens.length - i); tamanho >= 1 && produto == null; tamanho--) {
+                List<String> candidatos = catalogo.get(chave(tokens, i, i + tamanho));
+                if (candidatos != null) {
+                    if (candidatos.size() > 1 && !tolerante) {
+                        return Optional.empty(); // Dois produtos com o mesmo nome normalizado
+                    }
+                    produto = candidatos.get(0);
+                    fim = i + tamanho;
+                }
+            }
+            if (produto == null) {
+                if (!tolerante) {
+                    return Optional.empty(); // Palavra não entendida: sem confiança, vai para o LLM
+                }
+                if (lida == null) {
+                    i++; // Pula a palavra desconhecida
+                }
+                continue;
+            }
+
+            VendaItemDTO item = new VendaItemDTO();
+            item.setNomeProduto(produto);
+            item.setQuantidade(quantidade == null ? 1 : quantidade);
+            itens.add(item);
+            i = fim;
+        }
+
+        if (itens.isEmpty()) {
+            return Optional.empty();
+        }
+        VendaDTO venda = new VendaDTO();
+        venda.setItens(itens);
+        venda.setForma_pagamento(formaPagamento != null ? formaPagamento.name() : null);
+        return Optional.of(venda);
+    }
+
+    // Retorna {quantidade, próxima posição} ou null se não há quantidade em "inicio"
+    private int[] lerQuantidade(String[] tokens, int inicio) {
+        int i = inicio;
+        int valor;
+        if (tokens[i].equals("meia") && i + 1 < tokens.length && tokens[i + 1].startsWith("duzia")) {
+            return new int[]{DUZIA / 2, i + 2};
+        }
+        if (tokens[i].startsWith("duzia")) {
+            return new int[]{DUZIA, i + 1};
+        }
+        if (tokens[i].length() <= 4 && tokens[i].chars().allMatch(Character::isDigit)) {
+            valor = Integer.parseInt(tokens[i]);
+            i++;
+        } else if (NUMEROS.containsKey(tokens[i])) {
+            valor = NUMEROS.get(tokens[i]);
+            i++;
+            // "vinte e dois"
+            if (DEZENAS.contains(tokens[i - 1]) && i + 1 < tokens.length && tokens[i].equals("e")
+                    && NUMEROS.containsKey(tokens[i + 1]) && NUMEROS.get(tokens[i + 1]) < 10) {
+                valor += NUMEROS.get(tokens[i + 1]);
+                i += 2;
+            }
+        } else {
+            return null;
+        }
+        if (i < tokens.length && tokens[i].startsWith("duzia")) {
+            valor *= DUZIA;
+            i++;
+        }
+        return valor > 0 ? new int[]{valor, i} : null;
+    }
+
+    private String chave(String[] palavras, int inicio, int fim) {
+        return String.join(" ", Arrays.stream(palavras, inicio, fim).map(Textos::singular).toList());
+    }
+}
@@ -0,0 +1,83 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.exception.SobrecargaException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do pipeline de voz: um timer "voz.etapa" por etapa (leitura do áudio, STT, LLM, catálogo...)
+ * com as tags backend e resultado, e distribuições de tamanho do áudio e de tokens do LLM.
+ * Os histogramas (p50/p95/p99 no Prometheus) são ligados em application.properties.
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricasVoz {
+
+    public static final String SEM_BACKEND = "nenhum";
+
+    private final MeterRegistry meterRegistry;
+
+    public Timer.Sample iniciar() {
+        return Timer.start(meterRegistry);
+    }
+
+    // erro == null: sucesso
+    public void etapa(Timer.Sample amostra, String etapa, String backend, Throwable erro) {
+        amostra.stop(timer(etapa, backend, erro));
+    }
+
+    public void etapa(String etapa, String backend, Throwable erro, long duracaoNanos) {
+        timer(etapa, backend, erro).record(duracaoNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void tamanhoAudio(long bytes) {
+        DistributionSummary.builder("voz.audio.tamanho")
+                .description("Tamanho do áudio recebido")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    // tipo: "prompt" (estimado pelo texto) ou "resposta" (um pedaço do stream do Ollama = um token)
+    public void tokens(String tipo, int quantidade) {
+        DistributionSummary.builder("ollama.tokens")
+                .description("Tokens por chamada ao LLM")
+                .baseUnit("tokens")
+                .tag("tipo", tipo)
+                .register(meterRegistry)
+                .record(quantidade);
+    }
+
+    private Timer timer(String etapa, String backend, Throwable erro) {
+        return Timer.builder("voz.etapa")
+                .description("Duração de cada etapa do comando de venda por voz")
+                .tag("etapa", etapa)
+                .tag("backend", backend)
+                .tag("resultado", resultado(erro))
+                .register(meterRegistry);
+    }
+
+    // Poucos valores fixos: a tag não pode crescer com mensagens de erro
+    private static String resultado(Throwable erro) {
+        if (erro == null) {
+            return "sucesso";
+        }
+        if (erro instanceof PrazoEsgotadoException) {
+            return "prazo";
+        }
+        if (erro instanceof SobrecargaException) {
+            return "sobrecarga";
+        }
+        if (erro instanceof BusinessException) {
+            return "negocio";
+        }
+        return "erro";
+    }
+}
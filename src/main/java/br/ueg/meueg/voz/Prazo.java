@@ -0,0 +1,48 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instante limite de uma requisição de voz, repassado a cada etapa (STT, LLM, catálogo).
+ * Cada etapa recebe o menor entre o seu orçamento e o que ainda resta do total.
+ */
+public final class Prazo {
+
+    private final long limiteNanos;
+
+    private Prazo(long limiteNanos) {
+        this.limiteNanos = limiteNanos;
+    }
+
+    public static Prazo em(Duration duracao) {
+        return new Prazo(System.nanoTime() + duracao.toNanos());
+    }
+
+    // Prazo de uma etapa: o orçamento dela, sem passar do limite total
+    public Prazo etapa(Duration orcamento) {
+        long limiteEtapa = System.nanoTime() + orcamento.toNanos();
+        return new Prazo(limiteEtapa - limiteNanos < 0 ? limiteEtapa : limiteNanos);
+    }
+
+    public long restanteMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(limiteNanos - System.nanoTime()));
+    }
+
+    // Nunca zero: HttpClient e afins não aceitam timeout zero
+    public Duration restante() {
+        return Duration.ofMillis(Math.max(1, restanteMs()));
+    }
+
+    public boolean esgotado() {
+        return limiteNanos - System.nanoTime() <= 0;
+    }
+
+    public void verificar(String etapa) {
+        if (esgotado()) {
+            throw new PrazoEsgotadoException("Tempo esgotado: " + etapa + ".");
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * Pré-processamento do WAV antes do STT, em Java puro e no próprio buffer recebido (sem cópias):
+ * lê o cabeçalho, junta os canais em mono, reduz a taxa para 16 kHz (média das amostras de cada
+ * intervalo, que também serve de filtro contra aliasing) e corta o silêncio do começo e do fim com
+ * um detector de voz por energia. Menos áudio enviado = STT mais barato e mais rápido.
+ *
+ * FLAC e Ogg/Opus (uploads comprimidos) são reconhecidos pelos bytes iniciais e seguem como vieram,
+ * com taxa e canais lidos do cabeçalho para montar a configuração do reconhecedor. Outros formatos
+ * seguem como vieram.
+ */
+@Component
+public class PreprocessadorAudio {
+
+    private static final int FORMATO_PCM = 1;
+    private static final int FORMATO_EXTENSIVEL = 0xFFFE;
+    private static final int DURACAO_QUADRO_MS = 20;
+    private static final int QUADROS_PARA_VOZ = 3; // 60 ms seguidos acima do limiar: estalo isolado não conta
+
+    @Value("${voz.audio.preprocessamento.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${voz.audio.taxa-alvo:16000}")
+    private int taxaAlvo;
+
+    // Energia (RMS) mínima de um quadro com voz, e quantas vezes acima do ruído de fundo ele precisa estar
+    @Value("${voz.audio.vad.limiar-rms:300}")
+    private double limiarRms;
+
+    @Value("${voz.audio.vad.fator-ruido:3.0}")
+    private double fatorRuido;
+
+    // Folga mantida antes e depois da fala (início de consoantes e finais de palavra são fracos)
+    @Value("${voz.audio.vad.margem-ms:250}")
+    private int margemMs;
+
+    private record Formato(int canais, int taxa, int inicioDados, int tamanhoDados) {
+    }
+
+    public AudioPreparado preparar(byte[] audio) {
+        AudioPreparado comprimido = lerCabecalhoComprimido(audio);
+        if (comprimido != null) {
+            return comprimido;
+        }
+        if (!habilitado) {
+            return AudioPreparado.original(audio);
+        }
+        Formato formato = lerCabecalhoWav(audio);
+        if (formato == null) {
+            return AudioPreparado.original(audio);
+        }
+
+        int amostras = juntarCanaisEReamostrar(audio, formato);
+        int taxa = Math.min(formato.taxa(), taxaAlvo);
+        int[] trecho = trechoComVoz(audio, formato.inicioDados(), amostras, taxa);
+        return new AudioPreparado(audio, formato.inicioDados() + trecho[0] * 2, (trecho[1] - trecho[0]) * 2,
+                CodificacaoAudio.PCM_16, taxa, 1);
+    }
+
+    // FLAC ("fLaC", às vezes depois de uma tag ID3) ou Ogg com Opus ("OggS" + "OpusHead"); null se não for nenhum
+    private AudioPreparado lerCabecalhoComprimido(byte[] audio) {
+        int inicio = 0;
+        if (audio.length >= 10 && ascii(audio, 0, "ID3")) {
+            // Tamanho da tag ID3v2 em 4 bytes de 7 bits
+            inicio = 10 + ((audio[6] & 0x7f) << 21 | (audio[7] & 0x7f) << 14 | (audio[8] & 0x7f) << 7 | (audio[9] & 0x7f));
+        }
+
+        // FLAC: "fLaC", cabeçalho do bloco (4 bytes) e STREAMINFO; taxa em 20 bits, canais - 1 em 3 bits
+        if (inicio + 8 + 18 <= audio.length && ascii(audio, inicio, "fLaC") && (audio[inicio + 4] & 0x7f) == 0) {
+            int info = inicio + 8;
+            int taxa = (audio[info + 10] & 0xff) << 12 | (audio[info + 11] & 0xff) << 4 | (audio[info + 12] & 0xf0) >> 4;
+            int canais = ((audio[info + 12] & 0x0e) >> 1) + 1;
+            // A tag ID3 fica de fora do que é enviado
+            return new AudioPreparado(audio, inicio, audio.length - inicio, CodificacaoAudio.FLAC, taxa, canais);
+        }
+
+        // Ogg: a primeira página (27 bytes + tabela de segmentos) traz o pacote OpusHead
+        if (audio.length >= 27 && ascii(audio, 0, "OggS")) {
+            int pacote = 27 + (audio[26] & 0xff);
+            if (pacote + 16 <= audio.length && ascii(audio, pacote, "OpusHead")) {
+                int canais = audio[pacote + 9] & 0xff;
+                int taxaOriginal = int32(audio, pacote + 12);
+                return new AudioPreparado(audio, 0, audio.length, CodificacaoAudio.OGG_OPUS, taxaOriginal, canais);
+            }
+        }
+        return null;
+    }
+
+    // null se não for WAV PCM 16 bits
+    private Formato lerCabecalhoWav(byte[] audio) {
+        if (audio.length < 12 || !ascii(audio, 0, "RIFF") || !ascii(audio, 8, "WAVE")) {
+            return null;
+        }
+        int canais = 0;
+        int taxa = 0;
+        int bits = 0;
+        int formatoAudio = 0;
+        int posicao = 12;
+        while (posicao + 8 <= audio.length) {
+            int tamanho = int32(audio, posicao + 4);
+            int corpo = posicao + 8;
+            if (tamanho < 0) {
+                return null;
+            }
+            if (ascii(audio, posicao, "fmt ") && tamanho >= 16 && corpo + 16 <= audio.length) {
+                formatoAudio = int16(audio, corpo);
+                canais = int16(audio, corpo + 2);
+                taxa = int32(audio, corpo + 4);
+                bits = int16(audio, corpo + 14);
+                if (formatoAudio == FORMATO_EXTENSIVEL && tamanho >= 26 && corpo + 26 <= audio.length) {
+                    formatoAudio = int16(audio, corpo + 24); // Subformato (GUID começa pelo código do formato)
+                }
+            } else if (ascii(audio, posicao, "data")) {
+                if (formatoAudio != FORMATO_PCM || bits != 16 || canais < 1 || taxa <= 0) {
+                    return null;
+                }
+                // Gravação interrompida deixa o tamanho do chunk maior que o arquivo (ou 0xFFFFFFFF)
+                int disponivel = audio.length - corpo;
+                int dados = tamanho == 0 || tamanho > disponivel ? disponivel : tamanho;
+                dados -= dados % (2 * canais);
+                return new Formato(canais, taxa, corpo, dados);
+            }
+            posicao = corpo + tamanho + (tamanho & 1);
+        }
+        return null;
+    }
+
+    // Streaming: percorre os chunks do cabeçalho como lerCabecalhoWav (fmt, LIST, fact... em qualquer ordem),
+    // lendo do upload só até o início do chunk "data", e devolve o stream posicionado no primeiro byte de PCM.
+    // Sem "RIFF....WAVE" o upload é PCM cru na taxa informada (os bytes já lidos voltam para a frente do stream).
+    public AudioEmStream abrirStream(InputStream entrada, int taxaAmostragem) throws IOException {
+        byte[] inicio = entrada.readNBytes(12);
+        if (inicio.length < 12 || !ascii(inicio, 0, "RIFF") || !ascii(inicio, 8, "WAVE")) {
+            return new AudioEmStream(new SequenceInputStream(new ByteArrayInputStream(inicio), entrada), taxaAmostragem);
+        }
+        int canais = 0;
+        int taxa = 0;
+        int bits = 0;
+        int formatoAudio = 0;
+        byte[] chunk;
+        while ((chunk = entrada.readNBytes(8)).length == 8) {
+            long tamanho = int32(chunk, 4) & 0xFFFFFFFFL;
+            if (ascii(chunk, 0, "data")) {
+                if (formatoAudio != FORMATO_PCM || bits != 16 || canais != 1 || taxa <= 0) {
+                    throw new BusinessException("Streaming aceita apenas WAV PCM 16 bits mono.");
+                }
+                // Gravação em andamento manda tamanho 0 ou 0xFFFFFFFF: lê até o fim do upload
+                boolean tamanhoConhecido = tamanho != 0 && tamanho != 0xFFFFFFFFL;
+                return new AudioEmStream(tamanhoConhecido ? limitar(entrada, tamanho) : entrada, taxa);
+            }
+            long corpo = tamanho + (tamanho & 1);
+            if (ascii(chunk, 0, "fmt ") && tamanho >= 16 && tamanho <= 64) {
+                byte[] fmt = entrada.readNBytes((int) corpo);
+                if (fmt.length < 16) {
+                    break;
+                }
+                formatoAudio = int16(fmt, 0);
+                canais = int16(fmt, 2);
+                taxa = int32(fmt, 4);
+                bits = int16(fmt, 14);
+                if (formatoAudio == FORMATO_EXTENSIVEL && tamanho >= 26) {
+                    formatoAudio = int16(fmt, 24);
+                }
+            } else {
+                entrada.skipNBytes(corpo);
+            }
+        }
+        throw new BusinessException("WAV sem chunk de dados.");
+    }
+
+    // Chunks depois do "data" (ex.: LIST no fim do arquivo) não podem chegar ao reconhecedor como áudio
+    private static InputStream limitar(InputStream entrada, long limite) {
+        return new FilterInputStream(entrada) {
+            private long restante = limite;
+
+            @Override
+            public int read() throws IOException {
+                if (restante <= 0) {
+                    return -1;
+                }
+                int lido = super.read();
+                if (lido >= 0) {
+                    restante--;
+                }
+                return lido;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int tamanho) throws IOException {
+                if (restante <= 0) {
+                    return -1;
+                }
+                int lidos = super.read(buffer, offset, (int) Math.min(tamanho, restante));
+                if (lidos > 0) {
+                    restante -= lidos;
+                }
+                return lidos;
+            }
+        };
+    }
+
+    // Mono e no máximo taxaAlvo, escrevendo sobre o próprio buffer. A amostra de saída k vai na posição 2k
+    // e é a média dos quadros de entrada [k * taxa / alvo, (k + 1) * taxa / alvo), que começam em 2 * canais * k
+    // ou depois: nada ainda não lido é sobrescrito. Não aumenta a taxa (8 kHz continua 8 kHz).
+    // Devolve o número de amostras resultantes.
+    private int juntarCanaisEReamostrar(byte[] audio, Formato formato) {
+        int canais = formato.canais();
+        int base = formato.inicioDados();
+        int quadros = formato.tamanhoDados() / (2 * canais);
+        if (canais == 1 && formato.taxa() <= taxaAlvo) {
+            return quadros;
+        }
+
+        long taxa = formato.taxa();
+        long alvo = Math.min(formato.taxa(), taxaAlvo);
+        int saida = (int) (quadros * alvo / taxa);
+        for (int k = 0; k < saida; k++) {
+            int primeiro = (int) (k * taxa / alvo);
+            int ultimo = (int) Math.min(quadros, (k + 1) * taxa / alvo);
+            long soma = 0;
+            for (int quadro = primeiro; quadro < ultimo; quadro++) {
+                int posicao = base + quadro * 2 * canais;
+                for (int canal = 0; canal < canais; canal++) {
+                    soma += (short) ((audio[posicao + 1] << 8) | (audio[posicao] & 0xff));
+                    posicao += 2;
+                }
+            }
+            int amostra = (int) (soma / ((long) (ultimo - primeiro) * canais));
+            audio[base + 2 * k] = (byte) amostra;
+            audio[base + 2 * k + 1] = (byte) (amostra >> 8);
+        }
+        return saida;
+    }
+
+    // {primeira, última + 1} amostra a manter. Sem voz detectada mantém tudo (o STT decide).
+    private int[] trechoComVoz(byte[] audio, int base, int amostras, int taxa) {
+        int porQuadro = taxa * DURACAO_QUADRO_MS / 1000;
+        int quadros = porQuadro == 0 ? 0 : amostras / porQuadro;
+        if (quadros < QUADROS_PARA_VOZ) {
+            return new int[]{0, amostras};
+        }
+
+        double[] energia = new double[quadros];
+        double ruido = Double.MAX_VALUE;
+        for (int q = 0; q < quadros; q++) {
+            long soma = 0;
+            int posicao = base + q * porQuadro * 2;
+            for (int i = 0; i < porQuadro; i++, posicao += 2) {
+                int amostra = (short) ((audio[posicao + 1] << 8) | (audio[posicao] & 0xff));
+                soma += (long) amostra * amostra;
+            }
+            energia[q] = Math.sqrt((double) soma / porQuadro);
+            ruido = Math.min(ruido, energia[q]); // Quadro mais quieto ~ ruído de fundo do ambiente
+        }
+        double limiar = Math.max(limiarRms, ruido * fatorRuido);
+
+        int primeiro = -1;
+        int ultimo = -1;
+        int seguidos = 0;
+        for (int q = 0; q < quadros; q++) {
+            seguidos = energia[q] >= limiar ? seguidos + 1 : 0;
+            if (seguidos >= QUADROS_PARA_VOZ) {
+                if (primeiro < 0) {
+                    primeiro = q - QUADROS_PARA_VOZ + 1;
+                }
+                ultimo = q;
+            }
+        }
+        if (primeiro < 0) {
+            return new int[]{0, amostras};
+        }
+
+        int margem = taxa * margemMs / 1000;
+        int inicio = Math.max(0, primeiro * porQuadro - margem);
+        int fim = Math.min(amostras, (ultimo + 1) * porQuadro + margem);
+        return new int[]{inicio, fim};
+    }
+
+    private static boolean ascii(byte[] audio, int posicao, String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (audio[posicao + i] != texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int int16(byte[] audio, int posicao) {
+        return (audio[posicao] & 0xff) | (audio[posicao + 1] & 0xff) << 8;
+    }
+
+    private static int int32(byte[] audio, int posicao) {
+        return int16(audio, posicao) | int16(audio, posicao + 2) << 16;
+    }
+}
@@ -0,0 +1,7 @@
+package br.ueg.meueg.voz;
+
+import java.math.BigDecimal;
+
+// Produto como fica no índice de busca por voz: o acerto já devolve ID, nome e preço sem ir ao banco
+public record ProdutoIndexado(Long id, String nome, BigDecimal preco, String normalizado, String fonetica) {
+}
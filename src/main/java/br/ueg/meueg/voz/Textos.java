@@ -0,0 +1,100 @@
+package br.ueg.meueg.voz;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Normalização de texto falado/transcrito usada na interpretação e nas chaves de cache
+public final class Textos {
+
+    // Compiladas uma vez: estas funções rodam a cada item de cada comando de voz
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}");
+    private static final Pattern NAO_ALFANUMERICO = Pattern.compile("[^a-z0-9 ]");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Pattern QU_ANTES_DE_E_I = Pattern.compile("qu(?=[ei])");
+    private static final Pattern GU_ANTES_DE_E_I = Pattern.compile("gu(?=[ei])");
+    private static final Pattern SC_ANTES_DE_E_I = Pattern.compile("sc(?=[ei])");
+    private static final Pattern C_ANTES_DE_E_I = Pattern.compile("c(?=[ei])");
+    private static final Pattern G_ANTES_DE_E_I = Pattern.compile("g(?=[ei])");
+    private static final Pattern LETRAS_DOBRADAS = Pattern.compile("(.)\\1+");
+
+    private Textos() {
+    }
+
+    // "Duas pipocas, no Pix." -> "duas pipocas no pix"
+    public static String normalizar(String texto) {
+        String minusculo = dobrarAcentos(texto).toLowerCase(Locale.ROOT);
+        return ESPACOS.matcher(NAO_ALFANUMERICO.matcher(minusculo).replaceAll(" ")).replaceAll(" ").trim();
+    }
+
+    public static String dobrarAcentos(String texto) {
+        return MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    // Chave fonética simplificada do português do Brasil: grafias que soam igual viram a mesma chave
+    // ("cachorro quente" / "caxoro kente", "queijo" / "keijo", "coxinha" / "cochinha"). Recebe o texto já
+    // normalizado, sem o cedilha: "açaí" vira "akai" (casa com "acai", não com "asai")
+    public static String fonetica(String textoNormalizado) {
+        StringBuilder chave = new StringBuilder();
+        for (String palavra : textoNormalizado.split(" ")) {
+            if (palavra.isEmpty()) {
+                continue;
+            }
+            String p = singular(palavra);
+            p = p.replace("ch", "x").replace("sh", "x").replace("lh", "l").replace("nh", "n").replace("ph", "f");
+            p = QU_ANTES_DE_E_I.matcher(p).replaceAll("k").replace("qu", "k");
+            p = GU_ANTES_DE_E_I.matcher(p).replaceAll("g");
+            p = SC_ANTES_DE_E_I.matcher(p).replaceAll("s");
+            p = C_ANTES_DE_E_I.matcher(p).replaceAll("s").replace("c", "k");
+            p = G_ANTES_DE_E_I.matcher(p).replaceAll("j");
+            p = p.replace("z", "s").replace("w", "v").replace("y", "i").replace("h", "");
+            p = LETRAS_DOBRADAS.matcher(p).replaceAll("$1"); // letras dobradas: "rr", "ss"
+            p = reduzirFinal(p);
+            if (chave.length() > 0) {
+                chave.append(' ');
+            }
+            chave.append(p);
+        }
+        return chave.toString();
+    }
+
+    // "bombom" ~ "bombon"; vogal final reduzida ("leite" ~ "leiti", "queijo" ~ "queiju")
+    private static String reduzirFinal(String p) {
+        if (p.length() < 2) {
+            return p;
+        }
+        char ultima = p.charAt(p.length() - 1);
+        return switch (ultima) {
+            case 'm' -> p.substring(0, p.length() - 1) + 'n';
+            case 'e' -> p.substring(0, p.length() - 1) + 'i';
+            case 'o' -> p.substring(0, p.length() - 1) + 'u';
+            default -> p;
+        };
+    }
+
+    // Singular aproximado do português (suficiente para casar "pipocas" com "pipoca", "pastéis" com "pastel")
+    public static String singular(String palavra) {
+        if (palavra.length() <= 3) {
+            return palavra;
+        }
+        if (palavra.endsWith("oes") || palavra.endsWith("aes")) {
+            return palavra.substring(0, palavra.length() - 3) + "ao";
+        }
+        if (palavra.endsWith("ais")) {
+            return palavra.substring(0, palavra.length() - 2) + "l";
+        }
+        if (palavra.endsWith("eis")) {
+            return palavra.substring(0, palavra.length() - 3) + "el";
+        }
+        if (palavra.endsWith("ns")) {
+            return palavra.substring(0, palavra.length() - 2) + "m";
+        }
+        if (palavra.endsWith("res") || palavra.endsWith("zes")) {
+            return palavra.substring(0, palavra.length() - 2);
+        }
+        if (palavra.endsWith("s") && !palavra.endsWith("ss")) {
+            return palavra.substring(0, palavra.length() - 1);
+        }
+        return palavra;
+    }
+}
@@ -0,0 +1,108 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.service.impl.GoogleMotorTranscricao;
+import br.ueg.meueg.suporte.ServidorSpeechFalso;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.Prazo;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
+import com.google.cloud.speech.v1.RecognitionAudio;
+import com.google.cloud.speech.v1.RecognitionConfig;
+import com.google.cloud.speech.v1.SpeechClient;
+import com.google.cloud.speech.v1.SpeechSettings;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência de uma transcrição contra um servidor gRPC local no lugar do Google (ServidorSpeechFalso,
+ * com latência fixa de processamento). Compara o cliente único reaproveitado pelo GoogleMotorTranscricao
+ * com a criação de um SpeechClient por requisição (canal, conexão HTTP/2 e executores novos a cada áudio).
+ * Sem TLS nem credenciais: contra o Google o handshake deixa o cliente novo ainda mais caro.
+ *
+ * Roda sem dependências externas: main com o classpath de testes, depois de mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class ClienteSpeechBenchmark {
+
+    // Latência de processamento do "reconhecedor"
+    @Param({"20"})
+    public long latenciaMs;
+
+    private ServidorSpeechFalso servidor;
+    private GoogleMotorTranscricao motor;
+    private AudioPreparado audio;
+    private SpeechSettings configuracao;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        servidor = new ServidorSpeechFalso("duas coxinhas no pix", latenciaMs);
+        motor = new GoogleMotorTranscricao();
+        ReflectionTestUtils.setField(motor, "endpoint", servidor.endpoint());
+
+        byte[] pcm = new byte[32_000 * 3]; // 3 s de PCM 16 kHz mono
+        audio = new AudioPreparado(pcm, 0, pcm.length, CodificacaoAudio.PCM_16, 16000, 1);
+        configuracao = SpeechSettings.newBuilder()
+                .setEndpoint(servidor.endpoint())
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .setTransportChannelProvider(InstantiatingGrpcChannelProvider.newBuilder()
+                        .setEndpoint(servidor.endpoint())
+                        .setChannelConfigurator(construtor -> construtor.usePlaintext())
+                        .build())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() throws Exception {
+        ReflectionTestUtils.invokeMethod(motor, "encerrar");
+        servidor.close();
+    }
+
+    @Benchmark
+    public String clienteReaproveitado() throws Exception {
+        return motor.transcrever(audio, Prazo.em(Duration.ofSeconds(10)));
+    }
+
+    @Benchmark
+    public String clienteNovoPorRequisicao() throws Exception {
+        try (SpeechClient cliente = SpeechClient.create(configuracao)) {
+            return cliente.recognize(
+                    RecognitionConfig.newBuilder()
+                            .setEncoding(RecognitionConfig.AudioEncoding.LINEAR16)
+                            .setSampleRateHertz(16000)
+                            .setLanguageCode("pt-BR")
+                            .build(),
+                    RecognitionAudio.newBuilder().setContent(ByteString.copyFrom(audio.dados())).build()
+            ).getResults(0).getAlternatives(0).getTranscript();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ClienteSpeechBenchmark.class.getSimpleName()).build()).run();
+    }
+}
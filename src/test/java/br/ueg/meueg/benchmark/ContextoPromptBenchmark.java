@@ -0,0 +1,117 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.voz.IndiceProdutos;
+import br.ueg.meueg.voz.ProdutoIndexado;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Contexto de produtos do prompt do LLM (AIServiceImpl) contra o tamanho do catálogo: os k produtos
+ * mais parecidos com a frase (IndiceProdutos.candidatos, voz.prompt.max-produtos) contra a lista
+ * inteira, como era antes. Mede o custo de montar a lista e, na subida, imprime os tokens que ela
+ * ocupa no prompt (mesma estimativa de 4 caracteres por token do AIServiceImpl) e quantas frases
+ * ficaram com todos os produtos citados dentro do top-k. O tempo do LLM cresce com os tokens do prompt.
+ *
+ * Roda sem dependências externas: main com o classpath de testes, depois de mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextoPromptBenchmark {
+
+    private static final int K = 20; // voz.prompt.max-produtos
+    private static final String[] BASES = {"Pipoca", "Coxinha", "Pastel", "Suco", "Refrigerante", "Bolo", "Pão", "Sanduíche",
+            "Empada", "Sorvete", "Açaí", "Café", "Chá", "Água", "Cerveja", "Biscoito", "Bala", "Chocolate", "Torta", "Esfiha"};
+    private static final String[] VARIACOES = {"de Carne", "de Frango", "de Queijo", "de Chocolate", "de Morango", "de Laranja",
+            "de Uva", "Doce", "Salgada", "Integral", "Diet", "Zero", "Natural", "Gelado", "Quente", "Especial", "Tradicional",
+            "de Milho", "de Coco", "de Limão"};
+    private static final String[] TAMANHOS = {"Pequeno", "Médio", "Grande", "Família", "Lata"};
+
+    @Param({"200", "2000", "10000"})
+    public int tamanhoCatalogo;
+
+    private IndiceProdutos indice;
+    private String[] frases;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        List<ProdutoServico> catalogo = new ArrayList<>(tamanhoCatalogo);
+        for (int i = 0; i < tamanhoCatalogo; i++) {
+            catalogo.add(ProdutoServico.builder().id((long) i).nome(nome(i)).preco(BigDecimal.TEN).build());
+        }
+        indice = new IndiceProdutos(catalogo);
+
+        // Frases com um ou dois produtos do catálogo, como o caixa fala
+        Random aleatorio = new Random(42);
+        frases = new String[200];
+        int completas = 0;
+        long tokensTopK = 0;
+        for (int i = 0; i < frases.length; i++) {
+            String primeiro = nome(aleatorio.nextInt(tamanhoCatalogo));
+            String segundo = i % 2 == 0 ? null : nome(aleatorio.nextInt(tamanhoCatalogo));
+            frases[i] = "duas " + primeiro + (segundo == null ? "" : " e uma " + segundo) + " no pix";
+
+            List<String> contexto = indice.candidatos(frases[i], K).stream().map(ProdutoIndexado::nome).toList();
+            if (contexto.contains(primeiro) && (segundo == null || contexto.contains(segundo))) {
+                completas++;
+            }
+            tokensTopK += estimarTokens(String.join(", ", contexto));
+        }
+        System.out.printf("%nCatálogo com %d produtos: lista inteira ~%d tokens no prompt, top-%d ~%d tokens; "
+                        + "top-%d com todos os produtos citados em %d de %d frases%n",
+                tamanhoCatalogo, estimarTokens(catalogoCompleto()), K, tokensTopK / frases.length, K, completas, frases.length);
+    }
+
+    @Benchmark
+    public String topK() {
+        String frase = frases[proxima];
+        proxima = (proxima + 1) % frases.length;
+        return indice.candidatos(frase, K).stream().map(ProdutoIndexado::nome).collect(Collectors.joining(", "));
+    }
+
+    // Antes: todos os nomes no prompt (sem contar a consulta ao banco que vinha junto a cada comando)
+    @Benchmark
+    public String catalogoCompleto() {
+        return String.join(", ", indice.getNomes());
+    }
+
+    // Também gera o catálogo do IndiceProdutosBenchmark
+    static String nome(int i) {
+        String nome = BASES[i % BASES.length] + " " + VARIACOES[i / BASES.length % VARIACOES.length] + " "
+                + TAMANHOS[i / (BASES.length * VARIACOES.length) % TAMANHOS.length];
+        int lote = i / (BASES.length * VARIACOES.length * TAMANHOS.length);
+        return lote == 0 ? nome : nome + " " + (lote + 1);
+    }
+
+    private static int estimarTokens(String texto) {
+        return (texto.length() + 3) / 4;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ContextoPromptBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,140 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.dto.VendaExportacaoDTO;
+import br.ueg.meueg.dto.VendaFiltroDTO;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.enums.FormatoExportacao;
+import br.ueg.meueg.repository.VendaRepository;
+import br.ueg.meueg.service.VendaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Exportação do histórico de vendas (GET /api/v1/vendas/exportar) pelo VendaService.exportar de verdade, sobre a
+ * massa do MassaVendas: VendaRepository.streamExportacao (cursor do PostgreSQL, fetch size 1000) e o escritor
+ * CSV/NDJSON do serviço, com e sem os filtros opcionais.
+ *
+ * Para comparar, a mesma consulta materializada numa lista (Stream.toList) antes de qualquer escrita: é o que a
+ * exportação custaria carregando tudo. Rodar com o GCProfiler (já ligado no main): gc.alloc.rate.norm e o número
+ * de coletas mostram o custo de memória (a lista cresce com o histórico; o cursor segura um lote por vez).
+ *
+ * Precisa de um PostgreSQL (ver MassaVendas). Rodar pelo main (classpath de testes, depois de mvn test-compile).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx1g"})
+public class ExportacaoVendasBenchmark {
+
+    // Vendas do usuário exportado, três itens cada (uma linha por item na exportação)
+    @Param({"300000"})
+    public int vendasDoUsuario;
+
+    private MassaVendas massa;
+    private VendaService vendaService;
+    private VendaRepository vendaRepository;
+    private TransactionTemplate somenteLeitura;
+    private User usuario;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        massa = MassaVendas.preparar(vendasDoUsuario, 3);
+        vendaService = massa.bean(VendaService.class);
+        vendaRepository = massa.bean(VendaRepository.class);
+        somenteLeitura = new TransactionTemplate(massa.bean(PlatformTransactionManager.class));
+        somenteLeitura.setReadOnly(true);
+        usuario = massa.usuario();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        massa.close();
+    }
+
+    @Benchmark
+    public long csvEmStreaming() throws IOException {
+        ContadorBytes saida = new ContadorBytes();
+        vendaService.exportar(new VendaFiltroDTO(), usuario, FormatoExportacao.CSV, saida);
+        return saida.total;
+    }
+
+    @Benchmark
+    public long ndjsonEmStreaming() throws IOException {
+        ContadorBytes saida = new ContadorBytes();
+        vendaService.exportar(new VendaFiltroDTO(), usuario, FormatoExportacao.NDJSON, saida);
+        return saida.total;
+    }
+
+    // Filtros opcionais da API: período, forma de pagamento, faixa de valor
+    @Benchmark
+    public long csvComFiltros() throws IOException {
+        VendaFiltroDTO filtro = new VendaFiltroDTO();
+        filtro.setDataInicio(LocalDateTime.of(2024, 1, 1, 0, 0));
+        filtro.setFormaPagamento(FormaPagamento.PIX);
+        filtro.setValorMinimo(new BigDecimal("50"));
+        ContadorBytes saida = new ContadorBytes();
+        vendaService.exportar(filtro, usuario, FormatoExportacao.CSV, saida);
+        return saida.total;
+    }
+
+    @Benchmark
+    public int consultaMaterializada() {
+        return somenteLeitura.execute(status -> {
+            try (Stream<VendaExportacaoDTO> linhas = vendaRepository.streamExportacao(usuario.getId(),
+                    null, null, null, null, null, null)) {
+                List<VendaExportacaoDTO> todas = linhas.toList();
+                return todas.size();
+            }
+        });
+    }
+
+    // Cliente que lê tudo instantaneamente: só conta os bytes
+    private static final class ContadorBytes extends OutputStream {
+        long total;
+
+        @Override
+        public void write(int b) {
+            total++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            total += len;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ExportacaoVendasBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,122 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.voz.IndiceProdutos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Busca de um nome falado no IndiceProdutos (VendaServiceImpl.processarPropostaVoz) contra o tamanho
+ * do catálogo, uma medida por camada: nome igual ao cadastrado (minúsculo, sem acento, no plural),
+ * grafia de mesmo som ("ch"/"x", "qu"/"k", "c"/"k") e erro de transcrição que só os trigramas
+ * resolvem (uma letra a menos). Na subida imprime quantas buscas de cada tipo acharam o produto certo.
+ * Antes era uma consulta findByNomeIgnoreCaseAndUsuario por item, e só o nome exato achava.
+ *
+ * Roda sem dependências externas: main com o classpath de testes, depois de mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndiceProdutosBenchmark {
+
+    @Param({"200", "2000", "10000"})
+    public int tamanhoCatalogo;
+
+    private IndiceProdutos indice;
+    private String[] exatos;
+    private String[] foneticos;
+    private String[] aproximados;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        List<ProdutoServico> catalogo = new ArrayList<>(tamanhoCatalogo);
+        for (int i = 0; i < tamanhoCatalogo; i++) {
+            catalogo.add(ProdutoServico.builder().id((long) i).nome(ContextoPromptBenchmark.nome(i)).preco(BigDecimal.TEN).build());
+        }
+        indice = new IndiceProdutos(catalogo);
+
+        Random aleatorio = new Random(42);
+        long[] ids = new long[200];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = aleatorio.nextInt(tamanhoCatalogo);
+        }
+        exatos = falados(ids, nome -> nome.toLowerCase().replaceFirst(" ", "s "));
+        foneticos = falados(ids, nome -> nome.toLowerCase().replace("ch", "x").replace("qu", "k").replace("ca", "ka"));
+        aproximados = falados(ids, nome -> {
+            int meio = nome.indexOf(' ') / 2;
+            return nome.substring(0, meio) + nome.substring(meio + 1);
+        });
+
+        System.out.printf("%nCatálogo com %d produtos: produto certo em %d/%d exatos, %d/%d fonéticos, %d/%d aproximados%n",
+                tamanhoCatalogo, acertos(exatos, ids), ids.length, acertos(foneticos, ids), ids.length,
+                acertos(aproximados, ids), ids.length);
+    }
+
+    @Benchmark
+    public Optional<IndiceProdutos.Resultado> exato() {
+        return indice.buscar(proximo(exatos));
+    }
+
+    @Benchmark
+    public Optional<IndiceProdutos.Resultado> fonetico() {
+        return indice.buscar(proximo(foneticos));
+    }
+
+    @Benchmark
+    public Optional<IndiceProdutos.Resultado> aproximado() {
+        return indice.buscar(proximo(aproximados));
+    }
+
+    private String proximo(String[] falados) {
+        String falado = falados[proxima];
+        proxima = (proxima + 1) % falados.length;
+        return falado;
+    }
+
+    private static String[] falados(long[] ids, UnaryOperator<String> transcricao) {
+        String[] falados = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            falados[i] = transcricao.apply(ContextoPromptBenchmark.nome((int) ids[i]));
+        }
+        return falados;
+    }
+
+    private int acertos(String[] falados, long[] ids) {
+        int acertos = 0;
+        for (int i = 0; i < falados.length; i++) {
+            long id = ids[i];
+            if (indice.buscar(falados[i]).filter(resultado -> resultado.produto().id() == id).isPresent()) {
+                acertos++;
+            }
+        }
+        return acertos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(IndiceProdutosBenchmark.class.getSimpleName()).build()).run();
+    }
+}
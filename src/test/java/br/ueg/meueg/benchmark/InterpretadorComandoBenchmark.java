@@ -0,0 +1,75 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.suporte.CorpusComandos;
+import br.ueg.meueg.voz.InterpretadorComando;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho rápido da venda por voz: custo do InterpretadorComando por comando do corpus de teste
+ * (src/test/resources/voz), com o catálogo do corpus e com ele inflado por produtos que não aparecem
+ * nas frases (o índice do catálogo é montado a cada comando). Na subida imprime a taxa de acerto do
+ * caminho rápido no corpus; o restante iria para o LLM (segundos por comando).
+ *
+ * Roda sem dependências externas: main com o classpath de testes, depois de mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterpretadorComandoBenchmark {
+
+    @Param({"15", "2000"})
+    public int tamanhoCatalogo;
+
+    private final InterpretadorComando interpretador = new InterpretadorComando();
+    private List<String> catalogo;
+    private String[] frases;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        catalogo = new ArrayList<>(CorpusComandos.catalogo());
+        for (int i = catalogo.size(); i < tamanhoCatalogo; i++) {
+            catalogo.add("Produto Sortido " + i);
+        }
+        List<CorpusComandos.Comando> comandos = CorpusComandos.comandos();
+        frases = comandos.stream().map(CorpusComandos.Comando::frase).toArray(String[]::new);
+
+        long rapidos = comandos.stream().filter(comando -> interpretador.interpretar(comando.frase(), catalogo).isPresent()).count();
+        System.out.printf("%nCaminho rápido: %d de %d comandos do corpus (%.0f%%), catálogo com %d produtos%n",
+                rapidos, comandos.size(), 100.0 * rapidos / comandos.size(), catalogo.size());
+    }
+
+    // Um comando por chamada, percorrendo o corpus (frases entendidas e as que iriam para o LLM)
+    @Benchmark
+    public Optional<VendaDTO> interpretar() {
+        String frase = frases[proxima];
+        proxima = (proxima + 1) % frases.length;
+        return interpretador.interpretar(frase, catalogo);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(InterpretadorComandoBenchmark.class.getSimpleName()).build()).run();
+    }
+}
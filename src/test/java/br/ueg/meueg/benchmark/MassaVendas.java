@@ -0,0 +1,119 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.MeuegBackendApplication;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.repository.UserRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Aplicação de verdade (sem Tomcat) sobre um PostgreSQL com a massa de vendas dos benchmarks de consulta.
+ *
+ * O schema é o da aplicação (criado pelo Hibernate, com os índices das entidades), num schema próprio do banco
+ * (-Dbenchmark.db.schema, padrão "benchmark_app") para não misturar com os dados de desenvolvimento. A massa:
+ * 501 usuários, 200 produtos e vendasDoUsuario * 3 vendas ao longo de ~3 anos, um terço delas do usuário
+ * medido, cada venda com itensPorVenda itens. Criada só quando o tamanho pedido muda.
+ *
+ * Conexão: -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/meuegdb (usuário/senha em benchmark.db.usuario /
+ * benchmark.db.senha).
+ */
+final class MassaVendas implements AutoCloseable {
+
+    static final String USUARIO_MEDIDO = "benchmark-vendas";
+
+    private final ConfigurableApplicationContext contexto;
+    private final User usuario;
+
+    private MassaVendas(ConfigurableApplicationContext contexto, User usuario) {
+        this.contexto = contexto;
+        this.usuario = usuario;
+    }
+
+    static MassaVendas preparar(int vendasDoUsuario, int itensPorVenda) throws SQLException {
+        String url = System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/meuegdb");
+        String usuarioBanco = System.getProperty("benchmark.db.usuario", "postgres");
+        String senha = System.getProperty("benchmark.db.senha", "postgres");
+        String schema = System.getProperty("benchmark.db.schema", "benchmark_app");
+
+        // O Hibernate cria as tabelas, mas não o schema
+        try (Connection conexao = DriverManager.getConnection(url, usuarioBanco, senha);
+             Statement st = conexao.createStatement()) {
+            st.execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+        }
+
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MeuegBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema,
+                        "spring.datasource.username=" + usuarioBanco,
+                        "spring.datasource.password=" + senha,
+                        "spring.jpa.properties.hibernate.default_schema=" + schema,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "logging.level.org.hibernate.orm.jdbc.bind=warn")
+                .run();
+        popular(contexto.getBean(JdbcTemplate.class), vendasDoUsuario, itensPorVenda);
+        User usuario = contexto.getBean(UserRepository.class).findByUsername(USUARIO_MEDIDO).orElseThrow();
+        return new MassaVendas(contexto, usuario);
+    }
+
+    private static void popular(JdbcTemplate jdbc, int vendasDoUsuario, int itensPorVenda) {
+        Long existentes = jdbc.queryForObject("""
+                SELECT COUNT(*) FROM venda v JOIN users u ON u.id = v.id_usuario WHERE u.username = ?
+                """, Long.class, USUARIO_MEDIDO);
+        Long itens = jdbc.queryForObject("SELECT COUNT(*) FROM venda_item", Long.class);
+        long vendas = vendasDoUsuario * 3L;
+        if (existentes != null && existentes == vendasDoUsuario && itens != null && itens == vendas * itensPorVenda) {
+            return;
+        }
+
+        jdbc.execute("TRUNCATE venda_item, venda, produto_servico, users RESTART IDENTITY CASCADE");
+        jdbc.update("""
+                INSERT INTO users (username, password, nome)
+                SELECT CASE WHEN g = 1 THEN ? ELSE 'benchmark-' || g END, 'x', 'Caixa ' || g
+                FROM generate_series(1, 501) g
+                """, USUARIO_MEDIDO);
+        jdbc.execute("""
+                INSERT INTO produto_servico (nome, tipo, preco, custo, categoria, id_usuario, atualizado_em)
+                SELECT 'Produto ' || g, 'PRODUTO', 5 + g % 20, 2 + g % 10, 'Geral', 1, now()
+                FROM generate_series(1, 200) g
+                """);
+        // Usuário 1 fica com uma venda a cada três; as outras se espalham entre os usuários 2..501
+        jdbc.execute("""
+                INSERT INTO venda (id_venda, data, valor_total, forma_pagamento, id_usuario, atualizado_em)
+                SELECT g, d, (g %% 20000) / 100.0, (ARRAY['DINHEIRO','PIX','CARTAO_CREDITO'])[1 + g %% 3],
+                       CASE WHEN g %% 3 = 0 THEN 1 ELSE 2 + g %% 500 END, d
+                FROM generate_series(1, %d) g,
+                     LATERAL (SELECT TIMESTAMP '2023-01-01' + (g * INTERVAL '1 second') * (94608000.0 / %d)) AS t(d)
+                """.formatted(vendas, vendas));
+        jdbc.execute("""
+                INSERT INTO venda_item (id, id_venda, id_produto, quantidade, preco_unitario, custo_unitario)
+                SELECT g, 1 + (g - 1) / %d, 1 + g %% 200, 1 + g %% 5, 1 + (g %% 5000) / 100.0, 0.5 + (g %% 500) / 100.0
+                FROM generate_series(1, %d) g
+                """.formatted(itensPorVenda, vendas * itensPorVenda));
+        // A massa entra com IDs explícitos: as sequences seguem depois dela (mesma regra do MigracaoBanco)
+        jdbc.execute("SELECT setval('venda_seq', (SELECT MAX(id_venda) FROM venda) + 50)");
+        jdbc.execute("SELECT setval('venda_item_seq', (SELECT MAX(id) FROM venda_item) + 50)");
+        jdbc.execute("ANALYZE");
+    }
+
+    User usuario() {
+        return usuario;
+    }
+
+    <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+
+    @Override
+    public void close() {
+        contexto.close();
+    }
+}
@@ -0,0 +1,185 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import br.ueg.meueg.enums.TipoMovimentacao;
+import br.ueg.meueg.estoque.MotorEstoqueMemoria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Venda relâmpago: 16 caixas baixando uma unidade do mesmo estoque ao mesmo tempo.
+ *
+ * Compara o caminho do banco sem o motor (trava a linha do estoque, confere o saldo do livro e lança a venda
+ * nele, como VendaServiceImpl: todos os caixas se serializam na trava da linha) com o MotorEstoqueMemoria
+ * (compare-and-set no contador e fsync do journal em grupo; o livro recebe pelo write-behind). Cada operação
+ * é uma transação confirmada nos dois casos.
+ *
+ * Precisa de um PostgreSQL: -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/meuegdb (usuário/senha em
+ * benchmark.db.usuario / benchmark.db.senha). As tabelas ficam no schema "benchmark"; o journal do motor vai
+ * para um diretório temporário (o fsync mede o disco local).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class MotorEstoqueBenchmark {
+
+    private static final long ID_ESTOQUE = 1;
+    private static final int SALDO_INICIAL = 1_000_000_000;
+    private static final MovimentacaoEstoque VENDA = MovimentacaoEstoque.builder()
+            .idEstoque(ID_ESTOQUE).idProduto(1L).idUsuario(1L).tipo(TipoMovimentacao.VENDA).quantidade(-1).build();
+
+    private DriverManagerDataSource dataSource;
+    private MotorEstoqueMemoria motor;
+    private TransactionTemplate transactionTemplate;
+    private Path diretorioJournal;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        Properties propriedades = new Properties();
+        propriedades.setProperty("user", System.getProperty("benchmark.db.usuario", "postgres"));
+        propriedades.setProperty("password", System.getProperty("benchmark.db.senha", "postgres"));
+        propriedades.setProperty("currentSchema", "benchmark");
+        dataSource = new DriverManagerDataSource(
+                System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/meuegdb"), propriedades);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS benchmark");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS benchmark.estoque, benchmark.movimentacao_estoque, benchmark.estoque_journal_checkpoint");
+        jdbcTemplate.execute("DROP SEQUENCE IF EXISTS benchmark.movimentacao_estoque_seq");
+        jdbcTemplate.execute("CREATE TABLE benchmark.estoque (id BIGINT PRIMARY KEY, quantidade INT NOT NULL, consolidado_em TIMESTAMP)");
+        jdbcTemplate.execute("""
+                CREATE TABLE benchmark.movimentacao_estoque (id BIGINT PRIMARY KEY, id_estoque BIGINT NOT NULL,
+                    id_produto BIGINT NOT NULL, id_usuario BIGINT NOT NULL, tipo VARCHAR(20) NOT NULL,
+                    quantidade INT NOT NULL, data_hora TIMESTAMP NOT NULL, id_venda BIGINT)
+                """);
+        jdbcTemplate.execute("CREATE INDEX ON benchmark.movimentacao_estoque (id_estoque, data_hora)");
+        jdbcTemplate.execute("CREATE SEQUENCE benchmark.movimentacao_estoque_seq INCREMENT BY 50");
+        jdbcTemplate.execute("CREATE TABLE benchmark.estoque_journal_checkpoint (id BIGINT PRIMARY KEY, ultima_sequencia BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO benchmark.estoque VALUES (?, ?, now())", ID_ESTOQUE, SALDO_INICIAL);
+
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        diretorioJournal = Files.createTempDirectory("journal-estoque");
+        motor = new MotorEstoqueMemoria(jdbcTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(motor, "caminhoJournal", diretorioJournal.resolve("estoque.journal").toString());
+        ReflectionTestUtils.setField(motor, "tamanhoLote", 5000);
+        ReflectionTestUtils.setField(motor, "esperaJournalMs", 2000L);
+        ReflectionTestUtils.invokeMethod(motor, "iniciar");
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() throws Exception {
+        ReflectionTestUtils.invokeMethod(motor, "encerrar");
+        try (var arquivos = Files.list(diretorioJournal)) {
+            for (Path arquivo : arquivos.toList()) {
+                Files.delete(arquivo);
+            }
+        }
+        Files.delete(diretorioJournal);
+    }
+
+    // Uma conexão por caixa, como o pool faria
+    @State(Scope.Thread)
+    public static class Conexao {
+        Connection conexao;
+        PreparedStatement trava;
+        PreparedStatement saldo;
+        PreparedStatement lancamento;
+
+        @Setup(Level.Trial)
+        public void abrir(MotorEstoqueBenchmark benchmark) throws SQLException {
+            conexao = benchmark.dataSource.getConnection();
+            conexao.setAutoCommit(false);
+            trava = conexao.prepareStatement("SELECT id FROM benchmark.estoque WHERE id = ? FOR UPDATE");
+            saldo = conexao.prepareStatement("""
+                    SELECT e.quantidade + COALESCE((SELECT SUM(m.quantidade) FROM benchmark.movimentacao_estoque m
+                                                    WHERE m.id_estoque = e.id AND m.data_hora >= e.consolidado_em), 0)
+                    FROM benchmark.estoque e WHERE e.id = ?
+                    """);
+            lancamento = conexao.prepareStatement("""
+                    INSERT INTO benchmark.movimentacao_estoque (id, id_estoque, id_produto, id_usuario, tipo, quantidade, data_hora)
+                    VALUES (nextval('benchmark.movimentacao_estoque_seq'), ?, 1, 1, 'VENDA', ?, now())
+                    """);
+        }
+
+        @TearDown(Level.Trial)
+        public void fechar() throws SQLException {
+            conexao.close();
+        }
+    }
+
+    // O livro cresce durante a medição (sem consolidação no meio): o saldo soma cada vez mais lançamentos,
+    // como entre duas consolidações em produção
+    @Benchmark
+    public int livroComTravaNoBanco(Conexao c) throws SQLException {
+        c.trava.setLong(1, ID_ESTOQUE);
+        c.trava.executeQuery().close();
+        c.saldo.setLong(1, ID_ESTOQUE);
+        int disponivel;
+        try (ResultSet rs = c.saldo.executeQuery()) {
+            rs.next();
+            disponivel = rs.getInt(1);
+        }
+        int linhas = 0;
+        if (disponivel >= 1) {
+            c.lancamento.setLong(1, ID_ESTOQUE);
+            c.lancamento.setInt(2, -1);
+            linhas = c.lancamento.executeUpdate();
+        }
+        c.conexao.commit();
+        return linhas;
+    }
+
+    @Benchmark
+    public Long motorEmMemoria() {
+        return transactionTemplate.execute(status -> {
+            Long semSaldo = motor.reservar(Map.of(ID_ESTOQUE, 1));
+            if (semSaldo == null) {
+                motor.lancar(List.of(VENDA));
+            }
+            return semSaldo;
+        });
+    }
+
+    // Write-behind do motor fora do tempo medido das threads de caixa (no app ele roda no agendador)
+    @Setup(Level.Iteration)
+    public void aplicarPendentes() {
+        motor.aplicarPendentes();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(MotorEstoqueBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,156 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.dto.VendaFiltroDTO;
+import br.ueg.meueg.dto.VendaPaginaDTO;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.service.VendaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listagem de vendas (GET /api/v1/vendas) pelo VendaService de verdade, sobre a massa do MassaVendas.
+ *
+ * A linha de base é a listagem antiga: VendaService.findAll() com o toDTO de cada venda (itens carregados sob
+ * demanda, como o open-in-view fazia), que cresce com o banco inteiro. Contra ela: a primeira página, uma
+ * página funda (cursor na profundidade pedida) e as mesmas páginas com os filtros opcionais que chegam da
+ * API (período, forma de pagamento, faixa de valor, produto). Cada página é buscarIds* + findAllComItensByIdIn
+ * pelo Hibernate. Com os dois tamanhos de massa, as páginas devem ficar no mesmo tempo e a base não.
+ *
+ * Precisa de um PostgreSQL (ver MassaVendas). Rodar pelo main (classpath de testes, depois de mvn test-compile).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PaginacaoVendasBenchmark {
+
+    // Vendas do usuário medido (a massa tem o triplo, espalhado entre outros usuários)
+    @Param({"20000", "200000"})
+    public int vendasDoUsuario;
+
+    // Profundidade da página funda (fração das vendas do usuário que já foram paginadas)
+    @Param({"0.9"})
+    public double profundidade;
+
+    private MassaVendas massa;
+    private VendaService vendaService;
+    private TransactionTemplate somenteLeitura;
+    private User usuario;
+    private String cursorFundo;
+    private String cursorFundoFiltrado;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        massa = MassaVendas.preparar(vendasDoUsuario, 3);
+        vendaService = massa.bean(VendaService.class);
+        somenteLeitura = new TransactionTemplate(massa.bean(PlatformTransactionManager.class));
+        somenteLeitura.setReadOnly(true);
+        usuario = massa.usuario();
+
+        JdbcTemplate jdbc = massa.bean(JdbcTemplate.class);
+        cursorFundo = cursorNaProfundidade(jdbc, "");
+        cursorFundoFiltrado = cursorNaProfundidade(jdbc, """
+                AND data >= TIMESTAMP '2024-01-01' AND forma_pagamento = 'PIX' AND valor_total >= 50
+                """);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        massa.close();
+    }
+
+    // Última venda de uma página na profundidade pedida, no formato de cursor que o VendaService devolve
+    private String cursorNaProfundidade(JdbcTemplate jdbc, String filtros) {
+        Long total = jdbc.queryForObject("SELECT COUNT(*) FROM venda WHERE id_usuario = ? " + filtros,
+                Long.class, usuario.getId());
+        return jdbc.queryForObject("SELECT data, id_venda FROM venda WHERE id_usuario = ? " + filtros
+                        + " ORDER BY data DESC, id_venda DESC OFFSET ? LIMIT 1",
+                (rs, linha) -> {
+                    String valor = rs.getTimestamp(1).toLocalDateTime() + "|" + rs.getLong(2);
+                    return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+                },
+                usuario.getId(), (long) (total * profundidade));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public int listagemAntigaFindAll() {
+        List<VendaDTO> vendas = somenteLeitura.execute(status ->
+                vendaService.findAll().stream().map(vendaService::toDTO).toList());
+        return vendas.size();
+    }
+
+    @Benchmark
+    public VendaPaginaDTO primeiraPagina() {
+        return vendaService.buscar(new VendaFiltroDTO(), usuario);
+    }
+
+    @Benchmark
+    public VendaPaginaDTO paginaFunda() {
+        VendaFiltroDTO filtro = new VendaFiltroDTO();
+        filtro.setCursor(cursorFundo);
+        return vendaService.buscar(filtro, usuario);
+    }
+
+    @Benchmark
+    public VendaPaginaDTO primeiraPaginaComFiltros() {
+        return vendaService.buscar(comFiltros(), usuario);
+    }
+
+    @Benchmark
+    public VendaPaginaDTO paginaFundaComFiltros() {
+        VendaFiltroDTO filtro = comFiltros();
+        filtro.setCursor(cursorFundoFiltrado);
+        return vendaService.buscar(filtro, usuario);
+    }
+
+    // Vendas que contêm um produto: o EXISTS sobre venda_item (índice id_produto, id_venda)
+    @Benchmark
+    public VendaPaginaDTO primeiraPaginaPorProduto() {
+        VendaFiltroDTO filtro = new VendaFiltroDTO();
+        filtro.setIdProduto(7L);
+        return vendaService.buscar(filtro, usuario);
+    }
+
+    private static VendaFiltroDTO comFiltros() {
+        VendaFiltroDTO filtro = new VendaFiltroDTO();
+        filtro.setDataInicio(LocalDateTime.of(2024, 1, 1, 0, 0));
+        filtro.setFormaPagamento(FormaPagamento.PIX);
+        filtro.setValorMinimo(new BigDecimal("50"));
+        return filtro;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PaginacaoVendasBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package br.ueg.meueg.benchmark;
+
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.PreprocessadorAudio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do PreprocessadorAudio por segundo de áudio: WAV de 10 s como o app grava (2 s de silêncio com
+ * ruído de fundo, 6 s de "fala" e 2 s de silêncio), em 44,1 kHz estéreo (junta canais, reamostra e corta)
+ * e em 16 kHz mono (só corta o silêncio). O resultado já vem dividido pelos segundos de áudio.
+ * Na subida imprime quanto do áudio sobra para o STT.
+ *
+ * O preparar trata o buffer no lugar: cada chamada recebe o WAV original restaurado num Setup por
+ * invocação (a cópia fica fora da medida; com chamadas de milissegundos o custo do Setup não pesa).
+ *
+ * Roda sem dependências externas: main com o classpath de testes, depois de mvn test-compile.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreprocessamentoAudioBenchmark {
+
+    private static final int SEGUNDOS = 10;
+
+    // taxa:canais
+    @Param({"44100:2", "16000:1"})
+    public String formato;
+
+    private PreprocessadorAudio preprocessador;
+    private byte[] original;
+    private byte[] audio;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        preprocessador = new PreprocessadorAudio();
+        // Mesmos valores do application.properties
+        ReflectionTestUtils.setField(preprocessador, "habilitado", true);
+        ReflectionTestUtils.setField(preprocessador, "taxaAlvo", 16000);
+        ReflectionTestUtils.setField(preprocessador, "limiarRms", 300.0);
+        ReflectionTestUtils.setField(preprocessador, "fatorRuido", 3.0);
+        ReflectionTestUtils.setField(preprocessador, "margemMs", 250);
+
+        String[] partes = formato.split(":");
+        original = wav(Integer.parseInt(partes[0]), Integer.parseInt(partes[1]));
+        audio = new byte[original.length];
+
+        restaurar();
+        AudioPreparado preparado = preprocessador.preparar(audio);
+        System.out.printf("%n%s: %d bytes no upload, %d bytes (%d ms de áudio) enviados ao STT%n",
+                formato, original.length, preparado.tamanho(), preparado.duracaoMs());
+    }
+
+    @Setup(Level.Invocation)
+    public void restaurar() {
+        System.arraycopy(original, 0, audio, 0, original.length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGUNDOS)
+    public AudioPreparado preparar10Segundos() {
+        return preprocessador.preparar(audio);
+    }
+
+    // Fala simulada: tom de 220 Hz com harmônico e envelope de sílabas (~4 por segundo) sobre o mesmo ruído
+    private static byte[] wav(int taxa, int canais) {
+        int quadros = taxa * SEGUNDOS;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + quadros * canais * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + quadros * canais * 2).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) canais)
+                .putInt(taxa).putInt(taxa * canais * 2).putShort((short) (canais * 2)).putShort((short) 16);
+        buffer.put("data".getBytes()).putInt(quadros * canais * 2);
+
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < quadros; i++) {
+            double t = (double) i / taxa;
+            double amostra = aleatorio.nextGaussian() * 40;
+            if (t >= 2 && t < 8) {
+                double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t);
+                amostra += envelope * (6000 * Math.sin(2 * Math.PI * 220 * t) + 2000 * Math.sin(2 * Math.PI * 440 * t));
+            }
+            for (int c = 0; c < canais; c++) {
+                buffer.putShort((short) amostra);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PreprocessamentoAudioBenchmark.class.getSimpleName()).build()).run();
+    }
+}
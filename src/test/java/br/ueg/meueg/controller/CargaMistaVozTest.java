@@ -0,0 +1,160 @@
+package br.ueg.meueg.controller;
+
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.repository.UserRepository;
+import br.ueg.meueg.security.JwtUtil;
+import br.ueg.meueg.service.SpeechToTextService;
+import br.ueg.meueg.voz.Prazo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Muitos comandos de voz lentos ao mesmo tempo (multipart e streaming) não podem prender as threads do Tomcat:
+// o CRUD continua rápido
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=4",
+        "server.tomcat.threads.min-spare=4"
+})
+@ActiveProfiles("test")
+class CargaMistaVozTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CargaMistaVozTest.class);
+    private static final long DEMORA_STT_MS = 2000;
+    private static final int COMANDOS_DE_VOZ = 24; // 6x o número de threads do Tomcat
+    private static final int CONSULTAS = 20;
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private String token;
+
+    // STT lento no lugar do real: segura o comando como um backend demorado e não transcreve nada
+    @TestConfiguration
+    static class SttLento {
+        @Bean
+        @Primary
+        SpeechToTextService sttLento() {
+            return new SpeechToTextService() {
+                @Override
+                public String transcrever(byte[] audio, Prazo prazo) throws InterruptedException {
+                    Thread.sleep(DEMORA_STT_MS);
+                    return null;
+                }
+
+                @Override
+                public String transcreverStream(InputStream audio, int taxaAmostragem, Prazo prazo) throws Exception {
+                    audio.transferTo(OutputStream.nullOutputStream());
+                    Thread.sleep(DEMORA_STT_MS);
+                    return null;
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    void preparar() {
+        String username = "carga-" + UUID.randomUUID();
+        userRepository.save(User.builder().username(username).password("x").nome("Caixa").build());
+        token = jwtUtil.generateToken(username);
+    }
+
+    @Test
+    void crudNaoEsperaOsComandosDeVoz() throws Exception {
+        List<Long> semCarga = consultar();
+
+        List<CompletableFuture<HttpResponse<String>>> comandos = new ArrayList<>();
+        for (int i = 0; i < COMANDOS_DE_VOZ; i++) {
+            HttpRequest comando = i % 2 == 0 ? comandoDeVoz() : comandoDeVozEmStream();
+            comandos.add(httpClient.sendAsync(comando, HttpResponse.BodyHandlers.ofString()));
+        }
+        Thread.sleep(300); // Os uploads chegam e os comandos ficam parados no STT
+        List<Long> comCarga = consultar();
+
+        // Com as threads do Tomcat presas no STT, cada consulta esperaria ~DEMORA_STT_MS por uma thread livre
+        log.info("CRUD p50/max sem carga: {}/{} ms; com {} comandos de voz: {}/{} ms",
+                mediana(semCarga), Collections.max(semCarga), COMANDOS_DE_VOZ, mediana(comCarga), Collections.max(comCarga));
+        assertThat(Collections.max(comCarga)).isLessThan(DEMORA_STT_MS / 2);
+        for (CompletableFuture<HttpResponse<String>> comando : comandos) {
+            assertThat(comando.get(30, TimeUnit.SECONDS).statusCode()).isEqualTo(400); // "Não foi possível transcrever"
+        }
+    }
+
+    private List<Long> consultar() throws Exception {
+        List<Long> tempos = new ArrayList<>();
+        for (int i = 0; i < CONSULTAS; i++) {
+            long inicio = System.nanoTime();
+            HttpResponse<String> resposta = httpClient.send(HttpRequest.newBuilder(url("/api/v1/produtos-servicos"))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(resposta.statusCode()).isEqualTo(200);
+            tempos.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        }
+        return tempos;
+    }
+
+    private HttpRequest comandoDeVoz() {
+        String boundary = "----carga" + UUID.randomUUID();
+        String corpo = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"audioFile\"; filename=\"audio.wav\"\r\n"
+                + "Content-Type: audio/wav\r\n\r\n"
+                + "RIFF-audio-qualquer\r\n"
+                + "--" + boundary + "--\r\n";
+        return HttpRequest.newBuilder(url("/api/v1/voz/processar-venda"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(corpo, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private HttpRequest comandoDeVozEmStream() {
+        return HttpRequest.newBuilder(url("/api/v1/voz/processar-venda/stream"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/octet-stream")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(new byte[3200]))
+                .build();
+    }
+
+    private URI url(String caminho) {
+        return URI.create("http://localhost:" + porta + caminho);
+    }
+
+    private static long mediana(List<Long> tempos) {
+        List<Long> ordenados = new ArrayList<>(tempos);
+        Collections.sort(ordenados);
+        return ordenados.get(ordenados.size() / 2);
+    }
+}
@@ -0,0 +1,283 @@
+package br.ueg.meueg.estoque;
+
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import br.ueg.meueg.enums.TipoMovimentacao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Motor sobre uma "tabela estoque" em memória e transações sem banco: o que importa é quando cada saldo fica visível
+class MotorEstoqueMemoriaTest {
+
+    private static final Long ID_ESTOQUE = 1L;
+
+    private final Map<Long, Integer> tabela = new ConcurrentHashMap<>(Map.of(ID_ESTOQUE, 10)); // Saldo no banco
+    private final List<Object[]> livro = new CopyOnWriteArrayList<>(); // Movimentações gravadas pelo write-behind
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new TransacoesFalsas());
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch liberar = new CountDownLatch(1); // Fecha a transação aberta por emTransacaoAberta
+    private Path diretorioJournal;
+    private MotorEstoqueMemoria motor;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        diretorioJournal = Files.createTempDirectory("journal-estoque");
+        motor = novoMotor();
+    }
+
+    private MotorEstoqueMemoria novoMotor() {
+        MotorEstoqueMemoria novo = new MotorEstoqueMemoria(new TabelaEstoque(), transactionTemplate);
+        ReflectionTestUtils.setField(novo, "caminhoJournal", diretorioJournal.resolve("estoque.journal").toString());
+        ReflectionTestUtils.setField(novo, "tamanhoLote", 5000);
+        ReflectionTestUtils.setField(novo, "esperaJournalMs", 2000L);
+        ReflectionTestUtils.invokeMethod(novo, "iniciar");
+        return novo;
+    }
+
+    @AfterEach
+    void encerrar() throws Exception {
+        executor.shutdownNow();
+        try (var arquivos = Files.list(diretorioJournal)) {
+            for (Path arquivo : arquivos.toList()) {
+                Files.delete(arquivo);
+            }
+        }
+        Files.delete(diretorioJournal);
+    }
+
+    @Test
+    void estornoDesfeitoNaoDeixaVenderOQueNuncaEntrou() throws Exception {
+        // Exclusão de venda que devolve 5 e depois desfaz; no meio dela um caixa tenta vender 12 (saldo real: 10)
+        Future<?> exclusao = emTransacaoAberta(() -> estornar(5), false);
+
+        Long semSaldo = vender(12);
+
+        liberar.countDown();
+        exclusao.get(5, TimeUnit.SECONDS);
+        assertThat(semSaldo).isEqualTo(ID_ESTOQUE);
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(10);
+
+        assertThat(vender(10)).isNull();
+        ReflectionTestUtils.invokeMethod(motor, "encerrar");
+        assertThat(tabela.get(ID_ESTOQUE)).isZero();
+        assertThat(livro.stream().map(m -> m[3]).toList()).containsExactly("VENDA"); // O estorno desfeito não chega ao livro
+    }
+
+    @Test
+    void estornoConfirmadoEntraNoSaldoDepoisDoCommit() throws Exception {
+        Future<?> exclusao = emTransacaoAberta(() -> estornar(5), true);
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(10); // Outra thread ainda não enxerga a entrada
+
+        liberar.countDown();
+        exclusao.get(5, TimeUnit.SECONDS);
+
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(15);
+        assertThat(vender(12)).isNull();
+        ReflectionTestUtils.invokeMethod(motor, "encerrar");
+        assertThat(tabela.get(ID_ESTOQUE)).isEqualTo(3);
+    }
+
+    @Test
+    void entradaDaPropriaTransacaoApareceNoSaldoDela() {
+        Integer dentro = transactionTemplate.execute(status -> {
+            estornar(5);
+            return motor.saldo(ID_ESTOQUE);
+        });
+
+        assertThat(dentro).isEqualTo(15);
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(15);
+    }
+
+    @Test
+    void ajusteParaCimaDesfeitoNaoChegaAoContador() throws Exception {
+        Future<?> inventario = emTransacaoAberta(() -> assertThat(ajustar(30)).isEqualTo(10), false);
+
+        Long semSaldo = vender(25);
+
+        liberar.countDown();
+        inventario.get(5, TimeUnit.SECONDS);
+        assertThat(semSaldo).isEqualTo(ID_ESTOQUE);
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(10);
+        ReflectionTestUtils.invokeMethod(motor, "encerrar");
+        assertThat(tabela.get(ID_ESTOQUE)).isEqualTo(10);
+    }
+
+    @Test
+    void ajusteParaBaixoReservaNaHoraEVoltaNoRollback() throws Exception {
+        Future<?> inventario = emTransacaoAberta(() -> assertThat(ajustar(4)).isEqualTo(10), false);
+
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(4); // Baixa vale já: ninguém vende o que o inventário tirou
+        Long semSaldo = vender(5);
+
+        liberar.countDown();
+        inventario.get(5, TimeUnit.SECONDS);
+        assertThat(semSaldo).isEqualTo(ID_ESTOQUE);
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(10);
+    }
+
+    @Test
+    void ajusteConfirmadoSomaAsVendasDoMeioComoDiferenca() throws Exception {
+        Future<?> inventario = emTransacaoAberta(() -> ajustar(30), true);
+        assertThat(vender(3)).isNull();
+
+        liberar.countDown();
+        inventario.get(5, TimeUnit.SECONDS);
+
+        // Contagem de 30 feita antes da venda de 3: o livro recebe +20 e -3
+        assertThat(motor.saldo(ID_ESTOQUE)).isEqualTo(27);
+        ReflectionTestUtils.invokeMethod(motor, "encerrar");
+        assertThat(tabela.get(ID_ESTOQUE)).isEqualTo(27);
+    }
+
+    @Test
+    void journalNaoAplicadoEntraNoLivroNaSubida() throws Exception {
+        assertThat(vender(3)).isNull();
+        // Queda antes do write-behind: o journal fica em disco, o livro não recebeu nada
+        ((JournalEstoque) ReflectionTestUtils.getField(motor, "journal")).close();
+        assertThat(livro).isEmpty();
+
+        MotorEstoqueMemoria reiniciado = novoMotor();
+
+        assertThat(livro).hasSize(1);
+        Object[] venda = livro.get(0); // estoque, produto, usuário, tipo, quantidade, data, venda
+        assertThat(venda[3]).isEqualTo("VENDA");
+        assertThat(venda[4]).isEqualTo(-3);
+        assertThat(venda[6]).isEqualTo(99L);
+        assertThat(tabela.get(ID_ESTOQUE)).isEqualTo(7);
+        ReflectionTestUtils.invokeMethod(reiniciado, "encerrar");
+    }
+
+    @Test
+    void alteracaoForaDeTransacaoERecusada() {
+        assertThatThrownBy(() -> motor.reservar(Map.of(ID_ESTOQUE, 1))).isInstanceOf(IllegalStateException.class);
+    }
+
+    // Como VendaServiceImpl/EstoqueServiceImpl: mexe no contador e lança a movimentação correspondente
+    private Long vender(int quantidade) {
+        return transactionTemplate.execute(status -> {
+            Long semSaldo = motor.reservar(Map.of(ID_ESTOQUE, quantidade));
+            if (semSaldo == null) {
+                motor.lancar(List.of(movimentacao(TipoMovimentacao.VENDA, -quantidade)));
+            }
+            return semSaldo;
+        });
+    }
+
+    private void estornar(int quantidade) {
+        motor.adicionar(Map.of(ID_ESTOQUE, quantidade));
+        motor.lancar(List.of(movimentacao(TipoMovimentacao.ESTORNO_VENDA, quantidade)));
+    }
+
+    private int ajustar(int quantidade) {
+        int anterior = motor.ajustar(ID_ESTOQUE, quantidade);
+        motor.lancar(List.of(movimentacao(TipoMovimentacao.AJUSTE, quantidade - anterior)));
+        return anterior;
+    }
+
+    private static MovimentacaoEstoque movimentacao(TipoMovimentacao tipo, int quantidade) {
+        return MovimentacaoEstoque.builder()
+                .idEstoque(ID_ESTOQUE).idProduto(2L).idUsuario(3L)
+                .tipo(tipo).quantidade(quantidade)
+                .idVenda(tipo == TipoMovimentacao.AJUSTE ? null : 99L)
+                .build();
+    }
+
+    // Roda o trabalho numa transação em outra thread e a deixa aberta até o teste liberar
+    private Future<?> emTransacaoAberta(Runnable trabalho, boolean confirmar) throws InterruptedException {
+        CountDownLatch feito = new CountDownLatch(1);
+        Future<?> transacao = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            trabalho.run();
+            feito.countDown();
+            try {
+                assertThat(liberar.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!confirmar) {
+                status.setRollbackOnly();
+            }
+        }));
+        assertThat(feito.await(5, TimeUnit.SECONDS)).isTrue();
+        return transacao;
+    }
+
+    // Só o que o motor usa: saldo do livro, checkpoint, trava e o lote do write-behind (que soma no saldo)
+    private class TabelaEstoque extends JdbcTemplate {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            return (T) tabela.get((Long) args[0]);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T query(String sql, ResultSetExtractor<T> rse) {
+            return (T) Long.valueOf(0); // Sem checkpoint
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            return (List<T>) List.of(args);
+        }
+
+        // Parâmetros de cada lançamento: estoque, produto, usuário, tipo, quantidade, data, venda
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            for (Object[] parametros : batchArgs) {
+                livro.add(parametros);
+                tabela.merge((Long) parametros[0], (Integer) parametros[4], Integer::sum);
+            }
+            return new int[batchArgs.size()];
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            return 1;
+        }
+    }
+
+    // Sincronizações do Spring (beforeCommit/afterCompletion) sem conexão nenhuma por trás
+    private static class TransacoesFalsas extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
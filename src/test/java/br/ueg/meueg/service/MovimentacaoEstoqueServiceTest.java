@@ -0,0 +1,136 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.entity.Estoque;
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.enums.TipoMovimentacao;
+import br.ueg.meueg.repository.EstoqueRepository;
+import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Saldo = consolidado + livro: a consolidação não pode mudar o saldo nem deixar lançamento para trás
+@SpringBootTest(properties = "estoque.snapshot.margem-relogio-segundos=0")
+@ActiveProfiles("test")
+class MovimentacaoEstoqueServiceTest {
+
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoEstoqueService;
+    @Autowired
+    private EstoqueService estoqueService;
+    @Autowired
+    private EstoqueRepository estoqueRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProdutoServicoRepository produtoServicoRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private User usuario;
+    private ProdutoServico produto;
+    private Long idEstoque;
+
+    @BeforeEach
+    void preparar() {
+        usuario = userRepository.save(User.builder()
+                .username("livro-" + UUID.randomUUID()).password("x").nome("Caixa").build());
+        produto = produtoServicoRepository.save(ProdutoServico.builder()
+                .nome("Pipoca").tipo("PRODUTO").categoria("Geral")
+                .preco(new BigDecimal("5.00")).custo(new BigDecimal("2.00"))
+                .usuario(usuario).build());
+        idEstoque = estoqueService.save(Estoque.builder()
+                .produtoServico(ProdutoServico.builder().id(produto.getId()).build())
+                .quantidade(50).build(), usuario).getId();
+    }
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void estoqueNovoComecaZeradoComAEntradaNoLivro() {
+        assertThat(estoqueRepository.findById(idEstoque).orElseThrow().getQuantidade()).isZero();
+        List<MovimentacaoEstoque> lancamentos = movimentacaoEstoqueService.listarRecentes(idEstoque);
+        assertThat(lancamentos).hasSize(1);
+        assertThat(lancamentos.get(0).getTipo()).isEqualTo(TipoMovimentacao.ENTRADA);
+        assertThat(saldo()).isEqualTo(50);
+    }
+
+    @Test
+    void consolidacaoLevaOLivroParaOSaldoSemMudarOSaldo() {
+        estoqueService.removeQuantidade(produto.getId(), 8, usuario);
+        estoqueService.addQuantidade(produto.getId(), 3, usuario);
+
+        assertThat(movimentacaoEstoqueService.gerarSnapshots()).isGreaterThanOrEqualTo(1);
+
+        Estoque consolidado = estoqueRepository.findById(idEstoque).orElseThrow();
+        assertThat(consolidado.getQuantidade()).isEqualTo(45);
+        assertThat(saldo()).isEqualTo(45);
+        assertThat(movimentacaoEstoqueService.saldoEm(idEstoque, LocalDateTime.now())).isEqualTo(45);
+
+        // O próximo lançamento soma em cima do consolidado, sem mexer nele
+        estoqueService.removeQuantidade(produto.getId(), 5, usuario);
+        assertThat(saldo()).isEqualTo(40);
+        assertThat(estoqueRepository.findById(idEstoque).orElseThrow().getQuantidade()).isEqualTo(45);
+    }
+
+    @Test
+    void lancamentoDeTransacaoDemoradaNaoFicaParaTrasDaConsolidacao() throws Exception {
+        // Um caixa trava o estoque, lança a saída e demora a confirmar; a consolidação roda no meio
+        CountDownLatch lancado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Future<?> caixa = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            Estoque estoque = estoqueRepository.findAllByProdutoServicoIdInParaAtualizar(Set.of(produto.getId()), usuario).get(0);
+            movimentacaoEstoqueService.registrar(List.of(MovimentacaoEstoque.de(estoque, TipoMovimentacao.SAIDA, -7, null)));
+            lancado.countDown();
+            aguardar(liberar);
+        }));
+        assertThat(lancado.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<Integer> consolidacao = executor.submit(movimentacaoEstoqueService::gerarSnapshots);
+        Thread.sleep(300); // A consolidação fica esperando a trava do caixa
+        assertThat(consolidacao.isDone()).isFalse();
+
+        liberar.countDown();
+        caixa.get(5, TimeUnit.SECONDS);
+        consolidacao.get(5, TimeUnit.SECONDS);
+
+        assertThat(estoqueRepository.findById(idEstoque).orElseThrow().getQuantidade()).isEqualTo(43);
+        assertThat(saldo()).isEqualTo(43);
+    }
+
+    private int saldo() {
+        return movimentacaoEstoqueService.saldosAtuais(List.of(idEstoque)).get(idEstoque);
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.dto.ResumoVendaDTO;
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.entity.Venda;
+import br.ueg.meueg.enums.AgrupamentoRelatorio;
+import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.enums.Granularidade;
+import br.ueg.meueg.suporte.CenarioVendas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Resumos de venda no PostgreSQL de verdade (upsert ON CONFLICT e travas consultivas não rodam no H2):
+// o incremental da venda, da exclusão e da alteração tem que bater com a reconstrução a partir do histórico
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect")
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@Import(CenarioVendas.class)
+class VendaResumoServicePostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void banco(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private VendaService vendaService;
+    @Autowired
+    private VendaResumoService vendaResumoService;
+    @Autowired
+    private CenarioVendas cenario;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User usuario;
+    private ProdutoServico pipoca;
+    private ProdutoServico refrigerante;
+
+    @BeforeEach
+    void preparar() {
+        usuario = cenario.novoCaixa("resumos");
+        pipoca = cenario.novoProduto(usuario, "Pipoca", 100);        // R$ 5,00, custo R$ 2,00
+        refrigerante = cenario.novoProduto(usuario, "Refrigerante", 100);
+    }
+
+    @Test
+    void vendaSomaNosResumosDeTodasAsGranularidades() {
+        vendaService.save(cenario.novaVenda(usuario, List.of(pipoca, pipoca, refrigerante)));
+
+        for (Granularidade granularidade : Granularidade.values()) {
+            Map<Long, ResumoVendaDTO> porProduto = porProduto(granularidade);
+            assertThat(porProduto.get(pipoca.getId()).getQuantidade()).as("pipoca, %s", granularidade).isEqualTo(2L);
+            assertThat(porProduto.get(pipoca.getId()).getReceita()).isEqualByComparingTo("10.00");
+            assertThat(porProduto.get(pipoca.getId()).getCusto()).isEqualByComparingTo("4.00");
+            assertThat(porProduto.get(refrigerante.getId()).getQuantidade()).as("refrigerante, %s", granularidade).isEqualTo(1L);
+            assertThat(porProduto.get(refrigerante.getId()).getLucro()).isEqualByComparingTo("3.00");
+        }
+    }
+
+    @Test
+    void exclusaoEstornaAVendaDosResumos() {
+        vendaService.save(cenario.novaVenda(usuario, List.of(pipoca)));
+        Venda excluida = vendaService.save(cenario.novaVenda(usuario, List.of(pipoca, refrigerante)));
+
+        vendaService.delete(excluida.getId_venda());
+
+        ResumoVendaDTO total = total();
+        assertThat(total.getQuantidade()).isEqualTo(1L);
+        assertThat(total.getReceita()).isEqualByComparingTo("5.00");
+        assertThat(porProduto(Granularidade.DIARIO).get(refrigerante.getId()).getQuantidade()).isZero();
+    }
+
+    @Test
+    void alteracaoDaFormaDePagamentoMoveAVendaDeLinha() {
+        Venda venda = vendaService.save(cenario.novaVenda(usuario, List.of(pipoca, refrigerante)));
+
+        Venda alteracao = Venda.builder()
+                .usuario(User.builder().id(usuario.getId()).build())
+                .forma_pagamento(FormaPagamento.DINHEIRO)
+                .build();
+        vendaService.update(venda.getId_venda(), alteracao);
+
+        Map<String, ResumoVendaDTO> porForma = new HashMap<>();
+        for (ResumoVendaDTO linha : relatorio(Granularidade.MENSAL, AgrupamentoRelatorio.FORMA_PAGAMENTO)) {
+            porForma.put(linha.getFormaPagamento(), linha);
+        }
+        assertThat(porForma.get("PIX").getQuantidade()).isZero();
+        assertThat(porForma.get("PIX").getReceita()).isEqualByComparingTo("0");
+        assertThat(porForma.get("DINHEIRO").getQuantidade()).isEqualTo(2L);
+        assertThat(porForma.get("DINHEIRO").getReceita()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void reconstrucaoChegaAosMesmosTotaisDoIncremental() {
+        vendaService.save(cenario.novaVenda(usuario, List.of(pipoca, pipoca)));
+        Venda excluida = vendaService.save(cenario.novaVenda(usuario, List.of(refrigerante)));
+        vendaService.save(cenario.novaVenda(usuario, List.of(pipoca, refrigerante)));
+        vendaService.delete(excluida.getId_venda());
+        Map<Long, ResumoVendaDTO> incremental = porProduto(Granularidade.SEMANAL);
+
+        // Resumos corrompidos: a reconstrução lê só venda/venda_item
+        jdbcTemplate.update("UPDATE venda_resumo SET quantidade = 999, receita = 0 WHERE id_usuario = ?", usuario.getId());
+        assertThat(vendaResumoService.reconstruir(usuario.getId())).isEqualTo(1); // Um bloco mensal
+
+        Map<Long, ResumoVendaDTO> reconstruido = porProduto(Granularidade.SEMANAL);
+        for (Long idProduto : List.of(pipoca.getId(), refrigerante.getId())) {
+            assertThat(reconstruido.get(idProduto).getQuantidade()).isEqualTo(incremental.get(idProduto).getQuantidade());
+            assertThat(reconstruido.get(idProduto).getReceita()).isEqualByComparingTo(incremental.get(idProduto).getReceita());
+            assertThat(reconstruido.get(idProduto).getCusto()).isEqualByComparingTo(incremental.get(idProduto).getCusto());
+        }
+        assertThat(reconstruido.get(pipoca.getId()).getQuantidade()).isEqualTo(3L);
+        assertThat(reconstruido.get(refrigerante.getId()).getQuantidade()).isEqualTo(1L);
+    }
+
+    // As vendas do teste são todas de hoje: um período por granularidade
+    private List<ResumoVendaDTO> relatorio(Granularidade granularidade, AgrupamentoRelatorio agrupamento) {
+        LocalDate hoje = LocalDate.now();
+        return vendaResumoService.relatorio(usuario.getId(), granularidade, hoje, hoje, agrupamento);
+    }
+
+    private Map<Long, ResumoVendaDTO> porProduto(Granularidade granularidade) {
+        Map<Long, ResumoVendaDTO> porProduto = new HashMap<>();
+        for (ResumoVendaDTO linha : relatorio(granularidade, AgrupamentoRelatorio.PRODUTO)) {
+            porProduto.put(linha.getIdProduto(), linha);
+        }
+        return porProduto;
+    }
+
+    private ResumoVendaDTO total() {
+        List<ResumoVendaDTO> linhas = relatorio(Granularidade.DIARIO, AgrupamentoRelatorio.TOTAL);
+        assertThat(linhas).hasSize(1);
+        return linhas.get(0);
+    }
+}
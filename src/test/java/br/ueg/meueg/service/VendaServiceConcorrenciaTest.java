@@ -0,0 +1,137 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.suporte.CenarioVendas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Vários caixas vendendo os mesmos produtos ao mesmo tempo: sem venda acima do saldo, sem baixa perdida e sem deadlock
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(CenarioVendas.class)
+class VendaServiceConcorrenciaTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VendaServiceConcorrenciaTest.class);
+    private static final int THREADS = 16;
+    private static final int TENTATIVAS_POR_THREAD = 60;
+    // Piso bem folgado (uma venda leva poucos ms no H2): abaixo disso as vendas estão se enfileirando umas atrás das outras
+    private static final double TENTATIVAS_POR_SEGUNDO_MINIMO = 50;
+
+    @Autowired
+    private VendaService vendaService;
+    @Autowired
+    private CenarioVendas cenario;
+
+    @MockBean // Ver CenarioVendas
+    private VendaResumoService vendaResumoService;
+
+    private User usuario;
+
+    @BeforeEach
+    void preparar() {
+        usuario = cenario.novoCaixa("concorrencia");
+    }
+
+    @Test
+    void umProdutoDisputadoNaoVendeAcimaDoSaldoNemPerdeBaixa() throws Exception {
+        int saldoInicial = 500; // Menos que THREADS * TENTATIVAS_POR_THREAD: parte das vendas tem que ser recusada
+        ProdutoServico produto = cenario.novoProduto(usuario, "Pipoca", saldoInicial);
+
+        Resultado resultado = martelar(indice -> List.of(produto));
+
+        int saldoFinal = cenario.saldo(usuario, produto);
+        assertThat(resultado.erros()).as("erros inesperados (deadlock, timeout de lock...)").isEmpty();
+        assertThat(saldoFinal).isGreaterThanOrEqualTo(0);
+        assertThat(resultado.vendidas()).isEqualTo(saldoInicial);
+        assertThat(saldoInicial - saldoFinal).as("baixas gravadas = vendas confirmadas").isEqualTo(resultado.vendidas());
+        assertThat(resultado.recusadas()).isEqualTo(THREADS * TENTATIVAS_POR_THREAD - saldoInicial);
+        registrar("1 produto disputado", resultado);
+    }
+
+    @Test
+    void carrinhosComOsMesmosProdutosEmOrdemInversaNaoTravam() throws Exception {
+        int saldoInicial = THREADS * TENTATIVAS_POR_THREAD; // Dá para todas: qualquer recusa seria erro
+        ProdutoServico a = cenario.novoProduto(usuario, "Refrigerante", saldoInicial);
+        ProdutoServico b = cenario.novoProduto(usuario, "Salgado", saldoInicial);
+
+        // Metade dos caixas passa A depois B, a outra metade B depois A (clássico de deadlock sem ordem fixa)
+        Resultado resultado = martelar(indice -> indice % 2 == 0 ? List.of(a, b) : List.of(b, a));
+
+        assertThat(resultado.erros()).as("erros inesperados (deadlock, timeout de lock...)").isEmpty();
+        assertThat(resultado.recusadas()).isZero();
+        assertThat(resultado.vendidas()).isEqualTo(THREADS * TENTATIVAS_POR_THREAD);
+        assertThat(cenario.saldo(usuario, a)).isZero();
+        assertThat(cenario.saldo(usuario, b)).isZero();
+        registrar("2 produtos em ordem inversa", resultado);
+    }
+
+    // Dispara todas as threads juntas; cada uma tenta TENTATIVAS_POR_THREAD vendas de 1 unidade por produto
+    private Resultado martelar(IntFunction<List<ProdutoServico>> carrinho) throws InterruptedException {
+        AtomicInteger vendidas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        Queue<Throwable> erros = new ConcurrentLinkedQueue<>();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int indice = t;
+            executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                    try {
+                        vendaService.save(cenario.novaVenda(usuario, carrinho.apply(indice)));
+                        vendidas.incrementAndGet();
+                    } catch (BusinessException e) {
+                        recusadas.incrementAndGet(); // Saldo insuficiente: recusa esperada
+                    } catch (Throwable e) {
+                        erros.add(e);
+                    }
+                }
+                return null;
+            });
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        executor.shutdown();
+        // Deadlock não detectado pelo banco apareceria aqui como threads presas
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).as("todas as vendas terminaram").isTrue();
+        return new Resultado(vendidas.get(), recusadas.get(), new ArrayList<>(erros), System.nanoTime() - inicio);
+    }
+
+    // Vazão no log do teste; a asserção só pega degradação grosseira (vendas paradas esperando trava até o timeout)
+    private void registrar(String descricao, Resultado resultado) {
+        double segundos = resultado.duracaoNanos() / 1e9;
+        double tentativasPorSegundo = (resultado.vendidas() + resultado.recusadas()) / segundos;
+        log.info("[concorrência] {}: {} threads, {} confirmadas, {} recusadas em {} s ({} tentativas/s)",
+                descricao, THREADS, resultado.vendidas(), resultado.recusadas(),
+                String.format("%.2f", segundos), String.format("%.0f", tentativasPorSegundo));
+        assertThat(tentativasPorSegundo).as("tentativas de venda por segundo (%s)", descricao)
+                .isGreaterThan(TENTATIVAS_POR_SEGUNDO_MINIMO);
+    }
+
+    private record Resultado(int vendidas, int recusadas, List<Throwable> erros, long duracaoNanos) {
+    }
+}
@@ -0,0 +1,97 @@
+package br.ueg.meueg.service;
+
+import br.ueg.meueg.entity.Estoque;
+import br.ueg.meueg.entity.MovimentacaoEstoque;
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.entity.Venda;
+import br.ueg.meueg.suporte.CenarioVendas;
+import br.ueg.meueg.suporte.ContadorSql;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Regressão do N+1 na venda: o número de consultas não pode crescer com o número de itens
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(CenarioVendas.class)
+class VendaServiceConsultasTest {
+
+    private static final int PRODUTOS = 40;
+
+    @Autowired
+    private VendaService vendaService;
+    @Autowired
+    private MovimentacaoEstoqueService movimentacaoEstoqueService;
+    @Autowired
+    private CenarioVendas cenario;
+
+    @MockBean // Ver CenarioVendas
+    private VendaResumoService vendaResumoService;
+
+    private User usuario;
+    private final List<ProdutoServico> produtos = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        usuario = cenario.novoCaixa("consultas");
+        produtos.clear();
+        for (int i = 0; i < PRODUTOS; i++) {
+            produtos.add(cenario.novoProduto(usuario, "Produto " + i, 1000));
+        }
+    }
+
+    @Test
+    void comandosNaoCrescemComOsItens() {
+        // Usuário, produtos, estoques travados (um FOR UPDATE), saldos do livro (uma consulta);
+        // venda, itens e movimentações em INSERT batch. A baixa é o lançamento no livro: nenhum UPDATE.
+        Contagem umItem = venderComItens(1);
+        assertThat(umItem.updates()).isZero();
+
+        for (int itens : new int[]{5, 20, PRODUTOS}) {
+            Contagem contagem = venderComItens(itens);
+            assertThat(contagem.selects()).as("SELECTs de uma venda com %d itens", itens).isEqualTo(umItem.selects());
+            assertThat(contagem.inserts()).as("INSERTs (em batch) de uma venda com %d itens", itens).isEqualTo(umItem.inserts());
+            assertThat(contagem.updates()).as("UPDATEs de uma venda com %d itens", itens).isZero();
+            assertThat(contagem.total()).as("comandos de uma venda com %d itens", itens).isEqualTo(umItem.total());
+        }
+    }
+
+    @Test
+    void itensRepetidosDoMesmoProdutoSomamNumaBaixaSo() {
+        Venda venda = cenario.novaVenda(usuario, List.of(produtos.get(0), produtos.get(0), produtos.get(1)));
+
+        ContadorSql.zerar();
+        vendaService.save(venda);
+
+        assertThat(ContadorSql.updates()).isZero();
+        Estoque estoque = cenario.estoque(usuario, produtos.get(0));
+        List<MovimentacaoEstoque> lancamentos = movimentacaoEstoqueService.listarRecentes(estoque.getId());
+        assertThat(lancamentos).hasSize(1);
+        assertThat(lancamentos.get(0).getQuantidade()).isEqualTo(-2);
+        assertThat(movimentacaoEstoqueService.saldosAtuais(List.of(estoque.getId()))).containsEntry(estoque.getId(), 998);
+        assertThat(estoque.getQuantidade()).as("saldo consolidado não muda na venda").isEqualTo(1000);
+    }
+
+    private Contagem venderComItens(int itens) {
+        Venda venda = cenario.novaVenda(usuario, produtos.subList(0, itens));
+        ContadorSql.zerar();
+        vendaService.save(venda);
+        return new Contagem(ContadorSql.selects(), ContadorSql.inserts(), ContadorSql.updates());
+    }
+
+    private record Contagem(int selects, int inserts, int updates) {
+        int total() {
+            return selects + inserts + updates;
+        }
+    }
+}
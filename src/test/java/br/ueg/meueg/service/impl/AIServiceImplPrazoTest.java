@@ -0,0 +1,143 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.cache.CacheVoz;
+import br.ueg.meueg.cache.CatalogoVersoes;
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.suporte.ServidorOllamaFalso;
+import br.ueg.meueg.voz.AdmissaoOllama;
+import br.ueg.meueg.voz.ClienteOllama;
+import br.ueg.meueg.voz.IndicesProdutos;
+import br.ueg.meueg.voz.InterpretadorComando;
+import br.ueg.meueg.voz.MetricasVoz;
+import br.ueg.meueg.voz.Prazo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// LLM travado (Ollama falso que não gera nada): o prazo corta a geração, o disjuntor passa a evitar o LLM
+// e a interrupção da thread cancela a chamada
+class AIServiceImplPrazoTest {
+
+    private static final long USUARIO = 1L;
+    private static final int FALHAS_PARA_ABRIR = 3;
+
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+    private ServidorOllamaFalso ollama;
+    private ClienteOllama clienteOllama;
+    private AIServiceImpl service;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        ollama = new ServidorOllamaFalso();
+        ollama.responder(List.of("{\"items\": [], \"payment\": null}"), 0);
+        ollama.setAtrasoInicialMs(30_000);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        MetricasVoz metricasVoz = new MetricasVoz(registro);
+        clienteOllama = new ClienteOllama(objectMapper, metricasVoz, 2000);
+        ReflectionTestUtils.setField(clienteOllama, "url", ollama.url());
+        ReflectionTestUtils.setField(clienteOllama, "modelo", "mistral");
+        ReflectionTestUtils.setField(clienteOllama, "keepAlive", "30m");
+
+        ProdutoServicoRepository produtos = mock(ProdutoServicoRepository.class);
+        when(produtos.findByUsuario_Id(USUARIO)).thenReturn(List.of(produto(1L, "Pipoca"), produto(2L, "Coxinha")));
+        CatalogoVersoes versoes = new CatalogoVersoes();
+
+        AdmissaoOllama admissao = new AdmissaoOllama(registro);
+        ReflectionTestUtils.setField(admissao, "maxConcorrentes", 2);
+        ReflectionTestUtils.setField(admissao, "filaMax", 10);
+        ReflectionTestUtils.setField(admissao, "esperaMaxMs", 5000L);
+        ReflectionTestUtils.invokeMethod(admissao, "registrarMetricas");
+
+        service = new AIServiceImpl(clienteOllama, objectMapper, new IndicesProdutos(produtos, versoes, registro, 10, 30),
+                new CacheVoz(versoes, registro, 10, 10, 60), new InterpretadorComando(), registro, admissao, metricasVoz);
+        ReflectionTestUtils.setField(service, "maxProdutosPrompt", 20);
+        ReflectionTestUtils.setField(service, "falhasParaAbrir", FALHAS_PARA_ABRIR);
+        ReflectionTestUtils.setField(service, "abertoSegundos", 30L);
+        service.iniciar();
+    }
+
+    @AfterEach
+    void encerrar() {
+        ReflectionTestUtils.invokeMethod(clienteOllama, "encerrar");
+        ollama.close();
+    }
+
+    @Test
+    void llmTravadoCaiNoInterpretadorToleranteDentroDoPrazo() throws Exception {
+        long inicio = System.nanoTime();
+        // "bem salgadas" tira a frase do caminho rápido: vai para o LLM
+        Optional<VendaDTO> venda = service.processVoiceCommand("duas pipocas bem salgadas", USUARIO, Prazo.em(Duration.ofMillis(400)));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+        assertThat(venda).isPresent();
+        assertThat(venda.get().getItens().get(0).getNomeProduto()).isEqualTo("Pipoca");
+        assertThat(venda.get().getItens().get(0).getQuantidade()).isEqualTo(2);
+        assertThat(registro.counter("voz.interpretacao.alternativa", "motivo", "prazo").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void disjuntorAbertoNemChamaOLlm() throws Exception {
+        for (int i = 0; i < FALHAS_PARA_ABRIR; i++) {
+            service.processVoiceCommand("duas pipocas bem salgadas " + i, USUARIO, Prazo.em(Duration.ofMillis(200)));
+        }
+        assertThat(ollama.getRequisicoes()).hasSize(FALHAS_PARA_ABRIR);
+
+        long inicio = System.nanoTime();
+        Optional<VendaDTO> venda = service.processVoiceCommand("uma coxinha bem quente", USUARIO, Prazo.em(Duration.ofSeconds(5)));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofMillis(200));
+        assertThat(venda).isPresent();
+        assertThat(venda.get().getItens().get(0).getNomeProduto()).isEqualTo("Coxinha");
+        assertThat(ollama.getRequisicoes()).hasSize(FALHAS_PARA_ABRIR);
+        assertThat(registro.counter("voz.interpretacao.alternativa", "motivo", "disjuntor").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void interrupcaoSobeSemCairNoCaminhoAlternativo() throws Exception {
+        AtomicReference<Throwable> erro = new AtomicReference<>();
+        AtomicBoolean interrompida = new AtomicBoolean();
+        Thread chamada = new Thread(() -> {
+            try {
+                service.processVoiceCommand("duas pipocas bem salgadas", USUARIO, Prazo.em(Duration.ofSeconds(20)));
+            } catch (Throwable e) {
+                erro.set(e);
+            }
+            interrompida.set(Thread.currentThread().isInterrupted());
+        });
+        chamada.start();
+        while (ollama.getRequisicoes().isEmpty()) {
+            Thread.sleep(10); // Geração em andamento no Ollama travado
+        }
+
+        long inicio = System.nanoTime();
+        chamada.interrupt();
+        chamada.join(5000);
+
+        assertThat(chamada.isAlive()).isFalse();
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+        assertThat(erro.get()).isInstanceOf(InterruptedException.class);
+        assertThat(interrompida.get()).isTrue();
+        assertThat(registro.counter("voz.interpretacao.alternativa", "motivo", "erro").count()).isZero();
+    }
+
+    private static ProdutoServico produto(Long id, String nome) {
+        return ProdutoServico.builder().id(id).nome(nome).preco(BigDecimal.TEN).build();
+    }
+}
@@ -0,0 +1,69 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.suporte.ServidorSpeechFalso;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.Prazo;
+import com.google.cloud.speech.v1.SpeechClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Verificação periódica do canal contra o servidor gRPC falso (que não implementa Operations: responde UNIMPLEMENTED)
+class GoogleMotorTranscricaoCanalTest {
+
+    private ServidorSpeechFalso servidor;
+    private GoogleMotorTranscricao motor;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        servidor = new ServidorSpeechFalso("duas coxinhas no pix", 10);
+        motor = new GoogleMotorTranscricao();
+        ReflectionTestUtils.setField(motor, "endpoint", servidor.endpoint());
+        ReflectionTestUtils.setField(motor, "verificacaoTimeoutMs", 2000L);
+    }
+
+    @AfterEach
+    void encerrar() throws Exception {
+        motor.encerrar();
+        servidor.close();
+    }
+
+    @Test
+    void semClienteCriadoNaoVerificaNada() {
+        motor.verificarCanal();
+
+        assertThat(cliente()).isNull();
+    }
+
+    @Test
+    void canalQueRespondeMantemOCliente() throws Exception {
+        motor.transcrever(AudioPreparado.original(new byte[3200]), Prazo.em(Duration.ofSeconds(5)));
+        SpeechClient anterior = cliente();
+
+        motor.verificarCanal();
+
+        assertThat(cliente()).isSameAs(anterior);
+        assertThat(anterior.isShutdown()).isFalse();
+    }
+
+    @Test
+    void servidorForaDoArTrocaOClienteAntesDoProximoComando() throws Exception {
+        motor.transcrever(AudioPreparado.original(new byte[3200]), Prazo.em(Duration.ofSeconds(5)));
+        SpeechClient anterior = cliente();
+        servidor.close();
+
+        motor.verificarCanal();
+
+        assertThat(cliente()).isNotSameAs(anterior);
+        assertThat(anterior.isShutdown()).isTrue();
+    }
+
+    private SpeechClient cliente() {
+        return (SpeechClient) ReflectionTestUtils.getField(motor, "speechClient");
+    }
+}
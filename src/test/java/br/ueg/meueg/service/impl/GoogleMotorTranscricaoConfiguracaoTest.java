@@ -0,0 +1,71 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.suporte.CabecalhosAudio;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.PreprocessadorAudio;
+import com.google.cloud.speech.v1.RecognitionConfig;
+import com.google.cloud.speech.v1.RecognitionConfig.AudioEncoding;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// RecognitionConfig montado para cada formato que o PreprocessadorAudio reconhece (sem chamar o Google)
+class GoogleMotorTranscricaoConfiguracaoTest {
+
+    private final GoogleMotorTranscricao motor = new GoogleMotorTranscricao();
+    private final PreprocessadorAudio preprocessador = new PreprocessadorAudio();
+
+    @Test
+    void pcmPreparadoVaiComoLinear16NaTaxaDoAudio() {
+        AudioPreparado pcm = new AudioPreparado(new byte[3200], 0, 3200, CodificacaoAudio.PCM_16, 16000, 1);
+
+        RecognitionConfig config = configuracaoPara(pcm);
+
+        assertThat(config.getEncoding()).isEqualTo(AudioEncoding.LINEAR16);
+        assertThat(config.getSampleRateHertz()).isEqualTo(16000);
+        assertThat(config.getLanguageCode()).isEqualTo("pt-BR");
+    }
+
+    @Test
+    void flacAtrasDeId3LevaTaxaECanaisDoStreaminfo() {
+        RecognitionConfig config = configuracaoPara(preprocessador.preparar(
+                CabecalhosAudio.comId3(CabecalhosAudio.flac(44100, 2), 128)));
+
+        assertThat(config.getEncoding()).isEqualTo(AudioEncoding.FLAC);
+        assertThat(config.getSampleRateHertz()).isEqualTo(44100);
+        assertThat(config.getAudioChannelCount()).isEqualTo(2);
+        assertThat(config.getLanguageCode()).isEqualTo("pt-BR");
+    }
+
+    @Test
+    void opusEm44100VaiComTaxaAceitaPeloGoogle() {
+        RecognitionConfig config = configuracaoPara(preprocessador.preparar(CabecalhosAudio.oggOpus(44100, 1)));
+
+        assertThat(config.getEncoding()).isEqualTo(AudioEncoding.OGG_OPUS);
+        assertThat(config.getSampleRateHertz()).isEqualTo(48000); // 44100 não é taxa de Opus: o decodificador usa 48 kHz
+        assertThat(config.getAudioChannelCount()).isEqualTo(1);
+    }
+
+    @Test
+    void opusEm16000MantemATaxa() {
+        RecognitionConfig config = configuracaoPara(preprocessador.preparar(CabecalhosAudio.oggOpus(16000, 1)));
+
+        assertThat(config.getEncoding()).isEqualTo(AudioEncoding.OGG_OPUS);
+        assertThat(config.getSampleRateHertz()).isEqualTo(16000);
+    }
+
+    @Test
+    void cabecalhoTruncadoDeixaOGoogleLerOArquivo() {
+        RecognitionConfig config = configuracaoPara(preprocessador.preparar(
+                CabecalhosAudio.truncar(CabecalhosAudio.oggOpus(48000, 2), 40)));
+
+        assertThat(config.getEncoding()).isEqualTo(AudioEncoding.LINEAR16);
+        assertThat(config.getSampleRateHertz()).isZero(); // Sem taxa: o Google usa a do cabeçalho do arquivo
+    }
+
+    private RecognitionConfig configuracaoPara(AudioPreparado audio) {
+        return ReflectionTestUtils.invokeMethod(motor, "configuracaoPara", audio);
+    }
+}
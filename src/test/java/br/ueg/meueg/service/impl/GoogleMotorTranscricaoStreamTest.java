@@ -0,0 +1,98 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.suporte.ServidorSpeechFalso;
+import br.ueg.meueg.voz.AudioEmStream;
+import br.ueg.meueg.voz.Prazo;
+import br.ueg.meueg.voz.PreprocessadorAudio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Streaming contra o servidor gRPC falso: só o PCM chega ao reconhecedor e o prazo corta backend travado
+class GoogleMotorTranscricaoStreamTest {
+
+    private ServidorSpeechFalso servidor;
+    private GoogleMotorTranscricao motor;
+    private final PreprocessadorAudio preprocessador = new PreprocessadorAudio();
+
+    @BeforeEach
+    void preparar() throws Exception {
+        servidor = new ServidorSpeechFalso("duas coxinhas no pix", 10);
+        motor = new GoogleMotorTranscricao();
+        ReflectionTestUtils.setField(motor, "endpoint", servidor.endpoint());
+    }
+
+    @AfterEach
+    void encerrar() throws Exception {
+        motor.encerrar();
+        servidor.close();
+    }
+
+    @Test
+    void wavComChunkListAntesDosDadosEnviaSoOPcm() throws Exception {
+        byte[] pcm = new byte[40_000];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (byte) i;
+        }
+        byte[] wav = wav(22050, pcm, "INFOISFT\u0004\0\0\0Lavf");
+
+        AudioEmStream audio = preprocessador.abrirStream(new ByteArrayInputStream(wav), 16000);
+        String texto = motor.transcreverStream(audio.pcm(), audio.taxaAmostragem(), Prazo.em(Duration.ofSeconds(5)));
+
+        assertThat(texto).isEqualTo("duas coxinhas no pix");
+        assertThat(servidor.getUltimaConfigStream().getConfig().getSampleRateHertz()).isEqualTo(22050);
+        assertThat(servidor.getUltimoAudioStream()).isEqualTo(pcm);
+    }
+
+    @Test
+    void pcmCruSegueInteiroNaTaxaInformada() throws Exception {
+        byte[] pcm = "RIFX-nao-e-cabecalho".getBytes(StandardCharsets.US_ASCII);
+
+        AudioEmStream audio = preprocessador.abrirStream(new ByteArrayInputStream(pcm), 8000);
+        motor.transcreverStream(audio.pcm(), audio.taxaAmostragem(), Prazo.em(Duration.ofSeconds(5)));
+
+        assertThat(servidor.getUltimaConfigStream().getConfig().getSampleRateHertz()).isEqualTo(8000);
+        assertThat(servidor.getUltimoAudioStream()).isEqualTo(pcm);
+    }
+
+    @Test
+    void backendTravadoEsgotaOPrazoSemEsperarOServidor() {
+        servidor.setLatenciaMs(30_000);
+        InputStream pcm = new ByteArrayInputStream(new byte[16_000]);
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> motor.transcreverStream(pcm, 16000, Prazo.em(Duration.ofMillis(300))))
+                .isInstanceOf(PrazoEsgotadoException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    // WAV PCM 16 bits mono com um chunk LIST entre o "fmt " e o "data" (gravadores e ffmpeg fazem isso)
+    private static byte[] wav(int taxa, byte[] pcm, String conteudoList) {
+        byte[] list = conteudoList.getBytes(StandardCharsets.ISO_8859_1);
+        int tamanhoList = list.length + (list.length & 1);
+        ByteBuffer wav = ByteBuffer.allocate(12 + 24 + 8 + tamanhoList + 8 + pcm.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(wav.capacity() - 8);
+        wav.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        wav.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(taxa).putInt(taxa * 2)
+                .putShort((short) 2).putShort((short) 16);
+        wav.put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(list.length).put(list);
+        if ((list.length & 1) == 1) {
+            wav.put((byte) 0);
+        }
+        wav.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(pcm.length).put(pcm);
+        return wav.array();
+    }
+}
@@ -0,0 +1,74 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Cache pequeno: execuções em andamento não podem ser despejadas por chaves novas
+class IdempotenciaServiceImplTest {
+
+    @Test
+    void repeticaoDuranteProcessamentoEsperaMesmoComCacheCheio() throws Exception {
+        IdempotenciaServiceImpl service = new IdempotenciaServiceImpl(2, 60, 5);
+        CountDownLatch iniciou = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        CompletableFuture<String> primeira = CompletableFuture.supplyAsync(() -> service.executar("a", "venda", () -> {
+            execucoes.incrementAndGet();
+            iniciou.countDown();
+            aguardar(liberar);
+            return "ok";
+        }));
+        assertThat(iniciou.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Enche o cache de concluídas com outras chaves enquanto "a" ainda roda
+        service.executar("b", "outra", () -> "b");
+        service.executar("c", "outra", () -> "c");
+        service.executar("d", "outra", () -> "d");
+
+        CompletableFuture<String> repeticao = CompletableFuture.supplyAsync(() -> service.executar("a", "venda", () -> {
+            execucoes.incrementAndGet();
+            return "duplicada";
+        }));
+        liberar.countDown();
+
+        assertThat(primeira.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(repeticao.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(execucoes).hasValue(1);
+    }
+
+    @Test
+    void rejeitaQuandoTodasAsVagasEstaoEmProcessamento() throws Exception {
+        IdempotenciaServiceImpl service = new IdempotenciaServiceImpl(1, 60, 5);
+        CountDownLatch iniciou = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<String> primeira = CompletableFuture.supplyAsync(() -> service.executar("a", "venda", () -> {
+            iniciou.countDown();
+            aguardar(liberar);
+            return "ok";
+        }));
+        assertThat(iniciou.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> service.executar("c", "venda", () -> "c")).isInstanceOf(BusinessException.class);
+
+        liberar.countDown();
+        assertThat(primeira.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(service.executar("c", "venda", () -> "c")).isEqualTo("c");
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.cache.CacheVoz;
+import br.ueg.meueg.cache.CatalogoVersoes;
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.service.MotorTranscricao;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.MetricasVoz;
+import br.ueg.meueg.voz.Prazo;
+import br.ueg.meueg.voz.PreprocessadorAudio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Backends falsos lentos: a resposta do hedge encerra a chamada lenta; sem resposta, o prazo cancela todas.
+// No streaming, só backends que aceitam PCM entram na escolha.
+class SpeechToTextServiceImplTest {
+
+    private SpeechToTextServiceImpl service;
+
+    @AfterEach
+    void encerrar() {
+        service.encerrar();
+    }
+
+    @Test
+    void respostaDoHedgeCancelaOBackendLento() throws Exception {
+        MotorFalso lento = new MotorFalso("lento", Duration.ofSeconds(30), "texto do lento");
+        MotorFalso rapido = new MotorFalso("rapido", Duration.ZERO, "duas pipocas no pix");
+        service = criar(List.of(lento, rapido));
+
+        String texto = service.transcrever(new byte[3200], Prazo.em(Duration.ofSeconds(5)));
+
+        assertThat(texto).isEqualTo("duas pipocas no pix");
+        assertThat(lento.cancelado.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void todosLentosEsgotamOPrazoECancelamAsChamadas() throws Exception {
+        MotorFalso primeiro = new MotorFalso("primeiro", Duration.ofSeconds(30), "texto");
+        MotorFalso segundo = new MotorFalso("segundo", Duration.ofSeconds(30), "texto");
+        service = criar(List.of(primeiro, segundo));
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> service.transcrever(new byte[3200], Prazo.em(Duration.ofMillis(300))))
+                .isInstanceOf(PrazoEsgotadoException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+        assertThat(primeiro.cancelado.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(segundo.cancelado.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void streamPulaBackendQueNaoAceitaPcm() throws Exception {
+        MotorFalso soOpus = new MotorFalso("so-opus", Duration.ZERO, "texto do opus", Set.of(CodificacaoAudio.OGG_OPUS));
+        MotorFalso pcm = new MotorFalso("pcm", Duration.ZERO, "duas pipocas no pix", Set.of(CodificacaoAudio.PCM_16));
+        service = criar(List.of(soOpus, pcm));
+
+        String texto = service.transcreverStream(new ByteArrayInputStream(new byte[3200]), 16000, Prazo.em(Duration.ofSeconds(5)));
+
+        assertThat(texto).isEqualTo("duas pipocas no pix");
+        assertThat(soOpus.chamadas).isZero();
+    }
+
+    @Test
+    void streamSemBackendQueAceitePcmERecusado() {
+        service = criar(List.of(new MotorFalso("so-opus", Duration.ZERO, "texto", Set.of(CodificacaoAudio.OGG_OPUS))));
+
+        assertThatThrownBy(() -> service.transcreverStream(new ByteArrayInputStream(new byte[3200]), 16000,
+                Prazo.em(Duration.ofSeconds(5))))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    private SpeechToTextServiceImpl criar(List<MotorTranscricao> motores) {
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        CacheVoz cache = new CacheVoz(new CatalogoVersoes(), registro, 10, 10, 60);
+        SpeechToTextServiceImpl novo = new SpeechToTextServiceImpl(motores, cache, new MetricasVoz(registro), new PreprocessadorAudio());
+        ReflectionTestUtils.setField(novo, "hedgeMs", 50L);
+        ReflectionTestUtils.setField(novo, "suspensaoSegundos", 30L);
+        return novo;
+    }
+
+    // Espera "demora" (ou até ser interrompido, como faz o cancelamento do roteador) e devolve um texto fixo
+    private static final class MotorFalso implements MotorTranscricao {
+        private final String nome;
+        private final Duration demora;
+        private final String texto;
+        private final Set<CodificacaoAudio> aceitos;
+        private final CountDownLatch cancelado = new CountDownLatch(1);
+        private volatile int chamadas;
+
+        private MotorFalso(String nome, Duration demora, String texto) {
+            this(nome, demora, texto, EnumSet.allOf(CodificacaoAudio.class));
+        }
+
+        private MotorFalso(String nome, Duration demora, String texto, Set<CodificacaoAudio> aceitos) {
+            this.nome = nome;
+            this.demora = demora;
+            this.texto = texto;
+            this.aceitos = aceitos;
+        }
+
+        @Override
+        public String nome() {
+            return nome;
+        }
+
+        @Override
+        public boolean aceita(CodificacaoAudio codificacao) {
+            return aceitos.contains(codificacao);
+        }
+
+        @Override
+        public String transcrever(AudioPreparado audio, Prazo prazo) throws InterruptedException {
+            chamadas++;
+            try {
+                Thread.sleep(demora);
+                return texto;
+            } catch (InterruptedException e) {
+                cancelado.countDown();
+                throw e;
+            }
+        }
+
+        @Override
+        public String transcreverStream(InputStream audio, int taxaAmostragem, Prazo prazo) throws IOException {
+            chamadas++;
+            audio.transferTo(OutputStream.nullOutputStream());
+            return texto;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package br.ueg.meueg.service.impl;
+
+import br.ueg.meueg.exception.BusinessException;
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.voz.AudioPreparado;
+import br.ueg.meueg.voz.Prazo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Serviço Vosk falso (HTTP local): resposta normal, serviço travado cortado pelo prazo e upload em streaming
+// limitado em tamanho e em tempo
+class VoskMotorTranscricaoTest {
+
+    private HttpServer servidor;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch recebeu = new CountDownLatch(1);
+    private volatile long demoraMs;
+    private VoskMotorTranscricao motor;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.createContext("/transcribe", troca -> {
+            troca.getRequestBody().readAllBytes();
+            recebeu.countDown();
+            try {
+                Thread.sleep(demoraMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] corpo = "{\"transcription\": \"duas pipocas\"}".getBytes(StandardCharsets.UTF_8);
+            troca.sendResponseHeaders(200, corpo.length);
+            troca.getResponseBody().write(corpo);
+            troca.close();
+        });
+        servidor.setExecutor(executor);
+        servidor.start();
+
+        motor = new VoskMotorTranscricao(new ObjectMapper());
+        ReflectionTestUtils.setField(motor, "url", "http://localhost:" + servidor.getAddress().getPort() + "/transcribe");
+        ReflectionTestUtils.setField(motor, "maxBytesStream", 64_000L);
+    }
+
+    @AfterEach
+    void encerrar() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void transcreveDentroDoPrazo() throws Exception {
+        String texto = motor.transcrever(AudioPreparado.original(new byte[3200]), Prazo.em(Duration.ofSeconds(5)));
+
+        assertThat(texto).isEqualTo("duas pipocas");
+    }
+
+    @Test
+    void servicoTravadoEsgotaOPrazo() throws Exception {
+        demoraMs = 30_000;
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> motor.transcrever(AudioPreparado.original(new byte[3200]), Prazo.em(Duration.ofMillis(300))))
+                .isInstanceOf(PrazoEsgotadoException.class);
+
+        assertThat(recebeu.await(1, TimeUnit.SECONDS)).isTrue(); // Chegou a chamar o serviço: quem cortou foi o prazo
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(3));
+    }
+
+    @Test
+    void streamDentroDoLimiteTranscreve() throws Exception {
+        String texto = motor.transcreverStream(new ByteArrayInputStream(new byte[32_000]), 16000, Prazo.em(Duration.ofSeconds(5)));
+
+        assertThat(texto).isEqualTo("duas pipocas");
+    }
+
+    @Test
+    void streamAlemDoLimiteParaDeLerSemChamarOServico() {
+        InputStream semFim = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+        };
+
+        assertThatThrownBy(() -> motor.transcreverStream(semFim, 16000, Prazo.em(Duration.ofSeconds(5))))
+                .isInstanceOf(BusinessException.class);
+
+        assertThat(recebeu.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void streamLentoParaNoFimDoPrazo() {
+        // Cliente que manda um bloco a cada 100 ms e nunca termina
+        InputStream lento = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] destino, int inicio, int tamanho) throws IOException {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return Math.min(tamanho, 320);
+            }
+        };
+        ReflectionTestUtils.setField(motor, "maxBytesStream", Long.MAX_VALUE);
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> motor.transcreverStream(lento, 16000, Prazo.em(Duration.ofMillis(300))))
+                .isInstanceOf(PrazoEsgotadoException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+        assertThat(recebeu.getCount()).isEqualTo(1);
+    }
+}
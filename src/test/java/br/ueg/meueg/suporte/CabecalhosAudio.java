@@ -0,0 +1,56 @@
+package br.ueg.meueg.suporte;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Uploads comprimidos montados byte a byte (só o cabeçalho e alguns bytes de "áudio"), como os gravadores geram
+public final class CabecalhosAudio {
+
+    private CabecalhosAudio() {
+    }
+
+    // "fLaC" + bloco STREAMINFO (o último): taxa em 20 bits, canais - 1 em 3 bits, 16 bits por amostra
+    public static byte[] flac(int taxa, int canais) {
+        ByteBuffer flac = ByteBuffer.allocate(4 + 4 + 34 + 64).order(ByteOrder.BIG_ENDIAN);
+        flac.put("fLaC".getBytes(StandardCharsets.US_ASCII));
+        flac.put((byte) 0x80).put((byte) 0).put((byte) 0).put((byte) 34); // Último bloco, tipo 0 (STREAMINFO), 34 bytes
+        flac.putShort((short) 4096).putShort((short) 4096);              // Tamanho mínimo/máximo do bloco
+        flac.put(new byte[6]);                                            // Tamanho mínimo/máximo do quadro (desconhecidos)
+        int bitsMenosUm = 15;                                             // 16 bits por amostra
+        flac.put((byte) (taxa >> 12)).put((byte) (taxa >> 4));
+        flac.put((byte) ((taxa & 0x0f) << 4 | (canais - 1) << 1 | bitsMenosUm >> 4));
+        flac.put((byte) ((bitsMenosUm & 0x0f) << 4));                     // Total de amostras (36 bits) começa aqui
+        flac.put(new byte[4 + 16]);                                       // Resto do total de amostras e MD5
+        return flac.array();
+    }
+
+    // Tag ID3v2 na frente do áudio (alguns gravadores põem até em FLAC); tamanho em 4 bytes de 7 bits
+    public static byte[] comId3(byte[] audio, int tamanhoTag) {
+        byte[] resultado = new byte[10 + tamanhoTag + audio.length];
+        System.arraycopy("ID3".getBytes(StandardCharsets.US_ASCII), 0, resultado, 0, 3);
+        resultado[3] = 4; // ID3v2.4
+        resultado[6] = (byte) (tamanhoTag >> 21 & 0x7f);
+        resultado[7] = (byte) (tamanhoTag >> 14 & 0x7f);
+        resultado[8] = (byte) (tamanhoTag >> 7 & 0x7f);
+        resultado[9] = (byte) (tamanhoTag & 0x7f);
+        System.arraycopy(audio, 0, resultado, 10 + tamanhoTag, audio.length);
+        return resultado;
+    }
+
+    // Primeira página Ogg com o pacote OpusHead (19 bytes): canais e taxa original do gravador
+    public static byte[] oggOpus(int taxaOriginal, int canais) {
+        ByteBuffer ogg = ByteBuffer.allocate(27 + 1 + 19 + 64).order(ByteOrder.LITTLE_ENDIAN);
+        ogg.put("OggS".getBytes(StandardCharsets.US_ASCII)).put((byte) 0).put((byte) 0x02); // Versão 0, início do stream
+        ogg.putLong(0).putInt(1234).putInt(0).putInt(0);                                     // Granule, serial, sequência, CRC
+        ogg.put((byte) 1).put((byte) 19);                                                     // Um segmento de 19 bytes
+        ogg.put("OpusHead".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) canais);
+        ogg.putShort((short) 312).putInt(taxaOriginal).putShort((short) 0).put((byte) 0);    // Pre-skip, taxa, ganho, mapeamento
+        return ogg.array();
+    }
+
+    public static byte[] truncar(byte[] audio, int tamanho) {
+        return Arrays.copyOf(audio, tamanho);
+    }
+}
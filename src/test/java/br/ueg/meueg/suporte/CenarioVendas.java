@@ -0,0 +1,82 @@
+package br.ueg.meueg.suporte;
+
+import br.ueg.meueg.entity.Estoque;
+import br.ueg.meueg.entity.ProdutoServico;
+import br.ueg.meueg.entity.User;
+import br.ueg.meueg.entity.Venda;
+import br.ueg.meueg.entity.VendaItem;
+import br.ueg.meueg.enums.FormaPagamento;
+import br.ueg.meueg.repository.EstoqueRepository;
+import br.ueg.meueg.repository.ProdutoServicoRepository;
+import br.ueg.meueg.repository.UserRepository;
+import br.ueg.meueg.service.MovimentacaoEstoqueService;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Caixa, produtos com estoque e carrinhos para os testes de venda (entra com @Import(CenarioVendas.class)).
+// Os testes no H2 trocam o VendaResumoService por um @MockBean: o upsert dos resumos (ON CONFLICT ... DO UPDATE
+// e pg_advisory_xact_lock) só roda no PostgreSQL, coberto pelo VendaResumoServicePostgresTest.
+@TestComponent
+public class CenarioVendas {
+
+    private final UserRepository userRepository;
+    private final ProdutoServicoRepository produtoServicoRepository;
+    private final EstoqueRepository estoqueRepository;
+    private final MovimentacaoEstoqueService movimentacaoEstoqueService;
+
+    public CenarioVendas(UserRepository userRepository, ProdutoServicoRepository produtoServicoRepository,
+                         EstoqueRepository estoqueRepository, MovimentacaoEstoqueService movimentacaoEstoqueService) {
+        this.userRepository = userRepository;
+        this.produtoServicoRepository = produtoServicoRepository;
+        this.estoqueRepository = estoqueRepository;
+        this.movimentacaoEstoqueService = movimentacaoEstoqueService;
+    }
+
+    // Usuário novo a cada teste: o banco H2 é compartilhado pelos testes do mesmo contexto
+    public User novoCaixa(String prefixo) {
+        return userRepository.save(User.builder()
+                .username(prefixo + "-" + UUID.randomUUID()).password("x").nome("Caixa").build());
+    }
+
+    // Produto com o saldo já consolidado na linha do estoque (sem lançamento no livro)
+    public ProdutoServico novoProduto(User caixa, String nome, int quantidade) {
+        ProdutoServico produto = produtoServicoRepository.save(ProdutoServico.builder()
+                .nome(nome).tipo("PRODUTO").categoria("Geral")
+                .preco(new BigDecimal("5.00")).custo(new BigDecimal("2.00"))
+                .usuario(caixa).build());
+        estoqueRepository.save(Estoque.builder().produtoServico(produto).usuario(caixa).quantidade(quantidade).build());
+        return produto;
+    }
+
+    // Uma unidade de cada produto, na ordem da lista (repetir o produto repete o item)
+    public Venda novaVenda(User caixa, List<ProdutoServico> produtos) {
+        Venda venda = Venda.builder()
+                .usuario(User.builder().id(caixa.getId()).build())
+                .forma_pagamento(FormaPagamento.PIX)
+                .build();
+        List<VendaItem> itens = new ArrayList<>();
+        for (ProdutoServico produto : produtos) {
+            itens.add(VendaItem.builder()
+                    .venda(venda)
+                    .produtoServico(ProdutoServico.builder().id(produto.getId()).build())
+                    .quantidade(1)
+                    .build());
+        }
+        venda.setItens(itens);
+        return venda;
+    }
+
+    public Estoque estoque(User caixa, ProdutoServico produto) {
+        return estoqueRepository.findByProdutoServico_IdAndUsuario(produto.getId(), caixa).orElseThrow();
+    }
+
+    // Saldo atual (consolidado + livro), como a venda enxerga
+    public int saldo(User caixa, ProdutoServico produto) {
+        Long idEstoque = estoque(caixa, produto).getId();
+        return movimentacaoEstoqueService.saldosAtuais(List.of(idEstoque)).get(idEstoque);
+    }
+}
@@ -0,0 +1,48 @@
+package br.ueg.meueg.suporte;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Conta os comandos SQL preparados pelo Hibernate (registrado no application-test.properties).
+// Um batch JDBC conta uma vez só. Contagem global: zerar antes e ler depois, sem outras transações no meio.
+public class ContadorSql implements StatementInspector {
+
+    private static final AtomicInteger SELECTS = new AtomicInteger();
+    private static final AtomicInteger INSERTS = new AtomicInteger();
+    private static final AtomicInteger UPDATES = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        String comando = sql.stripLeading().toLowerCase();
+        if (comando.contains("next value for") || comando.contains("nextval(")) {
+            return sql; // Sequence: buscada em blocos (allocationSize), varia com o histórico e não com a venda
+        }
+        if (comando.startsWith("select") || comando.startsWith("with")) {
+            SELECTS.incrementAndGet();
+        } else if (comando.startsWith("insert")) {
+            INSERTS.incrementAndGet();
+        } else if (comando.startsWith("update")) {
+            UPDATES.incrementAndGet();
+        }
+        return sql;
+    }
+
+    public static void zerar() {
+        SELECTS.set(0);
+        INSERTS.set(0);
+        UPDATES.set(0);
+    }
+
+    public static int selects() {
+        return SELECTS.get();
+    }
+
+    public static int inserts() {
+        return INSERTS.get();
+    }
+
+    public static int updates() {
+        return UPDATES.get();
+    }
+}
@@ -0,0 +1,51 @@
+package br.ueg.meueg.suporte;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Corpus de frases faladas (src/test/resources/voz) compartilhado entre o teste do interpretador e o benchmark
+public final class CorpusComandos {
+
+    private CorpusComandos() {
+    }
+
+    // itens vazio = o comando deve ir para o LLM; formaPagamento null = não falada
+    public record Comando(String frase, List<String> itens, String formaPagamento) {
+    }
+
+    public static List<String> catalogo() {
+        return linhas("voz/catalogo.txt");
+    }
+
+    public static List<Comando> comandos() {
+        List<Comando> comandos = new ArrayList<>();
+        for (String linha : linhas("voz/comandos.txt")) {
+            String[] colunas = linha.split("\\|", -1);
+            String itens = colunas[1].trim();
+            String formaPagamento = colunas[2].trim();
+            comandos.add(new Comando(colunas[0].trim(),
+                    itens.equals("LLM") ? List.of() : Arrays.stream(itens.split(";")).map(String::trim).toList(),
+                    formaPagamento.isEmpty() ? null : formaPagamento));
+        }
+        return comandos;
+    }
+
+    private static List<String> linhas(String recurso) {
+        try (InputStream entrada = CorpusComandos.class.getClassLoader().getResourceAsStream(recurso)) {
+            if (entrada == null) {
+                throw new IllegalStateException("Recurso de teste não encontrado: " + recurso);
+            }
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .map(String::trim)
+                    .filter(linha -> !linha.isEmpty() && !linha.startsWith("#"))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package br.ueg.meueg.suporte;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Servidor HTTP local no lugar do Ollama: /api/generate responde em streaming (uma linha JSON por token),
+// com um intervalo entre os tokens, como o modelo gerando. Usar com ollama.url=url().
+public class ServidorOllamaFalso implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer servidor;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<JsonNode> requisicoes = new CopyOnWriteArrayList<>();
+    private final List<Integer> portasClientes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger tokensEnviados = new AtomicInteger();
+    private volatile List<String> tokens = List.of();
+    private volatile long atrasoInicialMs;
+    private volatile long intervaloMs;
+
+    public ServidorOllamaFalso() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.createContext("/api/generate", this::gerar);
+        servidor.setExecutor(executor);
+        servidor.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + servidor.getAddress().getPort();
+    }
+
+    // Pedaços do texto gerado, na ordem; depois do último vem a linha com "done": true
+    public void responder(List<String> tokens, long intervaloMs) {
+        this.tokens = tokens;
+        this.intervaloMs = intervaloMs;
+    }
+
+    // Demora antes do primeiro token (modelo carregando ou travado)
+    public void setAtrasoInicialMs(long atrasoInicialMs) {
+        this.atrasoInicialMs = atrasoInicialMs;
+    }
+
+    public List<JsonNode> getRequisicoes() {
+        return requisicoes;
+    }
+
+    // Porta de origem de cada requisição: a mesma porta = a mesma conexão keep-alive
+    public List<Integer> getPortasClientes() {
+        return portasClientes;
+    }
+
+    // Tokens que chegaram a ser escritos antes de o cliente fechar a conexão
+    public int getTokensEnviados() {
+        return tokensEnviados.get();
+    }
+
+    private void gerar(HttpExchange troca) throws IOException {
+        requisicoes.add(objectMapper.readTree(troca.getRequestBody().readAllBytes()));
+        portasClientes.add(troca.getRemoteAddress().getPort());
+        tokensEnviados.set(0);
+        troca.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        troca.sendResponseHeaders(200, 0); // Chunked
+        try (OutputStream saida = troca.getResponseBody()) {
+            dormir(atrasoInicialMs);
+            for (String token : tokens) {
+                escrever(saida, objectMapper.createObjectNode().put("response", token).put("done", false));
+                tokensEnviados.incrementAndGet();
+                dormir(intervaloMs);
+            }
+            escrever(saida, objectMapper.createObjectNode().put("response", "").put("done", true));
+            saida.flush();
+        } catch (IOException e) {
+            // Cliente fechou a conexão no meio da geração
+        }
+    }
+
+    // Sem intervalo, a resposta inteira sai de uma vez (como um modelo rápido: o "done" chega junto com o último token)
+    private void escrever(OutputStream saida, JsonNode linha) throws IOException {
+        saida.write((objectMapper.writeValueAsString(linha) + "\n").getBytes(StandardCharsets.UTF_8));
+        if (intervaloMs > 0) {
+            saida.flush();
+        }
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package br.ueg.meueg.suporte;
+
+import com.google.cloud.speech.v1.RecognizeRequest;
+import com.google.cloud.speech.v1.RecognizeResponse;
+import com.google.cloud.speech.v1.SpeechRecognitionAlternative;
+import com.google.cloud.speech.v1.SpeechRecognitionResult;
+import com.google.cloud.speech.v1.StreamingRecognitionConfig;
+import com.google.cloud.speech.v1.StreamingRecognitionResult;
+import com.google.cloud.speech.v1.StreamingRecognizeRequest;
+import com.google.cloud.speech.v1.StreamingRecognizeResponse;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Servidor gRPC local no lugar do Google Speech (sem TLS): responde Recognize e StreamingRecognize com
+// um texto fixo depois de uma latência configurável. Usar com stt.google.endpoint=localhost:<porta()>.
+public class ServidorSpeechFalso implements AutoCloseable {
+
+    private static final String SERVICO = "google.cloud.speech.v1.Speech";
+
+    private static final MethodDescriptor<RecognizeRequest, RecognizeResponse> RECOGNIZE =
+            MethodDescriptor.<RecognizeRequest, RecognizeResponse>newBuilder()
+                    .setType(MethodDescriptor.MethodType.UNARY)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICO, "Recognize"))
+                    .setRequestMarshaller(ProtoUtils.marshaller(RecognizeRequest.getDefaultInstance()))
+                    .setResponseMarshaller(ProtoUtils.marshaller(RecognizeResponse.getDefaultInstance()))
+                    .build();
+
+    private static final MethodDescriptor<StreamingRecognizeRequest, StreamingRecognizeResponse> STREAMING_RECOGNIZE =
+            MethodDescriptor.<StreamingRecognizeRequest, StreamingRecognizeResponse>newBuilder()
+                    .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICO, "StreamingRecognize"))
+                    .setRequestMarshaller(ProtoUtils.marshaller(StreamingRecognizeRequest.getDefaultInstance()))
+                    .setResponseMarshaller(ProtoUtils.marshaller(StreamingRecognizeResponse.getDefaultInstance()))
+                    .build();
+
+    private final Server servidor;
+    private final ScheduledExecutorService agendador = Executors.newScheduledThreadPool(4);
+    private final String texto;
+    private volatile long latenciaMs;
+
+    private final AtomicInteger chamadas = new AtomicInteger();
+    private volatile StreamingRecognitionConfig ultimaConfigStream;
+    private volatile byte[] ultimoAudioStream = new byte[0];
+
+    public ServidorSpeechFalso(String texto, long latenciaMs) throws IOException {
+        this.texto = texto;
+        this.latenciaMs = latenciaMs;
+        this.servidor = ServerBuilder.forPort(0)
+                .addService(ServerServiceDefinition.builder(SERVICO)
+                        .addMethod(RECOGNIZE, ServerCalls.asyncUnaryCall(this::recognize))
+                        .addMethod(STREAMING_RECOGNIZE, ServerCalls.asyncBidiStreamingCall(this::streamingRecognize))
+                        .build())
+                .build()
+                .start();
+    }
+
+    public String endpoint() {
+        return "localhost:" + servidor.getPort();
+    }
+
+    // Latência alta simula um backend travado (o cliente tem que desistir pelo prazo)
+    public void setLatenciaMs(long latenciaMs) {
+        this.latenciaMs = latenciaMs;
+    }
+
+    public int getChamadas() {
+        return chamadas.get();
+    }
+
+    public StreamingRecognitionConfig getUltimaConfigStream() {
+        return ultimaConfigStream;
+    }
+
+    // Áudio recebido no último streaming, na ordem (só o conteúdo das mensagens de áudio)
+    public byte[] getUltimoAudioStream() {
+        return ultimoAudioStream;
+    }
+
+    private void recognize(RecognizeRequest request, StreamObserver<RecognizeResponse> resposta) {
+        chamadas.incrementAndGet();
+        agendador.schedule(() -> {
+            resposta.onNext(RecognizeResponse.newBuilder()
+                    .addResults(SpeechRecognitionResult.newBuilder()
+                            .addAlternatives(SpeechRecognitionAlternative.newBuilder().setTranscript(texto)))
+                    .build());
+            resposta.onCompleted();
+        }, latenciaMs, TimeUnit.MILLISECONDS);
+    }
+
+    private StreamObserver<StreamingRecognizeRequest> streamingRecognize(StreamObserver<StreamingRecognizeResponse> resposta) {
+        chamadas.incrementAndGet();
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(StreamingRecognizeRequest request) {
+                if (request.hasStreamingConfig()) {
+                    ultimaConfigStream = request.getStreamingConfig();
+                } else {
+                    audio.writeBytes(request.getAudioContent().toByteArray());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                ultimoAudioStream = audio.toByteArray();
+            }
+
+            @Override
+            public void onCompleted() {
+                ultimoAudioStream = audio.toByteArray();
+                agendador.schedule(() -> {
+                    resposta.onNext(StreamingRecognizeResponse.newBuilder()
+                            .addResults(StreamingRecognitionResult.newBuilder()
+                                    .setIsFinal(true)
+                                    .addAlternatives(SpeechRecognitionAlternative.newBuilder().setTranscript(texto)))
+                            .build());
+                    resposta.onCompleted();
+                }, latenciaMs, TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        servidor.shutdownNow();
+        agendador.shutdownNow();
+        servidor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
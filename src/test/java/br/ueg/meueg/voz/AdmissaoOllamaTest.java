@@ -0,0 +1,100 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.exception.SobrecargaException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Admissão com uma vaga só, ocupada por uma geração que segura até o teste soltar
+class AdmissaoOllamaTest {
+
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch soltar = new CountDownLatch(1);
+    private AdmissaoOllama admissao;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        admissao = new AdmissaoOllama(registro);
+        ReflectionTestUtils.setField(admissao, "maxConcorrentes", 1);
+        ReflectionTestUtils.setField(admissao, "filaMax", 10);
+        ReflectionTestUtils.setField(admissao, "esperaMaxMs", 300L);
+        ReflectionTestUtils.setField(admissao, "mediaGeracaoMs", 100.0);
+        ReflectionTestUtils.invokeMethod(admissao, "registrarMetricas");
+
+        CountDownLatch ocupada = new CountDownLatch(1);
+        executor.submit(() -> admissao.executar(1L, Prazo.em(Duration.ofSeconds(30)), () -> {
+            ocupada.countDown();
+            return soltar.await(30, TimeUnit.SECONDS);
+        }));
+        assertThat(ocupada.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @AfterEach
+    void encerrar() {
+        soltar.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void esperaMaximaMenorQueOPrazoRespondeSobrecarga() {
+        long inicio = System.nanoTime();
+
+        assertThatThrownBy(() -> admissao.executar(2L, Prazo.em(Duration.ofSeconds(4)), () -> "gerado"))
+                .isInstanceOfSatisfying(SobrecargaException.class, e -> assertThat(e.getRetryAfterSegundos()).isPositive());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+        assertThat(rejeicoes("espera_esgotada")).isEqualTo(1);
+        assertThat(registro.get("ollama.admissao.fila").gauge().value()).isZero();
+    }
+
+    @Test
+    void esperaEstimadaAlemDoPrazoRecusaSemEntrarNaFila() {
+        ReflectionTestUtils.setField(admissao, "mediaGeracaoMs", 2000.0);
+        long inicio = System.nanoTime();
+
+        assertThatThrownBy(() -> admissao.executar(2L, Prazo.em(Duration.ofSeconds(1)), () -> "gerado"))
+                .isInstanceOfSatisfying(SobrecargaException.class, e -> assertThat(e.getRetryAfterSegundos()).isEqualTo(2));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofMillis(200));
+        assertThat(rejeicoes("espera_estimada")).isEqualTo(1);
+    }
+
+    @Test
+    void prazoMenorQueAEsperaMaximaCaiNoCaminhoAlternativo() {
+        ReflectionTestUtils.setField(admissao, "esperaMaxMs", 5000L);
+
+        // Estimativa (100 ms) cabe no prazo, mas a geração à frente não termina: o prazo vence na fila
+        assertThatThrownBy(() -> admissao.executar(2L, Prazo.em(Duration.ofMillis(300)), () -> "gerado"))
+                .isInstanceOf(PrazoEsgotadoException.class);
+
+        assertThat(rejeicoes("prazo")).isEqualTo(1);
+    }
+
+    @Test
+    void vagaLiberadaDentroDaEsperaGera() throws Exception {
+        Future<String> pedido = executor.submit(() -> admissao.executar(2L, Prazo.em(Duration.ofSeconds(4)), () -> "gerado"));
+        Thread.sleep(50);
+        soltar.countDown();
+
+        assertThat(pedido.get(5, TimeUnit.SECONDS)).isEqualTo("gerado");
+        assertThat(registro.find("ollama.admissao.rejeicoes").counters()).isEmpty();
+    }
+
+    private double rejeicoes(String motivo) {
+        return registro.counter("ollama.admissao.rejeicoes", "motivo", motivo).count();
+    }
+}
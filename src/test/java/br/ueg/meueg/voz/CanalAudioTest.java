@@ -0,0 +1,86 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Upload numa thread, reconhecedor (virtual thread) na outra
+class CanalAudioTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void blocosChegamEmOrdemAteOFim() throws Exception {
+        CanalAudio canal = new CanalAudio(2, Prazo.em(Duration.ofSeconds(5)));
+        Future<byte[]> lido = executor.submit(canal::readAllBytes);
+
+        byte[] bloco = new byte[100];
+        for (int i = 0; i < 10; i++) {
+            Arrays.fill(bloco, (byte) i);
+            assertThat(canal.enviar(bloco, 100)).isTrue(); // Fila de 2 blocos: só anda se o leitor consome
+        }
+        canal.terminar();
+
+        byte[] audio = lido.get(5, TimeUnit.SECONDS);
+        assertThat(audio.length).isEqualTo(1000);
+        assertThat(audio[0]).isEqualTo((byte) 0);
+        assertThat(audio[999]).isEqualTo((byte) 9);
+    }
+
+    @Test
+    void uploadAbortadoViraErroNoLeitor() throws Exception {
+        CanalAudio canal = new CanalAudio(4, Prazo.em(Duration.ofSeconds(5)));
+        Future<byte[]> lido = executor.submit(canal::readAllBytes);
+
+        canal.enviar(new byte[100], 100);
+        canal.abortar();
+
+        assertThatThrownBy(() -> lido.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void leitorSemBlocosParaNoFimDoPrazo() {
+        CanalAudio canal = new CanalAudio(4, Prazo.em(Duration.ofMillis(200)));
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(canal::read).isInstanceOf(PrazoEsgotadoException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void leitorEncerradoLiberaOUpload() throws Exception {
+        CanalAudio canal = new CanalAudio(1, Prazo.em(Duration.ofSeconds(30)));
+        assertThat(canal.enviar(new byte[100], 100)).isTrue();
+
+        executor.submit(() -> {
+            Thread.sleep(100);
+            canal.close(); // Ex.: reconhecedor recusou o formato sem ler o resto
+            return null;
+        });
+
+        long inicio = System.nanoTime();
+        boolean aceito = true;
+        for (int i = 0; i < 3 && aceito; i++) {
+            aceito = canal.enviar(new byte[100], 100);
+        }
+        assertThat(aceito).isFalse();
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+    }
+}
@@ -0,0 +1,107 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.exception.PrazoEsgotadoException;
+import br.ueg.meueg.suporte.ServidorOllamaFalso;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Cliente do Ollama contra um servidor local que gera tokens devagar
+class ClienteOllamaTest {
+
+    private static final List<String> OBJETO = List.of("{\"itens\": [", "{\"nome\": \"pipoca ", "{doce}\", ",
+            "\"quantidade\": 2}", "], \"formaPagamento\": ", "\"PIX\"}");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ServidorOllamaFalso servidor;
+    private ClienteOllama cliente;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        servidor = new ServidorOllamaFalso();
+        cliente = new ClienteOllama(objectMapper, new MetricasVoz(new SimpleMeterRegistry()), 2000);
+        ReflectionTestUtils.setField(cliente, "url", servidor.url());
+        ReflectionTestUtils.setField(cliente, "modelo", "mistral");
+        ReflectionTestUtils.setField(cliente, "keepAlive", "30m");
+    }
+
+    @AfterEach
+    void encerrar() {
+        cliente.encerrar();
+        servidor.close();
+    }
+
+    @Test
+    void devolveOObjetoAssimQueFechaSemEsperarOFimDaGeracao() throws Exception {
+        // Depois do objeto o "modelo" continuaria gerando por mais de 10 s
+        List<String> tokens = new ArrayList<>(OBJETO);
+        for (int i = 0; i < 500; i++) {
+            tokens.add(" ");
+        }
+        servidor.responder(tokens, 20);
+        JsonNode esquema = objectMapper.readTree("{\"type\": \"object\"}");
+
+        long inicio = System.nanoTime();
+        Optional<JsonNode> resposta = cliente.gerarJson("duas pipocas no pix", esquema, Prazo.em(Duration.ofSeconds(10)));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(3));
+        assertThat(resposta).isPresent();
+        assertThat(resposta.get().path("itens").get(0).path("nome").asText()).isEqualTo("pipoca {doce}");
+        assertThat(resposta.get().path("formaPagamento").asText()).isEqualTo("PIX");
+
+        JsonNode requisicao = servidor.getRequisicoes().get(0);
+        assertThat(requisicao.path("stream").asBoolean()).isTrue();
+        assertThat(requisicao.path("format")).isEqualTo(esquema);
+        assertThat(requisicao.path("keep_alive").asText()).isEqualTo("30m");
+
+        // O cliente fechou a conexão: o servidor parou de escrever bem antes dos 500 tokens
+        Thread.sleep(500);
+        assertThat(servidor.getTokensEnviados()).isLessThan(100);
+    }
+
+    @Test
+    void reaproveitaAConexaoEntreChamadas() throws Exception {
+        JsonNode esquema = objectMapper.readTree("{\"type\": \"object\"}");
+
+        // O "done" chega junto com o fim do objeto: a resposta é lida até o fim e a conexão volta para o pool
+        servidor.responder(OBJETO, 0);
+        assertThat(cliente.gerarJson("duas pipocas no pix", esquema, Prazo.em(Duration.ofSeconds(5)))).isPresent();
+        assertThat(cliente.gerarJson("duas pipocas no pix", esquema, Prazo.em(Duration.ofSeconds(5)))).isPresent();
+
+        assertThat(servidor.getPortasClientes()).hasSize(2);
+        assertThat(servidor.getPortasClientes().get(1)).isEqualTo(servidor.getPortasClientes().get(0));
+    }
+
+    @Test
+    void modeloTravadoEsgotaOPrazo() {
+        servidor.responder(OBJETO, 0);
+        servidor.setAtrasoInicialMs(30_000);
+        JsonNode esquema = objectMapper.createObjectNode();
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> cliente.gerarJson("duas pipocas", esquema, Prazo.em(Duration.ofMillis(300))))
+                .isInstanceOf(PrazoEsgotadoException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(3));
+    }
+
+    @Test
+    void chavesDentroDeStringNaoFechamOObjeto() {
+        ClienteOllama.AcompanhadorJson acompanhador = new ClienteOllama.AcompanhadorJson();
+
+        assertThat(acompanhador.acrescentar("texto antes {\"a\": \"}\\\"")).isNull();
+        assertThat(acompanhador.acrescentar("{}\", \"b\": [1]")).isNull();
+        assertThat(acompanhador.acrescentar("} depois")).isEqualTo("{\"a\": \"}\\\"{}\", \"b\": [1]}");
+    }
+}
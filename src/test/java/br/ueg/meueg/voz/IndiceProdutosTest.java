@@ -0,0 +1,84 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.entity.ProdutoServico;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Nome falado -> produto: igual, mesmo som, aproximado (pontuação mínima de 0,45 e folga de 0,05) ou nenhum
+class IndiceProdutosTest {
+
+    private final IndiceProdutos lanchonete = indice("Pipoca Doce", "Coxinha", "Pastel", "Cachorro Quente", "Açaí",
+            "Pão de Queijo", "Brigadeiro", "Bolo de Cenoura");
+
+    @Test
+    void nomeIgualSemAcentoEPluralCasaComPontuacaoMaxima() {
+        assertThat(buscar(lanchonete, "pasteis")).hasValue("Pastel");
+        assertThat(buscar(lanchonete, "pastéis")).hasValue("Pastel");
+        assertThat(buscar(lanchonete, "ACAI")).hasValue("Açaí");
+        assertThat(buscar(lanchonete, "pães de queijo")).hasValue("Pão de Queijo");
+        assertThat(lanchonete.buscar("pao de queijo").orElseThrow().pontuacao()).isEqualTo(1.0);
+    }
+
+    @Test
+    void grafiaErradaComOMesmoSomCasaPelaChaveFonetica() {
+        Optional<IndiceProdutos.Resultado> resultado = lanchonete.buscar("cachoro quente");
+
+        assertThat(resultado).isPresent();
+        assertThat(resultado.get().produto().nome()).isEqualTo("Cachorro Quente");
+        assertThat(resultado.get().pontuacao()).isEqualTo(0.9);
+        assertThat(buscar(lanchonete, "cochinha")).hasValue("Coxinha");
+    }
+
+    @Test
+    void quaseIgualCasaPorTrigramasAcimaDaPontuacaoMinima() {
+        Optional<IndiceProdutos.Resultado> resultado = lanchonete.buscar("brigadero");
+
+        assertThat(resultado).isPresent();
+        assertThat(resultado.get().produto().nome()).isEqualTo("Brigadeiro");
+        assertThat(resultado.get().pontuacao()).isBetween(0.45, 0.9);
+        // Só uma palavra do nome: ainda passa da pontuação mínima, por pouco
+        assertThat(lanchonete.buscar("bolo").orElseThrow().pontuacao()).isBetween(0.45, 0.5);
+    }
+
+    @Test
+    void semProdutoParecidoNaoAdivinha() {
+        assertThat(lanchonete.buscar("refrigerante")).isEmpty();
+        assertThat(lanchonete.buscar("")).isEmpty();
+        assertThat(lanchonete.buscar(null)).isEmpty();
+    }
+
+    @Test
+    void doisCandidatosDentroDaFolgaFicamSemResultado() {
+        IndiceProdutos pasteis = indice("Pastel de Carne", "Pastel de Queijo", "Pastel de Frango");
+
+        assertThat(pasteis.buscar("pastel")).isEmpty(); // Os três empatam: o LLM (ou o usuário) decide
+        assertThat(buscar(pasteis, "pastel de quejo")).hasValue("Pastel de Queijo"); // Com o sabor a folga aparece
+    }
+
+    @Test
+    void nomesDuplicadosNoCadastroNaoEscolhemUmAoAcaso() {
+        IndiceProdutos duplicado = indice("Pipoca", "Pipoca", "Coxinha");
+
+        assertThat(duplicado.buscar("pipoca")).isEmpty();
+        assertThat(duplicado.buscar("pipocas")).isEmpty();
+        assertThat(buscar(duplicado, "coxinhas")).hasValue("Coxinha");
+    }
+
+    private static Optional<String> buscar(IndiceProdutos indice, String nomeFalado) {
+        return indice.buscar(nomeFalado).map(resultado -> resultado.produto().nome());
+    }
+
+    private static IndiceProdutos indice(String... nomes) {
+        List<ProdutoServico> catalogo = new ArrayList<>();
+        for (String nome : nomes) {
+            catalogo.add(ProdutoServico.builder().id((long) catalogo.size() + 1).nome(nome).preco(BigDecimal.TEN).build());
+        }
+        return new IndiceProdutos(catalogo);
+    }
+}
@@ -0,0 +1,41 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.dto.VendaDTO;
+import br.ueg.meueg.suporte.CorpusComandos;
+import br.ueg.meueg.suporte.CorpusComandos.Comando;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Corpus de frases reais: o caminho rápido acerta as simples e devolve vazio (LLM) nas que não entende por completo
+class InterpretadorComandoTest {
+
+    private static final List<String> CATALOGO = CorpusComandos.catalogo();
+
+    private final InterpretadorComando interpretador = new InterpretadorComando();
+
+    static List<Comando> comandos() {
+        return CorpusComandos.comandos();
+    }
+
+    @ParameterizedTest
+    @MethodSource("comandos")
+    void interpretaCorpus(Comando comando) {
+        Optional<VendaDTO> venda = interpretador.interpretar(comando.frase(), CATALOGO);
+
+        if (comando.itens().isEmpty()) {
+            assertThat(venda).as(comando.frase()).isEmpty();
+            return;
+        }
+        assertThat(venda).as(comando.frase()).isPresent();
+        List<String> itens = venda.get().getItens().stream()
+                .map(item -> item.getQuantidade() + " " + item.getNomeProduto())
+                .toList();
+        assertThat(itens).as(comando.frase()).containsExactlyElementsOf(comando.itens());
+        assertThat(venda.get().getForma_pagamento()).as(comando.frase()).isEqualTo(comando.formaPagamento());
+    }
+}
@@ -0,0 +1,75 @@
+package br.ueg.meueg.voz;
+
+import br.ueg.meueg.enums.CodificacaoAudio;
+import br.ueg.meueg.suporte.CabecalhosAudio;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Uploads comprimidos: taxa e canais saem do cabeçalho (STREAMINFO do FLAC, OpusHead do Ogg) e o áudio segue como veio
+class PreprocessadorAudioTest {
+
+    private final PreprocessadorAudio preprocessador = new PreprocessadorAudio();
+
+    @Test
+    void flacLeTaxaECanaisDoStreaminfo() {
+        byte[] flac = CabecalhosAudio.flac(44100, 2);
+
+        AudioPreparado preparado = preprocessador.preparar(flac);
+
+        assertThat(preparado.codificacao()).isEqualTo(CodificacaoAudio.FLAC);
+        assertThat(preparado.taxaAmostragem()).isEqualTo(44100);
+        assertThat(preparado.canais()).isEqualTo(2);
+        assertThat(preparado.inicio()).isZero();
+        assertThat(preparado.tamanho()).isEqualTo(flac.length);
+    }
+
+    @Test
+    void flacDepoisDeId3DeixaATagDeFora() {
+        byte[] flac = CabecalhosAudio.flac(96000, 1);
+        byte[] comTag = CabecalhosAudio.comId3(flac, 300); // 300 = 0b10_0101100: usa dois dos bytes de 7 bits
+
+        AudioPreparado preparado = preprocessador.preparar(comTag);
+
+        assertThat(preparado.codificacao()).isEqualTo(CodificacaoAudio.FLAC);
+        assertThat(preparado.taxaAmostragem()).isEqualTo(96000);
+        assertThat(preparado.canais()).isEqualTo(1);
+        assertThat(preparado.inicio()).isEqualTo(10 + 300);
+        assertThat(preparado.tamanho()).isEqualTo(flac.length);
+    }
+
+    @Test
+    void oggOpusGuardaATaxaOriginalDoGravador() {
+        byte[] ogg = CabecalhosAudio.oggOpus(44100, 2);
+
+        AudioPreparado preparado = preprocessador.preparar(ogg);
+
+        assertThat(preparado.codificacao()).isEqualTo(CodificacaoAudio.OGG_OPUS);
+        assertThat(preparado.taxaAmostragem()).isEqualTo(44100);
+        assertThat(preparado.canais()).isEqualTo(2);
+        assertThat(preparado.inicio()).isZero();
+        assertThat(preparado.tamanho()).isEqualTo(ogg.length);
+    }
+
+    static List<byte[]> truncados() {
+        return List.of(
+                CabecalhosAudio.truncar(CabecalhosAudio.flac(44100, 2), 20),     // STREAMINFO cortado no meio
+                CabecalhosAudio.truncar(CabecalhosAudio.oggOpus(48000, 1), 40), // OpusHead cortado no meio
+                CabecalhosAudio.truncar(CabecalhosAudio.oggOpus(48000, 1), 27), // Só o cabeçalho da página
+                CabecalhosAudio.truncar(CabecalhosAudio.comId3(CabecalhosAudio.flac(16000, 1), 5000), 200)); // Tag maior que o arquivo
+    }
+
+    @ParameterizedTest
+    @MethodSource("truncados")
+    void cabecalhoTruncadoSegueComoVeio(byte[] audio) {
+        AudioPreparado preparado = preprocessador.preparar(audio);
+
+        assertThat(preparado.codificacao()).isEqualTo(CodificacaoAudio.DESCONHECIDA);
+        assertThat(preparado.inicio()).isZero();
+        assertThat(preparado.tamanho()).isEqualTo(audio.length);
+    }
+}
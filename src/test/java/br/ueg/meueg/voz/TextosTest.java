@@ -0,0 +1,64 @@
+package br.ueg.meueg.voz;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Regras de singular e chave fonética que o IndiceProdutos usa para casar o nome falado com o cadastro
+class TextosTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "pipocas, pipoca",
+            "pastéis, pastel",
+            "pães, pao",
+            "limões, limao",
+            "animais, animal",
+            "bombons, bombom",
+            "hamburgueres, hamburguer",
+            "luzes, luz",
+            "massas, massa",
+            "gás, gas",       // Palavra curta fica como está
+            "mel, mel"
+    })
+    void singular(String palavra, String esperado) {
+        assertThat(Textos.singular(Textos.normalizar(palavra))).isEqualTo(esperado);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "cachorro quente, caxoro kente",
+            "coxinha, cochinha",
+            "queijo, keijo",
+            "bombom, bombon",
+            "leite, leiti",
+            "gengibre, jenjibre",
+            "chá, xá",
+            "guaraná, guarana",
+            "açaí, acai"
+    })
+    void grafiasComOMesmoSomTemAMesmaChave(String grafia, String outraGrafia) {
+        assertThat(Textos.fonetica(Textos.normalizar(grafia))).isEqualTo(Textos.fonetica(Textos.normalizar(outraGrafia)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "pipoca, pipoka",
+            "cachorro quente, kaxoru kenti",
+            "pastéis, pastel"   // Singular antes da chave
+    })
+    void chaveFonetica(String texto, String esperado) {
+        assertThat(Textos.fonetica(Textos.normalizar(texto))).isEqualTo(esperado);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'Duas pipocas, no Pix.', duas pipocas no pix",
+            "'  Pão   de QUEIJO ', pao de queijo",
+            "Açaí!, acai"
+    })
+    void normalizar(String texto, String esperado) {
+        assertThat(Textos.normalizar(texto)).isEqualTo(esperado);
+    }
+}